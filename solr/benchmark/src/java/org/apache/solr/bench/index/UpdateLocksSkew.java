@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.index;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.math3.distribution.ZipfDistribution;
+import org.apache.commons.math3.random.Well19937c;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.update.UpdateLocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+@Warmup(time = 5, iterations = 3)
+@Measurement(time = 10, iterations = 5)
+@Fork(value = 1)
+// Per-doc update lock throughput when doc IDs follow a skewed (Zipf) distribution, as happens
+// with atomic updates incrementing counters on a few hot docs.
+public class UpdateLocksSkew {
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"1", "16", "64"})
+    int numStripes;
+
+    /** Zipf exponent; 0 is uniform, higher values concentrate updates on fewer IDs. */
+    @Param({"0", "1.2"})
+    double skew;
+
+    @Param("100000")
+    int numIds;
+
+    /** Simulated work done while holding the doc lock. */
+    @Param("50")
+    int tokensInLock;
+
+    UpdateLocks updateLocks;
+    BytesRef[] ids;
+    int[] idSequence;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      updateLocks = new UpdateLocks(0, numStripes);
+      ids = new BytesRef[numIds];
+      for (int i = 0; i < numIds; i++) {
+        ids[i] = new BytesRef("doc" + i);
+      }
+      idSequence = new int[1 << 16];
+      if (skew > 0) {
+        ZipfDistribution zipf = new ZipfDistribution(new Well19937c(42), numIds, skew);
+        for (int i = 0; i < idSequence.length; i++) {
+          idSequence[i] = zipf.sample() - 1;
+        }
+      } else {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < idSequence.length; i++) {
+          idSequence[i] = random.nextInt(numIds);
+        }
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    int pos = new SplittableRandom().nextInt(1 << 16);
+  }
+
+  @Benchmark
+  public Object runWithLock(BenchState state, ThreadState threadState) throws IOException {
+    final BytesRef id = state.ids[state.idSequence[threadState.pos++ & 0xFFFF]];
+    return state.updateLocks.runWithLock(
+        id,
+        condition -> {
+          Blackhole.consumeCPU(state.tokensInLock);
+          return id;
+        });
+  }
+}
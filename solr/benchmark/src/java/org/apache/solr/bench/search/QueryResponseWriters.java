@@ -18,7 +18,9 @@ package org.apache.solr.bench.search;
 
 import static org.apache.solr.bench.Docs.docs;
 import static org.apache.solr.bench.generators.SourceDSL.booleans;
+import static org.apache.solr.bench.generators.SourceDSL.doubles;
 import static org.apache.solr.bench.generators.SourceDSL.integers;
+import static org.apache.solr.bench.generators.SourceDSL.longs;
 import static org.apache.solr.bench.generators.SourceDSL.strings;
 
 import java.io.IOException;
@@ -31,6 +33,7 @@ import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.core.SolrCore;
+import org.apache.solr.response.JavaBinResponseWriter;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
@@ -62,22 +65,35 @@ public class QueryResponseWriters {
     @Param({CommonParams.JAVABIN, CommonParams.JSON, "cbor", "smile", "xml", "raw"})
     String wt;
 
+    /** Stored fields, or fields that are only in docValues */
+    @Param({"stored", "docValues"})
+    String fields;
+
+    /** See {@link JavaBinResponseWriter#STREAM_DOC_VALUES_PROP} */
+    @Param({"true", "false"})
+    boolean streamDocValues;
+
     private int docs = 100;
     private QueryRequest q;
 
     @Setup(Level.Trial)
     public void setup(MiniClusterBenchState miniClusterState) throws Exception {
 
+      System.setProperty(
+          JavaBinResponseWriter.STREAM_DOC_VALUES_PROP, Boolean.toString(streamDocValues));
       miniClusterState.startMiniCluster(1);
       miniClusterState.createCollection(collection, 1, 1);
 
-      // only stored fields are needed to cover the response writers perf
       Docs docGen =
           docs()
               .field("id", integers().incrementing())
               .field("text2_ts", strings().basicLatinAlphabet().multi(25).ofLengthBetween(30, 64))
               .field("bools_b", booleans().all())
-              .field("int1_is", integers().all());
+              .field("int1_is", integers().all())
+              .field("str1_s", strings().basicLatinAlphabet().ofLengthBetween(10, 64))
+              .field("int1_i_dv", integers().all())
+              .field("long1_l_dv", longs().all())
+              .field("double1_d_dv", doubles().all());
       miniClusterState.index(collection, docGen, docs);
       miniClusterState.forceMerge(collection, 5);
 
@@ -85,6 +101,9 @@ public class QueryResponseWriters {
       params.set(CommonParams.Q, "*:*");
       params.set(CommonParams.WT, wt);
       params.set(CommonParams.ROWS, docs);
+      if ("docValues".equals(fields)) {
+        params.set(CommonParams.FL, "str1_s,int1_i_dv,long1_l_dv,double1_d_dv");
+      }
       q = new QueryRequest(params);
       q.setResponseParser(new NoOpResponseParser(wt));
       String base = miniClusterState.nodes.get(0);
@@ -1090,6 +1090,12 @@ public class ZkController implements Closeable {
           if (isClosed) {
             return true;
           }
+          // forget how updates were forwarded to the replicas of the lost nodes
+          for (String lost : oldNodes) {
+            cc.getUpdateShardHandler()
+                .getReplicaForwardingStats()
+                .removeNode(zkStateReader.getBaseUrlForNodeName(lost));
+          }
           // if this node is in the top three then attempt to create nodeLost message
           int i = 0;
           for (String n : newNodes) {
@@ -134,6 +134,7 @@ import org.apache.solr.jersey.InjectionFactories;
 import org.apache.solr.jersey.JerseyAppHandlerCache;
 import org.apache.solr.logging.LogWatcher;
 import org.apache.solr.logging.MDCLoggingContext;
+import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrCoreMetricManager;
 import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricProducer;
@@ -156,6 +157,7 @@ import org.apache.solr.security.PKIAuthenticationPlugin;
 import org.apache.solr.security.PublicKeyHandler;
 import org.apache.solr.security.SecurityPluginHolder;
 import org.apache.solr.security.SolrNodeKeyPair;
+import org.apache.solr.servlet.ResponseCompressor;
 import org.apache.solr.update.CommitUpdateCommand;
 import org.apache.solr.update.SolrCoreState;
 import org.apache.solr.update.UpdateShardHandler;
@@ -294,6 +296,8 @@ public class CoreContainer {
 
   private final ObjectCache objectCache = new ObjectCache();
 
+  private final ResponseCompressor responseCompressor = new ResponseCompressor();
+
   public final NodeRoles nodeRoles = new NodeRoles(System.getProperty(NodeRoles.NODE_ROLES_PROP));
 
   private final ExecutorService indexSearcherExecutor;
@@ -774,6 +778,10 @@ public class CoreContainer {
     return objectCache;
   }
 
+  public ResponseCompressor getResponseCompressor() {
+    return responseCompressor;
+  }
+
   private void registerV2ApiIfEnabled(Object apiObject) {
     if (apiObject == null || containerHandlers.getApiBag() == null) {
       return;
@@ -1089,6 +1097,11 @@ public class CoreContainer {
         "implementation",
         SolrInfoBean.Category.CONTAINER.toString(),
         "version");
+    solrMetricsContext.gauge(
+        new MetricsMap(responseCompressor),
+        true,
+        "responseCompression",
+        SolrInfoBean.Category.CONTAINER.toString());
 
     SolrFieldCacheBean fieldCacheBean = new SolrFieldCacheBean();
     fieldCacheBean.initializeMetrics(solrMetricsContext, null);
@@ -1581,6 +1594,8 @@ public class CoreContainer {
     assert core.getName().equals(cd.getName())
         : "core name " + core.getName() + " != cd " + cd.getName();
 
+    responseCompressor.loadDictionary(core);
+
     SolrCore old = solrCores.putCore(cd, core);
 
     coreInitFailures.remove(cd.getName());
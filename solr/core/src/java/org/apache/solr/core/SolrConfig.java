@@ -298,6 +298,7 @@ public class SolrConfig implements MapSerializable {
       queryResultMaxDocsCached =
           get("query").get("queryResultMaxDocsCached").intVal(Integer.MAX_VALUE);
       enableLazyFieldLoading = get("query").get("enableLazyFieldLoading").boolVal(false);
+      coalesceQueries = get("query").get("coalesceQueries").boolVal(true);
 
       filterCacheConfig =
           CacheConfig.getConfig(this, get("query").get("filterCache"), "query/filterCache");
@@ -673,6 +674,7 @@ public class SolrConfig implements MapSerializable {
   public final int queryResultWindowSize;
   public final int queryResultMaxDocsCached;
   public final boolean enableLazyFieldLoading;
+  public final boolean coalesceQueries;
 
   // IndexConfig settings
   public final SolrIndexConfig indexConfig;
@@ -798,6 +800,14 @@ public class SolrConfig implements MapSerializable {
         autoSoftCommmitMaxDocs,
         autoSoftCommmitMaxTime;
     public final long autoCommitMaxSizeBytes;
+
+    /**
+     * Lower bound (ms) for an adaptive soft commit interval, which then varies between this and
+     * {@link #autoSoftCommmitMaxTime} depending on indexing rate and searcher opening cost. -1 (the
+     * default) always commits at {@link #autoSoftCommmitMaxTime}.
+     */
+    public final int autoSoftCommitMinTime;
+
     public final boolean openSearcher; // is opening a new searcher part of hard autocommit?
     public final boolean commitWithinSoftCommit;
     public final String commitPollInterval;
@@ -826,6 +836,7 @@ public class SolrConfig implements MapSerializable {
 
       this.autoSoftCommmitMaxDocs = autoSoftCommmitMaxDocs;
       this.autoSoftCommmitMaxTime = autoSoftCommmitMaxTime;
+      this.autoSoftCommitMinTime = -1;
 
       this.commitWithinSoftCommit = commitWithinSoftCommit;
       this.commitPollInterval = commitPollInterval;
@@ -842,6 +853,7 @@ public class SolrConfig implements MapSerializable {
       this.openSearcher = autoCommit.get("openSearcher").boolVal(true);
       this.autoSoftCommmitMaxDocs = updateHandler.get("autoSoftCommit").get("maxDocs").intVal(-1);
       this.autoSoftCommmitMaxTime = updateHandler.get("autoSoftCommit").get("maxTime").intVal(-1);
+      this.autoSoftCommitMinTime = updateHandler.get("autoSoftCommit").get("minTime").intVal(-1);
       this.commitWithinSoftCommit =
           updateHandler.get("commitWithin").get("softCommit").boolVal(true);
       this.commitPollInterval = updateHandler.get("commitPollInterval").txt();
@@ -860,7 +872,10 @@ public class SolrConfig implements MapSerializable {
               "openSearcher", openSearcher));
       map.put(
           "autoSoftCommit",
-          Map.of("maxDocs", autoSoftCommmitMaxDocs, "maxTime", autoSoftCommmitMaxTime));
+          Map.of(
+              "maxDocs", autoSoftCommmitMaxDocs,
+              "maxTime", autoSoftCommmitMaxTime,
+              "minTime", autoSoftCommitMinTime));
       map.put("commitPollInterval", commitPollInterval);
       return map;
     }
@@ -975,6 +990,7 @@ public class SolrConfig implements MapSerializable {
     m.put("queryResultWindowSize", queryResultWindowSize);
     m.put("queryResultMaxDocsCached", queryResultMaxDocsCached);
     m.put("enableLazyFieldLoading", enableLazyFieldLoading);
+    m.put("coalesceQueries", coalesceQueries);
     m.put("maxBooleanClauses", booleanQueryMaxClauseCount);
     m.put(MIN_PREFIX_QUERY_TERM_LENGTH, prefixQueryMinPrefixLength);
 
@@ -441,6 +441,9 @@ public class SolrXmlConfig {
     int distributedConnectionTimeout = HttpClientUtil.DEFAULT_CONNECT_TIMEOUT;
     String metricNameStrategy = UpdateShardHandlerConfig.DEFAULT_METRICNAMESTRATEGY;
     int maxRecoveryThreads = UpdateShardHandlerConfig.DEFAULT_MAXRECOVERYTHREADS;
+    int maxUpdateConcurrentStreams = UpdateShardHandlerConfig.DEFAULT_MAXCONCURRENTSTREAMS;
+    int maxRecoveryConcurrentStreams = UpdateShardHandlerConfig.DEFAULT_MAXCONCURRENTSTREAMS;
+    int maxRecoveryMBPerSec = UpdateShardHandlerConfig.DEFAULT_MAXRECOVERYMBPERSEC;
 
     Object muc = nl.remove("maxUpdateConnections");
     if (muc != null) {
@@ -478,6 +481,24 @@ public class SolrXmlConfig {
       defined = true;
     }
 
+    Object mucs = nl.remove("maxUpdateConcurrentStreams");
+    if (mucs != null) {
+      maxUpdateConcurrentStreams = parseInt("maxUpdateConcurrentStreams", mucs.toString());
+      defined = true;
+    }
+
+    Object mrcs = nl.remove("maxRecoveryConcurrentStreams");
+    if (mrcs != null) {
+      maxRecoveryConcurrentStreams = parseInt("maxRecoveryConcurrentStreams", mrcs.toString());
+      defined = true;
+    }
+
+    Object mrmb = nl.remove("maxRecoveryMBPerSec");
+    if (mrmb != null) {
+      maxRecoveryMBPerSec = parseInt("maxRecoveryMBPerSec", mrmb.toString());
+      defined = true;
+    }
+
     if (!defined && !alwaysDefine) return null;
 
     return new UpdateShardHandlerConfig(
@@ -486,7 +507,10 @@ public class SolrXmlConfig {
         distributedSocketTimeout,
         distributedConnectionTimeout,
         metricNameStrategy,
-        maxRecoveryThreads);
+        maxRecoveryThreads,
+        maxUpdateConcurrentStreams,
+        maxRecoveryConcurrentStreams,
+        maxRecoveryMBPerSec);
   }
 
   private static String removeValue(NamedList<Object> nl, String key) {
@@ -88,6 +88,7 @@ import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RateLimiter;
 import org.apache.solr.client.api.model.FileMetaData;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
@@ -1664,6 +1665,7 @@ public class IndexFetcher {
     private final Checksum checksum;
     private int errorCount = 0;
     private boolean aborted = false;
+    private final RateLimiter rateLimiter;
 
     FileFetcher(
         FileInterface file,
@@ -1678,6 +1680,7 @@ public class IndexFetcher {
       this.solrParamOutput = solrParamOutput;
       this.saveAs = saveAs;
       indexGen = latestGen;
+      rateLimiter = solrCore.getCoreContainer().getUpdateShardHandler().getRecoveryRateLimiter();
       if (includeChecksum) {
         checksum = new Adler32();
       } else {
@@ -1786,6 +1789,9 @@ public class IndexFetcher {
           // if everything is fine, write down the packet to the file
           file.write(buf, packetSize);
           bytesDownloaded += packetSize;
+          if (rateLimiter != null) {
+            rateLimiter.pause(packetSize);
+          }
           log.debug("Fetched and wrote {} bytes of file: {}", bytesDownloaded, fileName);
           // errorCount is always set to zero after a successful packet
           errorCount = 0;
@@ -35,6 +35,8 @@ import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.DaemonStream;
 import org.apache.solr.client.solrj.io.stream.ExceptionStream;
+import org.apache.solr.client.solrj.io.stream.ShardReadStats;
+import org.apache.solr.client.solrj.io.stream.SpillStats;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
@@ -57,6 +59,8 @@ import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrConfig;
 import org.apache.solr.core.SolrCore;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.pkg.PackagePluginHolder;
 import org.apache.solr.pkg.SolrPackageLoader;
 import org.apache.solr.request.SolrQueryRequest;
@@ -334,6 +338,24 @@ public class StreamHandler extends RequestHandlerBase
     return "StreamHandler";
   }
 
+  @Override
+  public void initializeMetrics(SolrMetricsContext parentContext, String scope) {
+    super.initializeMetrics(parentContext, scope);
+    // what sort, hashJoin etc. spilled to disk in this JVM, see SpillSettings
+    solrMetricsContext.gauge(
+        new MetricsMap(SpillStats.total()), true, "spill", getCategory().toString(), scope);
+    // how long merges waited for the shards they read ahead, see CloudSolrStream
+    solrMetricsContext.gauge(
+        new MetricsMap(ShardReadStats.total()), true, "shardRead", getCategory().toString(), scope);
+    // carrier threads held by blocked virtual threads, see StreamExecutorHelper
+    solrMetricsContext.gauge(
+        new MetricsMap(VirtualThreadPinningStats.get()),
+        true,
+        "virtualThreadPinning",
+        getCategory().toString(),
+        scope);
+  }
+
   public String getSource() {
     return null;
   }
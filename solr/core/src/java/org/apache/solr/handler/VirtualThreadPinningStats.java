@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.consumer.RecordingStream;
+import org.apache.solr.client.solrj.io.stream.StreamExecutorHelper;
+import org.apache.solr.common.MapWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * How often, and for how long, virtual threads were pinned to their carrier thread in this JVM.
+ * A virtual thread that blocks inside a {@code synchronized} block, or in native code, can't be
+ * unmounted, and keeps a carrier thread busy until it is unblocked; with few carrier threads this
+ * stalls every other virtual thread.
+ *
+ * <p>This listens to the {@value #PINNED_EVENT} JFR events, which the JVM only records for pinning
+ * longer than {@link #THRESHOLD}. It is only started when the streaming subsystem uses virtual
+ * threads, see {@link StreamExecutorHelper#isUsingVirtualThreads()}.
+ */
+final class VirtualThreadPinningStats implements MapWriter {
+
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  static final Duration THRESHOLD = Duration.ofMillis(20);
+
+  private static final VirtualThreadPinningStats INSTANCE = new VirtualThreadPinningStats();
+
+  private final LongAdder pinned = new LongAdder();
+  private final LongAdder pinnedNanos = new LongAdder();
+  private final AtomicLong maxPinnedNanos = new AtomicLong();
+
+  // guarded by this
+  private RecordingStream recording;
+
+  /** The statistics of this JVM, starting to listen for pinning first if needed. */
+  static VirtualThreadPinningStats get() {
+    INSTANCE.start();
+    return INSTANCE;
+  }
+
+  private synchronized void start() {
+    if (recording != null || !StreamExecutorHelper.isUsingVirtualThreads()) {
+      return;
+    }
+    try {
+      RecordingStream stream = new RecordingStream();
+      stream.enable(PINNED_EVENT).withThreshold(THRESHOLD);
+      stream.onEvent(PINNED_EVENT, event -> record(event.getDuration().toNanos()));
+      stream.startAsync();
+      recording = stream;
+    } catch (RuntimeException e) {
+      // e.g. JFR isn't available in this JVM; the streams work the same, only unobserved
+      log.warn("Unable to listen for pinned virtual threads", e);
+    }
+  }
+
+  void record(long nanos) {
+    pinned.increment();
+    pinnedNanos.add(nanos);
+    maxPinnedNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    synchronized (this) {
+      ew.put("enabled", recording != null);
+    }
+    ew.put("pinned", pinned.sum());
+    ew.put("pinnedMs", TimeUnit.NANOSECONDS.toMillis(pinnedNanos.sum()));
+    ew.put("maxPinnedMs", TimeUnit.NANOSECONDS.toMillis(maxPinnedNanos.get()));
+  }
+}
@@ -115,6 +115,9 @@ public class HttpShardHandler extends ShardHandler {
 
   private final Map<String, List<String>> shardToURLs;
   protected LBHttp2SolrClient<Http2SolrClient> lbClient;
+  private final ShardRequestHedger.Budget hedgeBudget = new ShardRequestHedger.Budget();
+  // whether the replicas are ordered by a preference that latency aware routing must keep
+  private boolean replicaOrderPreferred;
 
   public HttpShardHandler(HttpShardHandlerFactory httpShardHandlerFactory) {
     this.httpShardHandlerFactory = httpShardHandlerFactory;
@@ -211,7 +214,9 @@ public class HttpShardHandler extends ShardHandler {
       req.setUserPrincipal(requestInfo.getUserPrincipal());
     }
 
-    return httpShardHandlerFactory.newLBHttpSolrClientReq(req, urls);
+    LBSolrClient.Req lbReq = httpShardHandlerFactory.newLBHttpSolrClientReq(req, urls);
+    lbReq.setPreferredOrder(replicaOrderPreferred);
+    return lbReq;
   }
 
   private ShardResponse prepareShardResponse(ShardRequest sreq, String shard) {
@@ -280,7 +285,7 @@ public class HttpShardHandler extends ShardHandler {
       SimpleSolrResponse ssr,
       ShardResponse srsp,
       long startTimeNS) {
-    CompletableFuture<LBSolrClient.Rsp> future = this.lbClient.requestAsync(lbReq);
+    CompletableFuture<LBSolrClient.Rsp> future = requestAsync(lbReq, shard, params);
     future.whenComplete(new ShardRequestCallback(ssr, srsp, startTimeNS, sreq, shard, params));
     synchronized (FUTURE_MAP_LOCK) {
       // we want to ensure that there is a future in flight before incrementing
@@ -292,6 +297,20 @@ public class HttpShardHandler extends ShardHandler {
     }
   }
 
+  /**
+   * Sends a load balanced request to a shard, hedging it on another replica if {@value
+   * ShardParams#SHARDS_HEDGE} is set and the shard is slow to answer.
+   */
+  protected CompletableFuture<LBSolrClient.Rsp> requestAsync(
+      LBSolrClient.Req lbReq, String shard, SolrParams params) {
+    CompletableFuture<LBSolrClient.Rsp> future = this.lbClient.requestAsync(lbReq);
+    ShardRequestHedger hedger = httpShardHandlerFactory.hedger;
+    if (hedger == null) {
+      return future;
+    }
+    return hedger.hedge(lbClient, lbReq, future, shard, params, hedgeBudget);
+  }
+
   /** Subclasses could modify the request based on the shard */
   @SuppressWarnings("unused")
   protected QueryRequest createQueryRequest(
@@ -377,6 +396,7 @@ public class HttpShardHandler extends ShardHandler {
 
     final ReplicaListTransformer replicaListTransformer =
         httpShardHandlerFactory.getReplicaListTransformer(req);
+    replicaOrderPreferred = httpShardHandlerFactory.isReplicaOrderPreferred(req);
 
     AllowListUrlChecker urlChecker = req.getCoreContainer().getAllowListUrlChecker();
     if (shards != null
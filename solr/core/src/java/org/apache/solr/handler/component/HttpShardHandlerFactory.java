@@ -30,6 +30,7 @@ import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.impl.AdaptiveReplicaSelector;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
 import org.apache.solr.client.solrj.impl.LBHttp2SolrClient;
@@ -54,6 +55,7 @@ import org.apache.solr.common.util.URLUtil;
 import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricProducer;
 import org.apache.solr.metrics.SolrMetricsContext;
@@ -85,6 +87,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
   protected volatile Http2SolrClient defaultClient;
   protected InstrumentedHttpListenerFactory httpListenerFactory;
   protected LBHttp2SolrClient<Http2SolrClient> loadbalancer;
+  ShardRequestHedger hedger;
 
   int corePoolSize = 0;
   int maximumPoolSize = Integer.MAX_VALUE;
@@ -93,6 +96,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
   int permittedLoadBalancerRequestsMinimumAbsolute = 0;
   float permittedLoadBalancerRequestsMaximumFraction = 1.0f;
   boolean accessPolicy = false;
+  boolean adaptiveReplicaSelection = false;
   private SolrMetricsContext solrMetricsContext;
 
   private String scheme = null;
@@ -103,6 +107,8 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
 
   private RequestReplicaListTransformerGenerator requestReplicaListTransformerGenerator =
       new RequestReplicaListTransformerGenerator();
+  // whether replicaRouting makes the stable routing the default
+  private boolean stableRoutingByDefault = false;
 
   // URL scheme to be used in distributed search.
   static final String INIT_URL_SCHEME = "urlScheme";
@@ -128,6 +134,15 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
   // Configure if the threadpool favours fairness over throughput
   static final String INIT_FAIRNESS_POLICY = "fairnessPolicy";
 
+  // Configure if requests go to the better of two replicas by their recent latency
+  static final String INIT_ADAPTIVE_REPLICA_SELECTION = "adaptiveReplicaSelection";
+
+  // Configure if shards are asked to compress their responses
+  static final String INIT_RESPONSE_COMPRESSION = "responseCompression";
+
+  // The maximum number of concurrent requests on each HTTP/2 connection
+  static final String INIT_MAX_CONCURRENT_STREAMS = "maxConcurrentStreams";
+
   /** Get {@link ShardHandler} that uses the default http client. */
   @Override
   public ShardHandler getShardHandler() {
@@ -187,7 +202,8 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
     if (stableRltFactory == null) {
       stableRltFactory = new AffinityReplicaListTransformerFactory();
     }
-    if (ShardParams.REPLICA_STABLE.equals(defaultRouting)) {
+    stableRoutingByDefault = ShardParams.REPLICA_STABLE.equals(defaultRouting);
+    if (stableRoutingByDefault) {
       defaultRltFactory = stableRltFactory;
     } else {
       defaultRltFactory = RequestReplicaListTransformerGenerator.RANDOM_RLTF;
@@ -260,6 +276,8 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             permittedLoadBalancerRequestsMaximumFraction,
             sb);
     this.accessPolicy = getParameter(args, INIT_FAIRNESS_POLICY, accessPolicy, sb);
+    this.adaptiveReplicaSelection =
+        getParameter(args, INIT_ADAPTIVE_REPLICA_SELECTION, adaptiveReplicaSelection, sb);
 
     if (args != null && args.get("shardsWhitelist") != null) {
       log.warn(
@@ -305,6 +323,8 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             sb);
     int soTimeout =
         getParameter(args, HttpClientUtil.PROP_SO_TIMEOUT, HttpClientUtil.DEFAULT_SO_TIMEOUT, sb);
+    boolean responseCompression = getParameter(args, INIT_RESPONSE_COMPRESSION, false, sb);
+    int maxConcurrentStreams = getParameter(args, INIT_MAX_CONCURRENT_STREAMS, -1, sb);
 
     this.defaultClient =
         new Http2SolrClient.Builder()
@@ -312,9 +332,15 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             .withIdleTimeout(soTimeout, TimeUnit.MILLISECONDS)
             .withExecutor(commExecutor)
             .withMaxConnectionsPerHost(maxConnectionsPerHost)
+            .withResponseCompression(responseCompression)
+            .withMaxConcurrentStreams(maxConcurrentStreams)
             .build();
     this.defaultClient.addListenerFactory(this.httpListenerFactory);
-    this.loadbalancer = new LBHttp2SolrClient.Builder<Http2SolrClient>(defaultClient).build();
+    this.loadbalancer =
+        new LBHttp2SolrClient.Builder<Http2SolrClient>(defaultClient)
+            .withAdaptiveReplicaSelection(adaptiveReplicaSelection)
+            .build();
+    this.hedger = new ShardRequestHedger(defaultClient);
 
     initReplicaListTransformers(getParameter(args, "replicaRouting", null, sb));
 
@@ -344,6 +370,9 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
   @Override
   public void close() {
     try {
+      if (hedger != null) {
+        hedger.close();
+      }
       if (loadbalancer != null) {
         loadbalancer.close();
       }
@@ -405,11 +434,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
     if (zkController != null) {
       return requestReplicaListTransformerGenerator.getReplicaListTransformer(
           params,
-          zkController
-              .getZkStateReader()
-              .getClusterProperties()
-              .getOrDefault(ZkStateReader.DEFAULT_SHARD_PREFERENCES, "")
-              .toString(),
+          getDefaultShardPreferences(zkController),
           zkController.getNodeName(),
           zkController.getBaseUrl(),
           zkController.getSysPropsCacher());
@@ -418,6 +443,32 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
     }
   }
 
+  private static String getDefaultShardPreferences(ZkController zkController) {
+    return zkController
+        .getZkStateReader()
+        .getClusterProperties()
+        .getOrDefault(ZkStateReader.DEFAULT_SHARD_PREFERENCES, "")
+        .toString();
+  }
+
+  /**
+   * Whether the replicas of the request are ordered by a preference that the latency aware routing
+   * of {@code adaptiveReplicaSelection} must keep: the request's {@code shards.preference}, the
+   * {@code defaultShardPreferences} cluster property, or {@code replicaRouting} making the stable
+   * routing the default.
+   */
+  protected boolean isReplicaOrderPreferred(final SolrQueryRequest req) {
+    if (!adaptiveReplicaSelection) {
+      return false;
+    }
+    if (stableRoutingByDefault || req.getParams().get(ShardParams.SHARDS_PREFERENCE) != null) {
+      return true;
+    }
+    @SuppressWarnings("resource")
+    ZkController zkController = req.getCoreContainer().getZkController();
+    return zkController != null && !getDefaultShardPreferences(zkController).isEmpty();
+  }
+
   public SolrClient getClient() {
     return defaultClient;
   }
@@ -447,5 +498,11 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             null,
             solrMetricsContext.getMetricRegistry(),
             SolrMetricManager.mkName("httpShardExecutor", expandedScope, "threadPool"));
+    AdaptiveReplicaSelector replicaSelector = loadbalancer.getReplicaSelector();
+    if (replicaSelector != null) {
+      solrMetricsContext.gauge(
+          new MetricsMap(replicaSelector), true, "adaptiveReplicaSelection", expandedScope);
+    }
+    solrMetricsContext.gauge(new MetricsMap(hedger), true, "shardRequestHedging", expandedScope);
   }
 }
@@ -88,7 +88,7 @@ public class ParallelHttpShardHandler extends HttpShardHandler {
     final Runnable executeRequestRunnable =
         () -> {
           try {
-            CompletableFuture<LBSolrClient.Rsp> future = this.lbClient.requestAsync(lbReq);
+            CompletableFuture<LBSolrClient.Rsp> future = requestAsync(lbReq, shard, params);
             future.whenComplete(
                 new ShardRequestCallback(ssr, srsp, startTimeNS, sreq, shard, params));
             synchronized (FUTURE_MAP_LOCK) {
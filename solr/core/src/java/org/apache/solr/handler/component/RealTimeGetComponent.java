@@ -26,6 +26,7 @@ import com.carrotsearch.hppc.LongSet;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -35,6 +36,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
@@ -44,6 +46,7 @@ import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
@@ -51,6 +54,7 @@ import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.solr.client.solrj.SolrResponse;
@@ -72,6 +76,7 @@ import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.CollectionUtil;
 import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.request.LocalSolrQueryRequest;
@@ -83,8 +88,10 @@ import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.DocIterationInfo;
+import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocList;
 import org.apache.solr.search.DocValuesIteratorCache;
+import org.apache.solr.search.QParser;
 import org.apache.solr.search.QueryUtils;
 import org.apache.solr.search.ReturnFields;
 import org.apache.solr.search.SolrDocumentFetcher;
@@ -195,6 +202,12 @@ public class RealTimeGetComponent extends SearchComponent {
       return;
     }
 
+    val = params.get("getChanges");
+    if (val != null) {
+      processGetChanges(rb);
+      return;
+    }
+
     final IdsRequested reqIds = IdsRequested.parseParams(req);
 
     if (reqIds.allIds.isEmpty()) {
@@ -1372,6 +1385,175 @@ public class RealTimeGetComponent extends SearchComponent {
     }
   }
 
+  ///////////////////////////////////////////////////////////////////////////////////
+  // Returns documents added or updated after a version
+  ///////////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Returns the documents of this core that were added or updated after the version given by the
+   * <code>getChanges</code> param, in ascending <code>_version_</code> order and limited to <code>
+   * rows</code>. This is a per core request, meant for consumers that keep a version watermark per
+   * shard, such as the <code>topic()</code> streaming expression.
+   *
+   * <p>The changed ids are read from the update log when it still goes back to the watermark, and
+   * otherwise from a version range query against the index. The documents are then fetched like
+   * any other real-time get, restricted by <code>q</code> and <code>fq</code>.
+   */
+  public void processGetChanges(ResponseBuilder rb) throws IOException {
+    SolrQueryRequest req = rb.req;
+    SolrParams params = req.getParams();
+
+    long since = params.getLong("getChanges");
+    int rows = params.getInt(CommonParams.ROWS, CommonParams.ROWS_DEFAULT);
+
+    UpdateLog ulog = req.getCore().getUpdateHandler().getUpdateLog();
+    if (ulog == null) {
+      throw new SolrException(ErrorCode.BAD_REQUEST, "getChanges requires an update log");
+    }
+
+    String source = "updateLog";
+    TreeMap<Long, String> changes = getChangesFromUpdateLog(req.getCore(), ulog, since);
+    if (changes == null) {
+      source = "index";
+      changes = getChangesFromIndex(req, ulog, since, rows);
+    }
+
+    if (changes.isEmpty()) {
+      SolrDocumentList docList = new SolrDocumentList();
+      docList.setNumFound(0);
+      rb.rsp.addResponse(docList);
+    } else {
+      long maxVersion = changes.lastKey();
+      ModifiableSolrParams changesParams = new ModifiableSolrParams(params);
+      changesParams.remove("getChanges");
+      changesParams.remove(ID);
+      changesParams.set("ids", StrUtils.join(changes.values(), ','));
+      // a document updated again since it was listed may now sort after changes that were cut off
+      // by rows, so only return the versions we listed to never move a watermark past those
+      changesParams.add(
+          CommonParams.FQ,
+          "{!frange incl=false l=" + since + " u=" + maxVersion + "}" + VERSION_FIELD);
+      String q = params.get(CommonParams.Q);
+      if (q != null && !"*:*".equals(q)) {
+        changesParams.add(CommonParams.FQ, q);
+      }
+      String fl = params.get(CommonParams.FL);
+      if (fl != null && !fl.contains(VERSION_FIELD)) {
+        changesParams.set(CommonParams.FL, fl + "," + VERSION_FIELD);
+      }
+
+      req.setParams(changesParams);
+      try {
+        rb.rsp.setReturnFields(new SolrReturnFields(req));
+        process(rb);
+      } finally {
+        req.setParams(params);
+      }
+
+      // the update log lists changes regardless of q and fq, so only cut them off by rows here
+      SolrDocumentList docList = (SolrDocumentList) rb.rsp.getResponse();
+      if (docList.size() > rows) {
+        docList.subList(rows, docList.size()).clear();
+        docList.setNumFound(docList.size());
+      }
+    }
+
+    SimpleOrderedMap<Object> info = new SimpleOrderedMap<>();
+    info.add("source", source);
+    info.add("since", since);
+    rb.rsp.add("changes", info);
+  }
+
+  /**
+   * Returns the latest version of each document added or updated after <code>since</code>, keyed
+   * by version, or null if the update log does not go back to <code>since</code>.
+   */
+  private static TreeMap<Long, String> getChangesFromUpdateLog(
+      SolrCore core, UpdateLog ulog, long since) {
+    IndexSchema schema = core.getLatestSchema();
+    Map<String, Long> latest = new HashMap<>();
+    boolean covered = false;
+    try (UpdateLog.RecentUpdates recentUpdates = ulog.getRecentUpdates()) {
+      for (Long version : recentUpdates.getVersions(ulog.getNumRecordsToKeep())) {
+        if (Math.abs(version) <= since) {
+          covered = true;
+          continue;
+        }
+        if (version < 0) {
+          continue; // a delete, the document won't be returned
+        }
+        try {
+          Object o = recentUpdates.lookup(version);
+          if (o == null) continue;
+          List<?> entry = (List<?>) o;
+          int oper = (Integer) entry.get(UpdateLog.FLAGS_IDX) & UpdateLog.OPERATION_MASK;
+          if (oper == UpdateLog.ADD || oper == UpdateLog.UPDATE_INPLACE) {
+            String id =
+                schema.printableUniqueKey((SolrInputDocument) entry.get(entry.size() - 1));
+            latest.merge(id, version, Math::max);
+          }
+        } catch (SolrException | ClassCastException e) {
+          log.warn("Exception reading log for changes", e);
+        }
+      }
+    }
+    if (!covered) {
+      return null;
+    }
+
+    TreeMap<Long, String> changes = new TreeMap<>();
+    latest.forEach((id, version) -> changes.put(version, id));
+    return changes;
+  }
+
+  /**
+   * Returns the first <code>rows</code> documents matching the request and added or updated after
+   * <code>since</code>, keyed by version, from the realtime searcher.
+   */
+  private static TreeMap<Long, String> getChangesFromIndex(
+      SolrQueryRequest req, UpdateLog ulog, long since, int rows) throws IOException {
+    IndexSchema schema = req.getSchema();
+    ulog.openRealtimeSearcher();
+    RefCounted<SolrIndexSearcher> searchHolder = req.getCore().getRealtimeSearcher();
+    try {
+      SolrIndexSearcher searcher = searchHolder.get();
+      Query query;
+      List<Query> filters = new ArrayList<>();
+      try {
+        String q = req.getParams().get(CommonParams.Q);
+        query = q == null ? new MatchAllDocsQuery() : QParser.getParser(q, req).getQuery();
+        filters.addAll(QueryUtils.parseFilterQueries(req));
+        filters.add(
+            QParser.getParser("{!frange incl=false l=" + since + "}" + VERSION_FIELD, req)
+                .getQuery());
+      } catch (SyntaxError e) {
+        throw new SolrException(ErrorCode.BAD_REQUEST, e);
+      }
+      Sort sort = new Sort(schema.getField(VERSION_FIELD).getSortField(false));
+      DocList docs = searcher.getDocList(query, filters, sort, 0, rows, 0);
+
+      // doc values have to be read in docid order
+      int[] docIds = new int[docs.size()];
+      DocIterator it = docs.iterator();
+      for (int i = 0; i < docIds.length; i++) {
+        docIds[i] = it.nextDoc();
+      }
+      Arrays.sort(docIds);
+
+      TreeMap<Long, String> changes = new TreeMap<>();
+      NumericDocValues versions = searcher.getSlowAtomicReader().getNumericDocValues(VERSION_FIELD);
+      Set<String> idFields = Set.of(schema.getUniqueKeyField().getName());
+      for (int docId : docIds) {
+        if (versions == null || !versions.advanceExact(docId)) continue;
+        Document doc = searcher.getDocFetcher().doc(docId, idFields);
+        changes.put(versions.longValue(), schema.printableUniqueKey(doc));
+      }
+      return changes;
+    } finally {
+      searchHolder.decref();
+    }
+  }
+
   private List<Long> resolveVersionRanges(String versionsStr, UpdateLog ulog) {
     if (StrUtils.isNullOrEmpty(versionsStr)) {
       return Collections.emptyList();
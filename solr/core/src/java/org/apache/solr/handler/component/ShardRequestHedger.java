@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.impl.LBHttp2SolrClient;
+import org.apache.solr.client.solrj.impl.LBSolrClient;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hedges shard requests for {@link HttpShardHandler}: when {@link ShardParams#SHARDS_HEDGE} is set
+ * and a shard has not answered after its recent p95 latency (or {@link
+ * ShardParams#SHARDS_HEDGE_DELAY}), the same request is sent to another replica of the shard. The
+ * first response wins and the other request is cancelled, both on the client and, for cancellable
+ * queries, through the <code>/tasks/cancel</code> handler of the losing replica.
+ *
+ * <p>Each top level request may hedge at most {@link ShardParams#SHARDS_HEDGE_BUDGET} of its shard
+ * requests, so that a slow cluster is not made slower by doubling its load.
+ */
+final class ShardRequestHedger implements MapWriter {
+
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  static final float DEFAULT_BUDGET = 0.1f;
+
+  // shards with fewer samples than this are not hedged unless a fixed delay is given
+  static final int MIN_SAMPLES = 20;
+  private static final int MAX_SAMPLES = 128;
+  private static final long MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+  private static final int MAX_SHARDS = 10_000;
+
+  private final Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(new SolrNamedThreadFactory("httpShardHedger"));
+  private final Http2SolrClient httpClient;
+
+  private final LongAdder hedged = new LongAdder();
+  private final LongAdder hedgeWins = new LongAdder();
+  private final LongAdder overBudget = new LongAdder();
+  private final LongAdder cancelRequests = new LongAdder();
+
+  ShardRequestHedger(Http2SolrClient httpClient) {
+    this.httpClient = httpClient;
+  }
+
+  /** The shard requests hedged so far for one top level request. */
+  static final class Budget {
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger hedges = new AtomicInteger();
+
+    boolean tryAcquire(float fraction) {
+      int allowed = Math.max(1, (int) (requests.get() * fraction));
+      while (true) {
+        int used = hedges.get();
+        if (used >= allowed) {
+          return false;
+        }
+        if (hedges.compareAndSet(used, used + 1)) {
+          return true;
+        }
+      }
+    }
+  }
+
+  /** The most recent latencies of a shard, in nanoseconds. */
+  private static final class Latencies {
+    private final long[] samples = new long[MAX_SAMPLES];
+    private int count;
+
+    synchronized void add(long nanos) {
+      samples[count++ % MAX_SAMPLES] = nanos;
+    }
+
+    synchronized long percentile(double p) {
+      int n = Math.min(count, MAX_SAMPLES);
+      if (n < MIN_SAMPLES) {
+        return -1;
+      }
+      long[] sorted = Arrays.copyOf(samples, n);
+      Arrays.sort(sorted);
+      return sorted[Math.min(n - 1, (int) Math.ceil(p * n) - 1)];
+    }
+  }
+
+  private Latencies latencies(String shard) {
+    Latencies l = latencies.get(shard);
+    if (l == null) {
+      if (latencies.size() >= MAX_SHARDS) {
+        latencies.clear(); // replicas moved around a lot, start over
+      }
+      l = latencies.computeIfAbsent(shard, k -> new Latencies());
+    }
+    return l;
+  }
+
+  /** How long to wait before hedging a request to this shard, or -1 to not hedge it. */
+  long getDelayNanos(String shard, SolrParams params) {
+    long delayMs = params.getLong(ShardParams.SHARDS_HEDGE_DELAY, -1);
+    if (delayMs >= 0) {
+      return TimeUnit.MILLISECONDS.toNanos(delayMs);
+    }
+    long p95 = latencies(shard).percentile(0.95);
+    return p95 < 0 ? -1 : Math.max(MIN_DELAY_NANOS, p95);
+  }
+
+  /**
+   * Tracks the latency of a shard request that was just sent, and hedges it if it was asked for.
+   *
+   * @param primary the request as sent to the first replica of <code>req</code>
+   * @return a future that completes with the first successful response, or the primary request's
+   *     failure if no request succeeds
+   */
+  CompletableFuture<LBSolrClient.Rsp> hedge(
+      LBHttp2SolrClient<?> lbClient,
+      LBSolrClient.Req req,
+      CompletableFuture<LBSolrClient.Rsp> primary,
+      String shard,
+      SolrParams params,
+      Budget budget) {
+    final long start = System.nanoTime();
+    budget.requests.incrementAndGet();
+    primary.thenRun(() -> latencies(shard).add(System.nanoTime() - start));
+
+    if (!params.getBool(ShardParams.SHARDS_HEDGE, false) || req.getEndpoints().size() < 2) {
+      return primary;
+    }
+    long delay = getDelayNanos(shard, params);
+    if (delay < 0) {
+      return primary;
+    }
+
+    HedgedRequest hedgedRequest = new HedgedRequest(lbClient, req, primary, params, budget);
+    hedgedRequest.timer =
+        scheduler.schedule(hedgedRequest::sendHedge, delay, TimeUnit.NANOSECONDS);
+    return hedgedRequest.result;
+  }
+
+  private final class HedgedRequest {
+    final LBHttp2SolrClient<?> lbClient;
+    final LBSolrClient.Req req;
+    final SolrParams params;
+    final Budget budget;
+    final CompletableFuture<LBSolrClient.Rsp> primary;
+    final LBSolrClient.Endpoint primaryEndpoint;
+    final CompletableFuture<LBSolrClient.Rsp> result = new CompletableFuture<>();
+
+    // guarded by this
+    CompletableFuture<LBSolrClient.Rsp> hedge;
+    LBSolrClient.Endpoint hedgeEndpoint;
+    Throwable primaryFailure;
+    boolean hedgeFailed;
+    volatile ScheduledFuture<?> timer;
+
+    HedgedRequest(
+        LBHttp2SolrClient<?> lbClient,
+        LBSolrClient.Req req,
+        CompletableFuture<LBSolrClient.Rsp> primary,
+        SolrParams params,
+        Budget budget) {
+      this.lbClient = lbClient;
+      this.req = req;
+      this.params = params;
+      this.budget = budget;
+      this.primary = primary;
+      // requestAsync has already put the replica it sends to first
+      this.primaryEndpoint = req.getEndpoints().get(0);
+
+      primary.whenComplete(this::onPrimary);
+      result.whenComplete(
+          (rsp, t) -> {
+            ScheduledFuture<?> t1 = timer;
+            if (t1 != null) {
+              t1.cancel(false);
+            }
+            if (result.isCancelled()) {
+              primary.cancel(true);
+              CompletableFuture<LBSolrClient.Rsp> h;
+              synchronized (this) {
+                h = hedge;
+              }
+              if (h != null) {
+                h.cancel(true);
+              }
+            }
+          });
+    }
+
+    void sendHedge() {
+      synchronized (this) {
+        if (result.isDone() || primaryFailure != null) {
+          return;
+        }
+        if (!budget.tryAcquire(
+            params.getFloat(ShardParams.SHARDS_HEDGE_BUDGET, DEFAULT_BUDGET))) {
+          overBudget.increment();
+          return;
+        }
+        List<LBSolrClient.Endpoint> others = new ArrayList<>(req.getEndpoints());
+        others.remove(primaryEndpoint);
+        LBSolrClient.Req hedgeReq =
+            new LBSolrClient.Req(req.getRequest(), others, req.getNumServersToTry());
+        hedgeReq.setPreferredOrder(req.isPreferredOrder());
+        hedged.increment();
+        hedge = lbClient.requestAsync(hedgeReq);
+        hedgeEndpoint = hedgeReq.getEndpoints().get(0);
+      }
+      hedge.whenComplete(this::onHedge);
+    }
+
+    private void onPrimary(LBSolrClient.Rsp rsp, Throwable t) {
+      if (t == null) {
+        if (result.complete(rsp)) {
+          LBSolrClient.Endpoint loser;
+          CompletableFuture<LBSolrClient.Rsp> h;
+          synchronized (this) {
+            h = hedge;
+            loser = hedgeEndpoint;
+          }
+          if (h != null && !h.isDone()) {
+            h.cancel(true);
+            cancelOnServer(loser);
+          }
+        }
+        return;
+      }
+      synchronized (this) {
+        primaryFailure = t;
+        if (hedge != null && !hedgeFailed) {
+          return; // wait for the hedge
+        }
+      }
+      result.completeExceptionally(t);
+    }
+
+    private void onHedge(LBSolrClient.Rsp rsp, Throwable t) {
+      if (t == null) {
+        if (result.complete(rsp)) {
+          hedgeWins.increment();
+          if (!primary.isDone()) {
+            primary.cancel(true);
+            cancelOnServer(primaryEndpoint);
+          }
+        }
+        return;
+      }
+      Throwable failure;
+      synchronized (this) {
+        hedgeFailed = true;
+        failure = primaryFailure;
+      }
+      if (failure != null) {
+        result.completeExceptionally(failure);
+      }
+    }
+
+    /** Cancels the losing request on its replica, if it is a cancellable query. */
+    private void cancelOnServer(LBSolrClient.Endpoint endpoint) {
+      String queryId = params.get(ShardParams.QUERY_ID);
+      if (queryId == null || endpoint == null || endpoint.getCore() == null) {
+        return;
+      }
+      ModifiableSolrParams cancelParams = new ModifiableSolrParams();
+      cancelParams.set(CommonParams.QUERY_UUID, queryId);
+      cancelParams.set(CommonParams.DISTRIB, false);
+      QueryRequest cancel = new QueryRequest(cancelParams);
+      cancel.setPath("/tasks/cancel");
+      cancel.setUserPrincipal(req.getRequest().getUserPrincipal());
+      cancelRequests.increment();
+      try {
+        httpClient
+            .requestWithBaseUrl(
+                endpoint.getBaseUrl(), c -> c.requestAsync(cancel, endpoint.getCore()))
+            .exceptionally(
+                e -> {
+                  log.debug("Could not cancel hedged request {} on {}", queryId, endpoint, e);
+                  return null;
+                });
+      } catch (Exception e) {
+        log.debug("Could not cancel hedged request {} on {}", queryId, endpoint, e);
+      }
+    }
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    ew.put("hedged", hedged.sum());
+    ew.put("hedgeWins", hedgeWins.sum());
+    ew.put("overBudget", overBudget.sum());
+    ew.put("cancelRequests", cancelRequests.sum());
+  }
+
+  void close() {
+    ExecutorUtil.shutdownNowAndAwaitTermination(scheduler);
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.solr.handler.export;
 
 import java.io.IOException;
 import java.util.Date;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter;
 import org.apache.solr.common.MapWriter;
 import org.apache.solr.search.DocValuesIteratorCache;
 
@@ -30,6 +31,10 @@ class DateFieldWriter extends LongFieldWriter {
 
   @Override
   protected void doWrite(MapWriter.EntryWriter ew, long val) throws IOException {
-    ew.put(field, new Date(val));
+    if (ew instanceof ColumnarTupleWriter.RowWriter rowWriter) {
+      rowWriter.putDate(field, val);
+    } else {
+      ew.put(field, new Date(val));
+    }
   }
 }
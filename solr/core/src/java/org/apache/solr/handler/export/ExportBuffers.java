@@ -19,12 +19,15 @@ package org.apache.solr.handler.export;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
 import org.apache.lucene.index.LeafReaderContext;
@@ -60,6 +63,9 @@ class ExportBuffers {
   Buffer outputBuffer;
   Runnable filler;
   ExecutorService service;
+  // sorts segments concurrently, if ExportWriter.SEGMENT_THREADS_PARAM asks for it
+  SegmentExecutor segmentExecutor;
+  MergeIterator mergeIterator;
   Throwable error;
   LongAdder outputCounter = new LongAdder();
   volatile boolean shutDown = false;
@@ -96,7 +102,21 @@ class ExportBuffers {
     outputBuffer = bufferTwo;
     SortDoc writerSortDoc = exportWriter.getSortDoc(searcher, sort.getSort());
 
-    MergeIterator mergeIterator = exportWriter.getMergeIterator(leaves, sets, writerSortDoc);
+    int segmentThreads = Math.min(exportWriter.segmentThreads, leaves.size());
+    Executor sharedExecutor =
+        exportWriter.req.getCoreContainer() == null
+            ? null
+            : exportWriter.req.getCoreContainer().getIndexSearcherExecutor();
+    if (segmentThreads > 1 && sharedExecutor != null) {
+      segmentExecutor = new SegmentExecutor(sharedExecutor, segmentThreads);
+    }
+    try {
+      mergeIterator = exportWriter.getMergeIterator(leaves, sets, writerSortDoc, segmentExecutor);
+    } catch (Throwable t) {
+      shutdownNow();
+      awaitSegmentTasks();
+      throw t;
+    }
 
     bufferOne.initialize(writerSortDoc);
     bufferTwo.initialize(writerSortDoc);
@@ -140,7 +160,9 @@ class ExportBuffers {
             buffer = getFillBuffer();
             // log.debug("--- filler final got buffer {}", buffer);
           } catch (Throwable e) {
-            if (!(e instanceof InterruptedException) && !(e instanceof BrokenBarrierException)) {
+            if (!(e instanceof InterruptedException)
+                && !(e instanceof BrokenBarrierException)
+                && !(e instanceof ExportWriter.IgnoreException)) {
               /*
               Don't log the interrupt or BrokenBarrierException as it creates noise during early client disconnects and
               doesn't log anything particularly useful in other situations.
@@ -200,9 +222,30 @@ class ExportBuffers {
       service.shutdownNow();
       service = null;
     }
+    if (segmentExecutor != null) {
+      // drop the queued segment tasks, and fail the batches the filler may be waiting for
+      segmentExecutor.shutdown();
+      if (mergeIterator != null) {
+        mergeIterator.cancel();
+      }
+    }
     shutDown = true;
   }
 
+  /** Waits for the running segment tasks, which read from the searcher, to stop. */
+  private void awaitSegmentTasks() {
+    if (segmentExecutor == null) {
+      return;
+    }
+    try {
+      if (!segmentExecutor.awaitTermination(EXCHANGE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.error("Export segment tasks did not terminate");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   public boolean isShutDown() {
     return shutDown;
   }
@@ -257,6 +300,85 @@ class ExportBuffers {
     } finally {
       log.debug("--- all done, shutting down buffers");
       shutdownNow();
+      awaitSegmentTasks();
+    }
+  }
+
+  /**
+   * Runs the segment tasks of one export on the node's shared searcher executor, at most {@code
+   * maxThreads} at a time. If that executor is saturated, a task runs on the calling thread.
+   */
+  static final class SegmentExecutor implements Executor {
+    private final Executor shared;
+    private final int maxThreads;
+    // guarded by this
+    private final ArrayDeque<Runnable> queued = new ArrayDeque<>();
+    private int running;
+    private boolean shutDown;
+
+    SegmentExecutor(Executor shared, int maxThreads) {
+      this.shared = shared;
+      this.maxThreads = maxThreads;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+      synchronized (this) {
+        if (shutDown) {
+          throw new RejectedExecutionException("The export is shut down");
+        }
+        if (running >= maxThreads) {
+          queued.add(task);
+          return;
+        }
+        running++;
+      }
+      submit(task);
+    }
+
+    private void submit(Runnable task) {
+      try {
+        shared.execute(() -> runAndNext(task));
+      } catch (RejectedExecutionException e) {
+        runAndNext(task);
+      }
+    }
+
+    private void runAndNext(Runnable task) {
+      try {
+        task.run();
+      } finally {
+        Runnable next;
+        synchronized (this) {
+          next = queued.poll();
+          if (next == null) {
+            running--;
+            notifyAll();
+          }
+        }
+        if (next != null) {
+          submit(next);
+        }
+      }
+    }
+
+    /** Rejects new tasks and drops the queued ones; the running ones complete. */
+    synchronized void shutdown() {
+      shutDown = true;
+      queued.clear();
+    }
+
+    synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (running > 0 || !shutDown) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+      return true;
     }
   }
 
@@ -31,6 +31,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedDocValues;
@@ -41,6 +48,7 @@ import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.client.solrj.impl.JavaBinResponseParser;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
@@ -59,6 +67,7 @@ import org.apache.solr.core.SolrCore;
 import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.ColumnarResponseWriter;
 import org.apache.solr.response.JSONResponseWriter;
 import org.apache.solr.response.JacksonJsonWriter;
 import org.apache.solr.response.JavaBinResponseWriter;
@@ -93,12 +102,21 @@ import org.slf4j.LoggerFactory;
  * that haven't been sent yet and stores them in a Priority Queue. They are then exported (written
  * across the wire) and marked as sent (unset in the bitmap). This process repeats until all
  * matching documents have been sent.
+ *
+ * <p>Each segment is processed separately and the per-segment sorted runs are merged. With {@link
+ * #SEGMENT_THREADS_PARAM} greater than 1, segments are processed concurrently on up to that many
+ * threads (at most one per segment) of the node's shared searcher executor, so a single export can
+ * use several cores. The output is the same either way.
+ *
+ * <p>With {@code wt=columnar} the documents are written in blocks of typed columns by a {@link
+ * ColumnarTupleWriter}, which is much more compact than javabin or JSON for large exports.
  */
 public class ExportWriter implements SolrCore.RawWriter, Closeable {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   public static final String BATCH_SIZE_PARAM = "batchSize";
   public static final String QUEUE_SIZE_PARAM = "queueSize";
+  public static final String SEGMENT_THREADS_PARAM = "segmentThreads";
 
   public static final int DEFAULT_BATCH_SIZE = 30000;
   public static final int DEFAULT_QUEUE_SIZE = 150000;
@@ -121,6 +139,8 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
   final int batchSize;
   // The max combined size of the segment level priority queues.
   private int priorityQueueSize;
+  // The number of threads sorting segments concurrently, 1 to sort them on the filler thread.
+  final int segmentThreads;
   StreamExpression streamExpression;
   StreamContext streamContext;
   List<FieldWriter> fieldWriters;
@@ -144,12 +164,15 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
     this.metricsPath = metricsPath;
     this.priorityQueueSize = req.getParams().getInt(QUEUE_SIZE_PARAM, DEFAULT_QUEUE_SIZE);
     this.batchSize = DEFAULT_BATCH_SIZE;
+    this.segmentThreads = Math.max(1, req.getParams().getInt(SEGMENT_THREADS_PARAM, 1));
   }
 
   @Override
   public String getContentType() {
     if ("javabin".equals(wt)) {
       return JavaBinResponseParser.JAVABIN_CONTENT_TYPE;
+    } else if (ColumnarTupleWriter.WT.equals(wt)) {
+      return ColumnarTupleWriter.CONTENT_TYPE;
     } else return "json";
   }
 
@@ -202,6 +225,8 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
     } else if (rw instanceof JavaBinResponseWriter) {
       // todo add support for other writers after testing
       writer = new JavaBinCodec(os, null);
+    } else if (rw instanceof ColumnarResponseWriter) {
+      writer = new ColumnarTupleWriter(os);
     } else {
       respWriter = new OutputStreamWriter(os, StandardCharsets.UTF_8);
       writer = JSONResponseWriter.getPushWriter(respWriter, req, res);
@@ -707,10 +732,27 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       }
       return outDoc;
     }
+
+    /** Stops the segments from extracting more docs, failing the batches being waited for. */
+    void cancel() {
+      for (SegmentIterator segmentIterator : segmentIterators) {
+        segmentIterator.cancel();
+      }
+    }
   }
 
   public MergeIterator getMergeIterator(
       List<LeafReaderContext> leaves, FixedBitSet[] bits, SortDoc sortDoc) throws IOException {
+    return getMergeIterator(leaves, bits, sortDoc, null);
+  }
+
+  /**
+   * @param executor if not null, segments are sorted concurrently on this executor, see {@link
+   *     #SEGMENT_THREADS_PARAM}
+   */
+  public MergeIterator getMergeIterator(
+      List<LeafReaderContext> leaves, FixedBitSet[] bits, SortDoc sortDoc, Executor executor)
+      throws IOException {
     try {
       long totalDocs = 0;
       for (int i = 0; i < leaves.size(); i++) {
@@ -754,7 +796,7 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       for (int i = 0; i < segmentIterators.length; i++) {
         SortQueue sortQueue = new SortQueue(sizes[i], sortDoc.copy());
         segmentIterators[i] =
-            new SegmentIterator(bits[i], leaves.get(i), sortQueue, sortDoc.copy());
+            new SegmentIterator(bits[i], leaves.get(i), sortQueue, sortDoc.copy(), executor);
       }
 
       return new MergeIterator(segmentIterators, sortDoc);
@@ -762,43 +804,53 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
     }
   }
 
+  /**
+   * Iterates over the matching docs of one segment in sort order, one batch (the top docs among
+   * those not yet returned) at a time. If an executor is given, batches are extracted on it: the
+   * first one for all segments concurrently, and each following one while the previous one is
+   * being merged. This uses a second queue per segment.
+   */
   private static class SegmentIterator {
 
     private final FixedBitSet bits;
-    private final SortQueue queue;
     private final SortDoc sortDoc;
     private final LeafReaderContext context;
-    private final SortDoc[] outDocs;
+    private final Executor executor;
 
     private SortDoc nextDoc;
-    private int index;
+    private Batch current;
+    private Batch spare;
+    private volatile CompletableFuture<Batch> pending;
+    private volatile boolean cancelled;
 
     public SegmentIterator(
-        FixedBitSet bits, LeafReaderContext context, SortQueue sortQueue, SortDoc sortDoc)
+        FixedBitSet bits,
+        LeafReaderContext context,
+        SortQueue sortQueue,
+        SortDoc sortDoc,
+        Executor executor)
         throws IOException {
       this.bits = bits;
-      this.queue = sortQueue;
       this.sortDoc = sortDoc;
       this.nextDoc = sortDoc.copy();
       this.context = context;
-      this.outDocs = new SortDoc[sortQueue.maxSize];
-      topDocs();
+      this.executor = executor;
+      this.current = new Batch(sortQueue);
+      if (executor == null) {
+        topDocs(current);
+      } else {
+        // only ever extract into the batch that isn't current, which stays empty until then
+        this.spare = new Batch(new SortQueue(sortQueue.maxSize, sortDoc.copy()));
+        prefetch(spare);
+      }
     }
 
     public SortDoc next() throws IOException {
-      SortDoc _sortDoc = null;
-      if (index > -1) {
-        _sortDoc = outDocs[index--];
-      } else {
-        topDocs();
-        if (index > -1) {
-          _sortDoc = outDocs[index--];
-        }
+      if (current.index < 0) {
+        nextBatch();
       }
-
-      if (_sortDoc != null) {
-        // Clear the bit so it's not loaded again.
-        bits.clear(_sortDoc.docId);
+      if (current.index > -1) {
+        SortDoc _sortDoc = current.outDocs[current.index--];
 
         // Load the global ordinal (only matters for strings)
         _sortDoc.setGlobalValues(nextDoc);
@@ -812,14 +864,80 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       return nextDoc;
     }
 
-    private void topDocs() throws IOException {
+    private void nextBatch() throws IOException {
+      if (executor == null) {
+        topDocs(current);
+        return;
+      }
+      if (pending == null) {
+        // the previous batch was the last one
+        return;
+      }
+      Batch batch = null;
+      while (batch == null) {
+        if (cancelled) {
+          throw new IgnoreException();
+        }
+        try {
+          batch = pending.get(1, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+          // check for an abort, and keep waiting
+        } catch (CancellationException e) {
+          throw new IgnoreException();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IgnoreException();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException(e.getCause());
+        }
+      }
+      pending = null;
+      spare = current;
+      current = batch;
+      // a batch that isn't full used up all the remaining docs of this segment
+      if (current.index + 1 == current.outDocs.length) {
+        prefetch(spare);
+      }
+    }
+
+    private void prefetch(Batch batch) {
+      pending =
+          CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  topDocs(batch);
+                  return batch;
+                } catch (IOException e) {
+                  throw new CompletionException(e);
+                }
+              },
+              executor);
+    }
+
+    void cancel() {
+      cancelled = true;
+      CompletableFuture<Batch> batch = pending;
+      if (batch != null) {
+        batch.cancel(false);
+      }
+    }
+
+    private void topDocs(Batch batch) throws IOException {
       try {
+        SortQueue queue = batch.queue;
         queue.reset();
         SortDoc top = queue.top();
         this.sortDoc.setNextReader(context);
         DocIdSetIterator it = new BitSetIterator(bits, 0); // cost is not useful here
         int docId;
+        int visited = 0;
         while ((docId = it.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if ((++visited & 0x3FF) == 0 && cancelled) {
+            throw new IgnoreException();
+          }
           this.sortDoc.setValues(docId);
           // Always set the top doc if previously not set, otherwise
           // set the top if the sortDoc is greater than current
@@ -829,20 +947,38 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
           }
         }
 
-        // Pop the queue and load up the array.
-        index = -1;
+        // Pop the queue and load up the array. Clear the bits here rather than as docs are
+        // returned, so that the next batch can be extracted while this one is consumed.
+        int index = -1;
 
         SortDoc _sortDoc;
         while ((_sortDoc = queue.pop()) != null) {
           if (_sortDoc.docId > -1) {
-            outDocs[++index] = _sortDoc;
+            batch.outDocs[++index] = _sortDoc;
+            bits.clear(_sortDoc.docId);
           }
         }
+        batch.index = index;
+      } catch (IgnoreException e) {
+        throw e;
       } catch (Exception e) {
         log.error("Segment Iterator Error:", e);
         throw new IOException(e);
       }
     }
+
+    /** The docs extracted from one pass over the segment, and the queue used to extract them. */
+    private static final class Batch {
+      final SortQueue queue;
+      final SortDoc[] outDocs;
+      // index of the next doc to return, counting down; -1 when the batch is used up
+      int index = -1;
+
+      Batch(SortQueue queue) {
+        this.queue = queue;
+        this.outDocs = new SortDoc[queue.maxSize];
+      }
+    }
   }
 
   public static class IgnoreException extends IOException {
@@ -22,6 +22,7 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.CharsRefBuilder;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter;
 import org.apache.solr.common.MapWriter;
 import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
 import org.apache.solr.common.util.JavaBinCodec;
@@ -107,7 +108,7 @@ class StringFieldWriter extends FieldWriter {
 
   protected void writeBytes(MapWriter.EntryWriter ew, BytesRef ref, FieldType fieldType)
       throws IOException {
-    if (ew instanceof JavaBinCodec.BinEntryWriter) {
+    if (ew instanceof JavaBinCodec.BinEntryWriter || ew instanceof ColumnarTupleWriter.RowWriter) {
       ew.put(this.field, utf8.reset(ref.bytes, ref.offset, ref.length, null));
     } else {
       fieldType.indexedToReadable(ref, cref);
@@ -19,18 +19,22 @@ package org.apache.solr.handler.loader;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.client.solrj.request.JavaBinUpdateRequestCodec;
 import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.ByteArrayPool;
 import org.apache.solr.common.util.ContentStream;
 import org.apache.solr.common.util.ContentStreamBase;
 import org.apache.solr.common.util.DataInputInputStream;
@@ -41,6 +45,8 @@ import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.update.AddUpdateCommand;
 import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.UpdateLog;
+import org.apache.solr.update.VersionInfo;
 import org.apache.solr.update.processor.UpdateRequestProcessor;
 
 /**
@@ -50,6 +56,9 @@ import org.apache.solr.update.processor.UpdateRequestProcessor;
  * @see org.apache.solr.common.util.JavaBinCodec
  */
 public class JavabinLoader extends ContentStreamLoader {
+  /** The maximum number of versioned documents whose versions are read together from the index. */
+  static final int VERSION_PREFETCH_BATCH = 128;
+
   final ContentStreamLoader contentStreamLoader;
 
   public JavabinLoader() {
@@ -90,54 +99,180 @@ public class JavabinLoader extends ContentStreamLoader {
       return;
     }
     UpdateRequest update = null;
-    JavaBinUpdateRequestCodec.StreamingUpdateHandler handler =
-        new JavaBinUpdateRequestCodec.StreamingUpdateHandler() {
-          private AddUpdateCommand addCmd = null;
+    byte[] buffer = ByteArrayPool.SHARED.acquire(8192);
+    FastInputStream in = new FastInputStream(stream, buffer, 0, 0);
+    AddHandler handler = new AddHandler(req, processor, stream, in);
+    try {
+      for (; ; ) {
+        // don't hold back documents while waiting for more
+        handler.flushIfIdle();
+        if (in.peek() == -1) break;
+        try {
+          update =
+              new JavaBinUpdateRequestCodec()
+                  .setBufferPool(ByteArrayPool.SHARED)
+                  .setExternStringCache(JavaBinCodec.SHARED_EXTERN_STRING_CACHE)
+                  .unmarshal(in, handler);
+        } catch (EOFException e) {
+          break; // this is expected
+        }
+        if (update.getDeleteByIdMap() != null || update.getDeleteQuery() != null) {
+          handler.flush();
+          delete(req, update, processor);
+        }
+      }
+      handler.flush();
+    } catch (IOException | RuntimeException e) {
+      // the documents read before the error are added, as they would have been without batching,
+      // but a failure to add them must not hide the error
+      try {
+        handler.flush();
+      } catch (RuntimeException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    } finally {
+      ByteArrayPool.SHARED.release(buffer);
+    }
+  }
 
-          @Override
-          public void update(
-              SolrInputDocument document,
-              UpdateRequest updateRequest,
-              Integer commitWithin,
-              Boolean overwrite) {
-            if (document == null) {
-              return;
-            }
-            if (addCmd == null) {
-              addCmd = getAddCommand(req, updateRequest.getParams());
-            }
-            addCmd.solrDoc = document;
-            if (commitWithin != null) {
-              addCmd.commitWithin = commitWithin;
-            }
-            if (overwrite != null) {
-              addCmd.overwrite = overwrite;
-            }
+  /**
+   * Adds the streamed documents. The documents carrying a version, as sent by a leader to its
+   * replicas or for optimistic concurrency, are buffered in small batches: their versions are read
+   * from the index together, and {@link VersionInfo#PREFETCHED_VERSIONS} hands them to the version
+   * checks of {@link org.apache.solr.update.processor.DistributedUpdateProcessor}. A batch is added
+   * in order once it is full, before any other update, and whenever no more input is ready.
+   */
+  private class AddHandler implements JavaBinUpdateRequestCodec.StreamingUpdateHandler {
+    private final SolrQueryRequest req;
+    private final UpdateRequestProcessor processor;
+    private final InputStream stream;
+    private final FastInputStream in;
+    private final VersionInfo vinfo;
+    private final List<AddUpdateCommand> batch = new ArrayList<>();
+    private AddUpdateCommand addCmd = null;
 
-            if (updateRequest.isLastDocInBatch()) {
-              // this is a hint to downstream code that indicates we've sent the last doc in a batch
-              addCmd.isLastDocInBatch = true;
-            }
+    AddHandler(
+        SolrQueryRequest req,
+        UpdateRequestProcessor processor,
+        InputStream stream,
+        FastInputStream in) {
+      this.req = req;
+      this.processor = processor;
+      this.stream = stream;
+      this.in = in;
+      UpdateLog ulog =
+          req.getCore() == null ? null : req.getCore().getUpdateHandler().getUpdateLog();
+      this.vinfo = ulog == null ? null : ulog.getVersionInfo();
+    }
 
-            try {
-              processor.processAdd(addCmd);
-              addCmd.clear();
-            } catch (IOException e) {
-              throw new SolrException(
-                  SolrException.ErrorCode.SERVER_ERROR, "ERROR adding document " + document, e);
-            }
-          }
-        };
-    FastInputStream in = FastInputStream.wrap(stream);
-    for (; ; ) {
-      if (in.peek() == -1) return;
+    @Override
+    public void update(
+        SolrInputDocument document,
+        UpdateRequest updateRequest,
+        Integer commitWithin,
+        Boolean overwrite) {
+      if (document == null) {
+        return;
+      }
+      boolean versioned = vinfo != null && document.getField(CommonParams.VERSION_FIELD) != null;
+      if (!versioned) {
+        flush();
+        if (addCmd == null) {
+          addCmd = getAddCommand(req, updateRequest.getParams());
+        }
+        setDocument(addCmd, document, updateRequest, commitWithin, overwrite);
+        add(addCmd);
+        addCmd.clear();
+        return;
+      }
+
+      AddUpdateCommand cmd = getAddCommand(req, updateRequest.getParams());
+      setDocument(cmd, document, updateRequest, commitWithin, overwrite);
+      batch.add(cmd);
+      if (batch.size() >= VERSION_PREFETCH_BATCH || cmd.isLastDocInBatch) {
+        flush();
+      } else {
+        flushIfIdle();
+      }
+    }
+
+    private void setDocument(
+        AddUpdateCommand cmd,
+        SolrInputDocument document,
+        UpdateRequest updateRequest,
+        Integer commitWithin,
+        Boolean overwrite) {
+      cmd.solrDoc = document;
+      if (commitWithin != null) {
+        cmd.commitWithin = commitWithin;
+      }
+      if (overwrite != null) {
+        cmd.overwrite = overwrite;
+      }
+
+      if (updateRequest.isLastDocInBatch()) {
+        // this is a hint to downstream code that indicates we've sent the last doc in a batch
+        cmd.isLastDocInBatch = true;
+      }
+    }
+
+    private void add(AddUpdateCommand cmd) {
       try {
-        update = new JavaBinUpdateRequestCodec().unmarshal(in, handler);
-      } catch (EOFException e) {
-        break; // this is expected
+        processor.processAdd(cmd);
+      } catch (IOException e) {
+        throw new SolrException(
+            SolrException.ErrorCode.SERVER_ERROR, "ERROR adding document " + cmd.solrDoc, e);
+      }
+    }
+
+    /** Adds the buffered documents if reading more input could block. */
+    void flushIfIdle() {
+      if (batch.isEmpty()) {
+        return;
       }
-      if (update.getDeleteByIdMap() != null || update.getDeleteQuery() != null) {
-        delete(req, update, processor);
+      try {
+        if (in.available() > 0 || stream.available() > 0) {
+          return;
+        }
+      } catch (IOException e) {
+        // flush
+      }
+      flush();
+    }
+
+    /** Adds the buffered documents, after reading their versions from the index together. */
+    void flush() {
+      if (batch.isEmpty()) {
+        return;
+      }
+      try {
+        List<BytesRef> ids = new ArrayList<>(batch.size());
+        for (AddUpdateCommand cmd : batch) {
+          // on a copy, as the processors before the version check may still change the id
+          AddUpdateCommand probe = new AddUpdateCommand(req);
+          probe.solrDoc = cmd.solrDoc;
+          probe.overwrite = false;
+          try {
+            BytesRef id = probe.getIndexedId();
+            if (id != null) {
+              ids.add(id);
+            }
+          } catch (SolrException e) {
+            // invalid id, reported when adding the document
+          }
+        }
+        if (ids.size() > 1) {
+          req.getContext()
+              .put(VersionInfo.PREFETCHED_VERSIONS, vinfo.prefetchVersionsFromIndex(ids));
+        }
+        for (AddUpdateCommand cmd : batch) {
+          add(cmd);
+        }
+      } finally {
+        // if a document failed, the rest of the batch is dropped along with the rest of the stream
+        batch.clear();
+        req.getContext().remove(VersionInfo.PREFETCHED_VERSIONS);
       }
     }
   }
@@ -148,7 +283,6 @@ public class JavabinLoader extends ContentStreamLoader {
       InputStream stream,
       UpdateRequestProcessor processor)
       throws IOException {
-    FastInputStream in = FastInputStream.wrap(stream);
     SolrParams old = req.getParams();
     try (JavaBinCodec jbc =
         new JavaBinCodec() {
@@ -181,8 +315,8 @@ public class JavabinLoader extends ContentStreamLoader {
             }
             return Collections.emptyList();
           }
-        }) {
-      jbc.unmarshal(in);
+        }.setBufferPool(ByteArrayPool.SHARED)) {
+      jbc.unmarshal(stream);
     }
   }
 
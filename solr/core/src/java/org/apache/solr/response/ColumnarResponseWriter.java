@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.request.SolrQueryRequest;
+
+/**
+ * Writes tuple streams in the block oriented, columnar format of {@link ColumnarTupleWriter}. This
+ * is meant for the responses of {@code /stream}, where tuples are the {@code docs} of the {@code
+ * result-set}; everything else in a response is only written as metadata. {@code /export} writes
+ * this format itself when asked for it with the same {@code wt}.
+ */
+public class ColumnarResponseWriter implements QueryResponseWriter {
+
+  @Override
+  public void write(
+      OutputStream out, SolrQueryRequest request, SolrQueryResponse response, String contentType)
+      throws IOException {
+    if (request.getParams().getBool(CommonParams.OMIT_HEADER, false)) {
+      response.removeResponseHeader();
+    }
+    try (ColumnarTupleWriter writer = new ColumnarTupleWriter(out)) {
+      writer.writeMap(response.getValues());
+    }
+  }
+
+  @Override
+  public String getContentType(SolrQueryRequest request, SolrQueryResponse response) {
+    return ColumnarTupleWriter.CONTENT_TYPE;
+  }
+}
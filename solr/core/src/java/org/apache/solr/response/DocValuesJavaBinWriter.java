@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.schema.AbstractEnumField;
+import org.apache.solr.schema.BoolField;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.LatLonPointSpatialField;
+import org.apache.solr.schema.NumberType;
+import org.apache.solr.schema.StrField;
+import org.apache.solr.search.DocIterator;
+import org.apache.solr.search.DocValuesIteratorCache;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.SolrReturnFields;
+
+/**
+ * Writes the documents of a {@link ResultContext} whose fields are all read from docValues straight
+ * from the docValues to javabin, without building a {@link SolrDocument} for each of them: strings
+ * are copied from the docValues' {@link BytesRef} to the output buffer, and numbers are written
+ * without boxing. The bytes written are the same as for the documents {@link DocsStreamer} returns.
+ *
+ * <p>Use {@link #create} to check whether a result can be written this way.
+ */
+final class DocValuesJavaBinWriter {
+
+  private final List<LeafReaderContext> leaves;
+  private final Field[] fields;
+  // the docValues of each field, positioned on the current document, or null if it has no value
+  private final DocIdSetIterator[] values;
+  private final ByteArrayUtf8CharSequence utf8 = new ByteArrayUtf8CharSequence(new byte[0], 0, 0);
+
+  private static final class Field {
+    final String name;
+    final DocValuesIteratorCache.FieldDocValuesSupplier supplier;
+    final NumberType numberType;
+    final boolean bool;
+    final boolean multiValued;
+
+    Field(String name, DocValuesIteratorCache.FieldDocValuesSupplier supplier) {
+      this.name = name;
+      this.supplier = supplier;
+      FieldType ft = supplier.schemaField.getType();
+      this.numberType = ft.getNumberType();
+      this.bool = ft instanceof BoolField;
+      this.multiValued = supplier.schemaField.multiValued();
+    }
+
+    DocIdSetIterator advance(int localId, LeafReader reader, int leafOrd) throws IOException {
+      return switch (supplier.type) {
+        case NUMERIC -> supplier.getNumericDocValues(localId, reader, leafOrd);
+        case SORTED -> supplier.getSortedDocValues(localId, reader, leafOrd);
+        case SORTED_NUMERIC -> supplier.getSortedNumericDocValues(localId, reader, leafOrd);
+        case SORTED_SET -> supplier.getSortedSetDocValues(localId, reader, leafOrd);
+        default -> throw new IllegalStateException();
+      };
+    }
+  }
+
+  private DocValuesJavaBinWriter(List<LeafReaderContext> leaves, List<Field> fields) {
+    this.leaves = leaves;
+    this.fields = fields.toArray(new Field[0]);
+    this.values = new DocIdSetIterator[this.fields.length];
+  }
+
+  /**
+   * Returns a writer for the documents of <code>ctx</code>, or null if they can not be written
+   * straight from docValues because they have a transformer, stored fields, or a field whose
+   * docValues need more than a plain conversion.
+   *
+   * @param isWritable which fields the codec writes, as {@link
+   *     JavaBinCodec.WritableDocFields#isWritable}
+   */
+  static DocValuesJavaBinWriter create(ResultContext ctx, Predicate<String> isWritable) {
+    // other contexts may produce their documents differently
+    if (!(ctx instanceof BasicResultContext)
+        || !(ctx.getReturnFields() instanceof SolrReturnFields returnFields)
+        || returnFields.getTransformer() != null) {
+      return null;
+    }
+    SolrIndexSearcher searcher = ctx.getSearcher();
+    if (searcher == null) {
+      return null;
+    }
+    Set<String> names = ctx.getDocFetcher().getDocValuesOnlyFields(returnFields);
+    if (names == null) {
+      return null;
+    }
+    DocValuesIteratorCache dvIters = new DocValuesIteratorCache(searcher);
+    List<Field> fields = new ArrayList<>(names.size());
+    for (String name : names) {
+      DocValuesIteratorCache.FieldDocValuesSupplier supplier = dvIters.getSupplier(name);
+      if (supplier == null || !isWritable.test(name)) {
+        continue; // not in the index, or not written anyway
+      }
+      if (!isSupported(supplier)) {
+        return null;
+      }
+      fields.add(new Field(name, supplier));
+    }
+    return new DocValuesJavaBinWriter(searcher.getLeafContexts(), fields);
+  }
+
+  // mirrors the conversions of SolrDocumentFetcher.decodeDVField that need no FieldType call
+  private static boolean isSupported(DocValuesIteratorCache.FieldDocValuesSupplier supplier) {
+    FieldType ft = supplier.schemaField.getType();
+    return switch (supplier.type) {
+      case SORTED -> true;
+      case SORTED_SET -> ft instanceof StrField || ft instanceof BoolField;
+      case NUMERIC, SORTED_NUMERIC ->
+          ft.getNumberType() != null
+              && !(ft instanceof LatLonPointSpatialField)
+              && !(ft instanceof AbstractEnumField);
+      default -> false;
+    };
+  }
+
+  /** Writes the documents as the body of a document list, after its {@link JavaBinCodec#ARR}. */
+  void writeDocs(DocIterator docs, JavaBinCodec codec) throws IOException {
+    while (docs.hasNext()) {
+      writeDoc(docs.nextDoc(), codec);
+    }
+  }
+
+  private void writeDoc(int docId, JavaBinCodec codec) throws IOException {
+    int leafOrd = ReaderUtil.subIndex(docId, leaves);
+    LeafReaderContext leaf = leaves.get(leafOrd);
+    int localId = docId - leaf.docBase;
+    int count = 0;
+    for (int i = 0; i < fields.length; i++) {
+      values[i] = fields[i].advance(localId, leaf.reader(), leafOrd);
+      if (values[i] != null) {
+        count++;
+      }
+    }
+
+    codec.writeTag(JavaBinCodec.SOLRDOC);
+    codec.writeTag(JavaBinCodec.ORDERED_MAP, count);
+    for (int i = 0; i < fields.length; i++) {
+      if (values[i] != null) {
+        codec.writeExternString(fields[i].name);
+        writeValue(fields[i], values[i], codec);
+        values[i] = null;
+      }
+    }
+  }
+
+  private void writeValue(Field field, DocIdSetIterator dv, JavaBinCodec codec)
+      throws IOException {
+    switch (field.supplier.type) {
+      case NUMERIC:
+        writeNumber(field.numberType, ((NumericDocValues) dv).longValue(), false, codec);
+        break;
+      case SORTED:
+        SortedDocValues sorted = (SortedDocValues) dv;
+        writeTerm(field, sorted.lookupOrd(sorted.ordValue()), codec);
+        break;
+      case SORTED_NUMERIC:
+        SortedNumericDocValues sortedNumeric = (SortedNumericDocValues) dv;
+        int count = sortedNumeric.docValueCount();
+        if (field.multiValued) {
+          codec.writeTag(JavaBinCodec.ARR, count);
+          for (int i = 0; i < count; i++) {
+            writeNumber(field.numberType, sortedNumeric.nextValue(), true, codec);
+          }
+        } else {
+          writeNumber(field.numberType, sortedNumeric.nextValue(), true, codec);
+        }
+        break;
+      case SORTED_SET:
+        SortedSetDocValues sortedSet = (SortedSetDocValues) dv;
+        int ords = sortedSet.docValueCount();
+        codec.writeTag(JavaBinCodec.ARR, ords);
+        for (int i = 0; i < ords; i++) {
+          writeTerm(field, sortedSet.lookupOrd(sortedSet.nextOrd()), codec);
+        }
+        break;
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  private void writeTerm(Field field, BytesRef term, JavaBinCodec codec) throws IOException {
+    if (field.bool) {
+      codec.writeBoolean(term.bytes[term.offset] == 'T');
+    } else {
+      codec.writeUTF8Str(utf8.reset(term.bytes, term.offset, term.length, null));
+    }
+  }
+
+  private static void writeNumber(
+      NumberType numberType, long value, boolean sortable, JavaBinCodec codec) throws IOException {
+    switch (numberType) {
+      case INTEGER:
+        codec.writeInt((int) value);
+        break;
+      case LONG:
+        codec.writeLong(value);
+        break;
+      case FLOAT:
+        int bits = (int) value;
+        codec.writeFloat(
+            sortable ? NumericUtils.sortableIntToFloat(bits) : Float.intBitsToFloat(bits));
+        break;
+      case DOUBLE:
+        codec.writeDouble(
+            sortable ? NumericUtils.sortableLongToDouble(value) : Double.longBitsToDouble(value));
+        break;
+      case DATE:
+        codec.writeDate(value);
+        break;
+      default:
+        throw new AssertionError();
+    }
+  }
+}
@@ -17,12 +17,17 @@
 package org.apache.solr.response;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Map;
 import org.apache.solr.common.PushWriter;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.ByteArrayPool;
+import org.apache.solr.common.util.ContentStreamBase;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.JsonTextWriter;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
@@ -33,6 +38,12 @@ import org.apache.solr.search.ReturnFields;
 public class JSONResponseWriter implements TextQueryResponseWriter {
   public static String CONTENT_TYPE_JSON_UTF8 = "application/json; charset=UTF-8";
 
+  /**
+   * Whether UTF-8 responses are encoded by a {@link JSONUtf8Writer} rather than an {@link
+   * java.io.OutputStreamWriter}. Defaults to true.
+   */
+  public static final String UTF8_WRITER_PROP = "solr.json.utf8Writer";
+
   private String contentType = CONTENT_TYPE_JSON_UTF8;
 
   @Override
@@ -66,6 +77,29 @@ public class JSONResponseWriter implements TextQueryResponseWriter {
     }
   }
 
+  @Override
+  public void write(
+      OutputStream outputStream,
+      SolrQueryRequest request,
+      SolrQueryResponse response,
+      String contentType)
+      throws IOException {
+    String charset = ContentStreamBase.getCharsetFromContentType(contentType);
+    if ((charset != null && !StandardCharsets.UTF_8.name().equalsIgnoreCase(charset))
+        || !EnvUtils.getPropertyAsBool(UTF8_WRITER_PROP, true)) {
+      TextQueryResponseWriter.super.write(outputStream, request, response, contentType);
+      return;
+    }
+    byte[] buffer = ByteArrayPool.SHARED.acquire(8192);
+    try {
+      JSONUtf8Writer writer = new JSONUtf8Writer(new NonFlushingStream(outputStream), buffer);
+      write(writer, request, response);
+      writer.flush();
+    } finally {
+      ByteArrayPool.SHARED.release(buffer);
+    }
+  }
+
   @Override
   public String getContentType(SolrQueryRequest request, SolrQueryResponse response) {
     return contentType;
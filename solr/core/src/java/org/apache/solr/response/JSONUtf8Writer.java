@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.apache.solr.common.util.Cache;
+import org.apache.solr.common.util.FastWriter;
+import org.apache.solr.common.util.JsonTextWriter;
+import org.apache.solr.util.ConcurrentLRUCache;
+
+/**
+ * A {@link FastWriter} that encodes the chars written to it as UTF-8 straight into a byte buffer,
+ * instead of buffering them for an {@link java.io.OutputStreamWriter}. {@link JSONWriter} uses it
+ * to write quoted strings and field names without going through the writer char by char.
+ *
+ * <p>The bytes written are the same as the ones of an <code>OutputStreamWriter</code>: in
+ * particular, unpaired surrogates are replaced by <code>'?'</code>.
+ */
+class JSONUtf8Writer extends FastWriter {
+
+  // the ASCII chars that JsonTextWriter.writeStr escapes
+  private static final boolean[] ESCAPE = new boolean[128];
+
+  static {
+    for (int c = 0; c < 0x20; c++) {
+      ESCAPE[c] = true;
+    }
+    ESCAPE['"'] = true;
+    ESCAPE['\\'] = true;
+  }
+
+  private static final int MAX_CACHED_KEY_LENGTH = 256;
+  // the quoted, UTF-8 encoded field names followed by ':', shared by all responses. Least recently
+  // used names, e.g. facet terms, are evicted, so that the current ones stay cached
+  private static final Cache<String, byte[]> KEYS =
+      new ConcurrentLRUCache<>(16384, 13107, 14745, 256, false, false, null);
+
+  private final OutputStream out;
+  private final byte[] bytes;
+  private int count;
+  // a high surrogate waiting for the low surrogate of its pair, or 0
+  private char highSurrogate;
+
+  JSONUtf8Writer(OutputStream out, byte[] buffer) {
+    super(null, null, 0);
+    this.out = out;
+    this.bytes = buffer;
+  }
+
+  /**
+   * Returns the bytes of <code>"name":</code>, or null if the name would be written differently
+   * whether it is escaped or not, or is too long to be cached.
+   */
+  static byte[] keyBytes(String name) {
+    byte[] key = KEYS.get(name);
+    if (key == null && name.length() <= MAX_CACHED_KEY_LENGTH) {
+      for (int i = 0; i < name.length(); i++) {
+        char c = name.charAt(i);
+        if ((c < 128 && ESCAPE[c]) || c == '\u2028' || c == '\u2029') {
+          return null;
+        }
+      }
+      key = ('"' + name + "\":").getBytes(StandardCharsets.UTF_8);
+      KEYS.put(name, key);
+    }
+    return key;
+  }
+
+  /** Writes <code>s</code> quoted and escaped, as {@link JsonTextWriter#writeStr} does. */
+  void writeJsonStr(String s) throws IOException {
+    write('"');
+    int i = 0;
+    final int len = s.length();
+    while (i < len) {
+      if (highSurrogate == 0) {
+        // copy the ASCII chars that need no escaping straight to the buffer
+        if (count == bytes.length) {
+          flushBuffer();
+        }
+        final byte[] b = bytes;
+        final int start = count;
+        final int n = Math.min(len - i, b.length - start);
+        int j = 0;
+        for (char c; j < n && (c = s.charAt(i + j)) < 128 && !ESCAPE[c]; j++) {
+          b[start + j] = (byte) c;
+        }
+        count += j;
+        i += j;
+        if (j == n) {
+          continue;
+        }
+      }
+      writeEscaped(s.charAt(i++));
+    }
+    write('"');
+  }
+
+  private void writeEscaped(char ch) throws IOException {
+    if ((ch > '#' && ch != '\\' && ch < '\u2028') || ch == ' ') {
+      write(ch);
+      return;
+    }
+    switch (ch) {
+      case '"':
+      case '\\':
+        write('\\');
+        write(ch);
+        break;
+      case '\r':
+        write('\\');
+        write('r');
+        break;
+      case '\n':
+        write('\\');
+        write('n');
+        break;
+      case '\t':
+        write('\\');
+        write('t');
+        break;
+      case '\b':
+        write('\\');
+        write('b');
+        break;
+      case '\f':
+        write('\\');
+        write('f');
+        break;
+      case '\u2028':
+      case '\u2029':
+        unicodeEscape(ch);
+        break;
+      default:
+        if (ch <= 0x1F) {
+          unicodeEscape(ch);
+        } else {
+          write(ch);
+        }
+    }
+  }
+
+  private void unicodeEscape(char ch) throws IOException {
+    write('\\');
+    write('u');
+    write(JsonTextWriter.hexdigits[(ch >>> 12)]);
+    write(JsonTextWriter.hexdigits[(ch >>> 8) & 0xf]);
+    write(JsonTextWriter.hexdigits[(ch >>> 4) & 0xf]);
+    write(JsonTextWriter.hexdigits[(ch) & 0xf]);
+  }
+
+  /** Writes bytes that are already UTF-8 encoded. */
+  void writeUtf8(byte[] b) throws IOException {
+    if (highSurrogate != 0) {
+      highSurrogate = 0;
+      writeByte('?');
+    }
+    if (b.length > bytes.length - count) {
+      flushBuffer();
+      if (b.length > bytes.length) {
+        out.write(b);
+        return;
+      }
+    }
+    System.arraycopy(b, 0, bytes, count, b.length);
+    count += b.length;
+  }
+
+  private void writeByte(int b) throws IOException {
+    if (count == bytes.length) {
+      flushBuffer();
+    }
+    bytes[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(char c) throws IOException {
+    if (c < 128 && highSurrogate == 0) {
+      writeByte(c);
+      return;
+    }
+    if (highSurrogate != 0) {
+      char high = highSurrogate;
+      highSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        int cp = Character.toCodePoint(high, c);
+        writeByte(0xF0 | (cp >> 18));
+        writeByte(0x80 | ((cp >> 12) & 0x3F));
+        writeByte(0x80 | ((cp >> 6) & 0x3F));
+        writeByte(0x80 | (cp & 0x3F));
+        return;
+      }
+      writeByte('?');
+    }
+    if (c < 0x80) {
+      writeByte(c);
+    } else if (c < 0x800) {
+      writeByte(0xC0 | (c >> 6));
+      writeByte(0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      writeByte('?');
+    } else {
+      writeByte(0xE0 | (c >> 12));
+      writeByte(0x80 | ((c >> 6) & 0x3F));
+      writeByte(0x80 | (c & 0x3F));
+    }
+  }
+
+  @Override
+  public FastWriter append(char c) throws IOException {
+    write(c);
+    return this;
+  }
+
+  @Override
+  public void write(char[] arr, int off, int len) throws IOException {
+    final int end = off + len;
+    while (off < end) {
+      if (highSurrogate == 0) {
+        if (count == bytes.length) {
+          flushBuffer();
+        }
+        final int n = Math.min(end - off, bytes.length - count);
+        int j = 0;
+        for (char c; j < n && (c = arr[off + j]) < 128; j++) {
+          bytes[count + j] = (byte) c;
+        }
+        count += j;
+        off += j;
+        if (j == n) {
+          continue;
+        }
+      }
+      write(arr[off++]);
+    }
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    final int end = off + len;
+    while (off < end) {
+      if (highSurrogate == 0) {
+        if (count == bytes.length) {
+          flushBuffer();
+        }
+        final int n = Math.min(end - off, bytes.length - count);
+        int j = 0;
+        for (char c; j < n && (c = str.charAt(off + j)) < 128; j++) {
+          bytes[count + j] = (byte) c;
+        }
+        count += j;
+        off += j;
+        if (j == n) {
+          continue;
+        }
+      }
+      write(str.charAt(off++));
+    }
+  }
+
+  @Override
+  public void flush(char[] buf, int offset, int len) throws IOException {
+    write(buf, offset, len);
+  }
+
+  @Override
+  public void flush(String str, int offset, int len) throws IOException {
+    write(str, offset, len);
+  }
+
+  /**
+   * Writes the buffered bytes to the stream. Like an <code>OutputStreamWriter</code>, this keeps a
+   * high surrogate until the char that follows it is written.
+   */
+  @Override
+  public void flushBuffer() throws IOException {
+    if (count > 0) {
+      out.write(bytes, 0, count);
+      count = 0;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+    out.close();
+  }
+}
@@ -31,6 +31,8 @@ public class JSONWriter extends TextResponseWriter implements JsonTextWriter {
 
   protected final String namedListStyle;
   protected String wrapperFunction;
+  // set when the response is encoded to UTF-8 by this writer, see JSONResponseWriter
+  private final JSONUtf8Writer utf8;
 
   public JSONWriter(Writer writer, SolrQueryRequest req, SolrQueryResponse rsp) {
     this(
@@ -50,11 +52,13 @@ public class JSONWriter extends TextResponseWriter implements JsonTextWriter {
     super(writer, req, rsp);
     this.wrapperFunction = wrapperFunction;
     this.namedListStyle = namedListStyle;
+    this.utf8 = writer instanceof JSONUtf8Writer ? (JSONUtf8Writer) writer : null;
   }
 
   private JSONWriter(Writer writer, boolean indent, String namedListStyle) throws IOException {
     super(writer, indent);
     this.namedListStyle = namedListStyle;
+    this.utf8 = null;
   }
 
   /** Strictly for testing only */
@@ -182,6 +186,25 @@ public class JSONWriter extends TextResponseWriter implements JsonTextWriter {
     writeMapCloser();
   }
 
+  @Override
+  public void writeStr(String name, String val, boolean needsEscaping) throws IOException {
+    if (utf8 != null && needsEscaping) {
+      utf8.writeJsonStr(val);
+    } else {
+      JsonTextWriter.super.writeStr(name, val, needsEscaping);
+    }
+  }
+
+  @Override
+  public void writeKey(String fname, boolean needsEscaping) throws IOException {
+    byte[] key = utf8 == null ? null : JSONUtf8Writer.keyBytes(fname);
+    if (key != null) {
+      utf8.writeUtf8(key);
+    } else {
+      JsonTextWriter.super.writeKey(fname, needsEscaping);
+    }
+  }
+
   @Override
   public void _writeChar(char c) throws IOException {
     writer.write(c);
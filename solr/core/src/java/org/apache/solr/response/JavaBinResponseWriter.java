@@ -33,6 +33,8 @@ import org.apache.lucene.search.TotalHits;
 import org.apache.solr.client.solrj.impl.JavaBinResponseParser;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.ByteArrayPool;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.request.SolrQueryRequest;
@@ -48,13 +50,20 @@ public class JavaBinResponseWriter implements QueryResponseWriter {
   //  public static boolean useUtf8CharSeq = true;
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /**
+   * Whether documents whose fields all come from docValues are written straight from the
+   * docValues, see {@link DocValuesJavaBinWriter}. Defaults to true.
+   */
+  public static final String STREAM_DOC_VALUES_PROP = "solr.javabin.streamDocValues";
+
   @Override
   public void write(
       OutputStream out, SolrQueryRequest req, SolrQueryResponse response, String contentType)
       throws IOException {
     Resolver resolver = new Resolver(req, response.getReturnFields());
+    resolver.streamDocValues = EnvUtils.getPropertyAsBool(STREAM_DOC_VALUES_PROP, true);
     if (req.getParams().getBool(CommonParams.OMIT_HEADER, false)) response.removeResponseHeader();
-    try (JavaBinCodec jbc = new JavaBinCodec(resolver)) {
+    try (JavaBinCodec jbc = new JavaBinCodec(resolver).setBufferPool(ByteArrayPool.SHARED)) {
       jbc.setWritableDocFields(resolver).marshal(response.getValues(), out);
     }
   }
@@ -69,6 +78,8 @@ public class JavaBinResponseWriter implements QueryResponseWriter {
     protected final SolrQueryRequest solrQueryRequest;
     protected IndexSchema schema;
     protected ReturnFields returnFields;
+    // only set by write(), as subclasses may rely on documents being written one by one
+    boolean streamDocValues;
 
     public Resolver(SolrQueryRequest req, ReturnFields returnFields) {
       solrQueryRequest = req;
@@ -129,6 +140,13 @@ public class JavaBinResponseWriter implements QueryResponseWriter {
 
     protected void writeResultsBody(ResultContext res, JavaBinCodec codec) throws IOException {
       codec.writeTag(JavaBinCodec.ARR, res.getDocList().size());
+      if (streamDocValues) {
+        DocValuesJavaBinWriter dvWriter = DocValuesJavaBinWriter.create(res, this::isWritable);
+        if (dvWriter != null) {
+          dvWriter.writeDocs(res.getDocList().iterator(), codec);
+          return;
+        }
+      }
       Iterator<SolrDocument> docStreamer = res.getProcessedDocuments();
       while (docStreamer.hasNext()) {
         SolrDocument doc = docStreamer.next();
@@ -345,6 +345,24 @@ public class SolrDocumentFetcher {
     return solrReturnFields.getFetchOptimizer(rfoSupplier).getSolrDoc(luceneDocId);
   }
 
+  /**
+   * Returns the fields that {@link #solrDoc(int, SolrReturnFields)} reads from docValues if it does
+   * not need to read the stored document at all, so that a caller can read them itself, or null
+   * if stored fields must be read.
+   *
+   * @param solrReturnFields as for {@link #solrDoc(int, SolrReturnFields)}, with which it shares
+   *     its optimizer
+   */
+  public Set<String> getDocValuesOnlyFields(SolrReturnFields solrReturnFields) {
+    RetrieveFieldsOptimizer rfo =
+        solrReturnFields.getFetchOptimizer(() -> new RetrieveFieldsOptimizer(solrReturnFields));
+    if (rfo.returnStoredFields()) {
+      return null;
+    }
+    solrReturnFields.setFieldSources(SolrReturnFields.FIELD_SOURCES.ALL_FROM_DV);
+    return Collections.unmodifiableSet(rfo.getDvFields());
+  }
+
   /**
    * {@link StoredFieldVisitor} which loads the specified fields eagerly (or all if null). If {@link
    * #enableLazyFieldLoading} then the rest get special lazy field entries. Designated "large"
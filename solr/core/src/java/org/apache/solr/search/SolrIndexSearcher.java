@@ -33,9 +33,13 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
@@ -164,6 +168,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final int queryResultWindowSize;
   private final int queryResultMaxDocsCached;
   private final boolean useFilterForSortedQuery;
+  private final boolean coalesceQueries;
 
   private final boolean cachingEnabled;
   private final SolrCache<Query, DocSet> filterCache;
@@ -174,6 +179,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final LongAdder liveDocsNaiveCacheHitCount = new LongAdder();
   private final LongAdder liveDocsInsertsCount = new LongAdder();
   private final LongAdder liveDocsHitCount = new LongAdder();
+  // the queries running to fill the queryResultCache, for identical queries to wait for
+  private final Map<QueryResultKey, InFlightQuery> inFlightQueries = new ConcurrentHashMap<>();
+  private final LongAdder coalescedHitCount = new LongAdder();
+  private final LongAdder coalescedMissCount = new LongAdder();
 
   // map of generic caches - not synchronized since it's read-only after the constructor.
   private final Map<String, SolrCache<?, ?>> cacheMap;
@@ -419,6 +428,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     this.queryResultWindowSize = solrConfig.queryResultWindowSize;
     this.queryResultMaxDocsCached = solrConfig.queryResultMaxDocsCached;
     this.useFilterForSortedQuery = solrConfig.useFilterForSortedQuery;
+    this.coalesceQueries = solrConfig.coalesceQueries;
 
     this.docFetcher = new SolrDocumentFetcher(this, solrConfig, enableCache);
 
@@ -1585,9 +1595,68 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
   }
 
+  /** A query running to fill the queryResultCache, and the superset it cached, if any. */
+  private static class InFlightQuery {
+    // how often a waiter checks the limits of its request
+    private static final long LIMITS_CHECK_MS = 10;
+
+    final Thread thread = Thread.currentThread();
+    final int flags;
+    final int supersetMaxDoc;
+    final CompletableFuture<DocList> superset = new CompletableFuture<>();
+
+    InFlightQuery(int flags, int supersetMaxDoc) {
+      this.flags = flags;
+      this.supersetMaxDoc = supersetMaxDoc;
+    }
+
+    /**
+     * Whether the superset this query caches could answer an identical query with the given flags
+     * and number of documents: it has scores if they are needed, and enough documents.
+     */
+    boolean canAnswer(int flags, int maxDocRequested) {
+      return ((flags & GET_SCORES) == 0 || (this.flags & GET_SCORES) != 0)
+          && maxDocRequested <= supersetMaxDoc;
+    }
+
+    /**
+     * Waits for the query, and returns the superset it cached, or null. Stops waiting and returns
+     * null when the limits of the current request (timeAllowed, cpuAllowed...) are reached, the
+     * caller then runs into them as if it had run the query itself.
+     */
+    DocList await(QueryLimits limits) {
+      if (thread == Thread.currentThread()) {
+        return null;
+      }
+      try {
+        if (!limits.isLimitsEnabled()) {
+          return superset.get();
+        }
+        while (!limits.shouldExit()) {
+          try {
+            return superset.get(LIMITS_CHECK_MS, TimeUnit.MILLISECONDS);
+          } catch (TimeoutException e) {
+            // check the limits again
+          }
+        }
+        return null;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } catch (ExecutionException e) {
+        return null;
+      }
+    }
+  }
+
   /**
    * getDocList version that uses+populates query and filter caches. In the event of a timeout, the
    * cache is not populated.
+   *
+   * <p>When <code>coalesceQueries</code> is enabled, a query that misses the queryResultCache while
+   * an identical query is running waits for it, and uses the superset it caches. It does not wait
+   * if that superset can't answer it, and only as long as its own query limits allow. Cancellable
+   * queries are not coalesced, as a waiter could not be cancelled.
    */
   private QueryResult getDocListC(QueryResult qr, QueryCommand cmd) throws IOException {
     // TODO don't take QueryResult as arg; create one here
@@ -1602,6 +1671,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     if (maxDocRequested < 0 || maxDocRequested > maxDoc()) maxDocRequested = maxDoc();
     int supersetMaxDoc = maxDocRequested;
     DocList superset = null;
+    InFlightQuery running = null;
+    boolean coalesced = false;
 
     int flags = cmd.getFlags();
     Query q = cmd.getQuery();
@@ -1626,6 +1697,20 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
               cmd.isDistribStatsDisabled());
       if ((flags & NO_CHECK_QCACHE) == 0) {
         superset = queryResultCache.get(key);
+        if (superset == null
+            && coalesceQueries
+            && (flags & NO_SET_QCACHE) == 0
+            && !cmd.isQueryCancellable()) {
+          running = new InFlightQuery(flags, supersetMaxDoc(maxDocRequested));
+          InFlightQuery other = inFlightQueries.putIfAbsent(key, running);
+          if (other != null) {
+            running = null;
+            if (other.canAnswer(flags, maxDocRequested)) {
+              superset = other.await(QueryLimits.getCurrentLimits());
+              coalesced = true;
+            }
+          }
+        }
 
         if (superset != null) {
           // check that the cache entry has scores recorded if we need them
@@ -1635,6 +1720,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
             out.docList = superset.subset(cmd.getOffset(), cmd.getLen());
           }
         }
+        if (coalesced) {
+          (out.docList != null ? coalescedHitCount : coalescedMissCount).increment();
+        }
         if (out.docList != null) {
           // found the docList in the cache... now check if we need the docset too.
           // OPT: possible future optimization - if the doclist contains all the matches,
@@ -1657,20 +1745,49 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       // next resultWindowSize for better caching.
 
       if ((flags & NO_SET_QCACHE) == 0) {
-        // handle 0 special case as well as avoid idiv in the common case.
-        if (maxDocRequested < queryResultWindowSize) {
-          supersetMaxDoc = queryResultWindowSize;
-        } else {
-          supersetMaxDoc =
-              ((maxDocRequested - 1) / queryResultWindowSize + 1) * queryResultWindowSize;
-          if (supersetMaxDoc < 0) supersetMaxDoc = maxDocRequested;
-        }
+        supersetMaxDoc = supersetMaxDoc(maxDocRequested);
       } else {
         key = null; // we won't be caching the result
       }
     }
     cmd.setSupersetMaxDoc(supersetMaxDoc);
 
+    if (running == null) {
+      getDocListC(qr, cmd, key, flags, superset);
+      return qr;
+    }
+    DocList cached = null;
+    try {
+      cached = getDocListC(qr, cmd, key, flags, superset);
+    } finally {
+      inFlightQueries.remove(key, running);
+      running.superset.complete(cached);
+    }
+    return qr;
+  }
+
+  /** The number of documents to cache for a query asking for <code>maxDocRequested</code>. */
+  private int supersetMaxDoc(int maxDocRequested) {
+    // handle 0 special case as well as avoid idiv in the common case.
+    if (maxDocRequested < queryResultWindowSize) {
+      return queryResultWindowSize;
+    }
+    int supersetMaxDoc =
+        ((maxDocRequested - 1) / queryResultWindowSize + 1) * queryResultWindowSize;
+    return supersetMaxDoc < 0 ? maxDocRequested : supersetMaxDoc;
+  }
+
+  /**
+   * Generates the answer of {@link #getDocListC(QueryResult, QueryCommand)} when it is not cached,
+   * and returns the superset put in the queryResultCache, or null.
+   */
+  private DocList getDocListC(
+      QueryResult qr, QueryCommand cmd, QueryResultKey key, int flags, DocList superset)
+      throws IOException {
+    final DocListAndSet out = qr.getDocListAndSet();
+    final Query q = cmd.getQuery();
+    final int supersetMaxDoc = cmd.getSupersetMaxDoc();
+
     // OK, so now we need to generate an answer.
     // One way to do that would be to check if we have an unordered list
     // of results for the base query. If so, we can apply the filters and then
@@ -1785,8 +1902,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     // to queryResultMaxDocsCached
     if (key != null && superset.size() <= queryResultMaxDocsCached && !qr.isPartialResults()) {
       queryResultCache.put(key, superset);
+      return superset;
     }
-    return qr;
+    return null;
   }
 
   private Relation populateScoresIfNeeded(
@@ -2605,6 +2723,15 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
             });
     parentContext.gauge(
         liveDocsCacheMetrics, true, "liveDocsCache", Category.SEARCHER.toString(), scope);
+    final MetricsMap coalescingMetrics =
+        new MetricsMap(
+            (map) -> {
+              map.put("hits", coalescedHitCount.sum());
+              map.put("misses", coalescedMissCount.sum());
+              map.put("inFlight", inFlightQueries.size());
+            });
+    parentContext.gauge(
+        coalescingMetrics, true, "queryCoalescing", Category.SEARCHER.toString(), scope);
     // reader stats
     parentContext.gauge(
         rgauge(parentContext.nullNumber(), () -> reader.numDocs()),
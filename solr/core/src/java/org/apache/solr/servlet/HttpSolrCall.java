@@ -1009,7 +1009,18 @@ public class HttpSolrCall {
       }
 
       if (Method.HEAD != reqMethod) {
-        responseWriter.write(response.getOutputStream(), solrReq, solrRsp, ct);
+        OutputStream out = response.getOutputStream();
+        OutputStream compressed =
+            cores == null ? null : cores.getResponseCompressor().compress(req, response, core, out);
+        if (compressed == null) {
+          responseWriter.write(out, solrReq, solrRsp, ct);
+        } else {
+          try {
+            responseWriter.write(compressed, solrReq, solrRsp, ct);
+          } finally {
+            compressed.close();
+          }
+        }
       }
       // else http HEAD request, nothing to write out, waited this long just to get ContentType
     } catch (EOFException e) {
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.servlet;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.util.ResponseCompression;
+import org.apache.solr.core.SolrConfig;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compresses the responses of the requests that accept the {@link ResponseCompression#ENCODING}
+ * encoding, which {@link org.apache.solr.client.solrj.impl.Http2SolrClient} asks for when it is
+ * built with <code>withResponseCompression(true)</code>.
+ *
+ * <p>When the configset of a core has a {@value #DICTIONARY_RESOURCE} file, and the client has
+ * that dictionary too, the responses of the core are compressed with it as a preset dictionary.
+ * This is most useful for small responses, whose field names and common values are then written
+ * as references to the dictionary. The dictionary is a plain file of the strings that are common
+ * in the responses, such as a few representative responses; only its last 32K are used, and the
+ * most common strings should come last.
+ *
+ * <p>The statistics are reported by the <code>CONTAINER.responseCompression</code> metric.
+ */
+public class ResponseCompressor implements MapWriter {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** The configset resource of the dictionary of a collection. */
+  public static final String DICTIONARY_RESOURCE = "response-compression.dict";
+
+  private static final Dictionary NO_DICTIONARY = new Dictionary(null, 0);
+
+  private record Dictionary(byte[] bytes, int id) {}
+
+  // by config, so that the dictionary is loaded again when the core is reloaded
+  private final Map<SolrConfig, Dictionary> dictionaries = new WeakHashMap<>();
+
+  private final LongAdder responses = new LongAdder();
+  private final LongAdder dictionaryResponses = new LongAdder();
+  private final LongAdder uncompressedBytes = new LongAdder();
+  private final LongAdder compressedBytes = new LongAdder();
+  private final LongAdder compressNanos = new LongAdder();
+
+  /**
+   * Loads the dictionary of a core, if it has one, so that the clients of this node can inflate
+   * the responses compressed with it.
+   */
+  public void loadDictionary(SolrCore core) {
+    getDictionary(core);
+  }
+
+  private Dictionary getDictionary(SolrCore core) {
+    SolrConfig config = core.getSolrConfig();
+    synchronized (dictionaries) {
+      Dictionary dictionary = dictionaries.get(config);
+      if (dictionary == null) {
+        dictionary = readDictionary(core);
+        dictionaries.put(config, dictionary);
+      }
+      return dictionary;
+    }
+  }
+
+  private static Dictionary readDictionary(SolrCore core) {
+    byte[] bytes;
+    try (InputStream in = core.getResourceLoader().openResource(DICTIONARY_RESOURCE)) {
+      bytes = in.readAllBytes();
+    } catch (SolrResourceNotFoundException e) {
+      return NO_DICTIONARY;
+    } catch (IOException e) {
+      log.warn("Could not read {} of core {}", DICTIONARY_RESOURCE, core.getName(), e);
+      return NO_DICTIONARY;
+    }
+    if (bytes.length == 0) {
+      return NO_DICTIONARY;
+    }
+    byte[] dictionary = ResponseCompression.trimDictionary(bytes);
+    int id = ResponseCompression.registerDictionary(dictionary);
+    log.info(
+        "Loaded response compression dictionary {} of {} bytes for core {}",
+        Integer.toUnsignedString(id),
+        dictionary.length,
+        core.getName());
+    return new Dictionary(dictionary, id);
+  }
+
+  /**
+   * Returns a stream compressing the response to <code>out</code> if the request accepts it, or
+   * null. The stream must be closed once the response is written, which does not close <code>out
+   * </code>.
+   *
+   * @param core the core answering the request, or null
+   */
+  public OutputStream compress(
+      HttpServletRequest req, HttpServletResponse response, SolrCore core, OutputStream out) {
+    if (!ResponseCompression.isAccepted(req.getHeader("Accept-Encoding"))
+        || response.containsHeader("Content-Encoding")) {
+      return null;
+    }
+    Dictionary dictionary = core == null ? NO_DICTIONARY : getDictionary(core);
+    if (dictionary.bytes() != null
+        && !ResponseCompression.hasDictionary(
+            req.getHeader(ResponseCompression.DICTIONARIES_HEADER), dictionary.id())) {
+      dictionary = NO_DICTIONARY;
+    }
+    response.setHeader("Content-Encoding", ResponseCompression.ENCODING);
+    return new CompressingStream(out, dictionary.bytes());
+  }
+
+  private class CompressingStream extends DeflaterOutputStream {
+    private final boolean withDictionary;
+    private long nanos;
+    private boolean closed;
+
+    CompressingStream(OutputStream out, byte[] dictionary) {
+      super(out, new Deflater(Deflater.BEST_SPEED), 8192);
+      withDictionary = dictionary != null;
+      if (withDictionary) {
+        def.setDictionary(dictionary);
+      }
+    }
+
+    // only times the compression, not the writes to the client
+    @Override
+    protected void deflate() throws IOException {
+      long start = System.nanoTime();
+      int len = def.deflate(buf, 0, buf.length);
+      nanos += System.nanoTime() - start;
+      if (len > 0) {
+        out.write(buf, 0, len);
+      }
+    }
+
+    @Override
+    public void finish() throws IOException {
+      if (!def.finished()) {
+        def.finish();
+        while (!def.finished()) {
+          deflate();
+        }
+      }
+    }
+
+    /** Finishes the compressed stream, without closing the response stream. */
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        finish();
+        out.flush();
+      } finally {
+        responses.increment();
+        if (withDictionary) {
+          dictionaryResponses.increment();
+        }
+        uncompressedBytes.add(def.getBytesRead());
+        compressedBytes.add(def.getBytesWritten());
+        compressNanos.add(nanos);
+        def.end();
+      }
+    }
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    long in = uncompressedBytes.sum();
+    long out = compressedBytes.sum();
+    ew.put("responses", responses.sum());
+    ew.put("dictionaryResponses", dictionaryResponses.sum());
+    ew.put("uncompressedBytes", in);
+    ew.put("compressedBytes", out);
+    ew.put("ratio", out == 0 ? 0d : (double) in / out);
+    ew.put("compressTimeMs", compressNanos.sum() / 1_000_000);
+  }
+}
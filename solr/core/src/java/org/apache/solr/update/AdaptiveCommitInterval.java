@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.common.MapWriter;
+
+/**
+ * Chooses the time-triggered auto commit interval of a {@link CommitTracker} between a configured
+ * lower and upper bound, instead of always waiting for the upper bound.
+ *
+ * <p>Two signals drive the choice:
+ *
+ * <ul>
+ *   <li>The observed cost of a commit, measured around the commit call itself. For soft commits
+ *       this is dominated by opening and warming the new searcher, and it grows when flushes are
+ *       slowed down by merges. The interval is kept at least {@link #COST_MULTIPLIER} times this
+ *       cost, so that no more than a small fraction of wall time is spent opening searchers.
+ *   <li>The indexing rate since the previous commit, compared to its long term average. During a
+ *       burst the interval is stretched by the ratio of the two, so a burst of updates does not
+ *       turn into a burst of new searchers.
+ * </ul>
+ *
+ * When indexing is quiet and searchers are cheap, this converges on the lower bound, making
+ * updates visible sooner than the upper bound alone would.
+ *
+ * @lucene.internal
+ */
+final class AdaptiveCommitInterval implements MapWriter {
+
+  /** The interval is at least this many times the (smoothed) cost of a commit. */
+  static final int COST_MULTIPLIER = 10;
+
+  // weights of the latest sample in the short and long term moving averages
+  private static final double ALPHA = 0.3;
+  private static final double BASELINE_ALPHA = 0.05;
+
+  private final long minTime;
+  private final long maxTime;
+
+  private final LongAdder docsSinceCommit = new LongAdder();
+
+  // guarded by this
+  private long lastCommitNanos;
+  private double avgCostMs = -1;
+  private double docsPerSec = -1;
+  private double baselineDocsPerSec = -1;
+  private long numCommits;
+
+  // read unsynchronized on every added document
+  private volatile long interval;
+
+  AdaptiveCommitInterval(long minTime, long maxTime) {
+    if (minTime <= 0 || minTime > maxTime) {
+      throw new IllegalArgumentException(
+          "Adaptive commit interval needs 0 < minTime <= maxTime, got minTime="
+              + minTime
+              + " maxTime="
+              + maxTime);
+    }
+    this.minTime = minTime;
+    this.maxTime = maxTime;
+    this.interval = minTime;
+  }
+
+  /** The interval (in ms) to use when scheduling the next time-triggered commit. */
+  long getInterval() {
+    return interval;
+  }
+
+  void addedDocument() {
+    docsSinceCommit.increment();
+  }
+
+  /**
+   * Records a completed commit and recomputes the interval.
+   *
+   * @param startNanos {@link System#nanoTime()} just before the commit started
+   * @param costNanos how long the commit took, including opening the new searcher
+   */
+  synchronized void recordCommit(long startNanos, long costNanos) {
+    final long docs = docsSinceCommit.sumThenReset();
+    final double costMs = costNanos / 1e6;
+    avgCostMs = avgCostMs < 0 ? costMs : avgCostMs + ALPHA * (costMs - avgCostMs);
+
+    // the rate is only known from the second commit on
+    if (numCommits++ > 0) {
+      final double elapsedSec = Math.max(1, startNanos - lastCommitNanos) / 1e9;
+      final double rate = docs / elapsedSec;
+      docsPerSec = docsPerSec < 0 ? rate : docsPerSec + ALPHA * (rate - docsPerSec);
+      baselineDocsPerSec =
+          baselineDocsPerSec < 0
+              ? rate
+              : baselineDocsPerSec + BASELINE_ALPHA * (rate - baselineDocsPerSec);
+    }
+    lastCommitNanos = startNanos + costNanos;
+
+    double burst = baselineDocsPerSec > 0 ? Math.max(1, docsPerSec / baselineDocsPerSec) : 1;
+    double wanted = COST_MULTIPLIER * avgCostMs * burst;
+    interval = Math.max(minTime, Math.min(maxTime, (long) wanted));
+  }
+
+  @Override
+  public synchronized void writeMap(EntryWriter ew) throws IOException {
+    ew.put("minTime", minTime);
+    ew.put("maxTime", maxTime);
+    ew.put("interval", interval);
+    ew.put("commits", numCommits);
+    ew.put("avgCommitMs", Math.max(0, Math.round(avgCostMs)));
+    ew.put("docsPerSec", Math.max(0, Math.round(docsPerSec)));
+    ew.put("baselineDocsPerSec", Math.max(0, Math.round(baselineDocsPerSec)));
+    ew.put("docsSinceCommit", docsSinceCommit.sum());
+  }
+
+  @Override
+  public String toString() {
+    return "adaptive between "
+        + minTime
+        + "ms and "
+        + maxTime
+        + "ms (currently "
+        + interval
+        + "ms)";
+  }
+}
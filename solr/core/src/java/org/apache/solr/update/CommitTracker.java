@@ -56,6 +56,8 @@ public final class CommitTracker implements Runnable {
   private int docsUpperBound;
   private long timeUpperBound;
   private long tLogFileSizeUpperBound;
+  // if set, picks the time-triggered commit delay between a lower bound and timeUpperBound
+  private AdaptiveCommitInterval adaptiveInterval;
 
   // note: can't use ExecutorsUtil because it doesn't have a *scheduled* ExecutorService.
   //  Not a big deal but it means we must take care of MDC logging here.
@@ -126,7 +128,15 @@ public final class CommitTracker implements Runnable {
   }
 
   private void _scheduleCommitWithinIfNeeded(long commitWithin) {
-    long ctime = (commitWithin > 0) ? commitWithin : timeUpperBound;
+    final AdaptiveCommitInterval adaptive = adaptiveInterval;
+    long ctime;
+    if (commitWithin > 0) {
+      ctime = commitWithin;
+    } else if (adaptive != null) {
+      ctime = adaptive.getInterval();
+    } else {
+      ctime = timeUpperBound;
+    }
 
     if (ctime > 0) {
       _scheduleCommitWithin(ctime);
@@ -183,6 +193,11 @@ public final class CommitTracker implements Runnable {
    *     size triggered commit
    */
   public void addedDocument(int commitWithin, LongSupplier currentTlogSize) {
+    final AdaptiveCommitInterval adaptive = adaptiveInterval;
+    if (adaptive != null) {
+      adaptive.addedDocument();
+    }
+
     // maxDocs-triggered autoCommit
     _scheduleMaxDocsTriggeredCommitIfNeeded();
 
@@ -277,7 +292,12 @@ public final class CommitTracker implements Runnable {
       // to check the commit count before we had incremented it.)
       autoCommitCount.incrementAndGet();
 
+      final long startNanos = System.nanoTime();
       core.getUpdateHandler().commit(command);
+      final AdaptiveCommitInterval adaptive = adaptiveInterval;
+      if (adaptive != null) {
+        adaptive.recordCommit(startNanos, System.nanoTime() - startNanos);
+      }
     } catch (Exception e) {
       log.error("auto commit error...", e);
     } finally {
@@ -294,7 +314,9 @@ public final class CommitTracker implements Runnable {
   @Override
   public String toString() {
     if (timeUpperBound > 0 || docsUpperBound > 0 || tLogFileSizeUpperBound > 0) {
-      return (timeUpperBound > 0 ? ("if uncommitted for " + timeUpperBound + "ms; ") : "")
+      return (adaptiveInterval != null
+              ? ("if uncommitted for " + adaptiveInterval + "; ")
+              : (timeUpperBound > 0 ? ("if uncommitted for " + timeUpperBound + "ms; ") : ""))
           + (docsUpperBound > 0 ? ("if " + docsUpperBound + " uncommitted docs; ") : "")
           + (tLogFileSizeUpperBound > 0
               ? String.format(
@@ -309,6 +331,24 @@ public final class CommitTracker implements Runnable {
     return timeUpperBound;
   }
 
+  /**
+   * Lets the delay of time-triggered commits adapt to the indexing rate and to the cost of
+   * committing, between {@code timeLowerBound} and the time upper bound. See {@link
+   * AdaptiveCommitInterval}. Must be called before any document is added; does nothing unless
+   * {@code 0 < timeLowerBound < timeUpperBound}.
+   */
+  void setTimeLowerBound(long timeLowerBound) {
+    if (timeLowerBound > 0 && timeLowerBound < timeUpperBound) {
+      adaptiveInterval = new AdaptiveCommitInterval(timeLowerBound, timeUpperBound);
+      log.info("{} AutoCommit: {}", name, this);
+    }
+  }
+
+  /** The adaptive commit interval, or null if commits are triggered at the time upper bound. */
+  AdaptiveCommitInterval getAdaptiveInterval() {
+    return adaptiveInterval;
+  }
+
   int getDocsUpperBound() {
     return docsUpperBound;
   }
@@ -51,6 +51,7 @@ import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.SolrConfig.UpdateHandlerInfo;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrDelegateRegistryMetricsContext;
 import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricProducer;
@@ -148,6 +149,7 @@ public class DirectUpdateHandler2 extends UpdateHandler
             NO_FILE_SIZE_UPPER_BOUND_PLACEHOLDER,
             true,
             true);
+    softCommitTracker.setTimeLowerBound(updateHandlerInfo.autoSoftCommitMinTime);
 
     commitWithinSoftCommit = updateHandlerInfo.commitWithinSoftCommit;
 
@@ -191,6 +193,7 @@ public class DirectUpdateHandler2 extends UpdateHandler
             NO_FILE_SIZE_UPPER_BOUND_PLACEHOLDER,
             updateHandlerInfo.openSearcher,
             true);
+    softCommitTracker.setTimeLowerBound(updateHandlerInfo.autoSoftCommitMinTime);
 
     commitWithinSoftCommit = updateHandlerInfo.commitWithinSoftCommit;
 
@@ -266,6 +269,14 @@ public class DirectUpdateHandler2 extends UpdateHandler
           getCategory().toString(),
           scope);
     }
+    if (softCommitTracker.getAdaptiveInterval() != null) {
+      solrMetricsContext.gauge(
+          new MetricsMap(softCommitTracker.getAdaptiveInterval()),
+          true,
+          "softAutoCommitAdaptive",
+          getCategory().toString(),
+          scope);
+    }
     optimizeCommands = solrMetricsContext.meter("optimizes", getCategory().toString(), scope);
     rollbackCommands = solrMetricsContext.meter("rollbacks", getCategory().toString(), scope);
     splitCommands = solrMetricsContext.meter("splits", getCategory().toString(), scope);
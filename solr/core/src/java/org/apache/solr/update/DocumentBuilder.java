@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.IndexableField;
@@ -50,16 +51,16 @@ public class DocumentBuilder {
    * @param field The schema field object for the field
    * @param val The value for the field to be added
    * @param forInPlaceUpdate Whether the field is to be added for in-place update. If true, only
-   *     numeric docValues based fields are added to the document. This can be true when
+   *     numeric and binary docValues based fields are added to the document. This can be true when
    *     constructing a Lucene document for writing an in-place update, and we don't need presence
-   *     of non-updatable fields (non NDV) in such a document.
+   *     of non-updatable fields (non NDV/BDV) in such a document.
    */
   private static void addField(
       Document doc, SchemaField field, Object val, boolean forInPlaceUpdate) {
     if (val instanceof IndexableField) {
       if (forInPlaceUpdate) {
-        assert val instanceof NumericDocValuesField
-            : "Expected in-place update to be done on" + " NDV fields only.";
+        assert val instanceof NumericDocValuesField || val instanceof BinaryDocValuesField
+            : "Expected in-place update to be done on NDV or BDV fields only.";
       }
       doc.add((IndexableField) val);
       return;
@@ -74,7 +75,7 @@ public class DocumentBuilder {
         // once SOLR-9809 is resolved, we should be able to replace this conditional with...
         //    assert f instanceof NumericDocValuesField
         if (forInPlaceUpdate) {
-          if (f instanceof NumericDocValuesField) {
+          if (f instanceof NumericDocValuesField || f instanceof BinaryDocValuesField) {
             doc.add(f);
           }
         } else {
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.common.MapWriter;
+
+/**
+ * Node-wide statistics on updates forwarded from shard leaders to their replicas, keyed by replica
+ * core URL. Each replica has a bounded queue in {@link StreamingSolrClients}; when a replica is
+ * slow, the queue fills and leader request threads block while enqueueing. The time spent blocked
+ * is the back-pressure this replica puts on the leader, and is a direct measure of its lag.
+ *
+ * <p>The replicas of the nodes that left the cluster are forgotten, and so are the replicas no
+ * update was forwarded to for an hour, such as the ones that moved away.
+ *
+ * @lucene.internal
+ */
+public class ReplicaForwardingStats implements MapWriter {
+
+  private final Map<String, PerReplica> stats = new ConcurrentHashMap<>();
+  private final long idleExpiryNanos;
+
+  public ReplicaForwardingStats() {
+    this(1, TimeUnit.HOURS);
+  }
+
+  ReplicaForwardingStats(long idleExpiry, TimeUnit unit) {
+    this.idleExpiryNanos = unit.toNanos(idleExpiry);
+  }
+
+  /** Records an update sent to the replica. */
+  public void recordSubmitted(String replicaUrl) {
+    get(replicaUrl).submitted.increment();
+  }
+
+  /** Records the time a leader thread blocked until the replica's queue took an update. */
+  public void recordBlocked(String replicaUrl, long blockedNanos) {
+    if (blockedNanos > 0) {
+      PerReplica perReplica = get(replicaUrl);
+      perReplica.blockedNanos.add(blockedNanos);
+      perReplica.maxBlockedNanos.accumulateAndGet(blockedNanos, Math::max);
+    }
+  }
+
+  /** Records a failed update to the replica. */
+  public void recordError(String replicaUrl) {
+    get(replicaUrl).errors.increment();
+  }
+
+  private PerReplica get(String replicaUrl) {
+    final long now = System.nanoTime();
+    PerReplica perReplica = stats.get(replicaUrl);
+    if (perReplica == null) {
+      // a new replica, e.g. one that moved here: time to forget the ones that went idle
+      stats.values().removeIf(p -> now - p.lastUsedNanos > idleExpiryNanos);
+      perReplica = stats.computeIfAbsent(replicaUrl, k -> new PerReplica());
+    }
+    perReplica.lastUsedNanos = now;
+    return perReplica;
+  }
+
+  /** Forgets the replicas of a node, once it left the cluster. */
+  public void removeNode(String baseUrl) {
+    final String prefix = baseUrl + "/";
+    stats.keySet().removeIf(replicaUrl -> replicaUrl.startsWith(prefix));
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    for (Map.Entry<String, PerReplica> entry : stats.entrySet()) {
+      ew.put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private static class PerReplica implements MapWriter {
+    final LongAdder submitted = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder blockedNanos = new LongAdder();
+    final AtomicLong maxBlockedNanos = new AtomicLong();
+    volatile long lastUsedNanos = System.nanoTime();
+
+    @Override
+    public void writeMap(EntryWriter ew) throws IOException {
+      ew.put("submitted", submitted.sum());
+      ew.put("errors", errors.sum());
+      ew.put("blockedMs", TimeUnit.NANOSECONDS.toMillis(blockedNanos.sum()));
+      ew.put("maxBlockedMs", TimeUnit.NANOSECONDS.toMillis(maxBlockedNanos.get()));
+    }
+  }
+}
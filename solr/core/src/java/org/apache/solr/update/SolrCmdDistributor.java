@@ -357,10 +357,14 @@ public class SolrCmdDistributor implements Closeable {
   }
 
   private void doRequest(final Req req) {
+    final ReplicaForwardingStats forwardingStats = clients.getForwardingStats();
     try {
       SolrClient solrClient = clients.getSolrClient(req);
+      // the client records the time it blocked on the replica's queue, if it was full
       solrClient.request(req.uReq);
+      forwardingStats.recordSubmitted(req.node.getUrl());
     } catch (Exception e) {
+      forwardingStats.recordError(req.node.getUrl());
       log.error("Exception making request", e);
       SolrError error = new SolrError();
       error.e = e;
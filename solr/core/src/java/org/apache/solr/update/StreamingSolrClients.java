@@ -29,6 +29,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.impl.ConcurrentUpdateHttp2SolrClient;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.update.SolrCmdDistributor.SolrError;
@@ -40,6 +41,8 @@ public class StreamingSolrClients {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private final int runnerCount = Integer.getInteger("solr.cloud.replication.runners", 1);
+  // bounds the updates buffered per replica; once full, leader threads block (back-pressure)
+  private final int queueSize = Integer.getInteger("solr.cloud.replication.queueSize", 100);
   // should be less than solr.jetty.http.idleTimeout
   private final int pollQueueTimeMillis =
       Integer.getInteger("solr.cloud.client.pollQueueTime", 10000);
@@ -51,9 +54,12 @@ public class StreamingSolrClients {
 
   private ExecutorService updateExecutor;
 
+  private final ReplicaForwardingStats forwardingStats;
+
   public StreamingSolrClients(UpdateShardHandler updateShardHandler) {
     this.updateExecutor = updateShardHandler.getUpdateExecutor();
     this.httpClient = updateShardHandler.getUpdateOnlyHttpClient();
+    this.forwardingStats = updateShardHandler.getReplicaForwardingStats();
   }
 
   public List<SolrError> getErrors() {
@@ -75,9 +81,9 @@ public class StreamingSolrClients {
           StrUtils.isNotBlank(req.node.getCoreName()) ? req.node.getCoreName() : null;
       client =
           new ErrorReportingConcurrentUpdateSolrClient.Builder(
-                  req.node.getBaseUrl(), httpClient, req, errors)
+                  req.node.getBaseUrl(), httpClient, req, errors, forwardingStats)
               .withDefaultCollection(defaultCore)
-              .withQueueSize(100)
+              .withQueueSize(queueSize)
               .withThreadCount(runnerCount)
               .withExecutorService(updateExecutor)
               .alwaysStreamDeletes()
@@ -120,17 +126,23 @@ public class StreamingSolrClients {
   public ExecutorService getUpdateExecutor() {
     return updateExecutor;
   }
+
+  public ReplicaForwardingStats getForwardingStats() {
+    return forwardingStats;
+  }
 }
 
 class ErrorReportingConcurrentUpdateSolrClient extends ConcurrentUpdateHttp2SolrClient {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private final SolrCmdDistributor.Req req;
   private final List<SolrError> errors;
+  private final ReplicaForwardingStats forwardingStats;
 
   public ErrorReportingConcurrentUpdateSolrClient(Builder builder) {
     super(builder);
     this.req = builder.req;
     this.errors = builder.errors;
+    this.forwardingStats = builder.forwardingStats;
   }
 
   @Override
@@ -143,6 +155,7 @@ class ErrorReportingConcurrentUpdateSolrClient extends ConcurrentUpdateHttp2Solr
     }
     error.req = req;
     errors.add(error);
+    forwardingStats.recordError(req.node.getUrl());
     if (!req.shouldRetry(error)) {
       // only track the error if we are not retrying the request
       req.trackRequestResult(null, null, false);
@@ -154,9 +167,15 @@ class ErrorReportingConcurrentUpdateSolrClient extends ConcurrentUpdateHttp2Solr
     req.trackRequestResult(resp, respBody, true);
   }
 
+  @Override
+  public void onQueued(UpdateRequest request, long waitNanos) {
+    forwardingStats.recordBlocked(req.node.getUrl(), waitNanos);
+  }
+
   static class Builder extends ConcurrentUpdateHttp2SolrClient.Builder {
     protected SolrCmdDistributor.Req req;
     protected List<SolrError> errors;
+    protected ReplicaForwardingStats forwardingStats;
 
     /**
      * @param baseSolrUrl the base URL of a Solr node. Should <em>not</em> contain a collection or
@@ -164,15 +183,18 @@ class ErrorReportingConcurrentUpdateSolrClient extends ConcurrentUpdateHttp2Solr
      * @param client the client to use in making requests
      * @param req the command distributor request object for this client
      * @param errors a collector for any errors
+     * @param forwardingStats where to record per-replica errors and back-pressure
      */
     public Builder(
         String baseSolrUrl,
         Http2SolrClient client,
         SolrCmdDistributor.Req req,
-        List<SolrError> errors) {
+        List<SolrError> errors,
+        ReplicaForwardingStats forwardingStats) {
       super(baseSolrUrl, client);
       this.req = req;
       this.errors = errors;
+      this.forwardingStats = forwardingStats;
     }
 
     @Override
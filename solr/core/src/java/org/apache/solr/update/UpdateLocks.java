@@ -20,13 +20,19 @@ package org.apache.solr.update;
 import com.carrotsearch.hppc.IntObjectHashMap;
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.lucene.util.BytesRef;
+import org.apache.solr.common.MapWriter;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.util.IOFunction;
@@ -38,6 +44,9 @@ import org.apache.solr.util.IOFunction;
  */
 public class UpdateLocks {
 
+  /** Default number of stripes; see {@link #UpdateLocks(long, int)}. */
+  public static final int DEFAULT_NUM_STRIPES = 16;
+
   private final long docLockTimeoutMs;
 
   private final ReadWriteLock blockUpdatesLock = new ReentrantReadWriteLock(true);
@@ -47,21 +56,41 @@ public class UpdateLocks {
   // Here we have a Map keyed by hash and a pool of locks to re-use.  Synchronization is needed 2x.
   //   Note:  ConcurrentHashMap was also explored but HPPC came out on top, probably because
   //          we can use a hashcode directly as the key, and it's GC friendly (zero-allocation).
+  // A single Map guarded by one monitor became a hotspot under skewed workloads (e.g. atomic
+  //   updates incrementing counters on a few hot docs), so the Map itself is striped.  Each doc
+  //   still gets its own lock (no sharing beyond hash collisions); only the brief bookkeeping
+  //   is spread across stripes.
 
-  /** Maps a ID hashcode to a lock. Synchronize to manipulate. */
-  private final IntObjectHashMap<LockAndCondition> hashToLock =
-      new IntObjectHashMap<>(32) {
-        @Override
-        protected int hashKey(int key) {
-          return key; // our keys are themselves hash-codes
-        }
-      };
+  /** Hash-striped maps of ID hashcode to lock, each with its own monitor and pool. */
+  private final Stripe[] stripes;
 
-  /** A pool of locks to avoid creating & GC'ing them too much. Must synchronize on hashToLock. */
-  private final ArrayDeque<LockAndCondition> lockPool = new ArrayDeque<>(16);
+  private final int stripeMask;
 
   public UpdateLocks(long docLockTimeoutMs) {
+    this(docLockTimeoutMs, DEFAULT_NUM_STRIPES);
+  }
+
+  /**
+   * @param docLockTimeoutMs how long to wait for a doc lock; 0 waits indefinitely.
+   * @param numStripes number of stripes guarding the ID hash to lock maps. Rounded up to a power
+   *     of two.
+   */
+  public UpdateLocks(long docLockTimeoutMs, int numStripes) {
+    if (numStripes < 1) {
+      throw new IllegalArgumentException("numStripes must be positive: " + numStripes);
+    }
     this.docLockTimeoutMs = docLockTimeoutMs;
+    final int size = numStripes == 1 ? 1 : Integer.highestOneBit(numStripes - 1) << 1;
+    this.stripes = new Stripe[size];
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new Stripe();
+    }
+    this.stripeMask = size - 1;
+  }
+
+  private Stripe stripeFor(int hash) {
+    // spread the high bits down; BytesRef hashes are murmur-based but be defensive
+    return stripes[(hash ^ (hash >>> 16)) & stripeMask];
   }
 
   /**
@@ -78,33 +107,34 @@ public class UpdateLocks {
       //   OrderedExecutor.SparseStripedLock over here, which is also a mechanism invented for
       //   per-doc locking.
 
-      // hashToLock isn't concurrent, but we synchronize on it briefly twice to do cheap work
+      // a stripe's map isn't concurrent, but we synchronize on it briefly twice to do cheap work
 
       final int hash = id.hashCode();
+      final Stripe stripe = stripeFor(hash);
       final LockAndCondition lock;
       // get or insert lock, increment refcount
-      synchronized (hashToLock) {
-        final int idx = hashToLock.indexOf(hash);
-        if (hashToLock.indexExists(idx)) {
-          lock = hashToLock.indexGet(idx);
+      synchronized (stripe) {
+        final int idx = stripe.hashToLock.indexOf(hash);
+        if (stripe.hashToLock.indexExists(idx)) {
+          lock = stripe.hashToLock.indexGet(idx);
           assert lock.refCount >= 1;
           lock.refCount++;
         } else {
-          lock = borrowLock();
-          hashToLock.indexInsert(idx, hash, lock);
+          lock = stripe.borrowLock();
+          stripe.hashToLock.indexInsert(idx, hash, lock);
         }
       }
 
       // try-finally ensuring we decrement the refCount
       try {
-        return runWithLockInternal(id, function, lock, startTimeNanos);
+        return runWithLockInternal(id, function, stripe, lock, startTimeNanos);
       } finally {
         // decrement refcount, remove lock if unreferenced
-        synchronized (hashToLock) {
+        synchronized (stripe) {
           assert lock.refCount > 0; // because we incremented it
           if (--lock.refCount == 0) { // typical
-            hashToLock.remove(hash);
-            returnLock(lock);
+            stripe.hashToLock.remove(hash);
+            stripe.returnLock(lock);
           }
         }
       }
@@ -114,44 +144,42 @@ public class UpdateLocks {
     }
   }
 
-  private LockAndCondition borrowLock() {
-    assert Thread.holdsLock(hashToLock);
-    if (lockPool.isEmpty()) {
-      return new LockAndCondition();
-    } else {
-      return lockPool.removeLast();
-    }
-  }
-
-  private void returnLock(LockAndCondition lock) {
-    assert Thread.holdsLock(hashToLock);
-    if (lockPool.size() < 16) {
-      lockPool.add(lock);
-      lock.refCount = 1; // ready for next use
-    }
-  }
-
   private <R> R runWithLockInternal(
-      BytesRef id, IOFunction<Condition, R> function, LockAndCondition lock, long startTimeNanos)
+      BytesRef id,
+      IOFunction<Condition, R> function,
+      Stripe stripe,
+      LockAndCondition lock,
+      long startTimeNanos)
       throws IOException {
     // Acquire the lock
     try {
-      if (docLockTimeoutMs == 0) {
-        lock.lock.lockInterruptibly();
-      } else {
-        long remainingNs =
-            TimeUnit.MILLISECONDS.toNanos(docLockTimeoutMs) - (System.nanoTime() - startTimeNanos);
-        boolean timedOut = !lock.lock.tryLock(remainingNs, TimeUnit.NANOSECONDS);
-        if (timedOut) {
-          throw new SolrException(
-              ErrorCode.SERVER_ERROR,
-              "Unable to lock doc " + id + " in " + docLockTimeoutMs + " ms");
+      // Fast path: uncontended.  A zero-timeout tryLock (unlike tryLock()) honors fairness.
+      if (!lock.lock.tryLock(0, TimeUnit.NANOSECONDS)) {
+        final long waitStartNanos = System.nanoTime();
+        try {
+          if (docLockTimeoutMs == 0) {
+            lock.lock.lockInterruptibly();
+          } else {
+            long remainingNs =
+                TimeUnit.MILLISECONDS.toNanos(docLockTimeoutMs)
+                    - (System.nanoTime() - startTimeNanos);
+            boolean timedOut = !lock.lock.tryLock(remainingNs, TimeUnit.NANOSECONDS);
+            if (timedOut) {
+              stripe.timeouts.increment();
+              throw new SolrException(
+                  ErrorCode.SERVER_ERROR,
+                  "Unable to lock doc " + id + " in " + docLockTimeoutMs + " ms");
+            }
+          }
+        } finally {
+          stripe.recordWait(System.nanoTime() - waitStartNanos);
         }
       }
     } catch (InterruptedException e) {
       // don't set interrupt status; we're ending the request
       throw new SolrException(ErrorCode.SERVER_ERROR, "Unable to lock doc " + id, e);
     }
+    stripe.acquisitions.increment();
     // try-finally ensuring we unlock
     try {
       // We have the lock; do stuff with it
@@ -162,10 +190,95 @@ public class UpdateLocks {
     }
   }
 
+  /** Number of stripes. */
+  public int getNumStripes() {
+    return stripes.length;
+  }
+
+  /**
+   * Writes lock wait statistics, in aggregate and per stripe, for metrics reporting. Per stripe
+   * figures expose skew: a hot doc shows up as one stripe with a disproportionate wait time.
+   */
+  public void writeStats(MapWriter.EntryWriter ew) throws IOException {
+    long acquisitions = 0, contended = 0, timeouts = 0, waitNanos = 0, maxWaitNanos = 0;
+    final List<Map<String, Object>> perStripe = new ArrayList<>(stripes.length);
+    for (Stripe stripe : stripes) {
+      final long sAcquisitions = stripe.acquisitions.sum();
+      final long sContended = stripe.contended.sum();
+      final long sTimeouts = stripe.timeouts.sum();
+      final long sWaitNanos = stripe.waitNanos.sum();
+      final long sMaxWaitNanos = stripe.maxWaitNanos.get();
+      acquisitions += sAcquisitions;
+      contended += sContended;
+      timeouts += sTimeouts;
+      waitNanos += sWaitNanos;
+      maxWaitNanos = Math.max(maxWaitNanos, sMaxWaitNanos);
+      perStripe.add(
+          Map.of(
+              "acquisitions", sAcquisitions,
+              "contended", sContended,
+              "timeouts", sTimeouts,
+              "waitMs", TimeUnit.NANOSECONDS.toMillis(sWaitNanos),
+              "maxWaitMs", TimeUnit.NANOSECONDS.toMillis(sMaxWaitNanos)));
+    }
+    ew.put("stripes", stripes.length);
+    ew.put("acquisitions", acquisitions);
+    ew.put("contended", contended);
+    ew.put("timeouts", timeouts);
+    ew.put("waitMs", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    ew.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+    ew.put("perStripe", perStripe);
+  }
+
+  /** A map of ID hashcode to lock, with a pool. Synchronize on the stripe to manipulate. */
+  private static class Stripe {
+    /** Maps a ID hashcode to a lock. */
+    final IntObjectHashMap<LockAndCondition> hashToLock =
+        new IntObjectHashMap<>(8) {
+          @Override
+          protected int hashKey(int key) {
+            return key; // our keys are themselves hash-codes
+          }
+        };
+
+    /** A pool of locks to avoid creating & GC'ing them too much. */
+    final ArrayDeque<LockAndCondition> lockPool = new ArrayDeque<>(4);
+
+    // stats; updated outside the monitor
+    final LongAdder acquisitions = new LongAdder();
+    final LongAdder contended = new LongAdder();
+    final LongAdder timeouts = new LongAdder();
+    final LongAdder waitNanos = new LongAdder();
+    final AtomicLong maxWaitNanos = new AtomicLong();
+
+    LockAndCondition borrowLock() {
+      assert Thread.holdsLock(this);
+      if (lockPool.isEmpty()) {
+        return new LockAndCondition();
+      } else {
+        return lockPool.removeLast();
+      }
+    }
+
+    void returnLock(LockAndCondition lock) {
+      assert Thread.holdsLock(this);
+      if (lockPool.size() < 4) {
+        lockPool.add(lock);
+        lock.refCount = 1; // ready for next use
+      }
+    }
+
+    void recordWait(long nanos) {
+      contended.increment();
+      waitNanos.add(nanos);
+      maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+  }
+
   private static class LockAndCondition {
     final Lock lock;
     final Condition condition;
-    int refCount; // only access when synchronized on hashToLock
+    int refCount; // only access when synchronized on the Stripe
 
     LockAndCondition() {
       lock = new ReentrantLock(true); // fair
@@ -77,6 +77,7 @@ import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
 import org.apache.solr.core.SolrPaths;
+import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricProducer;
 import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.request.LocalSolrQueryRequest;
@@ -394,7 +395,13 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
             info.initArgs.getOrDefault(
                 "docLockTimeoutMs", info.initArgs.get("versionBucketLockTimeoutMs")),
             EnvUtils.getPropertyAsLong("solr.update.docLockTimeoutMs", 0L).intValue());
-    updateLocks = new UpdateLocks(timeoutMs);
+    int docLockStripes =
+        objToInt(
+            info.initArgs.get("docLockStripes"),
+            EnvUtils.getPropertyAsLong(
+                    "solr.update.docLockStripes", (long) UpdateLocks.DEFAULT_NUM_STRIPES)
+                .intValue());
+    updateLocks = new UpdateLocks(timeoutMs, docLockStripes);
 
     log.info(
         "Initializing UpdateLog: dataDir={} defaultSyncLevel={} numRecordsToKeep={} maxNumLogsToKeep={}",
@@ -658,6 +665,14 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     replayOpsMeter = solrMetricsContext.meter("ops", scope, "replay");
     copyOverOldUpdatesMeter = solrMetricsContext.meter("ops", scope, "copyOverOldUpdates");
     solrMetricsContext.gauge(() -> state.getValue(), true, "state", scope);
+    solrMetricsContext.gauge(
+        new MetricsMap(
+            ew -> {
+              if (updateLocks != null) updateLocks.writeStats(ew);
+            }),
+        true,
+        "docLocks",
+        scope);
   }
 
   @Override
@@ -1281,6 +1296,14 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   // that have already grabbed higher version numbers.  Higher level coordination or
   // synchronization is needed for stronger guarantees (as VersionUpdateProcessor does).
   public Long lookupVersion(BytesRef indexedId) {
+    return lookupVersion(indexedId, null);
+  }
+
+  /**
+   * Like {@link #lookupVersion(BytesRef)}, with the index versions prefetched for a batch of
+   * updates, possibly null.
+   */
+  public Long lookupVersion(BytesRef indexedId, VersionInfo.PrefetchedVersions prefetched) {
     LogPtr entry;
     TransactionLog lookupLog;
 
@@ -1312,7 +1335,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     }
 
     // Now check real index
-    Long version = versionInfo.getVersionFromIndex(indexedId);
+    Long version = versionInfo.getVersionFromIndex(indexedId, prefetched);
 
     if (version != null) {
       return version;
@@ -36,11 +36,13 @@ import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.IOUtils;
 import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.security.HttpClientBuilderPlugin;
 import org.apache.solr.update.processor.DistributedUpdateProcessor;
 import org.apache.solr.update.processor.DistributingUpdateProcessorFactory;
+import org.apache.solr.util.SharedRateLimiter;
 import org.apache.solr.util.stats.HttpClientMetricNameStrategy;
 import org.apache.solr.util.stats.InstrumentedHttpListenerFactory;
 import org.apache.solr.util.stats.InstrumentedHttpRequestExecutor;
@@ -77,6 +79,8 @@ public class UpdateShardHandler implements SolrInfoBean {
 
   private final Http2SolrClient recoveryOnlyClient;
 
+  private final SharedRateLimiter recoveryRateLimiter;
+
   private final CloseableHttpClient defaultClient;
 
   private final InstrumentedPoolingHttpClientConnectionManager defaultConnectionManager;
@@ -85,6 +89,8 @@ public class UpdateShardHandler implements SolrInfoBean {
 
   private final InstrumentedHttpListenerFactory trackHttpSolrMetrics;
 
+  private final ReplicaForwardingStats replicaForwardingStats = new ReplicaForwardingStats();
+
   private SolrMetricsContext solrMetricsContext;
 
   private int socketTimeout = HttpClientUtil.DEFAULT_SO_TIMEOUT;
@@ -129,12 +135,18 @@ public class UpdateShardHandler implements SolrInfoBean {
       updateOnlyClientBuilder
           .withConnectionTimeout(cfg.getDistributedConnectionTimeout(), TimeUnit.MILLISECONDS)
           .withIdleTimeout(cfg.getDistributedSocketTimeout(), TimeUnit.MILLISECONDS)
-          .withMaxConnectionsPerHost(cfg.getMaxUpdateConnectionsPerHost());
+          .withMaxConnectionsPerHost(cfg.getMaxUpdateConnectionsPerHost())
+          .withMaxConcurrentStreams(cfg.getMaxUpdateConcurrentStreams());
       recoveryOnlyClientBuilder
           .withConnectionTimeout(cfg.getDistributedConnectionTimeout(), TimeUnit.MILLISECONDS)
           .withIdleTimeout(cfg.getDistributedSocketTimeout(), TimeUnit.MILLISECONDS)
-          .withMaxConnectionsPerHost(cfg.getMaxUpdateConnectionsPerHost());
+          .withMaxConnectionsPerHost(cfg.getMaxUpdateConnectionsPerHost())
+          .withMaxConcurrentStreams(cfg.getMaxRecoveryConcurrentStreams());
     }
+    recoveryRateLimiter =
+        cfg != null && cfg.getMaxRecoveryMBPerSec() > 0
+            ? new SharedRateLimiter(cfg.getMaxRecoveryMBPerSec())
+            : null;
 
     updateOnlyClientBuilder.withTheseParamNamesInTheUrl(urlParamNames);
     updateOnlyClient = updateOnlyClientBuilder.build();
@@ -219,6 +231,12 @@ public class UpdateShardHandler implements SolrInfoBean {
             this,
             solrMetricsContext.getMetricRegistry(),
             SolrMetricManager.mkName("recoveryExecutor", expandedScope, "threadPool"));
+    solrMetricsContext.gauge(
+        new MetricsMap(replicaForwardingStats), true, "replicaForwarding", expandedScope);
+    if (recoveryRateLimiter != null) {
+      solrMetricsContext.gauge(
+          recoveryRateLimiter::getPausedMillis, true, "recoveryThrottledMs", expandedScope);
+    }
   }
 
   @Override
@@ -261,6 +279,14 @@ public class UpdateShardHandler implements SolrInfoBean {
     return recoveryOnlyClient;
   }
 
+  /**
+   * The limiter all the index fetchers of this node share for the files they download, or null if
+   * their bandwidth is not limited.
+   */
+  public SharedRateLimiter getRecoveryRateLimiter() {
+    return recoveryRateLimiter;
+  }
+
   /**
    * This method returns an executor that is meant for non search related tasks.
    *
@@ -270,6 +296,13 @@ public class UpdateShardHandler implements SolrInfoBean {
     return updateExecutor;
   }
 
+  /**
+   * @return per-replica statistics on updates forwarded by shard leaders on this node
+   */
+  public ReplicaForwardingStats getReplicaForwardingStats() {
+    return replicaForwardingStats;
+  }
+
   public PoolingHttpClientConnectionManager getDefaultConnectionManager() {
     return defaultConnectionManager;
   }
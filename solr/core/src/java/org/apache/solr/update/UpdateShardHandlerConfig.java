@@ -22,6 +22,8 @@ public class UpdateShardHandlerConfig {
 
   public static final String DEFAULT_METRICNAMESTRATEGY = "queryLessURLAndMethod";
   public static final int DEFAULT_MAXRECOVERYTHREADS = -1;
+  public static final int DEFAULT_MAXCONCURRENTSTREAMS = -1;
+  public static final int DEFAULT_MAXRECOVERYMBPERSEC = -1;
 
   public static final UpdateShardHandlerConfig DEFAULT =
       new UpdateShardHandlerConfig(
@@ -53,6 +55,12 @@ public class UpdateShardHandlerConfig {
 
   private final int maxRecoveryThreads;
 
+  private final int maxUpdateConcurrentStreams;
+
+  private final int maxRecoveryConcurrentStreams;
+
+  private final int maxRecoveryMBPerSec;
+
   public UpdateShardHandlerConfig(
       int maxUpdateConnections,
       int maxUpdateConnectionsPerHost,
@@ -60,12 +68,37 @@ public class UpdateShardHandlerConfig {
       int distributedConnectionTimeout,
       String metricNameStrategy,
       int maxRecoveryThreads) {
+    this(
+        maxUpdateConnections,
+        maxUpdateConnectionsPerHost,
+        distributedSocketTimeout,
+        distributedConnectionTimeout,
+        metricNameStrategy,
+        maxRecoveryThreads,
+        DEFAULT_MAXCONCURRENTSTREAMS,
+        DEFAULT_MAXCONCURRENTSTREAMS,
+        DEFAULT_MAXRECOVERYMBPERSEC);
+  }
+
+  public UpdateShardHandlerConfig(
+      int maxUpdateConnections,
+      int maxUpdateConnectionsPerHost,
+      int distributedSocketTimeout,
+      int distributedConnectionTimeout,
+      String metricNameStrategy,
+      int maxRecoveryThreads,
+      int maxUpdateConcurrentStreams,
+      int maxRecoveryConcurrentStreams,
+      int maxRecoveryMBPerSec) {
     this.maxUpdateConnections = maxUpdateConnections;
     this.maxUpdateConnectionsPerHost = maxUpdateConnectionsPerHost;
     this.distributedSocketTimeout = distributedSocketTimeout;
     this.distributedConnectionTimeout = distributedConnectionTimeout;
     this.metricNameStrategy = metricNameStrategy;
     this.maxRecoveryThreads = maxRecoveryThreads;
+    this.maxUpdateConcurrentStreams = maxUpdateConcurrentStreams;
+    this.maxRecoveryConcurrentStreams = maxRecoveryConcurrentStreams;
+    this.maxRecoveryMBPerSec = maxRecoveryMBPerSec;
   }
 
   public int getMaxUpdateConnectionsPerHost() {
@@ -91,4 +124,19 @@ public class UpdateShardHandlerConfig {
   public int getMaxRecoveryThreads() {
     return maxRecoveryThreads;
   }
+
+  /** The maximum number of concurrent HTTP/2 streams per connection of update requests. */
+  public int getMaxUpdateConcurrentStreams() {
+    return maxUpdateConcurrentStreams;
+  }
+
+  /** The maximum number of concurrent HTTP/2 streams per connection of recovery requests. */
+  public int getMaxRecoveryConcurrentStreams() {
+    return maxRecoveryConcurrentStreams;
+  }
+
+  /** The bandwidth all the index replications of the node share, or -1 if unlimited. */
+  public int getMaxRecoveryMBPerSec() {
+    return maxRecoveryMBPerSec;
+  }
 }
@@ -19,9 +19,20 @@ package org.apache.solr.update;
 import static org.apache.solr.common.params.CommonParams.VERSION_FIELD;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queries.function.FunctionValues;
 import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.SuppressForbidden;
@@ -37,6 +48,12 @@ import org.apache.solr.util.RefCounted;
  */
 public class VersionInfo {
 
+  /**
+   * The request context key of the {@link PrefetchedVersions} of the batch of updates being
+   * processed, if any.
+   */
+  public static final String PREFETCHED_VERSIONS = "prefetchedVersions";
+
   private final UpdateLog ulog;
 
   private final SchemaField versionField;
@@ -140,18 +157,44 @@ public class VersionInfo {
     return ulog.lookupVersion(idBytes);
   }
 
+  /**
+   * Like {@link #lookupVersion(BytesRef)}, but uses the versions prefetched from the index for the
+   * id if they are still current.
+   *
+   * @param prefetched the prefetched versions, possibly null
+   */
+  public Long lookupVersion(BytesRef idBytes, PrefetchedVersions prefetched) {
+    return ulog.lookupVersion(idBytes, prefetched);
+  }
+
   /**
    * Returns the latest version from the index, searched by the given id (bytes) as seen from the
    * realtime searcher. Returns null if no document can be found in the index for the given id.
    */
-  @SuppressWarnings({"unchecked"})
   public Long getVersionFromIndex(BytesRef idBytes) {
+    return getVersionFromIndex(idBytes, null);
+  }
+
+  /**
+   * Like {@link #getVersionFromIndex(BytesRef)}, but returns the prefetched version of the id if
+   * it was read from the current realtime searcher.
+   *
+   * @param prefetched the prefetched versions, possibly null
+   */
+  @SuppressWarnings({"unchecked"})
+  public Long getVersionFromIndex(BytesRef idBytes, PrefetchedVersions prefetched) {
     // TODO: we could cache much of this and invalidate during a commit.
     // TODO: most DocValues classes are threadsafe - expose which.
 
     RefCounted<SolrIndexSearcher> newestSearcher = ulog.uhandler.core.getRealtimeSearcher();
     try {
       SolrIndexSearcher searcher = newestSearcher.get();
+      // updates are only dropped from the update log maps once a newer realtime searcher sees them
+      if (prefetched != null
+          && prefetched.searcher == searcher
+          && prefetched.versions.containsKey(idBytes)) {
+        return prefetched.versions.get(idBytes);
+      }
       long lookup = searcher.lookupId(idBytes);
       if (lookup < 0) return null; // this means the doc doesn't exist in the index yet
 
@@ -172,4 +215,113 @@ public class VersionInfo {
       }
     }
   }
+
+  /**
+   * Reads the versions of a batch of ids from the index ahead of their updates, for {@link
+   * #lookupVersion(BytesRef, PrefetchedVersions)}. The ids are looked up against a single realtime
+   * searcher in sorted order, so each segment's terms dictionary is walked forward with one reused
+   * {@link TermsEnum}, and the version values are then read segment by segment in docID order.
+   */
+  public PrefetchedVersions prefetchVersionsFromIndex(List<BytesRef> idsBytes) {
+    final int n = idsBytes.size();
+    final Map<BytesRef, Long> versions = new HashMap<>(n * 2);
+    for (BytesRef idBytes : idsBytes) {
+      versions.put(idBytes, null);
+    }
+
+    final Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparing(idsBytes::get));
+
+    RefCounted<SolrIndexSearcher> newestSearcher = ulog.uhandler.core.getRealtimeSearcher();
+    try {
+      SolrIndexSearcher searcher = newestSearcher.get();
+      final String idField = searcher.getSchema().getUniqueKeyField().getName();
+      final List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+      final TermsEnum[] termsEnums = new TermsEnum[leaves.size()];
+      for (int i = 0; i < termsEnums.length; i++) {
+        Terms terms = leaves.get(i).reader().terms(idField);
+        termsEnums[i] = terms == null ? null : terms.iterator();
+      }
+
+      // (leaf << 32 | docId) per id, as with SolrIndexSearcher.lookupId; -1 if not found
+      final long[] lookups = new long[n];
+      Arrays.fill(lookups, -1);
+      PostingsEnum postings = null;
+      int found = 0;
+      for (int idx : order) {
+        final BytesRef idBytes = idsBytes.get(idx);
+        for (int i = 0; i < termsEnums.length; i++) {
+          final TermsEnum te = termsEnums[i];
+          if (te == null || !te.seekExact(idBytes)) continue;
+          final LeafReader reader = leaves.get(i).reader();
+          final Bits liveDocs = reader.getLiveDocs();
+          postings = te.postings(postings, PostingsEnum.NONE);
+          int docId = postings.nextDoc();
+          while (docId != DocIdSetIterator.NO_MORE_DOCS
+              && liveDocs != null
+              && !liveDocs.get(docId)) {
+            docId = postings.nextDoc();
+          }
+          if (docId == DocIdSetIterator.NO_MORE_DOCS) continue;
+          lookups[idx] = (((long) i) << 32) | docId;
+          found++;
+          break;
+        }
+      }
+      if (found == 0) {
+        return new PrefetchedVersions(searcher, versions);
+      }
+
+      // doc values can only be read forward, so visit the hits in (leaf, docId) order
+      final Integer[] hits = new Integer[found];
+      for (int i = 0, h = 0; i < n; i++) {
+        if (lookups[i] >= 0) hits[h++] = i;
+      }
+      Arrays.sort(hits, Comparator.comparingLong(i -> lookups[i]));
+
+      ValueSource vs = versionField.getType().getValueSource(versionField, null);
+      Map<Object, Object> context = ValueSource.newContext(searcher);
+      vs.createWeight(context, searcher);
+      FunctionValues fv = null;
+      int fvLeaf = -1;
+      for (int idx : hits) {
+        final int leaf = (int) (lookups[idx] >> 32);
+        if (leaf != fvLeaf) {
+          fv = vs.getValues(context, leaves.get(leaf));
+          fvLeaf = leaf;
+        }
+        versions.put(idsBytes.get(idx), fv.longVal((int) lookups[idx]));
+      }
+      return new PrefetchedVersions(searcher, versions);
+
+    } catch (IOException e) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "Error reading version from index", e);
+    } finally {
+      if (newestSearcher != null) {
+        newestSearcher.decref();
+      }
+    }
+  }
+
+  /**
+   * The versions of a batch of ids as read from one realtime searcher, null for the ids not in the
+   * index. They remain valid as long as that searcher is the newest one, since the updates that
+   * came later are found in the {@link UpdateLog} first.
+   *
+   * @see #prefetchVersionsFromIndex(List)
+   */
+  public static final class PrefetchedVersions {
+    // only compared by identity, not used for searching
+    private final SolrIndexSearcher searcher;
+    private final Map<BytesRef, Long> versions;
+
+    private PrefetchedVersions(SolrIndexSearcher searcher, Map<BytesRef, Long> versions) {
+      this.searcher = searcher;
+      this.versions = versions;
+    }
+  }
 }
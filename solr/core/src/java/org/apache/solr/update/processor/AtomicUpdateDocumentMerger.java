@@ -52,6 +52,7 @@ import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.handler.component.RealTimeGetComponent;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.BinaryField;
 import org.apache.solr.schema.CopyField;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.NumericValueFieldType;
@@ -214,13 +215,18 @@ public class AtomicUpdateDocumentMerger {
    * Given a schema field, return whether or not such a field is supported for an in-place update.
    * Note: If an update command has updates to only supported fields (and _version_ is also
    * supported), only then is such an update command executed as an in-place update.
+   *
+   * <p>Lucene can only update NUMERIC and BINARY docValues in place, so besides numeric fields
+   * only single valued {@link BinaryField}s qualify. Updates to fields using SORTED, SORTED_SET or
+   * SORTED_NUMERIC docValues (strings, multi-valued fields) re-index the whole document.
    */
   public static boolean isSupportedFieldForInPlaceUpdate(SchemaField schemaField) {
     return !(schemaField.indexed()
         || schemaField.stored()
         || !schemaField.hasDocValues()
         || schemaField.multiValued()
-        || !(schemaField.getType() instanceof NumericValueFieldType));
+        || !(schemaField.getType() instanceof NumericValueFieldType
+            || schemaField.getType() instanceof BinaryField));
   }
 
   /**
@@ -303,6 +309,13 @@ public class AtomicUpdateDocumentMerger {
         return Collections.emptySet();
       }
 
+      // only numbers can be incremented; anything else is left to a regular atomic update to
+      // handle (and reject)
+      if (!(schemaField.getType() instanceof NumericValueFieldType)
+          && ((Map<String, Object>) sdoc.getField(fieldName).getValue()).containsKey("inc")) {
+        return Collections.emptySet();
+      }
+
       // if this field has copy target which is not supported for in place, then empty
       for (CopyField copyField : schema.getCopyFieldsList(fieldName)) {
         if (!isSupportedFieldForInPlaceUpdate(copyField.getDestination()))
@@ -408,7 +408,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
         }
 
         if (versionOnUpdate != 0) {
-          Long lastVersion = vinfo.lookupVersion(cmd.getIndexedId());
+          Long lastVersion = vinfo.lookupVersion(cmd.getIndexedId(), getPrefetchedVersions(cmd));
           long foundVersion = lastVersion == null ? -1 : lastVersion;
           if (versionOnUpdate == foundVersion
               || (versionOnUpdate < 0 && foundVersion < 0)
@@ -448,7 +448,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
 
         if (cmd.isInPlaceUpdate()) {
           long prev = cmd.prevVersion;
-          Long lastVersion = vinfo.lookupVersion(cmd.getIndexedId());
+          Long lastVersion = vinfo.lookupVersion(cmd.getIndexedId(), getPrefetchedVersions(cmd));
           if (lastVersion == null || Math.abs(lastVersion) < prev) {
             // this was checked for (in waitForDependentUpdates()) before entering the
             // synchronized block. So we shouldn't be here, unless what must've happened is: by
@@ -498,7 +498,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
         } else {
           // if we aren't the leader, then we need to check that updates were not re-ordered
           // we need to check the specific version for this id.
-          Long lastVersion = vinfo.lookupVersion(cmd.getIndexedId());
+          Long lastVersion = vinfo.lookupVersion(cmd.getIndexedId(), getPrefetchedVersions(cmd));
           if (lastVersion != null && Math.abs(lastVersion) >= versionOnUpdate) {
             // This update is a repeat, or was reordered. We need to drop this update.
             if (log.isDebugEnabled()) {
@@ -527,6 +527,12 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     return false;
   }
 
+  /** The versions prefetched by the loader for the batch the update belongs to, if any. */
+  private static VersionInfo.PrefetchedVersions getPrefetchedVersions(UpdateCommand cmd) {
+    return (VersionInfo.PrefetchedVersions)
+        cmd.getReq().getContext().get(VersionInfo.PREFETCHED_VERSIONS);
+  }
+
   /**
    * @return whether cmd doc should be cloned before localAdd
    */
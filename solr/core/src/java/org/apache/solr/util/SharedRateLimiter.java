@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/**
+ * A {@link RateLimiter} that is shared by several threads, so that together they stay under its
+ * rate, unlike {@link RateLimiter.SimpleRateLimiter} which is meant for a single thread. Each call
+ * to {@link #pause(long)} takes the next slot of time the bytes need, and waits until its end.
+ *
+ * <p>Time spent without any call is not saved up for later bursts.
+ */
+public class SharedRateLimiter extends RateLimiter {
+
+  private static final long MIN_PAUSE_CHECK_MSEC = 5;
+
+  private volatile double mbPerSec;
+  private volatile long minPauseCheckBytes;
+  // the end of the last slot of time taken, guarded by this
+  private long nextNS = System.nanoTime();
+  private final LongAdder pausedNS = new LongAdder();
+
+  /**
+   * @param mbPerSec the rate, in megabytes per second
+   */
+  public SharedRateLimiter(double mbPerSec) {
+    setMBPerSec(mbPerSec);
+  }
+
+  @Override
+  public void setMBPerSec(double mbPerSec) {
+    if (mbPerSec <= 0) {
+      throw new IllegalArgumentException("mbPerSec must be positive, got " + mbPerSec);
+    }
+    this.mbPerSec = mbPerSec;
+    minPauseCheckBytes = (long) ((MIN_PAUSE_CHECK_MSEC / 1000.0) * mbPerSec * 1024 * 1024);
+  }
+
+  @Override
+  public double getMBPerSec() {
+    return mbPerSec;
+  }
+
+  @Override
+  public long getMinPauseCheckBytes() {
+    return minPauseCheckBytes;
+  }
+
+  @Override
+  public long pause(long bytes) {
+    final long startNS = System.nanoTime();
+    final long targetNS;
+    synchronized (this) {
+      nextNS = Math.max(nextNS, startNS) + (long) (bytes * 1e9 / (mbPerSec * 1024 * 1024));
+      targetNS = nextNS;
+    }
+    long curNS = startNS;
+    while (targetNS > curNS) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(targetNS - curNS);
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      }
+      curNS = System.nanoTime();
+    }
+    long paused = curNS - startNS;
+    pausedNS.add(paused);
+    return paused;
+  }
+
+  /** The total time the callers of {@link #pause(long)} waited, in milliseconds. */
+  public long getPausedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(pausedNS.sum());
+  }
+}
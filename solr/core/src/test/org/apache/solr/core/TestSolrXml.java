@@ -235,6 +235,25 @@ public class TestSolrXml extends SolrTestCaseJ4 {
     assertEquals(ok, cfg.getUpdateShardHandlerConfig().getMaxUpdateConnections());
   }
 
+  public void testTrafficLanes() {
+    String solrXml =
+        "<solr><updateshardhandler>"
+            + "<int name=\"maxUpdateConcurrentStreams\">64</int>"
+            + "<int name=\"maxRecoveryConcurrentStreams\">4</int>"
+            + "<int name=\"maxRecoveryMBPerSec\">50</int>"
+            + "</updateshardhandler></solr>";
+    UpdateShardHandlerConfig ucfg =
+        SolrXmlConfig.fromString(solrHome, solrXml).getUpdateShardHandlerConfig();
+    assertEquals(64, ucfg.getMaxUpdateConcurrentStreams());
+    assertEquals(4, ucfg.getMaxRecoveryConcurrentStreams());
+    assertEquals(50, ucfg.getMaxRecoveryMBPerSec());
+
+    ucfg = UpdateShardHandlerConfig.DEFAULT;
+    assertEquals(-1, ucfg.getMaxUpdateConcurrentStreams());
+    assertEquals(-1, ucfg.getMaxRecoveryConcurrentStreams());
+    assertEquals(-1, ucfg.getMaxRecoveryMBPerSec());
+  }
+
   public void testMultiCloudSectionError() {
     String solrXml =
         "<solr>"
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class VirtualThreadPinningStatsTest extends SolrTestCase {
+
+  @Test
+  public void testRecord() {
+    VirtualThreadPinningStats stats = VirtualThreadPinningStats.get();
+    Map<String, Object> before = stats.toMap(new LinkedHashMap<>());
+    // only listening when the streaming subsystem uses virtual threads
+    assertEquals(false, before.get("enabled"));
+
+    stats.record(MILLISECONDS.toNanos(30));
+    stats.record(MILLISECONDS.toNanos(50));
+    Map<String, Object> after = stats.toMap(new LinkedHashMap<>());
+    assertEquals(2L, (Long) after.get("pinned") - (Long) before.get("pinned"));
+    assertEquals(80L, (Long) after.get("pinnedMs") - (Long) before.get("pinnedMs"));
+    assertTrue((Long) after.get("maxPinnedMs") >= 50L);
+  }
+}
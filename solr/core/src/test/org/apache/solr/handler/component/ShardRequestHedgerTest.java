@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.SolrClientFunction;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.impl.LBHttp2SolrClient;
+import org.apache.solr.client.solrj.impl.LBSolrClient;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardRequestHedgerTest extends SolrTestCase {
+
+  private static final LBSolrClient.Endpoint EP1 =
+      new LBSolrClient.Endpoint("http://endpoint.one/solr", "core1");
+  private static final LBSolrClient.Endpoint EP2 =
+      new LBSolrClient.Endpoint("http://endpoint.two/solr", "core2");
+
+  private MockHttpSolrClient client;
+  private LBHttp2SolrClient<MockHttpSolrClient> lbClient;
+  private ShardRequestHedger hedger;
+
+  @Before
+  public void setUpClients() {
+    client =
+        new MockHttpSolrClient(
+            "http://base.url",
+            new Http2SolrClient.Builder("http://base.url")
+                .withConnectionTimeout(10, TimeUnit.SECONDS));
+    lbClient = new LBHttp2SolrClient.Builder<>(client).build();
+    hedger = new ShardRequestHedger(client);
+  }
+
+  @After
+  public void tearDownClients() {
+    hedger.close();
+    lbClient.close();
+    client.close();
+  }
+
+  private static ModifiableSolrParams hedgeParams(int delayMs) {
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set(CommonParams.Q, "*:*");
+    params.set(ShardParams.SHARDS_HEDGE, true);
+    params.set(ShardParams.SHARDS_HEDGE_DELAY, delayMs);
+    return params;
+  }
+
+  private CompletableFuture<LBSolrClient.Rsp> send(
+      ModifiableSolrParams params, ShardRequestHedger.Budget budget) {
+    LBSolrClient.Req req =
+        new LBSolrClient.Req(new QueryRequest(params), new ArrayList<>(List.of(EP1, EP2)));
+    CompletableFuture<LBSolrClient.Rsp> primary = lbClient.requestAsync(req);
+    return hedger.hedge(lbClient, req, primary, "shard1", params, budget);
+  }
+
+  @Test
+  public void testHedgeWins() throws Exception {
+    ModifiableSolrParams params = hedgeParams(10);
+    params.set(ShardParams.QUERY_ID, "q1");
+    CompletableFuture<LBSolrClient.Rsp> result = send(params, new ShardRequestHedger.Budget());
+
+    Sent primary = client.sent.poll(10, TimeUnit.SECONDS);
+    assertEquals(EP1.toString(), primary.baseUrl);
+    Sent hedge = client.sent.poll(10, TimeUnit.SECONDS);
+    assertNotNull("request was not hedged", hedge);
+    assertEquals(EP2.toString(), hedge.baseUrl);
+
+    hedge.future.complete(new NamedList<>(Collections.singletonMap("answer", "two")));
+    assertEquals(EP2.toString(), result.get(10, TimeUnit.SECONDS).getServer());
+    assertTrue("the slow request should be cancelled", primary.future.isCancelled());
+
+    Sent cancel = client.sent.poll(10, TimeUnit.SECONDS);
+    assertNotNull("the slow request should be cancelled on its replica", cancel);
+    assertEquals("/tasks/cancel", cancel.request.getPath());
+    assertEquals("http://endpoint.one/solr", cancel.baseUrl);
+    assertEquals("core1", cancel.collection);
+    assertEquals("q1", cancel.request.getParams().get(CommonParams.QUERY_UUID));
+
+    Map<String, Object> stats = hedger.toMap(new HashMap<>());
+    assertEquals(1L, stats.get("hedged"));
+    assertEquals(1L, stats.get("hedgeWins"));
+    assertEquals(1L, stats.get("cancelRequests"));
+  }
+
+  @Test
+  public void testPrimaryAnswersFirst() throws Exception {
+    CompletableFuture<LBSolrClient.Rsp> result =
+        send(hedgeParams(60_000), new ShardRequestHedger.Budget());
+    Sent primary = client.sent.poll(10, TimeUnit.SECONDS);
+    primary.future.complete(new NamedList<>());
+    assertEquals(EP1.toString(), result.get(10, TimeUnit.SECONDS).getServer());
+    assertEquals(0L, hedger.toMap(new HashMap<>()).get("hedged"));
+    assertTrue(client.sent.isEmpty());
+  }
+
+  @Test
+  public void testNoHedgeWithoutParamOrLatencies() throws Exception {
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set(CommonParams.Q, "*:*");
+    send(params, new ShardRequestHedger.Budget());
+    params.set(ShardParams.SHARDS_HEDGE, true);
+    // no fixed delay, and too few latencies recorded for the shard to know its p95
+    assertEquals(-1, hedger.getDelayNanos("shard1", params));
+    send(params, new ShardRequestHedger.Budget());
+
+    Sent first = client.sent.poll(10, TimeUnit.SECONDS);
+    Sent second = client.sent.poll(10, TimeUnit.SECONDS);
+    assertNull(client.sent.poll(100, TimeUnit.MILLISECONDS));
+    first.future.complete(new NamedList<>());
+    second.future.complete(new NamedList<>());
+    assertEquals(0L, hedger.toMap(new HashMap<>()).get("hedged"));
+  }
+
+  @Test
+  public void testBudget() {
+    ShardRequestHedger.Budget budget = new ShardRequestHedger.Budget();
+    for (int i = 0; i < 20; i++) {
+      send(hedgeParams(60_000), budget);
+    }
+    // 10% of 20 shard requests
+    assertTrue(budget.tryAcquire(0.1f));
+    assertTrue(budget.tryAcquire(0.1f));
+    assertFalse(budget.tryAcquire(0.1f));
+    // but always at least one
+    assertTrue(new ShardRequestHedger.Budget().tryAcquire(0.1f));
+  }
+
+  @Test
+  public void testFailsWhenBothFail() throws Exception {
+    CompletableFuture<LBSolrClient.Rsp> result =
+        send(hedgeParams(10), new ShardRequestHedger.Budget());
+    Sent primary = client.sent.poll(10, TimeUnit.SECONDS);
+    Sent hedge = client.sent.poll(10, TimeUnit.SECONDS);
+    assertNotNull("request was not hedged", hedge);
+
+    primary.future.completeExceptionally(
+        new SolrException(SolrException.ErrorCode.BAD_REQUEST, "x"));
+    assertFalse("should wait for the hedged request", result.isDone());
+    hedge.future.completeExceptionally(
+        new SolrException(SolrException.ErrorCode.BAD_REQUEST, "y"));
+    expectThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+  }
+
+  private static class Sent {
+    final String baseUrl;
+    final String collection;
+    final SolrRequest<?> request;
+    final CompletableFuture<NamedList<Object>> future = new CompletableFuture<>();
+
+    Sent(String baseUrl, String collection, SolrRequest<?> request) {
+      this.baseUrl = baseUrl;
+      this.collection = collection;
+      this.request = request;
+    }
+  }
+
+  /** Records requests and leaves them pending until the test completes them. */
+  private static class MockHttpSolrClient extends Http2SolrClient {
+    final LinkedBlockingQueue<Sent> sent = new LinkedBlockingQueue<>();
+    private final ThreadLocal<String> baseUrl = new ThreadLocal<>();
+
+    MockHttpSolrClient(String serverBaseUrl, Builder builder) {
+      super(serverBaseUrl, builder);
+    }
+
+    @Override
+    public <R> R requestWithBaseUrl(
+        String baseUrl, SolrClientFunction<Http2SolrClient, R> clientFunction)
+        throws SolrServerException, IOException {
+      this.baseUrl.set(baseUrl);
+      try {
+        return clientFunction.apply(this);
+      } finally {
+        this.baseUrl.remove();
+      }
+    }
+
+    @Override
+    public CompletableFuture<NamedList<Object>> requestAsync(
+        SolrRequest<?> solrRequest, String collection) {
+      Sent s = new Sent(baseUrl.get(), collection, solrRequest);
+      sent.add(s);
+      return s.future;
+    }
+  }
+}
@@ -17,6 +17,8 @@
 package org.apache.solr.handler.export;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -27,15 +29,30 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.lucene.tests.util.TestUtil;
 import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleStreamParser;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter;
+import org.apache.solr.client.solrj.io.stream.JavabinTupleStreamParser;
+import org.apache.solr.client.solrj.io.stream.TupleStreamParser;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.StreamParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.SuppressForbidden;
+import org.apache.solr.common.util.TimeSource;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.index.LogDocMergePolicyFactory;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.util.TimeOut;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -1172,6 +1189,156 @@ public class TestExportWriter extends SolrTestCaseJ4 {
     validateSort(numDocs);
   }
 
+  @Test
+  public void testSegmentThreads() throws Exception {
+    assertU(delQ("*:*"));
+    assertU(commit());
+
+    int numDocs = 2000;
+    for (int i = 0; i < numDocs; i++) {
+      int number = TestUtil.nextInt(random(), 0, 99);
+      assertU(
+          adoc(
+              "id",
+              String.valueOf(i),
+              "intdv",
+              String.valueOf(number),
+              "stringdv",
+              TestUtil.randomSimpleString(random(), 1, 3),
+              "longdv",
+              String.valueOf(i)));
+      if (random().nextInt(100) == 0) {
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+
+    // a small queueSize makes each segment take several passes
+    for (String sort : new String[] {"intdv asc,longdv desc", "stringdv desc,longdv asc"}) {
+      String serial =
+          h.query(
+              req(
+                  "q", "*:*",
+                  "qt", "/export",
+                  "fl", "id,intdv,stringdv,longdv",
+                  "sort", sort,
+                  "queueSize", "100"));
+      String parallel =
+          h.query(
+              req(
+                  "q", "*:*",
+                  "qt", "/export",
+                  "fl", "id,intdv,stringdv,longdv",
+                  "sort", sort,
+                  "queueSize", "100",
+                  ExportWriter.SEGMENT_THREADS_PARAM, "4"));
+      Map<?, ?> response = (Map<?, ?>) mapper.readValue(serial, Map.class).get("response");
+      assertEquals(numDocs, ((List<?>) response.get("docs")).size());
+      assertEquals(serial, parallel);
+    }
+  }
+
+  @Test
+  public void testColumnar() throws Exception {
+    clearIndex();
+    createIndex();
+
+    String fl =
+        "id,floatdv,intdv,stringdv,longdv,doubledv,datedv,"
+            + "floatdv_m,intdv_m,doubledv_m,longdv_m,stringdv_m,datedv_m";
+    for (String sort : new String[] {"intdv asc", "stringdv desc,intdv asc"}) {
+      List<Map<String, Object>> javabin =
+          readTuples(
+              new JavabinTupleStreamParser(
+                  new ByteArrayInputStream(
+                      exportBytes("q", "*:*", "fl", fl, "sort", sort, "wt", "javabin")),
+                  true));
+      List<Map<String, Object>> columnar =
+          readTuples(
+              new ColumnarTupleStreamParser(
+                  new ByteArrayInputStream(
+                      exportBytes(
+                          "q", "*:*", "fl", fl, "sort", sort, "wt", ColumnarTupleWriter.WT))));
+      assertFalse(javabin.isEmpty());
+      assertEquals(javabin, columnar);
+    }
+
+    // errors are reported as a tuple, like with the other formats
+    List<Map<String, Object>> error =
+        readTuples(
+            new ColumnarTupleStreamParser(
+                new ByteArrayInputStream(
+                    exportBytes("q", "*:*", "sort", "intdv asc", "wt", ColumnarTupleWriter.WT))));
+    assertEquals(1, error.size());
+    assertTrue(
+        String.valueOf(error.get(0).get(StreamParams.EXCEPTION)),
+        String.valueOf(error.get(0).get(StreamParams.EXCEPTION)).contains("fl"));
+  }
+
+  private byte[] exportBytes(String... params) throws Exception {
+    SolrQueryRequest req = req(params);
+    SolrQueryResponse rsp = new SolrQueryResponse();
+    SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, rsp));
+    try {
+      h.getCore().execute(h.getCore().getRequestHandler("/export"), req, rsp);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      req.getResponseWriter().write(out, req, rsp);
+      return out.toByteArray();
+    } finally {
+      req.close();
+      SolrRequestInfo.clearRequestInfo();
+    }
+  }
+
+  private static List<Map<String, Object>> readTuples(TupleStreamParser parser) throws Exception {
+    List<Map<String, Object>> tuples = new ArrayList<>();
+    try (parser) {
+      for (Map<String, Object> tuple; (tuple = parser.next()) != null; ) {
+        tuples.add(tuple);
+      }
+    }
+    return tuples;
+  }
+
+  @Test
+  public void testSegmentExecutor() throws Exception {
+    ExecutorService shared =
+        ExecutorUtil.newMDCAwareFixedThreadPool(4, new SolrNamedThreadFactory("testShared"));
+    try {
+      ExportBuffers.SegmentExecutor executor = new ExportBuffers.SegmentExecutor(shared, 2);
+      CountDownLatch release = new CountDownLatch(1);
+      AtomicInteger running = new AtomicInteger();
+      AtomicInteger maxRunning = new AtomicInteger();
+      AtomicInteger done = new AtomicInteger();
+      for (int i = 0; i < 6; i++) {
+        executor.execute(
+            () -> {
+              maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              running.decrementAndGet();
+              done.incrementAndGet();
+            });
+      }
+      TimeOut timeOut = new TimeOut(10, TimeUnit.SECONDS, TimeSource.NANO_TIME);
+      timeOut.waitFor("tasks not running", () -> running.get() == 2);
+
+      // the queued tasks are dropped, and the running ones awaited
+      executor.shutdown();
+      expectThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+      assertFalse(executor.awaitTermination(10, TimeUnit.MILLISECONDS));
+      release.countDown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+      assertEquals(2, maxRunning.get());
+      assertEquals(2, done.get());
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(shared);
+    }
+  }
+
   private void createLargeIndex() throws Exception {
     int BATCH_SIZE = 5000;
     int NUM_BATCHES = 20;
@@ -17,6 +17,7 @@
 package org.apache.solr.handler.loader;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -24,11 +25,13 @@ import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.client.solrj.request.JavaBinUpdateRequestCodec;
 import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.util.ContentStreamBase;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.VersionInfo;
 import org.apache.solr.update.processor.BufferingRequestProcessor;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -95,6 +98,96 @@ public class JavabinLoaderTest extends SolrTestCaseJ4 {
     assertTrue(mockUpdateProcessor.addCommands.get(batch.size() - 1).isLastDocInBatch);
   }
 
+  @Test
+  public void testVersionedDocsShareVersionPrefetch() throws Exception {
+    UpdateRequest updateRequest = new UpdateRequest();
+    updateRequest.add(new SolrInputDocument("id", "1", "_version_", "1"));
+    updateRequest.add(new SolrInputDocument("id", "2", "_version_", "1"));
+    updateRequest.add(new SolrInputDocument("id", "3"));
+    updateRequest.add(new SolrInputDocument("id", "4", "_version_", "1"));
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    (new JavaBinUpdateRequestCodec()).marshal(updateRequest, os);
+
+    List<String> ids = new ArrayList<>();
+    List<Boolean> prefetched = new ArrayList<>();
+    BufferingRequestProcessor mockUpdateProcessor =
+        new BufferingRequestProcessor(null) {
+          @Override
+          public void processAdd(AddUpdateCommand cmd) {
+            ids.add(cmd.getPrintableId());
+            prefetched.add(
+                cmd.getReq().getContext().get(VersionInfo.PREFETCHED_VERSIONS) != null);
+          }
+        };
+
+    try (SolrQueryRequest req = req()) {
+      (new JavabinLoader())
+          .load(
+              req,
+              new SolrQueryResponse(),
+              new ContentStreamBase.ByteArrayStream(os.toByteArray(), "test"),
+              mockUpdateProcessor);
+      assertNull(req.getContext().get(VersionInfo.PREFETCHED_VERSIONS));
+    }
+
+    // in order, the versioned docs ahead of the other one sharing their prefetched versions
+    assertEquals(List.of("1", "2", "3", "4"), ids);
+    assertEquals(List.of(true, true, false, false), prefetched);
+  }
+
+  @Test
+  public void testFailedBatchDoesNotHideParseError() throws Exception {
+    UpdateRequest updateRequest = new UpdateRequest();
+    updateRequest.add(new SolrInputDocument("id", "1", "_version_", "1"));
+    updateRequest.add(new SolrInputDocument("id", "2", "_version_", "1"));
+    updateRequest.add(new SolrInputDocument("id", "3", "_version_", "1", "a_s", "corrupt"));
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    (new JavaBinUpdateRequestCodec()).marshal(updateRequest, os);
+    byte[] bytes = os.toByteArray();
+    // an unknown tag instead of the string tag of the value of the third document
+    byte[] value = "corrupt".getBytes(StandardCharsets.UTF_8);
+    int pos = indexOf(bytes, value);
+    assertTrue(pos > 0);
+    bytes[pos - 1] = 31;
+
+    List<String> ids = new ArrayList<>();
+    BufferingRequestProcessor mockUpdateProcessor =
+        new BufferingRequestProcessor(null) {
+          @Override
+          public void processAdd(AddUpdateCommand cmd) {
+            ids.add(cmd.getPrintableId());
+            throw new SolrException(SolrException.ErrorCode.CONFLICT, "version conflict");
+          }
+        };
+
+    try (SolrQueryRequest req = req()) {
+      RuntimeException e =
+          expectThrows(
+              RuntimeException.class,
+              () ->
+                  new JavabinLoader()
+                      .load(
+                          req,
+                          new SolrQueryResponse(),
+                          new ContentStreamBase.ByteArrayStream(bytes, "test"),
+                          mockUpdateProcessor));
+      // the documents read before the error were still added, and their failure is suppressed
+      assertTrue(e.getMessage(), e.getMessage().contains("Unknown type"));
+      assertEquals(1, e.getSuppressed().length);
+      assertEquals(409, ((SolrException) e.getSuppressed()[0]).code());
+      assertEquals(List.of("1"), ids);
+    }
+  }
+
+  private static int indexOf(byte[] bytes, byte[] target) {
+    for (int i = 0; i + target.length <= bytes.length; i++) {
+      if (Arrays.equals(bytes, i, i + target.length, target, 0, target.length)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   @Test
   public void javabinLoader_denseVector_shouldIndexCorrectly() throws Exception {
     SolrInputDocument doc1 = new SolrInputDocument();
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import org.apache.lucene.tests.util.TestUtil;
 import org.apache.solr.JSONTestUtil;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrDocument;
@@ -189,7 +190,10 @@ public class JSONWriterTest extends SolrTestCaseJ4 {
     // List rather than Set because two not-overridden methods could share name but not signature
     final List<String> methodsExpectedNotOverridden = new ArrayList<>(14);
     methodsExpectedNotOverridden.add("writeResponse");
-    methodsExpectedNotOverridden.add("writeKey");
+    methodsExpectedNotOverridden.add(
+        "public void org.apache.solr.response.JSONWriter.writeKey(java.lang.String,boolean) throws java.io.IOException");
+    methodsExpectedNotOverridden.add(
+        "public default void org.apache.solr.common.util.JsonTextWriter.writeKey(java.lang.String,boolean) throws java.io.IOException");
     methodsExpectedNotOverridden.add("writeNamedListAsMapMangled");
     methodsExpectedNotOverridden.add("writeNamedListAsMapWithDups");
     methodsExpectedNotOverridden.add("writeNamedListAsArrMap");
@@ -339,6 +343,74 @@ public class JSONWriterTest extends SolrTestCaseJ4 {
     req.close();
   }
 
+  @Test
+  public void testUtf8WriterWritesSameBytes() throws Exception {
+    List<String> strings = new ArrayList<>();
+    strings.add("plain");
+    strings.add("quote\" backslash\\ slash/ \r\n\t\b\f \u0000\u001f\u007f");
+    strings.add("line\u2028para\u2029 é ü € \uD83D\uDE00 \uD83D\uDE00");
+    strings.add("lone \uD800 high, lone \uDC00 low, \uD800\uD800\uDC00 trailing \uDBFF");
+    strings.add("x".repeat(8191) + "\uD83D\uDE00" + "é".repeat(5000));
+    for (int i = 0; i < 20; i++) {
+      strings.add(TestUtil.randomUnicodeString(random(), 300));
+    }
+
+    SolrDocumentList docs = new SolrDocumentList();
+    for (String s : strings) {
+      SolrDocument doc = new SolrDocument();
+      doc.addField("id", s);
+      doc.addField("näme_s", s.length());
+      doc.addField("we\"ird\u2028key", List.of(s, 1.5f));
+      doc.addField(TestUtil.randomUnicodeString(random(), 10), s);
+      docs.add(doc);
+    }
+    docs.setNumFound(docs.size());
+
+    for (String[] params :
+        new String[][] {
+          {},
+          {"indent", "off"},
+          {JSONWriter.JSON_WRAPPER_FUNCTION, "fun\u00e9"},
+          {JsonTextWriter.JSON_NL_STYLE, JsonTextWriter.JSON_NL_ARROFNTV},
+          {JsonTextWriter.JSON_NL_STYLE, JsonTextWriter.JSON_NL_ARROFARR}
+        }) {
+      try (SolrQueryRequest req = req(params)) {
+        SolrQueryResponse rsp = new SolrQueryResponse();
+        rsp.add("response", docs);
+        NamedList<Object> nl = new NamedList<>();
+        for (String s : strings) {
+          nl.add(s, s);
+        }
+        rsp.add("strings", nl);
+        assertArrayEquals(writeBytes(req, rsp, false), writeBytes(req, rsp, true));
+      }
+    }
+  }
+
+  private static byte[] writeBytes(SolrQueryRequest req, SolrQueryResponse rsp, boolean utf8)
+      throws IOException {
+    System.setProperty(JSONResponseWriter.UTF8_WRITER_PROP, Boolean.toString(utf8));
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      JSONResponseWriter w = new JSONResponseWriter();
+      w.write(out, req, rsp, w.getContentType(req, rsp));
+      return out.toByteArray();
+    } finally {
+      System.clearProperty(JSONResponseWriter.UTF8_WRITER_PROP);
+    }
+  }
+
+  @Test
+  public void testUtf8WriterKeyCacheEvicts() {
+    // more names than the cache holds, e.g. facet terms: the latest ones are still cached
+    for (int i = 0; i < 20000; i++) {
+      assertNotNull(JSONUtf8Writer.keyBytes("key" + i));
+    }
+    assertArrayEquals(
+        "\"key19999\":".getBytes(StandardCharsets.UTF_8), JSONUtf8Writer.keyBytes("key19999"));
+    assertNull("names that need escaping are never cached", JSONUtf8Writer.keyBytes("a\"b"));
+  }
+
   @Test
   public void testResponseValuesProperlyQuoted() throws Exception {
     assertU(
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleSchema;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleStreamParser;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter;
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+public class TestColumnarTupleStreamParser extends SolrTestCaseJ4 {
+
+  public void testRoundTrip() throws IOException {
+    String[] words = {"alpha", "beta", "gamma", "délta", "ε", "long".repeat(30)};
+    List<Map<String, Object>> tuples = new ArrayList<>();
+    List<Map<String, Object>> expected = new ArrayList<>();
+    int numTuples = atLeast(500);
+    for (int i = 0; i < numTuples; i++) {
+      Map<String, Object> tuple = new LinkedHashMap<>();
+      Map<String, Object> json = new LinkedHashMap<>();
+      put(tuple, json, "id", i, (long) i);
+      if (random().nextBoolean()) {
+        long l = random().nextLong();
+        put(tuple, json, "l", l, l);
+      }
+      if (random().nextInt(10) > 0) {
+        float f = random().nextFloat();
+        put(tuple, json, "f", f, (double) f);
+        double d = random().nextDouble() - 0.5;
+        put(tuple, json, "d", d, d);
+      }
+      if (random().nextBoolean()) {
+        boolean b = random().nextBoolean();
+        put(tuple, json, "b", b, b);
+      }
+      if (random().nextInt(10) > 0) {
+        String s = words[random().nextInt(words.length)];
+        put(tuple, json, "s", s, s);
+      }
+      if (random().nextBoolean()) {
+        Date date = new Date(random().nextInt() * 1000L);
+        put(tuple, json, "dt", date, date.toInstant().toString());
+      }
+      if (random().nextInt(5) == 0) {
+        put(tuple, json, "m", List.of(words[0], i), List.of(words[0], (long) i));
+      }
+      // a column that changes type within a block
+      if (random().nextBoolean()) {
+        put(tuple, json, "x", i, (long) i);
+      } else {
+        put(tuple, json, "x", "v" + i, "v" + i);
+      }
+      tuples.add(tuple);
+      expected.add(json);
+    }
+
+    SimpleOrderedMap<Object> response = new SimpleOrderedMap<>();
+    response.add("numFound", numTuples);
+    response.add("docs", tuples);
+    SimpleOrderedMap<Object> values = new SimpleOrderedMap<>();
+    SimpleOrderedMap<Object> header = new SimpleOrderedMap<>();
+    header.add("status", 0);
+    values.add("responseHeader", header);
+    values.add("response", response);
+
+    byte[] bytes = write(values, random().nextInt(100) + 1);
+    try (ColumnarTupleStreamParser parser =
+        new ColumnarTupleStreamParser(new ByteArrayInputStream(bytes))) {
+      for (int i = 0; i < numTuples; i++) {
+        assertEquals("tuple " + i, expected.get(i), parser.next());
+      }
+      assertNull(parser.next());
+      assertNull(parser.next());
+      assertEquals(0L, parser.getMetadata().get("responseHeader.status"));
+      assertEquals((long) numTuples, parser.getMetadata().get("response.numFound"));
+    }
+
+    TupleSchema schema = new TupleSchema();
+    try (ColumnarTupleStreamParser parser =
+        new ColumnarTupleStreamParser(new ByteArrayInputStream(bytes), schema)) {
+      int idSlot = schema.slotOf("id");
+      for (int i = 0; i < numTuples; i++) {
+        Tuple tuple = parser.nextTuple();
+        assertSame(schema, tuple.getSchema());
+        assertTrue(tuple.hasLong(idSlot));
+        assertEquals(i, tuple.longAt(idSlot));
+        assertEquals("tuple " + i, expected.get(i), tuple.getFields());
+      }
+      assertNull(parser.nextTuple());
+    }
+  }
+
+  public void testWriterEntries() throws IOException {
+    byte[] utf8 = "abcdef".getBytes(StandardCharsets.UTF_8);
+    ByteArrayUtf8CharSequence reused = new ByteArrayUtf8CharSequence(utf8, 0, 1);
+    IteratorWriter docs =
+        iw -> {
+          for (int i = 0; i < 5; i++) {
+            final int n = i;
+            // reuses the same instance with different contents, as the export writers do
+            iw.add(
+                (MapWriter)
+                    ew -> {
+                      ew.put("n", n);
+                      ew.put("s", reused.reset(utf8, n, 1, null));
+                      ((ColumnarTupleWriter.RowWriter) ew).putDate("dt", n * 1000L);
+                      ew.put("multi", (IteratorWriter) w -> w.add(n).add(-n));
+                    });
+          }
+        };
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ColumnarTupleWriter writer = new ColumnarTupleWriter(out, 2)) {
+      writer.writeIterator(docs);
+    }
+    try (ColumnarTupleStreamParser parser =
+        new ColumnarTupleStreamParser(new ByteArrayInputStream(out.toByteArray()))) {
+      for (int i = 0; i < 5; i++) {
+        Map<String, Object> tuple = parser.next();
+        assertEquals((long) i, tuple.get("n"));
+        assertEquals(String.valueOf((char) ('a' + i)), tuple.get("s"));
+        assertEquals(new Date(i * 1000L).toInstant().toString(), tuple.get("dt"));
+        assertEquals(List.of((long) i, (long) -i), tuple.get("multi"));
+      }
+      assertNull(parser.next());
+    }
+  }
+
+  public void testError() throws IOException {
+    SimpleOrderedMap<Object> error = new SimpleOrderedMap<>();
+    error.add("msg", "it failed");
+    error.add("code", 500);
+    SimpleOrderedMap<Object> values = new SimpleOrderedMap<>();
+    values.add("error", error);
+
+    try (ColumnarTupleStreamParser parser =
+        new ColumnarTupleStreamParser(new ByteArrayInputStream(write(values, 10)))) {
+      IOException e = expectThrows(IOException.class, parser::next);
+      assertEquals("it failed", e.getMessage());
+    }
+    expectThrows(
+        IOException.class,
+        () -> new ColumnarTupleStreamParser(new ByteArrayInputStream(new byte[] {1, 2, 3, 4})));
+  }
+
+  private static void put(
+      Map<String, Object> tuple, Map<String, Object> json, String key, Object value, Object read) {
+    tuple.put(key, value);
+    json.put(key, read);
+  }
+
+  private static byte[] write(MapWriter values, int blockSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ColumnarTupleWriter writer = new ColumnarTupleWriter(out, blockSize)) {
+      writer.writeMap(values);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.apache.lucene.tests.util.TestUtil;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Tests that {@link DocValuesJavaBinWriter} writes the same bytes as the SolrDocument path. */
+public class TestDocValuesJavaBinWriter extends SolrTestCaseJ4 {
+
+  private static final String SINGLE_VALUED_FIELDS =
+      "str_s_dvo,int_i_dvo,float_f_dvo,double_d_dvo,long_l_dvo,date_dt_dvo";
+  private static final String DV_FIELDS =
+      SINGLE_VALUED_FIELDS
+          + ",strs_ss_dvo,ints_is_dvo,floats_fs_dvo,doubles_ds_dvo,longs_ls_dvo,dates_dts_dvo";
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig.xml", "schema-non-stored-docvalues.xml");
+
+    int numDocs = atLeast(50);
+    for (int i = 0; i < numDocs; i++) {
+      SolrInputDocument doc = sdoc("id", Integer.toString(i));
+      if (random().nextInt(10) > 0) { // some documents have no value
+        doc.addField("str_s_dvo", randomUnicodeString() + " " + i);
+        doc.addField("int_i_dvo", random().nextInt());
+        doc.addField("float_f_dvo", random().nextFloat() * 1000 - 500);
+        doc.addField("double_d_dvo", random().nextDouble() * 1e9 - 5e8);
+        doc.addField("long_l_dvo", random().nextLong());
+        doc.addField("date_dt_dvo", Instant.ofEpochMilli(random().nextLong() >>> 24).toString());
+        doc.addField("enum_dvo", "Low");
+        doc.addField("test_mvt_dvf_st_str", "stored " + i);
+      }
+      for (int j = random().nextInt(4); j > 0; j--) {
+        doc.addField("strs_ss_dvo", randomUnicodeString());
+        doc.addField("ints_is_dvo", random().nextInt());
+        doc.addField("floats_fs_dvo", random().nextFloat());
+        doc.addField("doubles_ds_dvo", random().nextDouble());
+        doc.addField("longs_ls_dvo", random().nextLong());
+        doc.addField("dates_dts_dvo", Instant.ofEpochMilli(random().nextInt()).toString());
+      }
+      assertU(adoc(doc));
+      if (random().nextInt(10) == 0) {
+        assertU(commit()); // several segments
+      }
+    }
+    assertU(commit());
+  }
+
+  @After
+  public void clearStreamingProperty() {
+    System.clearProperty(JavaBinResponseWriter.STREAM_DOC_VALUES_PROP);
+  }
+
+  private static String randomUnicodeString() {
+    return random().nextBoolean()
+        ? TestUtil.randomSimpleString(random(), 0, 20)
+        : "näïve ประเทศไทย " + random().nextInt(1000);
+  }
+
+  private static byte[] write(boolean streamDocValues, String... params) throws Exception {
+    System.setProperty(
+        JavaBinResponseWriter.STREAM_DOC_VALUES_PROP, Boolean.toString(streamDocValues));
+    try (SolrQueryRequest req = req(params)) {
+      SolrQueryResponse rsp = h.queryAndResponse(null, req);
+      rsp.removeResponseHeader();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new JavaBinResponseWriter().write(out, req, rsp);
+      return out.toByteArray();
+    }
+  }
+
+  private static boolean canStream(String... params) throws Exception {
+    try (SolrQueryRequest req = req(params)) {
+      SolrQueryResponse rsp = h.queryAndResponse(null, req);
+      ResultContext ctx = (ResultContext) rsp.getResponse();
+      JavaBinResponseWriter.Resolver resolver =
+          new JavaBinResponseWriter.Resolver(req, ctx.getReturnFields());
+      return DocValuesJavaBinWriter.create(ctx, resolver::isWritable) != null;
+    }
+  }
+
+  private static void assertSameBytes(String... params) throws Exception {
+    assertArrayEquals(write(false, params), write(true, params));
+  }
+
+  @Test
+  public void testSameBytes() throws Exception {
+    assertTrue(canStream("q", "*:*", "fl", SINGLE_VALUED_FIELDS + ",strs_ss_dvo"));
+    // multi-valued trie fields are SORTED_SET docValues and need their FieldType to be decoded
+    assertEquals(
+        Boolean.getBoolean(NUMERIC_POINTS_SYSPROP), canStream("q", "*:*", "fl", DV_FIELDS));
+    assertSameBytes("q", "*:*", "fl", DV_FIELDS, "rows", "1000", "sort", "id desc");
+    assertSameBytes("q", "*:*", "fl", "strs_ss_dvo,date_dt_dvo", "rows", "7", "start", "3");
+    assertSameBytes("q", "*:*", "fl", "*_dvo", "rows", "1000");
+  }
+
+  @Test
+  public void testFallsBack() throws Exception {
+    // stored fields, transformers and enums are written from SolrDocuments
+    assertFalse(canStream("q", "*:*", "fl", "test_mvt_dvf_st_str," + DV_FIELDS));
+    assertFalse(canStream("q", "*:*", "fl", "score,str_s_dvo"));
+    assertFalse(canStream("q", "*:*", "fl", "alias:str_s_dvo"));
+    assertFalse(canStream("q", "*:*", "fl", "str_s_dvo,enum_dvo"));
+    assertFalse(canStream("q", "*:*"));
+    assertSameBytes("q", "*:*", "fl", "test_mvt_dvf_st_str," + DV_FIELDS, "rows", "1000");
+    assertSameBytes("q", "*:*", "fl", "str_s_dvo,enum_dvo,enums_dvo", "rows", "1000");
+  }
+
+  @Test
+  public void testParsedDocuments() throws Exception {
+    try (SolrQueryRequest req = req("q", "*:*", "fl", DV_FIELDS, "rows", "1000")) {
+      SolrQueryResponse rsp = h.queryAndResponse(null, req);
+      NamedList<Object> parsed = JavaBinResponseWriter.getParsedResponse(req, rsp);
+      SolrDocumentList docs = (SolrDocumentList) parsed.get("response");
+      assertEquals(docs.getNumFound(), docs.size());
+      List<String> strings = new ArrayList<>();
+      for (SolrDocument doc : docs) {
+        Object str = doc.getFieldValue("str_s_dvo");
+        if (str != null) {
+          strings.add(str.toString());
+          assertTrue(doc.getFieldValue("int_i_dvo") instanceof Integer);
+          assertTrue(doc.getFieldValue("date_dt_dvo") instanceof Date);
+        }
+        assertNull(doc.getFieldValue("id"));
+      }
+      assertFalse(strings.isEmpty());
+    }
+  }
+}
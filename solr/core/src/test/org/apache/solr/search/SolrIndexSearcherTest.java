@@ -17,6 +17,17 @@
 package org.apache.solr.search;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
@@ -33,7 +44,16 @@ import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.Weight;
 import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.TimeSource;
 import org.apache.solr.handler.component.MergeStrategy;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.util.RefCounted;
+import org.apache.solr.util.TimeOut;
 import org.junit.Before;
 import org.junit.BeforeClass;
 
@@ -478,6 +498,158 @@ public class SolrIndexSearcherTest extends SolrTestCaseJ4 {
             });
   }
 
+  public void testCoalescedQueries() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Set<Thread> executing = ConcurrentHashMap.newKeySet();
+    AtomicReference<Thread> waiting = new AtomicReference<>();
+    RefCounted<SolrIndexSearcher> ref = h.getCore().getSearcher();
+    ExecutorService executor = ExecutorUtil.newMDCAwareCachedThreadPool("coalescedQueries");
+    try {
+      SolrIndexSearcher searcher = ref.get();
+      Callable<QueryResult> search =
+          () -> {
+            QueryCommand cmd = new QueryCommand();
+            cmd.setLen(10);
+            cmd.setQuery(new BlockingTermQuery(new Term("field2_s", "0"), release, executing));
+            return searcher.search(cmd);
+          };
+      Future<QueryResult> first = executor.submit(search);
+      TimeOut timeOut = new TimeOut(10, TimeUnit.SECONDS, TimeSource.NANO_TIME);
+      timeOut.waitFor("first query not executing", () -> executing.size() == 1);
+
+      Future<QueryResult> second =
+          executor.submit(
+              () -> {
+                waiting.set(Thread.currentThread());
+                return search.call();
+              });
+      // the second query waits for the first one instead of executing
+      timeOut.waitFor(
+          "second query not waiting",
+          () -> {
+            Thread thread = waiting.get();
+            return thread != null
+                && Arrays.stream(thread.getStackTrace())
+                    .anyMatch(e -> e.getClassName().endsWith("SolrIndexSearcher$InFlightQuery"));
+          });
+      release.countDown();
+
+      DocList firstDocs = first.get().getDocList();
+      DocList secondDocs = second.get().getDocList();
+      assertEquals(NUM_DOCS / 2, firstDocs.matches());
+      assertEquals(firstDocs.matches(), secondDocs.matches());
+      assertEquals(firstDocs.size(), secondDocs.size());
+      assertEquals(Set.of(executing.iterator().next()), executing);
+      assertFalse(executing.contains(waiting.get()));
+
+      Map<String, Object> metrics =
+          ((MetricsMap)
+                  ((SolrMetricManager.GaugeWrapper<?>)
+                          h.getCore()
+                              .getCoreMetricManager()
+                              .getRegistry()
+                              .getMetrics()
+                              .get("SEARCHER.searcher.queryCoalescing"))
+                      .getGauge())
+              .getValue();
+      assertEquals(1L, metrics.get("hits"));
+      assertEquals(0L, metrics.get("misses"));
+      assertEquals(0, metrics.get("inFlight"));
+    } finally {
+      release.countDown();
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+      ref.decref();
+    }
+  }
+
+  public void testCoalescingOnlyWaitsWhenItCanHelp() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Set<Thread> executing = ConcurrentHashMap.newKeySet();
+    RefCounted<SolrIndexSearcher> ref = h.getCore().getSearcher();
+    ExecutorService executor = ExecutorUtil.newMDCAwareCachedThreadPool("coalescedQueries");
+    try {
+      SolrIndexSearcher searcher = ref.get();
+      Query query = new BlockingTermQuery(new Term("field2_s", "1"), release, executing);
+      Future<QueryResult> first =
+          executor.submit(
+              () -> {
+                QueryCommand cmd = new QueryCommand();
+                cmd.setLen(10);
+                cmd.setQuery(query);
+                return searcher.search(cmd);
+              });
+      TimeOut timeOut = new TimeOut(10, TimeUnit.SECONDS, TimeSource.NANO_TIME);
+      timeOut.waitFor("first query not executing", () -> executing.size() == 1);
+
+      // the first query caches no scores, so a query that needs them runs on its own
+      Future<QueryResult> withScores =
+          executor.submit(
+              () -> {
+                QueryCommand cmd = new QueryCommand();
+                cmd.setLen(10);
+                cmd.setQuery(query);
+                cmd.setFlags(SolrIndexSearcher.GET_SCORES);
+                return searcher.search(cmd);
+              });
+      timeOut.waitFor("query with scores not executing", () -> executing.size() == 2);
+
+      // a query waits no longer than its timeAllowed, then runs on its own
+      Future<?> limited =
+          executor.submit(
+              () -> {
+                SolrQueryRequest req = req("q", "*:*", "timeAllowed", "100");
+                SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, new SolrQueryResponse()));
+                try {
+                  QueryCommand cmd = new QueryCommand();
+                  cmd.setLen(10);
+                  cmd.setQuery(query);
+                  return searcher.search(cmd);
+                } finally {
+                  SolrRequestInfo.clearRequestInfo();
+                  req.close();
+                }
+              });
+      timeOut.waitFor("limited query not executing", () -> executing.size() == 3);
+      release.countDown();
+
+      assertEquals(NUM_DOCS / 2, first.get().getDocList().matches());
+      assertTrue(withScores.get().getDocList().hasScores());
+      try {
+        limited.get();
+      } catch (ExecutionException e) {
+        // the time allowed has run out, it may fail or return partial results
+      }
+    } finally {
+      release.countDown();
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+      ref.decref();
+    }
+  }
+
+  /** A TermQuery that waits for a latch before it executes. */
+  private static final class BlockingTermQuery extends TermQuery {
+    private final CountDownLatch release;
+    private final Set<Thread> executing;
+
+    BlockingTermQuery(Term term, CountDownLatch release, Set<Thread> executing) {
+      super(term);
+      this.release = release;
+      this.executing = executing;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost)
+        throws IOException {
+      executing.add(Thread.currentThread());
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return super.createWeight(searcher, scoreMode, boost);
+    }
+  }
+
   private QueryCommand createBasicQueryCommand(
       int minExactCount, int length, String field, String q) {
     return createBasicQueryCommand(minExactCount, length, 0, field, q);
@@ -438,6 +438,65 @@ public class TestRealTimeGet extends TestRTGBase {
     assertU(commit());
   }
 
+  @Test
+  public void testGetChanges() throws Exception {
+    clearIndex();
+    assertU(commit());
+
+    long v1 = addAndGetVersion(sdoc("id", "1", "cat_s", "a"), null);
+    long v2 = addAndGetVersion(sdoc("id", "2", "cat_s", "b"), null);
+    long v3 = addAndGetVersion(sdoc("id", "3", "cat_s", "a"), null);
+    long v4 = addAndGetVersion(sdoc("id", "1", "cat_s", "a"), null);
+
+    // the update log goes back to v1, documents come back once, in version order
+    assertJQ(
+        req("qt", "/get", "getChanges", Long.toString(v1), "fl", "id"),
+        "/changes/source=='updateLog'",
+        "/response/numFound==3",
+        "/response/docs==[{'id':'2','_version_':"
+            + v2
+            + "},{'id':'3','_version_':"
+            + v3
+            + "},{'id':'1','_version_':"
+            + v4
+            + "}]");
+    assertJQ(
+        req("qt", "/get", "getChanges", Long.toString(v1), "fl", "id", "q", "cat_s:a"),
+        "/response/docs==[{'id':'3','_version_':" + v3 + "},{'id':'1','_version_':" + v4 + "}]");
+    assertJQ(
+        req(
+            "qt", "/get", "getChanges", Long.toString(v1), "fl", "id", "fq", "cat_s:a", "rows", "1"),
+        "/response/docs==[{'id':'3','_version_':" + v3 + "}]");
+    assertJQ(
+        req("qt", "/get", "getChanges", Long.toString(v4), "fl", "id"),
+        "/response/numFound==0");
+
+    // older than the update log, so the index is searched instead
+    assertJQ(
+        req("qt", "/get", "getChanges", "0", "fl", "id"),
+        "/changes/source=='index'",
+        "/response/docs==[{'id':'2','_version_':"
+            + v2
+            + "},{'id':'3','_version_':"
+            + v3
+            + "},{'id':'1','_version_':"
+            + v4
+            + "}]");
+    assertJQ(
+        req("qt", "/get", "getChanges", "0", "fl", "id", "q", "cat_s:a", "rows", "1"),
+        "/response/docs==[{'id':'3','_version_':" + v3 + "}]");
+
+    // deleted documents are not returned
+    deleteAndGetVersion("2", null);
+    assertJQ(
+        req("qt", "/get", "getChanges", Long.toString(v1), "fl", "id"),
+        "/response/docs==[{'id':'3','_version_':" + v3 + "},{'id':'1','_version_':" + v4 + "}]");
+    assertU(commit());
+    assertJQ(
+        req("qt", "/get", "getChanges", "0", "fl", "id"),
+        "/response/docs==[{'id':'3','_version_':" + v3 + "},{'id':'1','_version_':" + v4 + "}]");
+  }
+
   @Test
   public void testOptimisticLocking() throws Exception {
     clearIndex();
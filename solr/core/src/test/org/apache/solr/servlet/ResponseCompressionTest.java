@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.servlet;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.solr.SolrJettyTestBase;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ResponseCompressionTest extends SolrJettyTestBase {
+
+  private static Path solrHomeDirectory;
+
+  @BeforeClass
+  public static void beforeTest() throws Exception {
+    solrHomeDirectory = createTempDir();
+    setupJettyTestHome(solrHomeDirectory, "collection1");
+    Files.writeString(
+        solrHomeDirectory.resolve("collection1/conf/" + ResponseCompressor.DICTIONARY_RESOURCE),
+        "responseHeader status QTime params response numFound docs id name_s",
+        StandardCharsets.UTF_8);
+    createAndStartJetty(solrHomeDirectory);
+  }
+
+  @AfterClass
+  public static void afterTest() throws Exception {
+    if (null != solrHomeDirectory) {
+      cleanUpJettyHome(solrHomeDirectory);
+    }
+  }
+
+  private static Map<String, Object> stats() {
+    return getJetty().getCoreContainer().getResponseCompressor().toMap(new HashMap<>());
+  }
+
+  @Test
+  public void testCompressedResponses() throws Exception {
+    SolrClient client = getSolrClient();
+    for (int i = 0; i < 100; i++) {
+      SolrInputDocument doc = new SolrInputDocument();
+      doc.addField("id", Integer.toString(i));
+      doc.addField("name_s", "name " + (i % 10));
+      client.add(DEFAULT_TEST_CORENAME, doc);
+    }
+    client.commit(DEFAULT_TEST_CORENAME);
+
+    SolrQuery query = new SolrQuery("*:*").setRows(100).setSort("id", SolrQuery.ORDER.asc);
+    QueryResponse expected = client.query(DEFAULT_TEST_CORENAME, query);
+    assertEquals(0L, stats().get("responses"));
+
+    try (Http2SolrClient compressing =
+        new Http2SolrClient.Builder(getBaseUrl())
+            .withDefaultCollection(DEFAULT_TEST_CORENAME)
+            .withResponseCompression(true)
+            .build()) {
+      QueryResponse actual = compressing.query(query);
+      assertEquals(expected.getResults().toString(), actual.getResults().toString());
+    }
+
+    Map<String, Object> stats = stats();
+    assertEquals(1L, stats.get("responses"));
+    // the dictionary of the core is registered for the clients of this JVM
+    assertEquals(1L, stats.get("dictionaryResponses"));
+    long compressed = (Long) stats.get("compressedBytes");
+    assertTrue(compressed > 0);
+    assertTrue((Long) stats.get("uncompressedBytes") > compressed);
+    assertTrue((Double) stats.get("ratio") > 1);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class AdaptiveCommitIntervalTest extends SolrTestCase {
+
+  @Test
+  public void testBounds() {
+    expectThrows(IllegalArgumentException.class, () -> new AdaptiveCommitInterval(0, 1000));
+    expectThrows(IllegalArgumentException.class, () -> new AdaptiveCommitInterval(2000, 1000));
+
+    AdaptiveCommitInterval adaptive = new AdaptiveCommitInterval(500, 10000);
+    assertEquals(500, adaptive.getInterval());
+
+    // cheap commits stay at the lower bound
+    long now = 0;
+    for (int i = 0; i < 10; i++) {
+      now += MILLISECONDS.toNanos(500);
+      adaptive.recordCommit(now, MILLISECONDS.toNanos(5));
+    }
+    assertEquals(500, adaptive.getInterval());
+
+    // very expensive commits are capped by the upper bound
+    for (int i = 0; i < 20; i++) {
+      now += SECONDS.toNanos(10);
+      adaptive.recordCommit(now, SECONDS.toNanos(5));
+    }
+    assertEquals(10000, adaptive.getInterval());
+  }
+
+  @Test
+  public void testIntervalFollowsCommitCost() {
+    AdaptiveCommitInterval adaptive = new AdaptiveCommitInterval(100, 60000);
+    long now = 0;
+    for (int i = 0; i < 50; i++) {
+      now += SECONDS.toNanos(1);
+      adaptive.recordCommit(now, MILLISECONDS.toNanos(200));
+    }
+    // converges on COST_MULTIPLIER times the commit cost
+    assertEquals(AdaptiveCommitInterval.COST_MULTIPLIER * 200, adaptive.getInterval(), 1);
+  }
+
+  @Test
+  public void testBurstStretchesInterval() {
+    AdaptiveCommitInterval adaptive = new AdaptiveCommitInterval(100, 60000);
+    long now = 0;
+    for (int i = 0; i < 50; i++) {
+      addDocs(adaptive, 100);
+      now += SECONDS.toNanos(1);
+      adaptive.recordCommit(now, MILLISECONDS.toNanos(20));
+    }
+    final long steady = adaptive.getInterval();
+    assertEquals(AdaptiveCommitInterval.COST_MULTIPLIER * 20, steady, 1);
+
+    // ten times the usual rate, at the same commit cost
+    for (int i = 0; i < 5; i++) {
+      addDocs(adaptive, 1000);
+      now += SECONDS.toNanos(1);
+      adaptive.recordCommit(now, MILLISECONDS.toNanos(20));
+    }
+    assertTrue(
+        "interval should grow during a burst: " + adaptive.getInterval() + " vs " + steady,
+        adaptive.getInterval() > 2 * steady);
+
+    Map<String, Object> stats = adaptive.toMap(new LinkedHashMap<>());
+    assertEquals(55L, stats.get("commits"));
+    assertEquals(adaptive.getInterval(), stats.get("interval"));
+    assertEquals(0L, stats.get("docsSinceCommit"));
+  }
+
+  private static void addDocs(AdaptiveCommitInterval adaptive, int numDocs) {
+    for (int i = 0; i < numDocs; i++) {
+      adaptive.addedDocument();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class ReplicaForwardingStatsTest extends SolrTestCase {
+
+  @Test
+  public void testBlockedTime() {
+    ReplicaForwardingStats stats = new ReplicaForwardingStats();
+    stats.recordSubmitted("http://n1:8983/solr/c_shard1_replica_n1");
+    stats.recordBlocked("http://n1:8983/solr/c_shard1_replica_n1", 0);
+    stats.recordSubmitted("http://n1:8983/solr/c_shard1_replica_n1");
+    stats.recordBlocked(
+        "http://n1:8983/solr/c_shard1_replica_n1", TimeUnit.MILLISECONDS.toNanos(30));
+    stats.recordError("http://n1:8983/solr/c_shard1_replica_n1");
+
+    Map<?, ?> replica =
+        (Map<?, ?>)
+            stats.toMap(new HashMap<>()).get("http://n1:8983/solr/c_shard1_replica_n1");
+    assertEquals(2L, replica.get("submitted"));
+    assertEquals(1L, replica.get("errors"));
+    assertEquals(30L, replica.get("blockedMs"));
+    assertEquals(30L, replica.get("maxBlockedMs"));
+  }
+
+  @Test
+  public void testForgetReplicas() throws Exception {
+    ReplicaForwardingStats stats = new ReplicaForwardingStats();
+    stats.recordSubmitted("http://n1:8983/solr/c_shard1_replica_n1");
+    stats.recordSubmitted("http://n10:8983/solr/c_shard1_replica_n2");
+    stats.removeNode("http://n1:8983/solr");
+    assertEquals(
+        Map.of("http://n10:8983/solr/c_shard1_replica_n2", 1L),
+        submitted(stats.toMap(new HashMap<>())));
+
+    // a replica that went idle is forgotten once another one shows up
+    stats = new ReplicaForwardingStats(1, TimeUnit.MILLISECONDS);
+    stats.recordSubmitted("http://n1:8983/solr/c_shard1_replica_n1");
+    Thread.sleep(10);
+    stats.recordSubmitted("http://n2:8983/solr/c_shard1_replica_n3");
+    assertEquals(
+        Map.of("http://n2:8983/solr/c_shard1_replica_n3", 1L),
+        submitted(stats.toMap(new HashMap<>())));
+  }
+
+  private static Map<String, Object> submitted(Map<String, Object> stats) {
+    Map<String, Object> submitted = new HashMap<>();
+    stats.forEach((k, v) -> submitted.put(k, ((Map<?, ?>) v).get("submitted")));
+    return submitted;
+  }
+}
@@ -22,7 +22,9 @@ import java.net.SocketException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -190,6 +192,14 @@ public class SolrCmdDistributorTest extends BaseDistributedSearchTestCase {
       numFound = controlClient.query(new SolrQuery("*:*")).getResults().getNumFound();
       assertEquals(1, numFound);
 
+      Map<String, Object> forwardingStats =
+          updateShardHandler.getReplicaForwardingStats().toMap(new HashMap<>());
+      Map<String, Object> controlStats =
+          (Map<String, Object>) forwardingStats.get(nodes.get(0).getUrl());
+      assertNotNull(forwardingStats.toString(), controlStats);
+      assertEquals(2L, controlStats.get("submitted")); // the add and the commit
+      assertEquals(0L, controlStats.get("errors"));
+
       client = (HttpSolrClient) clients.get(0);
       nodeProps =
           new ZkNodeProps(
@@ -22,6 +22,7 @@ import static org.hamcrest.core.StringContains.containsString;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -661,6 +662,50 @@ public class TestInPlaceUpdatesStandalone extends SolrTestCaseJ4 {
             + "}}");
   }
 
+  @Test
+  public void testUpdatingBinaryDocValues() throws Exception {
+    final String first = Base64.getEncoder().encodeToString(new byte[] {1, 2, 3});
+    final String second = Base64.getEncoder().encodeToString(new byte[] {4, 5, 6, 7});
+    final String third = Base64.getEncoder().encodeToString(new byte[] {8});
+
+    long version1 =
+        addAndGetVersion(sdoc("id", "1", "title_s", "first", "price_bin_dvo", first), null);
+    assertU(commit("softCommit", "false"));
+    int docid1 = getDocId("1");
+
+    version1 = addAndAssertVersion(version1, "id", "1", "price_bin_dvo", map("set", second));
+    assertU(commit("softCommit", "false"));
+    assertQ(
+        req("q", "*:*", "fl", "*,[docid]"),
+        "//*[@numFound='1']",
+        "//result/doc[1]/str[@name='price_bin_dvo'][.='" + second + "']",
+        "//result/doc[1]/str[@name='title_s'][.='first']",
+        "//result/doc[1]/long[@name='_version_'][.='" + version1 + "']",
+        "//result/doc[1]/int[@name='[docid]'][.='" + docid1 + "']");
+
+    // back to back updates, the second one resolved off the transaction log
+    version1 = addAndAssertVersion(version1, "id", "1", "price_bin_dvo", map("set", first));
+    version1 = addAndAssertVersion(version1, "id", "1", "price_bin_dvo", map("set", third));
+    assertU(commit("softCommit", "false"));
+    assertQ(
+        req("q", "*:*", "fl", "*,[docid]"),
+        "//*[@numFound='1']",
+        "//result/doc[1]/str[@name='price_bin_dvo'][.='" + third + "']",
+        "//result/doc[1]/str[@name='title_s'][.='first']",
+        "//result/doc[1]/long[@name='_version_'][.='" + version1 + "']",
+        "//result/doc[1]/int[@name='[docid]'][.='" + docid1 + "']");
+
+    // binary values can't be incremented, and Lucene can't update SORTED docValues in place
+    assertTrue(
+        callComputeInPlaceUpdatableFields(
+                sdoc("id", "1", "_version_", 42L, "price_bin_dvo", map("inc", 1)))
+            .isEmpty());
+    assertTrue(
+        callComputeInPlaceUpdatableFields(
+                sdoc("id", "1", "_version_", 42L, "sku_s_dvo", map("set", "abc")))
+            .isEmpty());
+  }
+
   @Test
   public void testUpdateWithValueNull() throws Exception {
     long doc =
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.junit.Test;
+
+public class UpdateLocksTest extends SolrTestCase {
+
+  @Test
+  public void testStripeCountRoundedToPowerOfTwo() {
+    assertEquals(1, new UpdateLocks(0, 1).getNumStripes());
+    assertEquals(4, new UpdateLocks(0, 3).getNumStripes());
+    assertEquals(16, new UpdateLocks(0, 16).getNumStripes());
+    assertEquals(UpdateLocks.DEFAULT_NUM_STRIPES, new UpdateLocks(0).getNumStripes());
+    expectThrows(IllegalArgumentException.class, () -> new UpdateLocks(0, 0));
+  }
+
+  @Test
+  public void testSameIdIsMutuallyExclusive() throws Exception {
+    final UpdateLocks locks = new UpdateLocks(0, random().nextInt(8) + 1);
+    final int numThreads = 8;
+    final int iterations = 500;
+    final AtomicInteger inside = new AtomicInteger();
+    final AtomicInteger maxInside = new AtomicInteger();
+    final int[] counter = new int[1]; // deliberately not thread-safe; guarded by the doc lock
+    final BytesRef id = new BytesRef("hot");
+
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            numThreads, new SolrNamedThreadFactory("UpdateLocksTest"));
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < iterations; i++) {
+                    locks.runWithLock(
+                        id,
+                        condition -> {
+                          maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                          counter[0]++;
+                          inside.decrementAndGet();
+                          return null;
+                        });
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+
+    assertEquals(1, maxInside.get());
+    assertEquals(numThreads * iterations, counter[0]);
+
+    Map<String, Object> stats = stats(locks);
+    assertEquals((long) numThreads * iterations, stats.get("acquisitions"));
+    assertEquals(0L, stats.get("timeouts"));
+  }
+
+  @Test
+  public void testTimeoutIsRecordedPerStripe() throws Exception {
+    final UpdateLocks locks = new UpdateLocks(50, 4);
+    final BytesRef id = new BytesRef("1");
+    final CountDownLatch locked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    Thread holder =
+        new Thread(
+            () -> {
+              try {
+                locks.runWithLock(
+                    id,
+                    condition -> {
+                      locked.countDown();
+                      try {
+                        release.await();
+                      } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                      }
+                      return null;
+                    });
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            });
+    holder.start();
+    try {
+      assertTrue(locked.await(30, TimeUnit.SECONDS));
+      expectThrows(SolrException.class, () -> locks.runWithLock(id, condition -> null));
+    } finally {
+      release.countDown();
+      holder.join();
+    }
+
+    Map<String, Object> stats = stats(locks);
+    assertEquals(1L, stats.get("timeouts"));
+    assertEquals(1L, stats.get("contended"));
+    @SuppressWarnings("unchecked")
+    List<Map<String, Object>> perStripe = (List<Map<String, Object>>) stats.get("perStripe");
+    assertEquals(4, perStripe.size());
+    assertEquals(1L, perStripe.stream().mapToLong(m -> (Long) m.get("timeouts")).sum());
+  }
+
+  private static Map<String, Object> stats(UpdateLocks locks) {
+    MapWriter stats = locks::writeStats;
+    return stats.toMap(new LinkedHashMap<>());
+  }
+}
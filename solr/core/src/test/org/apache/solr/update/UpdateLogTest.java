@@ -19,6 +19,8 @@ package org.apache.solr.update;
 import static org.apache.solr.common.params.CommonParams.VERSION_FIELD;
 import static org.hamcrest.core.StringContains.containsString;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.util.BytesRef;
@@ -218,6 +220,54 @@ public class UpdateLogTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testPrefetchedVersionsMatchLookupVersion() {
+    // some docs only in the index, some still in the update log, one deleted, one never added
+    for (int i = 0; i < 10; i++) {
+      assertU(adoc("id", "lv" + i, "title_s", "t" + i));
+    }
+    // age the first batch out of map, prevMap and prevMap2 so it must come from the index
+    for (int i = 0; i < 3; i++) {
+      assertU(commit());
+    }
+    assertNull(ulog.lookup(new BytesRef("lv0")));
+    for (int i = 5; i < 15; i++) {
+      assertU(adoc("id", "lv" + i, "title_s", "u" + i));
+    }
+    assertU(delI("lv3"));
+
+    List<BytesRef> ids = new ArrayList<>();
+    for (int i = 16; i >= 0; i--) {
+      ids.add(new BytesRef("lv" + i));
+    }
+    Collections.shuffle(ids, random());
+
+    VersionInfo vinfo = ulog.getVersionInfo();
+    VersionInfo.PrefetchedVersions prefetched = vinfo.prefetchVersionsFromIndex(ids);
+    for (BytesRef id : ids) {
+      assertEquals(id.utf8ToString(), ulog.lookupVersion(id), ulog.lookupVersion(id, prefetched));
+    }
+    assertNull(ulog.lookupVersion(new BytesRef("lv16"), prefetched));
+    assertTrue(ulog.lookupVersion(new BytesRef("lv3"), prefetched) < 0);
+    Long indexed = vinfo.getVersionFromIndex(new BytesRef("lv1"), prefetched);
+    assertEquals(vinfo.getVersionFromIndex(new BytesRef("lv1")), indexed);
+
+    // updated docs are found in the update log, and a new realtime searcher voids the prefetch
+    assertU(adoc("id", "lv1", "title_s", "v1"));
+    assertU(adoc("id", "lv16", "title_s", "v16"));
+    assertEquals(
+        ulog.lookupVersion(new BytesRef("lv1")),
+        ulog.lookupVersion(new BytesRef("lv1"), prefetched));
+    assertU(commit());
+    assertNotEquals(indexed, vinfo.getVersionFromIndex(new BytesRef("lv1"), prefetched));
+    assertEquals(
+        vinfo.getVersionFromIndex(new BytesRef("lv16")),
+        vinfo.getVersionFromIndex(new BytesRef("lv16"), prefetched));
+
+    assertU(delQ("id:lv*"));
+    assertU(commit());
+  }
+
   /** Simulate a commit on a given updateLog */
   private static void ulogCommit(UpdateLog ulog) {
     try (SolrQueryRequest req = req()) {
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class TestSharedRateLimiter extends SolrTestCase {
+
+  @Test
+  public void testThreadsShareTheRate() throws Exception {
+    final int threads = 4;
+    final int packets = 5;
+    final int packetSize = 256 * 1024;
+    // 4 threads * 5 packets * 256K = 5MB, which take 250ms at 20MB/s
+    SharedRateLimiter limiter = new SharedRateLimiter(20);
+    long start = System.nanoTime();
+    List<Thread> fetchers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      Thread t =
+          new Thread(
+              () -> {
+                for (int p = 0; p < packets; p++) {
+                  limiter.pause(packetSize);
+                }
+              });
+      t.start();
+      fetchers.add(t);
+    }
+    for (Thread t : fetchers) {
+      t.join();
+    }
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue("elapsed " + elapsedMs, elapsedMs >= 250);
+    assertTrue(limiter.getPausedMillis() >= 250);
+  }
+
+  @Test
+  public void testRate() {
+    SharedRateLimiter limiter = new SharedRateLimiter(10);
+    assertEquals(10, limiter.getMBPerSec(), 0);
+    assertTrue(limiter.getMinPauseCheckBytes() > 0);
+    expectThrows(IllegalArgumentException.class, () -> limiter.setMBPerSec(0));
+  }
+}
@@ -21,6 +21,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -34,6 +35,12 @@ import org.apache.solr.common.util.CollectionUtil;
  * A simple abstraction of a record containing key/value pairs. Convenience methods are provided for
  * returning single and multiValue String, Long and Double values. Note that ints and floats are
  * treated as longs and doubles respectively.
+ *
+ * <p>A tuple created with a {@link TupleSchema} can also hold long and double values unboxed, in
+ * slots assigned by the schema, see {@link #putLong(int, long)} and {@link #putDouble(int,
+ * double)}. Such values are still visible through the map based methods, which box them on
+ * access; {@link #getFields()} moves them into the map for good. Comparators and metrics read them
+ * through {@link #hasLong(int)} and {@link #longAt(int)} and their double counterparts.
  */
 public class Tuple implements Cloneable, MapWriter {
 
@@ -52,6 +59,19 @@ public class Tuple implements Cloneable, MapWriter {
   /** Tuple fields. */
   private final Map<String, Object> fields = CollectionUtil.newHashMap(2);
 
+  private static final byte NONE = 0;
+  private static final byte LONG = 1;
+  private static final byte DOUBLE = 2;
+
+  /** Assigns the slots of primitive values, null if this tuple has none. */
+  private final TupleSchema schema;
+
+  /** The kind of value in each slot. A field is either in a slot or in {@link #fields}. */
+  private byte[] kinds;
+
+  /** Primitive values by slot, doubles as their raw long bits. */
+  private long[] values;
+
   /** External serializable field names. */
   private List<String> fieldNames;
 
@@ -60,13 +80,25 @@ public class Tuple implements Cloneable, MapWriter {
 
   public Tuple() {
     // just an empty tuple
+    this.schema = null;
+  }
+
+  /**
+   * Creates an empty tuple that can hold primitive values in the slots of the given schema.
+   *
+   * @param schema the schema shared by the tuples of the stream
+   */
+  public Tuple(TupleSchema schema) {
+    this.schema = schema;
   }
 
   public Tuple(String k1, Object v1) {
+    this();
     if (k1 != null) put(k1, v1);
   }
 
   public Tuple(String k1, Object v1, String k2, Object v2) {
+    this();
     if (k1 != null) put(k1, v1);
     if (k2 != null) put(k2, v2);
   }
@@ -77,6 +109,7 @@ public class Tuple implements Cloneable, MapWriter {
    * @param fields map containing keys and values to be copied to this tuple
    */
   public Tuple(Map<String, ?> fields) {
+    this();
     putAll(fields);
   }
 
@@ -86,6 +119,11 @@ public class Tuple implements Cloneable, MapWriter {
    * @param original Tuple that will be copied
    */
   public Tuple(Tuple original) {
+    this.schema = original.schema;
+    if (original.kinds != null) {
+      this.kinds = original.kinds.clone();
+      this.values = original.values.clone();
+    }
     this.putAll(original.fields);
     if (original.fieldNames != null) {
       this.fieldNames = new ArrayList<>(original.fieldNames);
@@ -96,11 +134,26 @@ public class Tuple implements Cloneable, MapWriter {
   }
 
   public Object get(String key) {
-    return this.fields.get(key);
+    Object value = this.fields.get(key);
+    if (value == null && kinds != null) {
+      int slot = schema.indexOf(key);
+      if (slot >= 0 && slot < kinds.length) {
+        switch (kinds[slot]) {
+          case LONG:
+            return values[slot];
+          case DOUBLE:
+            return Double.longBitsToDouble(values[slot]);
+          default:
+            break;
+        }
+      }
+    }
+    return value;
   }
 
   public void put(String key, Object value) {
     this.fields.put(key, value);
+    clearSlot(key);
     if (key.equals(StreamParams.EOF)) {
       EOF = true;
     } else if (key.equals(StreamParams.EXCEPTION)) {
@@ -110,6 +163,11 @@ public class Tuple implements Cloneable, MapWriter {
 
   public void putAll(Map<String, ?> fields) {
     this.fields.putAll(fields);
+    if (kinds != null) {
+      for (String key : fields.keySet()) {
+        clearSlot(key);
+      }
+    }
     if (fields.containsKey(StreamParams.EOF)) {
       EOF = true;
     }
@@ -120,10 +178,118 @@ public class Tuple implements Cloneable, MapWriter {
 
   public void remove(String key) {
     this.fields.remove(key);
+    clearSlot(key);
+  }
+
+  /**
+   * Sets a long value, unboxed if this tuple has a {@link TupleSchema}.
+   *
+   * @see #putLong(int, long)
+   */
+  public void putLong(String key, long value) {
+    if (schema == null) {
+      put(key, value);
+    } else {
+      putLong(schema.slotOf(key), value);
+    }
+  }
+
+  /**
+   * Sets a double value, unboxed if this tuple has a {@link TupleSchema}.
+   *
+   * @see #putDouble(int, double)
+   */
+  public void putDouble(String key, double value) {
+    if (schema == null) {
+      put(key, value);
+    } else {
+      putDouble(schema.slotOf(key), value);
+    }
+  }
+
+  /**
+   * Sets the long value of the field in the given slot of this tuple's {@link TupleSchema}.
+   *
+   * @throws IllegalStateException if this tuple has no schema
+   */
+  public void putLong(int slot, long value) {
+    setSlot(slot, LONG, value);
+  }
+
+  /**
+   * Sets the double value of the field in the given slot of this tuple's {@link TupleSchema}.
+   *
+   * @throws IllegalStateException if this tuple has no schema
+   */
+  public void putDouble(int slot, double value) {
+    setSlot(slot, DOUBLE, Double.doubleToRawLongBits(value));
+  }
+
+  /** The schema assigning the slots of this tuple's primitive values, or null. */
+  public TupleSchema getSchema() {
+    return schema;
+  }
+
+  /** Whether the field in the given slot has an unboxed long value. */
+  public boolean hasLong(int slot) {
+    return kinds != null && slot >= 0 && slot < kinds.length && kinds[slot] == LONG;
+  }
+
+  /** Whether the field in the given slot has an unboxed double value. */
+  public boolean hasDouble(int slot) {
+    return kinds != null && slot >= 0 && slot < kinds.length && kinds[slot] == DOUBLE;
+  }
+
+  /** The unboxed long value in the given slot, only valid if {@link #hasLong(int)}. */
+  public long longAt(int slot) {
+    return values[slot];
+  }
+
+  /** The unboxed double value in the given slot, only valid if {@link #hasDouble(int)}. */
+  public double doubleAt(int slot) {
+    return Double.longBitsToDouble(values[slot]);
+  }
+
+  private void setSlot(int slot, byte kind, long value) {
+    if (schema == null) {
+      throw new IllegalStateException("This tuple has no schema");
+    }
+    if (kinds == null || slot >= kinds.length) {
+      int size = Math.max(slot + 1, schema.size());
+      kinds = kinds == null ? new byte[size] : Arrays.copyOf(kinds, size);
+      values = values == null ? new long[size] : Arrays.copyOf(values, size);
+    }
+    if (!fields.isEmpty()) {
+      fields.remove(schema.nameOf(slot));
+    }
+    kinds[slot] = kind;
+    values[slot] = value;
+  }
+
+  private void clearSlot(String key) {
+    if (kinds != null) {
+      int slot = schema.indexOf(key);
+      if (slot >= 0 && slot < kinds.length) {
+        kinds[slot] = NONE;
+      }
+    }
+  }
+
+  /** Moves the unboxed values into {@link #fields}. */
+  private void inflate() {
+    if (kinds != null) {
+      for (int slot = 0; slot < kinds.length; slot++) {
+        if (kinds[slot] != NONE) {
+          fields.put(schema.nameOf(slot), get(schema.nameOf(slot)));
+        }
+      }
+      kinds = null;
+      values = null;
+    }
   }
 
   public String getString(String key) {
-    return String.valueOf(this.fields.get(key));
+    return String.valueOf(get(key));
   }
 
   public String getException() {
@@ -131,7 +297,7 @@ public class Tuple implements Cloneable, MapWriter {
   }
 
   public Long getLong(String key) {
-    Object o = this.fields.get(key);
+    Object o = get(key);
 
     if (o == null) {
       return null;
@@ -149,7 +315,7 @@ public class Tuple implements Cloneable, MapWriter {
 
   // Convenience method since Booleans can be passed around as Strings.
   public Boolean getBool(String key) {
-    Object o = this.fields.get(key);
+    Object o = get(key);
 
     if (o == null) {
       return null;
@@ -170,7 +336,7 @@ public class Tuple implements Cloneable, MapWriter {
 
   // Convenience methods since the dates are actually shipped around as Strings.
   public Date getDate(String key) {
-    Object o = this.fields.get(key);
+    Object o = get(key);
 
     if (o == null) {
       return null;
@@ -197,7 +363,7 @@ public class Tuple implements Cloneable, MapWriter {
   }
 
   public Double getDouble(String key) {
-    Object o = this.fields.get(key);
+    Object o = get(key);
 
     if (o == null) {
       return null;
@@ -226,8 +392,12 @@ public class Tuple implements Cloneable, MapWriter {
     return (List<Double>) this.fields.get(key);
   }
 
-  /** Return all tuple fields and their values. */
+  /**
+   * Return all tuple fields and their values. Any unboxed values are boxed into the returned map,
+   * which stays backed by this tuple.
+   */
   public Map<String, Object> getFields() {
+    inflate();
     return this.fields;
   }
 
@@ -266,7 +436,7 @@ public class Tuple implements Cloneable, MapWriter {
   }
 
   public void setMaps(String key, List<Map<?, ?>> maps) {
-    this.fields.put(key, maps);
+    put(key, maps);
   }
 
   @SuppressWarnings({"unchecked"})
@@ -275,7 +445,7 @@ public class Tuple implements Cloneable, MapWriter {
   }
 
   public void setMetrics(Map<String, Map<?, ?>> metrics) {
-    this.fields.put(StreamParams.METRICS, metrics);
+    put(StreamParams.METRICS, metrics);
   }
 
   @Override
@@ -291,7 +461,19 @@ public class Tuple implements Cloneable, MapWriter {
    * @param other Tuple to be merged into this.
    */
   public void merge(Tuple other) {
-    this.putAll(other.getFields());
+    this.putAll(other.fields);
+    if (other.kinds != null) {
+      for (int slot = 0; slot < other.kinds.length; slot++) {
+        if (other.kinds[slot] == NONE) {
+          continue;
+        }
+        if (schema == other.schema) {
+          setSlot(slot, other.kinds[slot], other.values[slot]);
+        } else {
+          put(other.schema.nameOf(slot), other.get(other.schema.nameOf(slot)));
+        }
+      }
+    }
     if (other.fieldNames != null) {
       if (this.fieldNames != null) {
         this.fieldNames.addAll(
@@ -322,10 +504,19 @@ public class Tuple implements Cloneable, MapWriter {
               throw new RuntimeException(e);
             }
           });
+      if (kinds != null) {
+        for (int slot = 0; slot < kinds.length; slot++) {
+          if (kinds[slot] == LONG) {
+            ew.put(schema.nameOf(slot), values[slot]);
+          } else if (kinds[slot] == DOUBLE) {
+            ew.put(schema.nameOf(slot), Double.longBitsToDouble(values[slot]));
+          }
+        }
+      }
     } else {
       for (String fieldName : fieldNames) {
         String label = fieldLabels.get(fieldName);
-        ew.put(label, fields.get(label));
+        ew.put(label, get(label));
       }
     }
   }
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns a slot to each field name of the tuples of a stream, so that those tuples can keep their
+ * numeric values in primitive arrays indexed by slot instead of boxing them in a map. See {@link
+ * Tuple#Tuple(TupleSchema)}.
+ *
+ * <p>A schema is shared by all the tuples read from one source, or by several sources that are
+ * merged, such as the shards of a collection. It only ever grows: a field gets a slot the first
+ * time it is seen, and keeps it. The field names are interned, {@link #nameOf(int)} always returns
+ * the same instance for a slot. This class is thread-safe.
+ */
+public final class TupleSchema {
+
+  private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+  private volatile String[] names = new String[0];
+
+  /** Returns the slot of the field, assigning a new one if the field has none yet. */
+  public int slotOf(String name) {
+    Integer slot = slots.get(name);
+    if (slot != null) {
+      return slot;
+    }
+    synchronized (this) {
+      slot = slots.get(name);
+      if (slot == null) {
+        String[] current = names;
+        slot = current.length;
+        String[] grown = Arrays.copyOf(current, slot + 1);
+        grown[slot] = name;
+        names = grown;
+        slots.put(name, slot);
+      }
+      return slot;
+    }
+  }
+
+  /** Returns the slot of the field, or -1 if it has none. */
+  public int indexOf(String name) {
+    Integer slot = slots.get(name);
+    return slot == null ? -1 : slot;
+  }
+
+  public String nameOf(int slot) {
+    return names[slot];
+  }
+
+  /** The number of fields, all slots are less than this. */
+  public int size() {
+    return names.length;
+  }
+}
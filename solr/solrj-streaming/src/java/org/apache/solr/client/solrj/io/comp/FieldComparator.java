@@ -21,6 +21,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleSchema;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
@@ -37,6 +38,8 @@ public class FieldComparator implements StreamComparator {
   private String rightFieldName;
   private final ComparatorOrder order;
   private ComparatorLambda comparator;
+  // the slots of the fields in the schema of the last tuples compared, see compare(...)
+  private transient Slots slots;
 
   public FieldComparator(String fieldName, ComparatorOrder order) {
     this(fieldName, fieldName, order);
@@ -51,6 +54,7 @@ public class FieldComparator implements StreamComparator {
 
   public void setLeftFieldName(String leftFieldName) {
     this.leftFieldName = leftFieldName;
+    this.slots = null;
   }
 
   public String getLeftFieldName() {
@@ -59,6 +63,7 @@ public class FieldComparator implements StreamComparator {
 
   public void setRightFieldName(String rightFieldName) {
     this.rightFieldName = rightFieldName;
+    this.slots = null;
   }
 
   public String getRightFieldName() {
@@ -152,11 +157,35 @@ public class FieldComparator implements StreamComparator {
     }
   }
 
+  /*
+   * Tuples of a stream usually share a TupleSchema. When they do, the slots of the fields are
+   * resolved once per schema, and unboxed long and double values are compared directly, without
+   * map lookups. This gives the same order as the boxed values' compareTo(...). Anything else goes
+   * through the lambda.
+   */
   @Override
   public int compare(Tuple leftTuple, Tuple rightTuple) {
+    TupleSchema schema = leftTuple.getSchema();
+    if (schema != null && schema == rightTuple.getSchema()) {
+      Slots s = slots;
+      if (s == null || s.schema != schema) {
+        slots = s = new Slots(schema, schema.slotOf(leftFieldName), schema.slotOf(rightFieldName));
+      }
+      int c;
+      if (leftTuple.hasLong(s.left) && rightTuple.hasLong(s.right)) {
+        c = Long.compare(leftTuple.longAt(s.left), rightTuple.longAt(s.right));
+      } else if (leftTuple.hasDouble(s.left) && rightTuple.hasDouble(s.right)) {
+        c = Double.compare(leftTuple.doubleAt(s.left), rightTuple.doubleAt(s.right));
+      } else {
+        return comparator.compare(leftTuple, rightTuple);
+      }
+      return ComparatorOrder.DESCENDING == order ? -c : c;
+    }
     return comparator.compare(leftTuple, rightTuple);
   }
 
+  private record Slots(TupleSchema schema, int left, int right) {}
+
   @Override
   public boolean isDerivedFrom(StreamComparator base) {
     if (null == base) {
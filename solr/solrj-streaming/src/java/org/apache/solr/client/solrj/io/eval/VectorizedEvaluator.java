@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.eval;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.StreamContext;
+
+/**
+ * A tree of numeric evaluators, like {@code add(mult(a,b),c)}, compiled to evaluate a batch of
+ * tuples at once. The fields the tree reads become columns of primitive doubles, and every
+ * evaluator of the tree becomes a loop over those columns, instead of evaluating the tree for each
+ * tuple on boxed {@link java.math.BigDecimal}s.
+ *
+ * <p>Only {@code add}, {@code sub}, {@code mult}, {@code div}, {@code abs}, {@code sqrt}, {@code
+ * log} and {@code pow} over fields and numeric constants are compiled; see {@link
+ * #compile(StreamEvaluator)}. The arithmetic is done in double precision, so results may differ
+ * from the exact decimal arithmetic of the evaluators in the last digits. Tuples the columns can't
+ * represent, with a value that isn't a finite number, a null denominator or a zero one, or a field
+ * only available as a variable of the {@link StreamContext}, are evaluated by the original
+ * evaluator, so they return or throw exactly what they did before.
+ *
+ * <p>This is only used when the {@value #ENABLED_PROP} system property is true.
+ *
+ * @lucene.experimental
+ */
+public final class VectorizedEvaluator {
+
+  public static final String ENABLED_PROP = "solr.streaming.eval.vectorized";
+
+  private final StreamEvaluator evaluator;
+  private final Node root;
+  private final Column[] columns;
+
+  private Batch batch;
+
+  private VectorizedEvaluator(StreamEvaluator evaluator, Node root, Column[] columns) {
+    this.evaluator = evaluator;
+    this.root = root;
+    this.columns = columns;
+  }
+
+  /** Whether streams should evaluate with compiled evaluators where they can. */
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(ENABLED_PROP);
+  }
+
+  /**
+   * Compiles the tree of the given evaluator, or returns null if part of it can only be evaluated
+   * one tuple at a time.
+   */
+  public static VectorizedEvaluator compile(StreamEvaluator evaluator) {
+    Compiler compiler = new Compiler();
+    Node root = compiler.compile(evaluator);
+    if (root == null) {
+      return null;
+    }
+    return new VectorizedEvaluator(evaluator, root, compiler.columns.toArray(new Column[0]));
+  }
+
+  /** The evaluator this was compiled from. */
+  public StreamEvaluator getEvaluator() {
+    return evaluator;
+  }
+
+  /**
+   * Evaluates the first {@code count} tuples, putting the result of each in the same position of
+   * {@code results}.
+   *
+   * @param context the context of the evaluators, its tuple context is cleared before a tuple is
+   *     evaluated by the original evaluator
+   */
+  public void evaluate(Tuple[] tuples, int count, Object[] results, StreamContext context)
+      throws IOException {
+    if (batch == null || batch.capacity < count) {
+      batch = new Batch(Math.max(count, 16));
+    }
+    Batch b = batch;
+    b.reset(count);
+    for (Column column : columns) {
+      column.load(tuples, b, context);
+    }
+    double[] out = b.scratch();
+    root.eval(b, out);
+
+    for (int i = 0; i < count; i++) {
+      if (b.fallback[i]) {
+        if (context != null) {
+          context.getTupleContext().clear();
+        }
+        results[i] = evaluator.evaluate(tuples[i]);
+      } else if (b.nulls[i]) {
+        results[i] = null;
+      } else {
+        results[i] = out[i];
+      }
+    }
+    b.release(out);
+  }
+
+  /** The state of one evaluation: which rows are null or must fall back, and scratch columns. */
+  private static final class Batch {
+    final int capacity;
+    final boolean[] nulls;
+    final boolean[] fallback;
+    private final double[][] free = new double[16][];
+    private int numFree;
+    int count;
+
+    Batch(int capacity) {
+      this.capacity = capacity;
+      this.nulls = new boolean[capacity];
+      this.fallback = new boolean[capacity];
+    }
+
+    void reset(int count) {
+      this.count = count;
+      Arrays.fill(nulls, 0, count, false);
+      Arrays.fill(fallback, 0, count, false);
+    }
+
+    double[] scratch() {
+      return numFree > 0 ? free[--numFree] : new double[capacity];
+    }
+
+    void release(double[] column) {
+      if (numFree < free.length) {
+        free[numFree++] = column;
+      }
+    }
+
+    // marks the rows the evaluators would fail to convert to a BigDecimal: all that aren't finite,
+    // or only infinite ones if NaN is allowed
+    void fallbackIfNotDecimal(double[] values, boolean allowNaN) {
+      for (int i = 0; i < count; i++) {
+        double value = values[i];
+        if (!nulls[i] && (allowNaN ? Double.isInfinite(value) : !Double.isFinite(value))) {
+          fallback[i] = true;
+        }
+      }
+    }
+  }
+
+  private abstract static class Node {
+    /** Writes the value of the first {@link Batch#count} rows to {@code out}. */
+    abstract void eval(Batch b, double[] out);
+  }
+
+  /** The values of a field, loaded once per batch however often the tree reads the field. */
+  private static final class Column extends Node {
+    final String fieldName;
+    double[] values = new double[0];
+
+    Column(String fieldName) {
+      this.fieldName = fieldName;
+    }
+
+    void load(Tuple[] tuples, Batch b, StreamContext context) {
+      if (values.length < b.capacity) {
+        values = new double[b.capacity];
+      }
+      for (int i = 0; i < b.count; i++) {
+        Object value = tuples[i].get(fieldName);
+        if (value instanceof Double || value instanceof Float) {
+          double d = ((Number) value).doubleValue();
+          values[i] = d;
+          if (!Double.isFinite(d)) {
+            b.fallback[i] = true;
+          }
+        } else if (value instanceof Long
+            || value instanceof Integer
+            || value instanceof Short
+            || value instanceof Byte) {
+          values[i] = ((Number) value).longValue();
+        } else if (value == null
+            && (context == null || !context.getLets().containsKey(fieldName))) {
+          b.nulls[i] = true;
+        } else {
+          // strings, lists, variables ...
+          b.fallback[i] = true;
+        }
+      }
+    }
+
+    @Override
+    void eval(Batch b, double[] out) {
+      System.arraycopy(values, 0, out, 0, b.count);
+    }
+  }
+
+  private static final class Constant extends Node {
+    final double value;
+
+    Constant(double value) {
+      this.value = value;
+    }
+
+    @Override
+    void eval(Batch b, double[] out) {
+      Arrays.fill(out, 0, b.count, value);
+    }
+  }
+
+  private enum Op {
+    ADD,
+    SUB,
+    MULT,
+    DIV,
+    POW,
+    ABS,
+    SQRT,
+    LOG
+  }
+
+  private static final class Operation extends Node {
+    final Op op;
+    final Node[] operands;
+
+    Operation(Op op, Node[] operands) {
+      this.op = op;
+      this.operands = operands;
+    }
+
+    @Override
+    void eval(Batch b, double[] out) {
+      final int n = b.count;
+      // abs, sqrt, log and pow work on doubles, but NaN is the only value that isn't a number
+      // they accept
+      final boolean allowNaN = op == Op.ABS || op == Op.SQRT || op == Op.LOG || op == Op.POW;
+      operands[0].eval(b, out);
+      b.fallbackIfNotDecimal(out, allowNaN);
+      if (operands.length == 1) {
+        for (int i = 0; i < n; i++) {
+          out[i] = unary(op, out[i]);
+        }
+        return;
+      }
+
+      double[] operand = b.scratch();
+      for (int k = 1; k < operands.length; k++) {
+        operands[k].eval(b, operand);
+        b.fallbackIfNotDecimal(operand, allowNaN);
+        switch (op) {
+          case ADD:
+            for (int i = 0; i < n; i++) {
+              out[i] += operand[i];
+            }
+            break;
+          case SUB:
+            for (int i = 0; i < n; i++) {
+              out[i] -= operand[i];
+            }
+            break;
+          case MULT:
+            for (int i = 0; i < n; i++) {
+              out[i] *= operand[i];
+            }
+            break;
+          case DIV:
+            for (int i = 0; i < n; i++) {
+              // div throws on a null or zero denominator, let the evaluator do that
+              if (b.nulls[i] || operand[i] == 0) {
+                b.fallback[i] = true;
+              } else {
+                out[i] /= operand[i];
+              }
+            }
+            break;
+          case POW:
+            for (int i = 0; i < n; i++) {
+              out[i] = Math.pow(out[i], operand[i]);
+            }
+            break;
+          default:
+            throw new AssertionError(op);
+        }
+      }
+      b.release(operand);
+    }
+
+    private static double unary(Op op, double value) {
+      switch (op) {
+        case ADD:
+        case MULT:
+          // a single value, add(a) and mult(a) are a
+          return value;
+        case ABS:
+          return Math.abs(value);
+        case SQRT:
+          return Math.sqrt(value);
+        case LOG:
+          return Math.log(value);
+        default:
+          throw new AssertionError(op);
+      }
+    }
+  }
+
+  private static final class Compiler {
+    final List<Column> columns = new ArrayList<>();
+
+    Node compile(StreamEvaluator evaluator) {
+      if (evaluator instanceof FieldValueEvaluator) {
+        String fieldName = ((FieldValueEvaluator) evaluator).getFieldName();
+        if (fieldName.startsWith("\"")) {
+          // a string literal when the field is missing
+          return null;
+        }
+        for (Column column : columns) {
+          if (column.fieldName.equals(fieldName)) {
+            return column;
+          }
+        }
+        Column column = new Column(fieldName);
+        columns.add(column);
+        return column;
+      }
+      if (evaluator instanceof RawValueEvaluator) {
+        Object value = ((RawValueEvaluator) evaluator).getValue();
+        if (value instanceof Long
+            || (value instanceof Double && Double.isFinite((Double) value))) {
+          return new Constant(((Number) value).doubleValue());
+        }
+        return null;
+      }
+
+      // exact classes only, a subclass may well evaluate differently
+      Op op;
+      Class<?> clazz = evaluator.getClass();
+      if (clazz == AddEvaluator.class) {
+        op = Op.ADD;
+      } else if (clazz == SubtractEvaluator.class) {
+        op = Op.SUB;
+      } else if (clazz == MultiplyEvaluator.class) {
+        op = Op.MULT;
+      } else if (clazz == DivideEvaluator.class) {
+        op = Op.DIV;
+      } else if (clazz == PowerEvaluator.class) {
+        op = Op.POW;
+      } else if (clazz == AbsoluteValueEvaluator.class) {
+        op = Op.ABS;
+      } else if (clazz == SquareRootEvaluator.class) {
+        op = Op.SQRT;
+      } else if (clazz == NaturalLogEvaluator.class) {
+        op = Op.LOG;
+      } else {
+        return null;
+      }
+
+      List<StreamEvaluator> contained = ((RecursiveEvaluator) evaluator).containedEvaluators;
+      Node[] operands = new Node[contained.size()];
+      for (int i = 0; i < operands.length; i++) {
+        operands[i] = compile(contained.get(i));
+        if (operands[i] == null) {
+          return null;
+        }
+      }
+      return new Operation(op, operands);
+    }
+  }
+}
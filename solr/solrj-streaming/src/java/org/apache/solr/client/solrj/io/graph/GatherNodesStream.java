@@ -46,6 +46,7 @@ import org.apache.solr.client.solrj.io.eq.FieldEqualitor;
 import org.apache.solr.client.solrj.io.eq.MultipleFieldEqualitor;
 import org.apache.solr.client.solrj.io.stream.CloudSolrStream;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
+import org.apache.solr.client.solrj.io.stream.StreamExecutorHelper;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
 import org.apache.solr.client.solrj.io.stream.UniqueStream;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
@@ -59,7 +60,6 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.io.stream.metrics.Metric;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.ExecutorUtil;
-import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -707,7 +707,7 @@ public class GatherNodesStream extends TupleStream implements Expressible {
       try {
         threadPool =
             ExecutorUtil.newMDCAwareFixedThreadPool(
-                4, new SolrNamedThreadFactory("GatherNodesStream"));
+                4, StreamExecutorHelper.newThreadFactory("GatherNodesStream"));
 
         Map<String, Node> roots = new HashMap<>();
 
@@ -41,6 +41,7 @@ import org.apache.solr.client.solrj.io.eq.FieldEqualitor;
 import org.apache.solr.client.solrj.io.eq.MultipleFieldEqualitor;
 import org.apache.solr.client.solrj.io.stream.CloudSolrStream;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
+import org.apache.solr.client.solrj.io.stream.StreamExecutorHelper;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
 import org.apache.solr.client.solrj.io.stream.UniqueStream;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
@@ -55,7 +56,6 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.ExecutorUtil;
-import org.apache.solr.common.util.SolrNamedThreadFactory;
 
 /**
  * @since 6.1.0
@@ -353,7 +353,7 @@ public class ShortestPathStream extends TupleStream implements Expressible {
 
       threadPool =
           ExecutorUtil.newMDCAwareFixedThreadPool(
-              threads, new SolrNamedThreadFactory("ShortestPathStream"));
+              threads, StreamExecutorHelper.newThreadFactory("ShortestPathStream"));
 
       // Breadth first search
       TRAVERSE:
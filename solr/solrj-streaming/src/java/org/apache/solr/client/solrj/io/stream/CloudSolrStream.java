@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -33,6 +34,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
@@ -54,6 +56,8 @@ import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.params.StreamParams;
+import org.apache.solr.common.util.ExecutorUtil;
 
 /**
  * Connects to Zookeeper to pick replicas from a specific collection to send the query to. Under the
@@ -66,6 +70,17 @@ public class CloudSolrStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
+  /**
+   * The number of tuples to read ahead from each shard, see {@link ShardReadAhead}. 0 or less, the
+   * default, reads the shards synchronously. Can be overridden for the streams sharing a {@link
+   * StreamContext} by putting a number under {@link #READ_AHEAD_KEY}.
+   */
+  public static final String READ_AHEAD_PROP = "solr.streaming.readAhead";
+
+  public static final String READ_AHEAD_KEY = "readAhead";
+  public static final int DEFAULT_READ_AHEAD = 0;
+  private static final int READ_AHEAD = Integer.getInteger(READ_AHEAD_PROP, DEFAULT_READ_AHEAD);
+
   protected String zkHost;
   protected String collection;
   protected ModifiableSolrParams params;
@@ -76,6 +91,10 @@ public class CloudSolrStream extends TupleStream implements Expressible {
   protected transient List<TupleStream> solrStreams;
   protected transient TreeSet<TupleWrapper> tuples;
   protected transient StreamContext streamContext;
+  // run by each shard over its results, see RollupPushDown
+  private transient String shardExpression;
+  private transient List<ShardReadAhead> readAheads;
+  private transient ExecutorService readAheadExecutor;
 
   // Used by parallel stream
   protected CloudSolrStream() {}
@@ -281,6 +300,15 @@ public class CloudSolrStream extends TupleStream implements Expressible {
     this.streamContext = context;
   }
 
+  /** Sets an expression for each shard to run over its results, or null to read them as is. */
+  void setShardExpression(String shardExpression) {
+    this.shardExpression = shardExpression;
+  }
+
+  String getShardExpression() {
+    return shardExpression;
+  }
+
   /** Opens the CloudSolrStream */
   @Override
   public void open() throws IOException {
@@ -379,6 +407,9 @@ public class CloudSolrStream extends TupleStream implements Expressible {
   protected void constructStreams() throws IOException {
     final ModifiableSolrParams mParams = adjustParams(new ModifiableSolrParams(params));
     mParams.set(DISTRIB, "false"); // We are the aggregator.
+    if (shardExpression != null) {
+      mParams.set(StreamParams.EXPR, shardExpression);
+    }
     try {
       final Stream<SolrStream> streamOfSolrStream;
       if (streamContext != null && streamContext.get("shards") != null) {
@@ -416,6 +447,12 @@ public class CloudSolrStream extends TupleStream implements Expressible {
   }
 
   private void openStreams() throws IOException {
+    readAheads = null;
+    int depth = getReadAhead(streamContext);
+    if (depth > 0) {
+      openStreamsReadingAhead(depth);
+      return;
+    }
     List<StreamOpener> tasks =
         solrStreams.stream()
             .map(s -> new StreamOpener((SolrStream) s, comp))
@@ -427,10 +464,84 @@ public class CloudSolrStream extends TupleStream implements Expressible {
     tuples.addAll(results);
   }
 
+  private static int getReadAhead(StreamContext context) {
+    Object depth = context == null ? null : context.get(READ_AHEAD_KEY);
+    return depth instanceof Number ? ((Number) depth).intValue() : READ_AHEAD;
+  }
+
+  /**
+   * Opens the shard streams in the background, and keeps reading them there. Each shard holds a
+   * thread until its stream is read or closed, virtual ones if {@link
+   * StreamExecutorHelper#isUsingVirtualThreads()}.
+   */
+  private void openStreamsReadingAhead(int depth) throws IOException {
+    readAheadExecutor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            Math.max(1, solrStreams.size()),
+            StreamExecutorHelper.newThreadFactory("CloudSolrStream"));
+    readAheads = new ArrayList<>(solrStreams.size());
+    for (TupleStream solrStream : solrStreams) {
+      ShardReadAhead readAhead =
+          new ShardReadAhead((SolrStream) solrStream, depth, new ShardReadStats());
+      readAhead.start(readAheadExecutor);
+      readAheads.add(readAhead);
+    }
+    IOException parentException = null;
+    for (ShardReadAhead readAhead : readAheads) {
+      try {
+        TupleWrapper wrapper = new TupleWrapper(readAhead.getStream(), comp, readAhead);
+        if (wrapper.next()) {
+          tuples.add(wrapper);
+        }
+      } catch (IOException e) {
+        if (parentException == null) {
+          parentException = new IOException(e);
+        } else {
+          parentException.addSuppressed(e);
+        }
+      }
+    }
+    if (parentException != null) {
+      // don't leave the other shards streaming until the caller closes this
+      closeStreams();
+      throw parentException;
+    }
+  }
+
+  /**
+   * How long the merge waited for each shard, by shard URL, when the shards are read ahead. See
+   * {@link #READ_AHEAD_PROP}.
+   */
+  public Map<String, ShardReadStats> getShardStats() {
+    Map<String, ShardReadStats> stats = new LinkedHashMap<>();
+    if (readAheads != null) {
+      for (ShardReadAhead readAhead : readAheads) {
+        SolrStream stream = readAhead.getStream();
+        String url =
+            stream.getCore() == null
+                ? stream.getBaseUrl()
+                : stream.getBaseUrl() + "/" + stream.getCore();
+        stats.put(url, readAhead.getStats());
+      }
+    }
+    return stats;
+  }
+
   /** Closes the CloudSolrStream */
   @Override
   public void close() throws IOException {
-    if (solrStreams != null) {
+    closeStreams();
+  }
+
+  private void closeStreams() throws IOException {
+    if (readAheads != null) {
+      // the tasks close their streams when they stop
+      for (ShardReadAhead readAhead : readAheads) {
+        readAhead.cancel();
+      }
+      ExecutorUtil.shutdownNowAndAwaitTermination(readAheadExecutor);
+      readAheadExecutor = null;
+    } else if (solrStreams != null) {
       for (TupleStream solrStream : solrStreams) {
         solrStream.close();
       }
@@ -474,10 +585,16 @@ public class CloudSolrStream extends TupleStream implements Expressible {
     private Tuple tuple;
     private final SolrStream stream;
     private final StreamComparator comp;
+    private final ShardReadAhead readAhead;
 
     public TupleWrapper(SolrStream stream, StreamComparator comp) {
+      this(stream, comp, null);
+    }
+
+    TupleWrapper(SolrStream stream, StreamComparator comp, ShardReadAhead readAhead) {
       this.stream = stream;
       this.comp = comp;
+      this.readAhead = readAhead;
     }
 
     @Override
@@ -509,7 +626,7 @@ public class CloudSolrStream extends TupleStream implements Expressible {
     }
 
     public boolean next() throws IOException {
-      this.tuple = stream.read();
+      this.tuple = readAhead == null ? stream.read() : readAhead.take();
 
       if (tuple.EOF) {
         eofTuples.put(stream.getBaseUrl(), tuple);
@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.BLOCK_FRAME;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.BOOL;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.DATE;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.DOUBLE;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.END;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.END_FRAME;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.FLOAT;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.INT;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.LIST;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.LONG;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.MAGIC;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.MAP;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.META_FRAME;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.NULL;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.SCHEMA_FRAME;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.STRING;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleSchema;
+import org.apache.solr.common.util.ByteUtils;
+import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+
+/**
+ * Reads tuples written by {@link ColumnarTupleWriter}. A whole block is decoded at once into
+ * primitive column vectors, which are reused for the next block; the strings of a block are
+ * decoded once per distinct value and shared by all the tuples having that value.
+ *
+ * <p>Like {@link JavabinTupleStreamParser} with {@code onlyJsonTypes}, values are returned as the
+ * types the JSON format would produce: all integral numbers as {@link Long}, floating point numbers
+ * as {@link Double} and dates as ISO-8601 strings.
+ *
+ * <p>{@link #nextTuple()} reads the numeric columns straight into the primitive slots of a {@link
+ * Tuple} of the parser's {@link TupleSchema}, without boxing them.
+ *
+ * @lucene.experimental
+ */
+public class ColumnarTupleStreamParser implements TupleStreamParser {
+  private final InputStream is;
+  private final TupleSchema schema;
+  private final FastInputStream fis;
+  private final List<Column> columns = new ArrayList<>();
+  private final Map<String, Object> metadata = new LinkedHashMap<>();
+  private Column[] blockColumns = new Column[0];
+  private int numBlockColumns;
+  private int blockRows;
+  private int row;
+  private boolean done;
+  private byte[] scratch = new byte[64];
+
+  public ColumnarTupleStreamParser(InputStream is) throws IOException {
+    this(is, new TupleSchema());
+  }
+
+  /**
+   * @param schema the schema of the tuples returned by {@link #nextTuple()}, may be shared with
+   *     other parsers
+   */
+  public ColumnarTupleStreamParser(InputStream is, TupleSchema schema) throws IOException {
+    this.is = is;
+    this.schema = schema;
+    this.fis = FastInputStream.wrap(is);
+    byte[] magic = new byte[MAGIC.length];
+    fis.readFully(magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IOException("Not a columnar tuple stream, or an unsupported version");
+    }
+  }
+
+  @Override
+  public Map<String, Object> next() throws IOException {
+    if (!advance()) {
+      return null;
+    }
+    Map<String, Object> tuple = new HashMap<>((int) (numBlockColumns / 0.75f) + 1);
+    for (int i = 0; i < numBlockColumns; i++) {
+      Column column = blockColumns[i];
+      if (column.isPresent(row)) {
+        tuple.put(column.name, column.nextValue());
+      }
+    }
+    row++;
+    return tuple;
+  }
+
+  /**
+   * Reads the next tuple, keeping its numeric values unboxed. Unlike {@link #next()}, this returns
+   * null rather than an EOF tuple at the end of the stream.
+   */
+  public Tuple nextTuple() throws IOException {
+    if (!advance()) {
+      return null;
+    }
+    Tuple tuple = new Tuple(schema);
+    for (int i = 0; i < numBlockColumns; i++) {
+      Column column = blockColumns[i];
+      if (column.isPresent(row)) {
+        int j = column.next++;
+        switch (column.type) {
+          case INT, LONG -> tuple.putLong(column.slot, column.longs[j]);
+          case FLOAT, DOUBLE -> tuple.putDouble(column.slot, column.doubles[j]);
+          case STRING -> tuple.put(column.name, column.values[column.ords[j]]);
+          default -> tuple.put(column.name, column.values[j]);
+        }
+      }
+    }
+    row++;
+    return tuple;
+  }
+
+  public TupleSchema getSchema() {
+    return schema;
+  }
+
+  /** Moves to the next row, reading frames as needed; returns false at the end of the stream. */
+  private boolean advance() throws IOException {
+    while (row == blockRows) {
+      if (done) {
+        return false;
+      }
+      readFrame();
+    }
+    return true;
+  }
+
+  /** The entries of the response that are not tuples, read so far, keyed by their dotted path. */
+  public Map<String, Object> getMetadata() {
+    return Collections.unmodifiableMap(metadata);
+  }
+
+  @Override
+  public void close() throws IOException {
+    is.close();
+  }
+
+  private void readFrame() throws IOException {
+    byte frame = fis.readByte();
+    switch (frame) {
+      case SCHEMA_FRAME -> {
+        int id = JavaBinCodec.readVInt(fis);
+        if (id != columns.size()) {
+          throw new IOException("Unexpected column id " + id);
+        }
+        columns.add(new Column(readString()));
+      }
+      case META_FRAME -> {
+        String key = readString();
+        Object value = readValue(fis.readByte());
+        metadata.put(key, value);
+        if ("error.msg".equals(key)) {
+          throw new SolrStream.HandledException(String.valueOf(value));
+        }
+      }
+      case BLOCK_FRAME -> readBlock();
+      case END_FRAME -> done = true;
+      default -> throw new IOException("Unknown frame type " + frame);
+    }
+  }
+
+  private void readBlock() throws IOException {
+    blockRows = JavaBinCodec.readVInt(fis);
+    numBlockColumns = JavaBinCodec.readVInt(fis);
+    if (blockColumns.length < numBlockColumns) {
+      blockColumns = new Column[Math.max(numBlockColumns, blockColumns.length * 2)];
+    }
+    for (int i = 0; i < numBlockColumns; i++) {
+      Column column = columns.get(JavaBinCodec.readVInt(fis));
+      column.read(blockRows);
+      blockColumns[i] = column;
+    }
+    row = 0;
+  }
+
+  private String readString() throws IOException {
+    int len = JavaBinCodec.readVInt(fis);
+    if (scratch.length < len) {
+      scratch = new byte[Math.max(len, scratch.length * 2)];
+    }
+    fis.readFully(scratch, 0, len);
+    return ByteUtils.UTF8toUTF16(scratch, 0, len);
+  }
+
+  private long readZLong() throws IOException {
+    long v = JavaBinCodec.readVLong(fis);
+    return (v >>> 1) ^ -(v & 1);
+  }
+
+  private Object readValue(byte tag) throws IOException {
+    return switch (tag) {
+      case NULL -> null;
+      case INT, LONG -> readZLong();
+      case FLOAT -> (double) fis.readFloat();
+      case DOUBLE -> fis.readDouble();
+      case BOOL -> fis.readByte() != 0;
+      case STRING -> readString();
+      case DATE -> Instant.ofEpochMilli(readZLong()).toString();
+      case LIST -> readList();
+      case MAP -> readMap();
+      default -> throw new IOException("Unknown value type " + tag);
+    };
+  }
+
+  private List<Object> readList() throws IOException {
+    List<Object> list = new ArrayList<>();
+    for (byte tag; (tag = fis.readByte()) != END; ) {
+      list.add(readValue(tag));
+    }
+    return list;
+  }
+
+  private Map<String, Object> readMap() throws IOException {
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (byte tag; (tag = fis.readByte()) != END; ) {
+      if (tag != STRING) {
+        throw new IOException("Unexpected map key type " + tag);
+      }
+      map.put(readString(), readValue(fis.readByte()));
+    }
+    return map;
+  }
+
+  /** The decoded values of one field for the current block. */
+  private class Column {
+    final String name;
+    final int slot;
+    byte type;
+    boolean allPresent;
+    byte[] present = new byte[0];
+    int count;
+    int next;
+    long[] longs = new long[0];
+    double[] doubles = new double[0];
+    int[] ords = new int[0];
+    Object[] values = new Object[0];
+
+    Column(String name) {
+      this.slot = schema.slotOf(name);
+      this.name = schema.nameOf(slot);
+    }
+
+    boolean isPresent(int row) {
+      return allPresent || (present[row >>> 3] & (1 << (row & 7))) != 0;
+    }
+
+    Object nextValue() {
+      int i = next++;
+      return switch (type) {
+        case INT, LONG -> longs[i];
+        case FLOAT, DOUBLE -> doubles[i];
+        case STRING -> values[ords[i]];
+        default -> values[i];
+      };
+    }
+
+    void read(int rows) throws IOException {
+      type = fis.readByte();
+      allPresent = fis.readByte() == 0;
+      if (allPresent) {
+        count = rows;
+      } else {
+        int numBytes = (rows + 7) >>> 3;
+        if (present.length < numBytes) {
+          present = new byte[numBytes];
+        }
+        fis.readFully(present, 0, numBytes);
+        count = 0;
+        for (int i = 0; i < numBytes; i++) {
+          count += Integer.bitCount(present[i] & 0xFF);
+        }
+      }
+      next = 0;
+      switch (type) {
+        case INT, LONG -> {
+          ensureLongs();
+          for (int i = 0; i < count; i++) {
+            longs[i] = readZLong();
+          }
+        }
+        case FLOAT -> {
+          ensureDoubles();
+          for (int i = 0; i < count; i++) {
+            doubles[i] = fis.readFloat();
+          }
+        }
+        case DOUBLE -> {
+          ensureDoubles();
+          for (int i = 0; i < count; i++) {
+            doubles[i] = fis.readDouble();
+          }
+        }
+        case BOOL -> {
+          ensureValues(count);
+          for (int i = 0; i < count; i += 8) {
+            int b = fis.readByte();
+            for (int j = 0; j < 8 && i + j < count; j++) {
+              values[i + j] = (b & (1 << j)) != 0;
+            }
+          }
+        }
+        case DATE -> {
+          ensureValues(count);
+          for (int i = 0; i < count; i++) {
+            values[i] = Instant.ofEpochMilli(readZLong()).toString();
+          }
+        }
+        case STRING -> {
+          int size = JavaBinCodec.readVInt(fis);
+          ensureValues(size);
+          for (int ord = 0; ord < size; ord++) {
+            values[ord] = readString();
+          }
+          if (ords.length < count) {
+            ords = new int[count];
+          }
+          for (int i = 0; i < count; i++) {
+            ords[i] = JavaBinCodec.readVInt(fis);
+          }
+        }
+        default -> {
+          ensureValues(count);
+          for (int i = 0; i < count; i++) {
+            values[i] = readValue(fis.readByte());
+          }
+        }
+      }
+    }
+
+    private void ensureLongs() {
+      if (longs.length < count) {
+        longs = new long[count];
+      }
+    }
+
+    private void ensureDoubles() {
+      if (doubles.length < count) {
+        doubles = new double[count];
+      }
+    }
+
+    private void ensureValues(int size) {
+      if (values.length < size) {
+        values = new Object[size];
+      }
+    }
+  }
+}
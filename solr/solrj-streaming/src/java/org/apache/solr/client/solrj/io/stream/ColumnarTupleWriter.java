@@ -0,0 +1,716 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.PushWriter;
+import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
+import org.apache.solr.common.util.ByteUtils;
+import org.apache.solr.common.util.FastOutputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.Utf8CharSequence;
+
+/**
+ * Writes a stream of tuples in a block oriented, columnar binary format ({@code wt=columnar}), to
+ * be read with {@link ColumnarTupleStreamParser}.
+ *
+ * <p>Instead of writing every tuple as a map that repeats the field names and tags each value, the
+ * tuples under a {@code docs} entry are buffered into blocks of up to {@link #DEFAULT_BLOCK_SIZE}
+ * rows, and each block is written column by column. A field name is written only once, the first
+ * time it is seen, and each column of a block is a vector of a single type: zigzag varints for
+ * integral numbers and dates, fixed width floating point numbers, bit packed booleans, and
+ * dictionary encoded strings. Values of any other kind, such as multi-valued fields, and columns
+ * mixing types within a block, are written value by value with a type tag. All other entries of
+ * the response (e.g. {@code numFound}, or the {@code error} of a failed request) are written as
+ * metadata, keyed by their path joined with dots.
+ *
+ * <p>The format is a {@link #MAGIC} header followed by frames, each starting with a frame type:
+ *
+ * <pre>
+ * SCHEMA_FRAME column id (vint), name (string)
+ * META_FRAME   key (string), value (tagged)
+ * BLOCK_FRAME  rows (vint), columns (vint), then per column:
+ *              column id (vint), type (byte), all present (0) or not (1) followed by a bitmap
+ *              of the rows having a value, then the values of those rows
+ * END_FRAME
+ * </pre>
+ *
+ * Strings are written as their UTF-8 length (vint) and bytes. Buffers and dictionaries are reused
+ * from one block to the next, and string values given as {@link Utf8CharSequence} are copied
+ * directly into the dictionary, so writing a tuple allocates close to nothing.
+ *
+ * @lucene.experimental
+ */
+public class ColumnarTupleWriter implements PushWriter {
+
+  /** The response writer name of this format. */
+  public static final String WT = "columnar";
+
+  public static final String CONTENT_TYPE = "application/vnd.apache.solr.columnar";
+
+  public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+  static final byte[] MAGIC = {'S', 'C', 'T', 1};
+
+  static final byte END_FRAME = 0;
+  static final byte SCHEMA_FRAME = 1;
+  static final byte BLOCK_FRAME = 2;
+  static final byte META_FRAME = 3;
+
+  // value tags, also used as column types
+  static final byte NULL = 0;
+  static final byte INT = 1;
+  static final byte LONG = 2;
+  static final byte FLOAT = 3;
+  static final byte DOUBLE = 4;
+  static final byte BOOL = 5;
+  static final byte STRING = 6;
+  static final byte DATE = 7;
+  static final byte LIST = 8;
+  static final byte MAP = 9;
+  static final byte END = 10;
+  // column type only: each value is written with its own tag
+  static final byte OBJECT = 11;
+
+  private final FastOutputStream out;
+  private final int blockSize;
+  private final Map<String, Column> columnsByName = new HashMap<>();
+  private final List<Column> columns = new ArrayList<>();
+  // the columns in the order the previous row had them, to avoid hash lookups of the field names
+  private final List<Column> rowOrder = new ArrayList<>();
+  private final RowWriter rowWriter = new RowWriter();
+  private final IteratorWriter.ItemWriter docsWriter =
+      new IteratorWriter.ItemWriter() {
+        @Override
+        public IteratorWriter.ItemWriter add(Object o) throws IOException {
+          addRow(o);
+          return this;
+        }
+      };
+  private byte[] scratch = new byte[64];
+  private int rows;
+  private int rowPos;
+  private boolean started;
+
+  public ColumnarTupleWriter(OutputStream os) {
+    this(os, DEFAULT_BLOCK_SIZE);
+  }
+
+  public ColumnarTupleWriter(OutputStream os, int blockSize) {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+    }
+    this.out = FastOutputStream.wrap(os);
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * Writes a response. Tuples are expected under (possibly nested) {@code docs} entries, every
+   * other entry is written as metadata.
+   */
+  @Override
+  public void writeMap(MapWriter mw) throws IOException {
+    start();
+    mw.writeMap(new MetaWriter(""));
+    finish();
+  }
+
+  /** Writes a response that is only a list of tuples. */
+  @Override
+  public void writeIterator(IteratorWriter iw) throws IOException {
+    start();
+    writeDocs(iw);
+    finish();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.flushBuffer();
+  }
+
+  private void start() throws IOException {
+    if (started) {
+      throw new IllegalStateException("Only one response can be written");
+    }
+    started = true;
+    out.write(MAGIC);
+  }
+
+  private void finish() throws IOException {
+    out.writeByte(END_FRAME);
+    out.flushBuffer();
+  }
+
+  private void writeDocs(Object docs) throws IOException {
+    if (docs instanceof IteratorWriter iw) {
+      iw.writeIter(docsWriter);
+    } else {
+      for (Object o : (Iterable<?>) docs) {
+        addRow(o);
+      }
+    }
+    flushBlock();
+  }
+
+  private void addRow(Object o) throws IOException {
+    rowPos = 0;
+    if (o instanceof MapWriter mw) {
+      mw.writeMap(rowWriter);
+    } else if (o instanceof Map<?, ?> map) {
+      for (Map.Entry<?, ?> e : map.entrySet()) {
+        rowWriter.put(String.valueOf(e.getKey()), e.getValue());
+      }
+    } else {
+      throw new IOException("Tuples must be maps, got " + (o == null ? null : o.getClass()));
+    }
+    if (++rows == blockSize) {
+      flushBlock();
+    }
+  }
+
+  private void flushBlock() throws IOException {
+    if (rows == 0) {
+      return;
+    }
+    int numColumns = 0;
+    for (Column column : columns) {
+      if (column.count > 0) {
+        numColumns++;
+      }
+    }
+    out.writeByte(BLOCK_FRAME);
+    JavaBinCodec.writeVInt(rows, out);
+    JavaBinCodec.writeVInt(numColumns, out);
+    for (Column column : columns) {
+      if (column.count > 0) {
+        column.write(rows);
+        column.reset(rows);
+      }
+    }
+    rows = 0;
+  }
+
+  private Column column(CharSequence name) throws IOException {
+    Column column = rowPos < rowOrder.size() ? rowOrder.get(rowPos) : null;
+    if (column == null || !column.name.contentEquals(name)) {
+      String key = name.toString();
+      column = columnsByName.get(key);
+      if (column == null) {
+        column = new Column(key, columns.size());
+        columnsByName.put(key, column);
+        columns.add(column);
+        out.writeByte(SCHEMA_FRAME);
+        JavaBinCodec.writeVInt(column.id, out);
+        writeString(key);
+      }
+      if (rowPos < rowOrder.size()) {
+        rowOrder.set(rowPos, column);
+      } else {
+        rowOrder.add(column);
+      }
+    }
+    rowPos++;
+    return column;
+  }
+
+  private void writeString(CharSequence s) throws IOException {
+    if (s instanceof ByteArrayUtf8CharSequence utf8) {
+      JavaBinCodec.writeVInt(utf8.size(), out);
+      out.write(utf8.getBuf(), utf8.offset(), utf8.size());
+    } else if (s instanceof Utf8CharSequence utf8) {
+      JavaBinCodec.writeVInt(utf8.size(), out);
+      out.writeUtf8CharSeq(utf8);
+    } else {
+      int len = toUtf8(s);
+      JavaBinCodec.writeVInt(len, out);
+      out.write(scratch, 0, len);
+    }
+  }
+
+  private int toUtf8(CharSequence s) {
+    int maxLen = s.length() * ByteUtils.MAX_UTF8_BYTES_PER_CHAR;
+    if (scratch.length < maxLen) {
+      scratch = new byte[Math.max(maxLen, scratch.length * 2)];
+    }
+    return ByteUtils.UTF16toUTF8(s, 0, s.length(), scratch, 0);
+  }
+
+  private void writeZLong(long v) throws IOException {
+    JavaBinCodec.writeVLong((v << 1) ^ (v >> 63), out);
+  }
+
+  /** Writes a value with its type tag. */
+  private void writeValue(Object v) throws IOException {
+    if (v == null) {
+      out.writeByte(NULL);
+    } else if (v instanceof CharSequence s) {
+      out.writeByte(STRING);
+      writeString(s);
+    } else if (v instanceof Integer || v instanceof Short || v instanceof Byte) {
+      out.writeByte(INT);
+      writeZLong(((Number) v).intValue());
+    } else if (v instanceof Long l) {
+      out.writeByte(LONG);
+      writeZLong(l);
+    } else if (v instanceof Float f) {
+      out.writeByte(FLOAT);
+      out.writeFloat(f);
+    } else if (v instanceof Double d) {
+      out.writeByte(DOUBLE);
+      out.writeDouble(d);
+    } else if (v instanceof Boolean b) {
+      out.writeByte(BOOL);
+      out.writeByte(b ? 1 : 0);
+    } else if (v instanceof Date d) {
+      out.writeByte(DATE);
+      writeZLong(d.getTime());
+    } else if (v instanceof MapWriter mw) {
+      out.writeByte(MAP);
+      mw.writeMap(
+          new MapWriter.EntryWriter() {
+            @Override
+            public MapWriter.EntryWriter put(CharSequence k, Object val) throws IOException {
+              writeString(k);
+              writeValue(val);
+              return this;
+            }
+          });
+      out.writeByte(END);
+    } else if (v instanceof Map<?, ?> map) {
+      out.writeByte(MAP);
+      for (Map.Entry<?, ?> e : map.entrySet()) {
+        writeString(String.valueOf(e.getKey()));
+        writeValue(e.getValue());
+      }
+      out.writeByte(END);
+    } else if (v instanceof IteratorWriter iw) {
+      out.writeByte(LIST);
+      iw.writeIter(
+          new IteratorWriter.ItemWriter() {
+            @Override
+            public IteratorWriter.ItemWriter add(Object o) throws IOException {
+              writeValue(o);
+              return this;
+            }
+          });
+      out.writeByte(END);
+    } else if (v instanceof Iterable<?> it) {
+      out.writeByte(LIST);
+      for (Object o : it) {
+        writeValue(o);
+      }
+      out.writeByte(END);
+    } else if (v instanceof Iterator<?> it) {
+      out.writeByte(LIST);
+      while (it.hasNext()) {
+        writeValue(it.next());
+      }
+      out.writeByte(END);
+    } else if (v instanceof Object[] arr) {
+      writeValue(Arrays.asList(arr));
+    } else {
+      out.writeByte(STRING);
+      writeString(v.toString());
+    }
+  }
+
+  /**
+   * Writes the entries of the response outside of the tuples as metadata, and the tuples under
+   * {@code docs} as blocks.
+   */
+  private class MetaWriter implements MapWriter.EntryWriter {
+    private final String prefix;
+
+    MetaWriter(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, Object v) throws IOException {
+      String key = prefix + k;
+      if ("docs".contentEquals(k) && (v instanceof IteratorWriter || v instanceof Collection<?>)) {
+        writeDocs(v);
+      } else if (v instanceof MapWriter mw) {
+        mw.writeMap(new MetaWriter(key + "."));
+      } else if (v instanceof Map<?, ?> map) {
+        MetaWriter nested = new MetaWriter(key + ".");
+        for (Map.Entry<?, ?> e : map.entrySet()) {
+          nested.put(String.valueOf(e.getKey()), e.getValue());
+        }
+      } else {
+        out.writeByte(META_FRAME);
+        writeString(key);
+        writeValue(v);
+      }
+      return this;
+    }
+  }
+
+  /** Adds the fields of a tuple to the columns of the current block. */
+  public class RowWriter implements MapWriter.EntryWriter {
+
+    private RowWriter() {}
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, Object v) throws IOException {
+      if (v == null) {
+        return this;
+      }
+      if (v instanceof CharSequence s) {
+        return put(k, s);
+      } else if (v instanceof Integer || v instanceof Short || v instanceof Byte) {
+        column(k).addLong(rows, ((Number) v).intValue(), INT);
+      } else if (v instanceof Long l) {
+        column(k).addLong(rows, l, LONG);
+      } else if (v instanceof Float f) {
+        column(k).addDouble(rows, f, FLOAT);
+      } else if (v instanceof Double d) {
+        column(k).addDouble(rows, d, DOUBLE);
+      } else if (v instanceof Boolean b) {
+        column(k).addLong(rows, b ? 1 : 0, BOOL);
+      } else if (v instanceof Date d) {
+        column(k).addLong(rows, d.getTime(), DATE);
+      } else if (v instanceof IteratorWriter iw) {
+        // may be backed by iterators that are only valid while the tuple is written
+        column(k).addObject(rows, iw.toList(new ArrayList<>()));
+      } else if (v instanceof MapWriter mw) {
+        column(k).addObject(rows, mw.toMap(new LinkedHashMap<>()));
+      } else {
+        column(k).addObject(rows, v);
+      }
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, int v) throws IOException {
+      column(k).addLong(rows, v, INT);
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, long v) throws IOException {
+      column(k).addLong(rows, v, LONG);
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, float v) throws IOException {
+      column(k).addDouble(rows, v, FLOAT);
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, double v) throws IOException {
+      column(k).addDouble(rows, v, DOUBLE);
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, boolean v) throws IOException {
+      column(k).addLong(rows, v ? 1 : 0, BOOL);
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, CharSequence v) throws IOException {
+      if (v != null) {
+        column(k).addString(rows, v);
+      }
+      return this;
+    }
+
+    /** Adds a date given as milliseconds since the epoch, without allocating a {@link Date}. */
+    public MapWriter.EntryWriter putDate(CharSequence k, long millis) throws IOException {
+      column(k).addLong(rows, millis, DATE);
+      return this;
+    }
+  }
+
+  /** The values of one field for the rows of the current block that have one. */
+  private class Column {
+    final String name;
+    final int id;
+    final long[] present;
+    byte type = NULL;
+    int count;
+    int lastRow = -1;
+    // values are stored densely, only for the rows that are present
+    long[] longs;
+    double[] doubles;
+    int[] ords;
+    Object[] objects;
+    Utf8Dictionary dictionary;
+
+    Column(String name, int id) {
+      this.name = name;
+      this.id = id;
+      this.present = new long[(blockSize + 63) >>> 6];
+    }
+
+    void addLong(int row, long v, byte valueType) {
+      int i = slot(row, valueType);
+      if (type == OBJECT) {
+        objects[i] = box(v, valueType);
+      } else {
+        if (longs == null) longs = new long[blockSize];
+        longs[i] = v;
+      }
+    }
+
+    void addDouble(int row, double v, byte valueType) {
+      int i = slot(row, valueType);
+      if (type == OBJECT) {
+        objects[i] = valueType == FLOAT ? (Object) (float) v : (Object) v;
+      } else {
+        if (doubles == null) doubles = new double[blockSize];
+        doubles[i] = v;
+      }
+    }
+
+    void addString(int row, CharSequence v) {
+      int i = slot(row, STRING);
+      if (type == OBJECT) {
+        objects[i] = v.toString();
+        return;
+      }
+      if (ords == null) {
+        ords = new int[blockSize];
+        dictionary = new Utf8Dictionary();
+      }
+      if (v instanceof ByteArrayUtf8CharSequence utf8) {
+        ords[i] = dictionary.add(utf8.getBuf(), utf8.offset(), utf8.size());
+      } else {
+        int len = toUtf8(v); // may replace scratch
+        ords[i] = dictionary.add(scratch, 0, len);
+      }
+    }
+
+    void addObject(int row, Object v) {
+      int i = slot(row, OBJECT);
+      objects[i] = v;
+    }
+
+    /** Marks the row as present, reconciles the value type, and returns where to store it. */
+    private int slot(int row, byte valueType) {
+      if (row == lastRow) {
+        count--; // the same key twice in one tuple, the last value wins
+      } else {
+        present[row >>> 6] |= 1L << row;
+        lastRow = row;
+      }
+      if (type == NULL) {
+        type = valueType;
+      } else if (type != valueType) {
+        byte merged;
+        if ((type == INT || type == LONG) && (valueType == INT || valueType == LONG)) {
+          merged = LONG;
+        } else if ((type == FLOAT || type == DOUBLE)
+            && (valueType == FLOAT || valueType == DOUBLE)) {
+          merged = DOUBLE;
+        } else {
+          merged = OBJECT;
+        }
+        if (merged == OBJECT && type != OBJECT) {
+          objects = objects == null ? new Object[blockSize] : objects;
+          for (int i = 0; i < count; i++) {
+            objects[i] = valueAt(i);
+          }
+        }
+        type = merged;
+      }
+      if (type == OBJECT && objects == null) {
+        objects = new Object[blockSize];
+      }
+      return count++;
+    }
+
+    private Object valueAt(int i) {
+      return switch (type) {
+        case INT, LONG, BOOL, DATE -> box(longs[i], type);
+        case FLOAT -> (float) doubles[i];
+        case DOUBLE -> doubles[i];
+        case STRING -> dictionary.toString(ords[i]);
+        default -> objects[i];
+      };
+    }
+
+    private Object box(long v, byte valueType) {
+      return switch (valueType) {
+        case INT -> (int) v;
+        case BOOL -> v != 0;
+        case DATE -> new Date(v);
+        default -> v;
+      };
+    }
+
+    void write(int rows) throws IOException {
+      JavaBinCodec.writeVInt(id, out);
+      out.writeByte(type);
+      if (count == rows) {
+        out.writeByte(0);
+      } else {
+        out.writeByte(1);
+        writeBits(present, rows);
+      }
+      switch (type) {
+        case INT, LONG, DATE -> {
+          for (int i = 0; i < count; i++) {
+            writeZLong(longs[i]);
+          }
+        }
+        case FLOAT -> {
+          for (int i = 0; i < count; i++) {
+            out.writeFloat((float) doubles[i]);
+          }
+        }
+        case DOUBLE -> {
+          for (int i = 0; i < count; i++) {
+            out.writeDouble(doubles[i]);
+          }
+        }
+        case BOOL -> {
+          for (int i = 0; i < count; i += 8) {
+            int b = 0;
+            for (int j = 0; j < 8 && i + j < count; j++) {
+              b |= (int) longs[i + j] << j;
+            }
+            out.writeByte(b);
+          }
+        }
+        case STRING -> {
+          dictionary.write();
+          for (int i = 0; i < count; i++) {
+            JavaBinCodec.writeVInt(ords[i], out);
+          }
+        }
+        default -> {
+          for (int i = 0; i < count; i++) {
+            writeValue(objects[i]);
+          }
+        }
+      }
+    }
+
+    private void writeBits(long[] bits, int numBits) throws IOException {
+      for (int i = 0, numBytes = (numBits + 7) >>> 3; i < numBytes; i++) {
+        out.writeByte((byte) (bits[i >>> 3] >>> ((i & 7) << 3)));
+      }
+    }
+
+    void reset(int rows) {
+      Arrays.fill(present, 0, (rows + 63) >>> 6, 0L);
+      if (objects != null) {
+        Arrays.fill(objects, 0, count, null);
+      }
+      if (dictionary != null) {
+        dictionary.clear();
+      }
+      type = NULL;
+      count = 0;
+      lastRow = -1;
+    }
+  }
+
+  /** The distinct UTF-8 strings of a column within a block, in order of first occurrence. */
+  private class Utf8Dictionary {
+    private byte[] bytes = new byte[1024];
+    private int[] starts = new int[17];
+    private int[] hashes = new int[16];
+    private int[] table = new int[32];
+    private int size;
+
+    Utf8Dictionary() {
+      Arrays.fill(table, -1);
+    }
+
+    int add(byte[] buf, int offset, int len) {
+      int hash = 0;
+      for (int i = offset, end = offset + len; i < end; i++) {
+        hash = 31 * hash + buf[i];
+      }
+      hash ^= hash >>> 16;
+      int mask = table.length - 1;
+      int slot = hash & mask;
+      for (int ord; (ord = table[slot]) >= 0; slot = (slot + 1) & mask) {
+        if (hashes[ord] == hash
+            && Arrays.equals(bytes, starts[ord], starts[ord + 1], buf, offset, offset + len)) {
+          return ord;
+        }
+      }
+      int start = starts[size];
+      if (start + len > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(start + len, bytes.length * 2));
+      }
+      System.arraycopy(buf, offset, bytes, start, len);
+      if (size == hashes.length) {
+        hashes = Arrays.copyOf(hashes, hashes.length * 2);
+        starts = Arrays.copyOf(starts, hashes.length + 1);
+      }
+      hashes[size] = hash;
+      starts[size + 1] = start + len;
+      table[slot] = size;
+      if (++size * 2 > table.length) {
+        rehash();
+      }
+      return size - 1;
+    }
+
+    private void rehash() {
+      table = new int[table.length * 2];
+      Arrays.fill(table, -1);
+      int mask = table.length - 1;
+      for (int ord = 0; ord < size; ord++) {
+        int slot = hashes[ord] & mask;
+        while (table[slot] >= 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = ord;
+      }
+    }
+
+    String toString(int ord) {
+      return ByteUtils.UTF8toUTF16(bytes, starts[ord], starts[ord + 1] - starts[ord]);
+    }
+
+    void write() throws IOException {
+      JavaBinCodec.writeVInt(size, out);
+      for (int ord = 0; ord < size; ord++) {
+        JavaBinCodec.writeVInt(starts[ord + 1] - starts[ord], out);
+        out.write(bytes, starts[ord], starts[ord + 1] - starts[ord]);
+      }
+    }
+
+    void clear() {
+      if (size > 0) {
+        Arrays.fill(table, -1);
+        size = 0;
+      }
+    }
+  }
+}
@@ -40,7 +40,6 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParamete
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.common.util.ExecutorUtil;
-import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -226,7 +225,7 @@ public class DaemonStream extends TupleStream implements Expressible {
     this.streamRunner = new StreamRunner(runInterval, id);
     ExecutorService service =
         ExecutorUtil.newMDCAwareSingleThreadExecutor(
-            new SolrNamedThreadFactory("DaemonStream-" + id));
+            StreamExecutorHelper.newThreadFactory("DaemonStream-" + id));
     try {
       service.submit(this.streamRunner);
     } finally {
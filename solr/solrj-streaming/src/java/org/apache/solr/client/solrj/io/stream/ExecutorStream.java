@@ -38,7 +38,6 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParamete
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.common.util.ExecutorUtil;
-import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -151,7 +150,7 @@ public class ExecutorStream extends TupleStream implements Expressible {
   public void open() throws IOException {
     executorService =
         ExecutorUtil.newMDCAwareFixedThreadPool(
-            threads, new SolrNamedThreadFactory("ExecutorStream"));
+            threads, StreamExecutorHelper.newThreadFactory("ExecutorStream"));
     stream.open();
   }
 
@@ -17,17 +17,26 @@
 
 package org.apache.solr.client.solrj.io.stream;
 
+import static org.apache.solr.common.params.CommonParams.DISTRIB;
+import static org.apache.solr.common.params.CommonParams.ID;
 import static org.apache.solr.common.params.CommonParams.SORT;
 import static org.apache.solr.common.params.CommonParams.VERSION_FIELD;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
@@ -39,13 +48,28 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParamete
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.HashBasedRouter;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.ExecutorUtil;
 
 /**
  * Iterates over a stream and fetches additional fields from a specified collection. Fetches are
  * done in batches.
  *
- * <p>Syntax: fetch(collection, stream, on="a=b", fl="c,d,e", batchSize="50")
+ * <p>Syntax: fetch(collection, stream, on="a=b", fl="c,d,e", batchSize="50", threads="4",
+ * routed="false")
+ *
+ * <p>Up to {@code threads} batches are fetched at the same time, while the tuples of the earlier
+ * batches are read. The threads are only started once the input turns out to be longer than a
+ * batch. With {@code routed="true"}, when the right side key is the key the collection is routed
+ * on, the uniqueKey or the {@code router.field}, the keys of a batch are grouped by the shard they
+ * are routed to, and each group is only sent to that shard instead of to the whole collection. The
+ * documents indexed with a {@code _route_} other than their key are then not found, so this is
+ * off by default.
  *
  * @since 6.3.0
  */
@@ -53,6 +77,8 @@ public class FetchStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
+  static final int DEFAULT_THREADS = 4;
+
   protected String zkHost;
   private TupleStream stream;
   private StreamContext streamContext;
@@ -64,9 +90,18 @@ public class FetchStream extends TupleStream implements Expressible {
   private String[] fields;
   private String collection;
   private int batchSize;
+  private int threads;
+  // whether threads was given, rather than the default
+  private boolean threadsSet;
+  private boolean routed;
   private boolean appendVersion = true;
   private boolean appendKey = true;
 
+  private transient ExecutorService executor;
+  // batches being fetched, in the order they were read
+  private transient Deque<Future<List<Tuple>>> pending;
+  private transient boolean inputEOF;
+
   public FetchStream(
       String zkHost,
       String collection,
@@ -75,7 +110,20 @@ public class FetchStream extends TupleStream implements Expressible {
       String fieldList,
       int batchSize)
       throws IOException {
-    init(zkHost, collection, tupleStream, on, fieldList, batchSize);
+    init(zkHost, collection, tupleStream, on, fieldList, batchSize, DEFAULT_THREADS);
+  }
+
+  public FetchStream(
+      String zkHost,
+      String collection,
+      TupleStream tupleStream,
+      String on,
+      String fieldList,
+      int batchSize,
+      int threads)
+      throws IOException {
+    init(zkHost, collection, tupleStream, on, fieldList, batchSize, threads);
+    this.threadsSet = true;
   }
 
   public FetchStream(StreamExpression expression, StreamFactory factory) throws IOException {
@@ -88,11 +136,14 @@ public class FetchStream extends TupleStream implements Expressible {
     StreamExpressionNamedParameter flParam = factory.getNamedOperand(expression, "fl");
     StreamExpressionNamedParameter batchSizeParam =
         factory.getNamedOperand(expression, "batchSize");
+    StreamExpressionNamedParameter threadsParam = factory.getNamedOperand(expression, "threads");
+    StreamExpressionNamedParameter routedParam = factory.getNamedOperand(expression, "routed");
     StreamExpressionNamedParameter zkHostExpression = factory.getNamedOperand(expression, "zkHost");
 
     String on = null;
     String fl = null;
     int batchSize = 50;
+    int threads = DEFAULT_THREADS;
 
     if (onParam == null) {
       throw new IOException("on parameter cannot be null for the fetch expression");
@@ -111,6 +162,10 @@ public class FetchStream extends TupleStream implements Expressible {
           Integer.parseInt(((StreamExpressionValue) batchSizeParam.getParameter()).getValue());
     }
 
+    if (threadsParam != null) {
+      threads = Integer.parseInt(((StreamExpressionValue) threadsParam.getParameter()).getValue());
+    }
+
     if (1 != streamExpressions.size()) {
       throw new IOException(
           String.format(
@@ -140,7 +195,21 @@ public class FetchStream extends TupleStream implements Expressible {
               collectionName));
     }
 
-    init(zkHost, collectionName, stream, on, fl, batchSize);
+    init(zkHost, collectionName, stream, on, fl, batchSize, threads);
+    this.threadsSet = threadsParam != null;
+    if (routedParam != null) {
+      this.routed =
+          Boolean.parseBoolean(((StreamExpressionValue) routedParam.getParameter()).getValue());
+    }
+  }
+
+  /**
+   * Whether the keys of a batch are only sent to the shards they are routed to, when the right
+   * side key is the key the collection is routed on. The documents indexed with a {@code _route_}
+   * other than their key are then not found.
+   */
+  public void setRouted(boolean routed) {
+    this.routed = routed;
   }
 
   private void init(
@@ -149,12 +218,17 @@ public class FetchStream extends TupleStream implements Expressible {
       TupleStream tupleStream,
       String on,
       String fieldList,
-      int batchSize)
+      int batchSize,
+      int threads)
       throws IOException {
+    if (threads < 1) {
+      throw new IOException("threads must be at least 1 for the fetch expression");
+    }
     this.zkHost = zkHost;
     this.collection = collection;
     this.stream = tupleStream;
     this.batchSize = batchSize;
+    this.threads = threads;
     this.fields = fieldList.split(",");
     this.fieldList = fieldList;
 
@@ -193,6 +267,13 @@ public class FetchStream extends TupleStream implements Expressible {
     expression.addParameter(new StreamExpressionNamedParameter("fl", fieldList));
     expression.addParameter(
         new StreamExpressionNamedParameter("batchSize", Integer.toString(batchSize)));
+    if (threadsSet) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter("threads", Integer.toString(threads)));
+    }
+    if (routed) {
+      expression.addParameter(new StreamExpressionNamedParameter("routed", "true"));
+    }
 
     // stream
     if (includeStreams) {
@@ -234,60 +315,94 @@ public class FetchStream extends TupleStream implements Expressible {
   @Override
   public void open() throws IOException {
     tuples = Collections.emptyIterator();
+    pending = new ArrayDeque<>();
+    inputEOF = false;
     stream.open();
   }
 
-  private void fetchBatch() throws IOException {
-    Tuple EOFTuple = null;
-    List<Tuple> batch = new ArrayList<>(batchSize);
+  private List<Tuple> nextBatch() throws IOException {
+    if (executor == null) {
+      List<Tuple> batch = readBatch();
+      if (threads == 1 || inputEOF) {
+        return fetchBatch(batch);
+      }
+      executor =
+          ExecutorUtil.newMDCAwareFixedThreadPool(
+              threads, StreamExecutorHelper.newThreadFactory("FetchStream"));
+      pending.add(executor.submit(() -> fetchBatch(batch)));
+    }
+
+    // the input is read on this thread only, the fetches of up to threads batches run meanwhile
+    while (!inputEOF && pending.size() < threads) {
+      List<Tuple> batch = readBatch();
+      pending.add(executor.submit(() -> fetchBatch(batch)));
+    }
+    Future<List<Tuple>> next = pending.poll();
+    if (next == null) {
+      return fetchBatch(readBatch());
+    }
+    try {
+      return next.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  // the next batchSize tuples of the input, followed by the EOF tuple if the input ended
+  private List<Tuple> readBatch() throws IOException {
+    List<Tuple> batch = new ArrayList<>(batchSize + 1);
     for (int i = 0; i < batchSize; i++) {
       Tuple tuple = stream.read();
+      batch.add(tuple);
       if (tuple.EOF) {
-        EOFTuple = tuple;
+        inputEOF = true;
         break;
-      } else {
-        batch.add(tuple);
       }
     }
+    return batch;
+  }
 
-    if (batch.size() > 0) {
-      StringBuilder buf = new StringBuilder(batch.size() * 10 + 20);
-      buf.append("{! df=").append(rightKey).append(" q.op=OR cache=false }"); // disable queryCache
-      for (Tuple tuple : batch) {
-        String key = tuple.getString(leftKey);
-        buf.append(' ').append(ClientUtils.escapeQueryChars(key));
+  private List<Tuple> fetchBatch(List<Tuple> batch) throws IOException {
+    List<String> keys = new ArrayList<>(batch.size());
+    for (Tuple tuple : batch) {
+      String key = tuple.EOF ? null : tuple.getString(leftKey);
+      if (key != null) {
+        keys.add(key);
       }
+    }
 
-      ModifiableSolrParams params = new ModifiableSolrParams();
-      params.add("q", buf.toString());
-      params.add("fl", fieldList + appendFields());
-      params.add("rows", Integer.toString(batchSize));
-      params.add(SORT, "_version_ desc");
-
-      CloudSolrStream cloudSolrStream = new CloudSolrStream(zkHost, collection, params);
+    if (keys.size() > 0) {
       StreamContext newContext = new StreamContext();
       newContext.setSolrClientCache(streamContext.getSolrClientCache());
       newContext.setObjectCache(streamContext.getObjectCache());
-      cloudSolrStream.setStreamContext(newContext);
+
       Map<String, Tuple> fetched = new HashMap<>();
-      try {
-        cloudSolrStream.open();
-        while (true) {
-          Tuple t = cloudSolrStream.read();
-          if (t.EOF) {
-            break;
-          } else {
-            String rightValue = t.getString(rightKey);
-            fetched.put(rightValue, t);
+      for (TupleStream fetchStream : createFetchStreams(keys, newContext)) {
+        try {
+          fetchStream.open();
+          while (true) {
+            Tuple t = fetchStream.read();
+            if (t.EOF) {
+              break;
+            } else {
+              String rightValue = t.getString(rightKey);
+              fetched.put(rightValue, t);
+            }
           }
+        } finally {
+          fetchStream.close();
         }
-      } finally {
-        cloudSolrStream.close();
       }
 
       // Iterate the batch and add the fetched fields to the Tuples
       for (Tuple batchTuple : batch) {
-        Tuple fetchedTuple = fetched.get(batchTuple.getString(leftKey));
+        Tuple fetchedTuple = batchTuple.EOF ? null : fetched.get(batchTuple.getString(leftKey));
         if (fetchedTuple != null) {
           for (String field : fields) {
             Object value = fetchedTuple.get(field);
@@ -299,22 +414,110 @@ public class FetchStream extends TupleStream implements Expressible {
       }
     }
 
-    if (EOFTuple != null) {
-      batch.add(EOFTuple);
+    return batch;
+  }
+
+  // package-private for tests
+  List<TupleStream> createFetchStreams(List<String> keys, StreamContext context)
+      throws IOException {
+    Map<Replica, List<String>> keysByReplica = routeKeys(keys, context);
+    if (keysByReplica == null) {
+      CloudSolrStream cloudSolrStream = new CloudSolrStream(zkHost, collection, getParams(keys));
+      cloudSolrStream.setStreamContext(context);
+      return Collections.singletonList(cloudSolrStream);
     }
 
-    this.tuples = batch.iterator();
+    List<TupleStream> solrStreams = new ArrayList<>(keysByReplica.size());
+    for (Map.Entry<Replica, List<String>> entry : keysByReplica.entrySet()) {
+      Replica replica = entry.getKey();
+      ModifiableSolrParams params = getParams(entry.getValue());
+      params.set(DISTRIB, "false");
+      SolrStream solrStream = new SolrStream(replica.getBaseUrl(), params, replica.getCoreName());
+      solrStream.setStreamContext(context);
+      solrStreams.add(solrStream);
+    }
+    return solrStreams;
+  }
+
+  /**
+   * Groups the keys by a replica of the shard they are routed to, or returns null if the keys
+   * aren't routed: routing is off, the right side key isn't the key the collection is routed on,
+   * the collection is an alias of several collections, the shards are given explicitly, or a shard
+   * has no active replica.
+   */
+  private Map<Replica, List<String>> routeKeys(List<String> keys, StreamContext context)
+      throws IOException {
+    if (!routed || context.getSolrClientCache() == null || streamContext.get("shards") != null) {
+      return null;
+    }
+    CloudSolrClient cloudSolrClient = context.getSolrClientCache().getCloudSolrClient(zkHost);
+    List<String> collections = cloudSolrClient.getClusterStateProvider().resolveAlias(collection);
+    if (collections.size() != 1) {
+      return null;
+    }
+    DocCollection docCollection =
+        cloudSolrClient.getClusterState().getCollectionOrNull(collections.get(0), true);
+    if (docCollection == null || !(docCollection.getRouter() instanceof HashBasedRouter)) {
+      return null;
+    }
+    String routeField = docCollection.getRouter().getRouteField(docCollection);
+    if (!rightKey.equals(routeField == null ? ID : routeField)) {
+      return null;
+    }
+
+    Map<String, Replica> replicas = new HashMap<>();
+    for (Replica replica : getReplicas(zkHost, collection, context, getParams(keys))) {
+      replicas.put(replica.getShard(), replica);
+    }
+    Map<Replica, List<String>> keysByReplica = new LinkedHashMap<>();
+    try {
+      for (String key : keys) {
+        // the key is the route, as for a document with this key
+        Slice slice = docCollection.getRouter().getTargetSlice(key, null, key, null, docCollection);
+        Replica replica = replicas.get(slice.getName());
+        if (replica == null) {
+          return null;
+        }
+        keysByReplica.computeIfAbsent(replica, r -> new ArrayList<>()).add(key);
+      }
+    } catch (SolrException e) {
+      // no active shard for a key's hash, e.g. while a shard is being split
+      return null;
+    }
+    return keysByReplica;
+  }
+
+  private ModifiableSolrParams getParams(List<String> keys) {
+    StringBuilder buf = new StringBuilder(keys.size() * 10 + 20);
+    buf.append("{! df=").append(rightKey).append(" q.op=OR cache=false }"); // disable queryCache
+    for (String key : keys) {
+      buf.append(' ').append(ClientUtils.escapeQueryChars(key));
+    }
+
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.add("q", buf.toString());
+    params.add("fl", fieldList + appendFields());
+    params.add("rows", Integer.toString(batchSize));
+    params.add(SORT, "_version_ desc");
+    return params;
   }
 
   @Override
   public void close() throws IOException {
-    stream.close();
+    try {
+      stream.close();
+    } finally {
+      if (executor != null) {
+        ExecutorUtil.shutdownNowAndAwaitTermination(executor);
+        executor = null;
+      }
+    }
   }
 
   @Override
   public Tuple read() throws IOException {
     if (!tuples.hasNext()) {
-      fetchBatch();
+      tuples = nextBatch().iterator();
     }
 
     return tuples.next();
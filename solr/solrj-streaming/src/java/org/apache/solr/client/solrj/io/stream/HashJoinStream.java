@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
@@ -41,6 +42,10 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
  * being computed on then that tuple will not be considered a match to anything. Ie, all fields
  * which are part of the hash must have a non-null value.
  *
+ * <p>If the hashed tuples go over the memory budget of {@link SpillSettings}, both streams are
+ * partitioned into temporary files when this stream is opened, and joined one partition at a time.
+ * The tuples are still emitted in the order of the fullStream.
+ *
  * @since 6.0.0
  */
 public class HashJoinStream extends TupleStream implements Expressible {
@@ -57,6 +62,10 @@ public class HashJoinStream extends TupleStream implements Expressible {
   protected String workingFullHash = null;
   protected int workingHashSetIdx = 0;
 
+  private transient SpillSettings spillSettings;
+  private transient SpillStats spillStats;
+  transient SpilledHashJoin spilledJoin;
+
   public HashJoinStream(TupleStream fullStream, TupleStream hashStream, List<String> hashOn)
       throws IOException {
     init(fullStream, hashStream, hashOn);
@@ -211,6 +220,7 @@ public class HashJoinStream extends TupleStream implements Expressible {
   public void setStreamContext(StreamContext context) {
     this.hashStream.setStreamContext(context);
     this.fullStream.setStreamContext(context);
+    this.spillSettings = SpillSettings.get(context);
   }
 
   @Override
@@ -226,10 +236,18 @@ public class HashJoinStream extends TupleStream implements Expressible {
     hashStream.open();
     fullStream.open();
 
+    SpillSettings settings = spillSettings != null ? spillSettings : SpillSettings.getDefault();
+    spillStats = new SpillStats();
+    long hashedBytes = 0;
+
     Tuple tuple = hashStream.read();
     while (!tuple.EOF) {
       String hash = computeHash(tuple, rightHashOn);
-      if (null != hash) {
+      if (null != spilledJoin) {
+        if (null != hash) {
+          spilledJoin.addHashed(hash, tuple);
+        }
+      } else if (null != hash) {
         if (hashedTuples.containsKey(hash)) {
           hashedTuples.get(hash).add(tuple);
         } else {
@@ -237,9 +255,36 @@ public class HashJoinStream extends TupleStream implements Expressible {
           set.add(tuple);
           hashedTuples.put(hash, set);
         }
+        if (settings.isEnabled()) {
+          hashedBytes += TupleSpillFile.estimateBytes(tuple);
+          if (hashedBytes > settings.getMaxMemoryBytes()) {
+            // too big to join in memory, move what was hashed so far to disk
+            spilledJoin = new SpilledHashJoin(this, settings, spillStats);
+            for (Map.Entry<String, List<Tuple>> entry : hashedTuples.entrySet()) {
+              for (Tuple hashed : entry.getValue()) {
+                spilledJoin.addHashed(entry.getKey(), hashed);
+              }
+            }
+            hashedTuples.clear();
+          }
+        }
       }
       tuple = hashStream.read();
     }
+
+    if (null != spilledJoin) {
+      spilledJoin.join(fullStream, keepsUnmatched());
+    }
+  }
+
+  /** Whether tuples of the fullStream without a match are emitted, as in an outer join. */
+  protected boolean keepsUnmatched() {
+    return false;
+  }
+
+  /** What this stream spilled to disk since it was last opened, or null if it never was. */
+  public SpillStats getSpillStats() {
+    return spillStats;
   }
 
   protected String computeHash(Tuple tuple, List<String> hashOn) {
@@ -260,10 +305,17 @@ public class HashJoinStream extends TupleStream implements Expressible {
   public void close() throws IOException {
     hashStream.close();
     fullStream.close();
+    if (null != spilledJoin) {
+      spilledJoin.close();
+      spilledJoin = null;
+    }
   }
 
   @Override
   public Tuple read() throws IOException {
+    if (null != spilledJoin) {
+      return spilledJoin.read();
+    }
 
     findNextWorkingFullTuple:
     while (null == workingFullTuple) {
@@ -17,7 +17,9 @@
 package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -40,15 +42,33 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
 import org.apache.solr.client.solrj.io.stream.metrics.Metric;
 
+/**
+ * Rolls up metrics over buckets like {@link RollupStream}, but groups the tuples in a hash map so
+ * that the underlying stream does not need to be sorted.
+ *
+ * <p>If the groups go over the memory budget of {@link SpillSettings}, the tuples of new groups are
+ * partitioned by hash into temporary files, and each partition is rolled up after the groups that
+ * are in memory, partitioning it again if needed.
+ */
 public class HashRollupStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
+  // how many times a partition may be partitioned again, after that it is rolled up in memory
+  private static final int MAX_SPILL_LEVEL = 3;
+  // rough memory used by a group and each of its metrics
+  private static final long GROUP_BYTES = 160;
+  private static final long METRIC_BYTES = 64;
+
   private PushBackStream tupleStream;
   private Bucket[] buckets;
   private Metric[] metrics;
 
   private Iterator<Tuple> tupleIterator;
+  private transient Tuple eofTuple;
+  private transient SpillSettings spillSettings;
+  private transient SpillStats spillStats;
+  private transient Deque<SpilledPartition> spilledPartitions;
 
   public HashRollupStream(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics) {
     init(tupleStream, buckets, metrics);
@@ -188,6 +208,7 @@ public class HashRollupStream extends TupleStream implements Expressible {
   @Override
   public void setStreamContext(StreamContext context) {
     this.tupleStream.setStreamContext(context);
+    this.spillSettings = SpillSettings.get(context);
   }
 
   @Override
@@ -200,68 +221,130 @@ public class HashRollupStream extends TupleStream implements Expressible {
   @Override
   public void open() throws IOException {
     tupleStream.open();
+    if (spillSettings == null) {
+      spillSettings = SpillSettings.getDefault();
+    }
+    spillStats = new SpillStats();
+    spilledPartitions = new ArrayDeque<>();
   }
 
   @Override
   public void close() throws IOException {
     tupleStream.close();
     tupleIterator = null;
+    if (spilledPartitions != null) {
+      for (SpilledPartition partition : spilledPartitions) {
+        partition.file().close();
+      }
+      spilledPartitions.clear();
+    }
+  }
+
+  /** What this stream spilled to disk since it was last opened, or null if it never was. */
+  public SpillStats getSpillStats() {
+    return spillStats;
   }
 
   @Override
   public Tuple read() throws IOException {
     // On the first call to read build the tupleIterator.
     if (tupleIterator == null) {
-      Map<HashKey, Metric[]> metricMap = new HashMap<>();
-      while (true) {
-        Tuple tuple = tupleStream.read();
-        if (tuple.EOF) {
-          List<Tuple> tuples = new ArrayList<>();
-          for (Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
-            Tuple t = new Tuple();
-            Metric[] finishedMetrics = entry.getValue();
-            for (Metric metric : finishedMetrics) {
-              t.put(metric.getIdentifier(), metric.getValue());
-            }
+      tupleIterator =
+          rollup(
+              () -> {
+                Tuple tuple = tupleStream.read();
+                if (tuple.EOF) {
+                  eofTuple = tuple;
+                  return null;
+                }
+                return tuple;
+              },
+              0);
+    }
 
-            HashKey hashKey = entry.getKey();
-            for (int i = 0; i < buckets.length; i++) {
-              t.put(buckets[i].toString(), hashKey.getParts()[i]);
-            }
-            tuples.add(t);
-          }
-          tuples.add(tuple);
-          this.tupleIterator = tuples.iterator();
-          break;
-        }
+    // Then roll up the spilled partitions, if any, one at a time.
+    while (!tupleIterator.hasNext() && !spilledPartitions.isEmpty()) {
+      SpilledPartition partition = spilledPartitions.removeFirst();
+      try (TupleSpillFile file = partition.file()) {
+        TupleSpillFile.Reader reader = file.read();
+        tupleIterator = rollup(() -> reader.next() ? reader.tuple() : null, partition.level());
+      }
+    }
 
-        Object[] bucketValues = new Object[buckets.length];
-        for (int i = 0; i < buckets.length; i++) {
-          bucketValues[i] = buckets[i].getBucketValue(tuple);
-        }
+    return tupleIterator.hasNext() ? tupleIterator.next() : eofTuple;
+  }
+
+  private Iterator<Tuple> rollup(TupleSource source, int level) throws IOException {
+    Map<HashKey, Metric[]> metricMap = new HashMap<>();
+    TupleSpillFile[] partitions = null;
+    long bytes = 0;
+
+    for (Tuple tuple; (tuple = source.next()) != null; ) {
+      Object[] bucketValues = new Object[buckets.length];
+      for (int i = 0; i < buckets.length; i++) {
+        bucketValues[i] = buckets[i].getBucketValue(tuple);
+      }
 
-        HashKey hashKey = new HashKey(bucketValues);
-        Metric[] currentMetrics = metricMap.get(hashKey);
+      HashKey hashKey = new HashKey(bucketValues);
+      Metric[] currentMetrics = metricMap.get(hashKey);
 
-        if (currentMetrics != null) {
-          for (Metric bucketMetric : currentMetrics) {
-            bucketMetric.update(tuple);
+      if (currentMetrics != null) {
+        for (Metric bucketMetric : currentMetrics) {
+          bucketMetric.update(tuple);
+        }
+      } else if (partitions != null) {
+        // a new group while over the memory budget, roll it up later
+        partitions[TupleSpillFile.partition(hashKey.hashCode(), level)].write(tuple);
+      } else {
+        currentMetrics = new Metric[metrics.length];
+        for (int i = 0; i < metrics.length; i++) {
+          Metric bucketMetric = metrics[i].newInstance();
+          bucketMetric.update(tuple);
+          currentMetrics[i] = bucketMetric;
+        }
+        metricMap.put(hashKey, currentMetrics);
+
+        if (spillSettings.isEnabled() && level < MAX_SPILL_LEVEL) {
+          bytes += GROUP_BYTES + METRIC_BYTES * metrics.length;
+          for (Object bucketValue : bucketValues) {
+            bytes += TupleSpillFile.estimateBytes(bucketValue);
           }
-        } else {
-          currentMetrics = new Metric[metrics.length];
-          for (int i = 0; i < metrics.length; i++) {
-            Metric bucketMetric = metrics[i].newInstance();
-            bucketMetric.update(tuple);
-            currentMetrics[i] = bucketMetric;
+          if (bytes > spillSettings.getMaxMemoryBytes()) {
+            spillStats.recordSpill();
+            partitions = new TupleSpillFile[TupleSpillFile.NUM_PARTITIONS];
+            for (int i = 0; i < partitions.length; i++) {
+              partitions[i] = new TupleSpillFile(spillSettings, false, spillStats);
+              spilledPartitions.addFirst(new SpilledPartition(partitions[i], level + 1));
+            }
           }
-          metricMap.put(hashKey, currentMetrics);
         }
       }
     }
 
-    return tupleIterator.next();
+    List<Tuple> tuples = new ArrayList<>(metricMap.size());
+    for (Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
+      Tuple t = new Tuple();
+      Metric[] finishedMetrics = entry.getValue();
+      for (Metric metric : finishedMetrics) {
+        t.put(metric.getIdentifier(), metric.getValue());
+      }
+
+      HashKey hashKey = entry.getKey();
+      for (int i = 0; i < buckets.length; i++) {
+        t.put(buckets[i].toString(), hashKey.getParts()[i]);
+      }
+      tuples.add(t);
+    }
+    return tuples.iterator();
   }
 
+  private interface TupleSource {
+    /** Returns the next tuple, or null if there are no more. */
+    Tuple next() throws IOException;
+  }
+
+  private record SpilledPartition(TupleSpillFile file, int level) {}
+
   @Override
   public int getCost() {
     return 0;
@@ -92,8 +92,16 @@ public class OuterHashJoinStream extends HashJoinStream implements Expressible {
     return expression;
   }
 
+  @Override
+  protected boolean keepsUnmatched() {
+    return true;
+  }
+
   @Override
   public Tuple read() throws IOException {
+    if (null != spilledJoin) {
+      return spilledJoin.read();
+    }
 
     if (null == workingFullTuple) {
       Tuple fullTuple = fullStream.read();
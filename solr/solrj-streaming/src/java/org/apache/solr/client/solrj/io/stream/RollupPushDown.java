@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.FieldComparator;
+import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MeanMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.MinMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.StreamParams;
+
+/**
+ * Pushes the aggregation of a {@link RollupStream} down into the shards, when the rollup reads
+ * straight from a {@link CloudSolrStream} over /export sorted by the rollup fields. Each shard then
+ * runs {@code rollup(input(), over=..., partial=true)} inside its ExportWriter and sends one
+ * partial tuple per bucket instead of every document, and the worker only merges the partials of
+ * each bucket.
+ *
+ * <p>Only sum, count, min, max and avg can be merged. An average is sent as the sum of its column
+ * and {@code count(*)}, and divided on the worker. The merged tuples carry the identifiers of the
+ * original metrics, so anything downstream (e.g. {@code having}) sees the same tuples as without
+ * the push-down.
+ *
+ * <p>The push-down is off unless {@link #ENABLED_PROP} is true, since shards running an older
+ * version can't parse the {@code partial} parameter of the rollup they are sent. Enable it once
+ * all the nodes are upgraded.
+ */
+final class RollupPushDown {
+
+  /** Set to true to push rollups down into the shards. */
+  static final String ENABLED_PROP = "solr.streaming.rollup.pushDown";
+
+  private static final String EXPORT = "/export";
+  // function names in the stream factory of the /export handler
+  private static final String ROLLUP = "rollup";
+  private static final String INPUT = "input";
+  private static final String COUNT_ALL = "count(*)";
+
+  private enum Kind {
+    SUM,
+    COUNT,
+    MIN,
+    MAX,
+    AVG
+  }
+
+  private final String shardExpression;
+  private final Metric[] mergeMetrics;
+
+  private RollupPushDown(String shardExpression, Metric[] mergeMetrics) {
+    this.shardExpression = shardExpression;
+    this.mergeMetrics = mergeMetrics;
+  }
+
+  /** The expression each shard runs over its /export results. */
+  String getShardExpression() {
+    return shardExpression;
+  }
+
+  /** Metrics that merge the partial tuples of a bucket into the values of the original metrics. */
+  Metric[] getMergeMetrics() {
+    return mergeMetrics;
+  }
+
+  /** The stream a rollup over the given input would push down into, or null if there is none. */
+  static CloudSolrStream getCloudStream(TupleStream input) {
+    if (input instanceof SearchFacadeStream facade) {
+      input = facade.getInnerStream();
+    }
+    // subclasses such as DrillStream already send their own expression to the shards
+    return input.getClass() == CloudSolrStream.class ? (CloudSolrStream) input : null;
+  }
+
+  /**
+   * Plans the push-down of a rollup over the given stream.
+   *
+   * @return null if the rollup can't be pushed down and has to run on the worker
+   */
+  static RollupPushDown plan(CloudSolrStream cloudStream, Bucket[] buckets, Metric[] metrics)
+      throws IOException {
+    if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROP, "false"))
+        || buckets.length == 0
+        || metrics == null) {
+      return null;
+    }
+    if (!EXPORT.equals(cloudStream.params.get(CommonParams.QT))
+        || cloudStream.params.get(StreamParams.EXPR) != null
+        || cloudStream.fieldMappings != null
+        || !sortsByBuckets(cloudStream.getStreamSort(), buckets)) {
+      return null;
+    }
+
+    // partial metrics by identifier, so that e.g. sum(a) and avg(a) share sum(a)
+    Map<String, Metric> partials = new LinkedHashMap<>();
+    Metric[] mergeMetrics = new Metric[metrics.length];
+    for (int i = 0; i < metrics.length; i++) {
+      Metric metric = metrics[i];
+      Class<?> clazz = metric.getClass();
+      Kind kind;
+      Metric partial;
+      if (clazz == SumMetric.class) {
+        kind = Kind.SUM;
+        partial = metric.newInstance();
+      } else if (clazz == CountMetric.class) {
+        kind = Kind.COUNT;
+        partial = metric.newInstance();
+      } else if (clazz == MinMetric.class) {
+        kind = Kind.MIN;
+        partial = metric.newInstance();
+      } else if (clazz == MaxMetric.class) {
+        kind = Kind.MAX;
+        partial = metric.newInstance();
+      } else if (clazz == MeanMetric.class) {
+        kind = Kind.AVG;
+        // like MeanMetric, divide by the number of tuples, not by the number of values
+        partial = new SumMetric(metric.getColumns()[0]);
+        partials.putIfAbsent(COUNT_ALL, new CountMetric());
+      } else {
+        return null;
+      }
+      partials.putIfAbsent(partial.getIdentifier(), partial);
+      mergeMetrics[i] = new MergedMetric(metric, kind, partial.getIdentifier());
+    }
+
+    StringBuilder over = new StringBuilder();
+    for (Bucket bucket : buckets) {
+      if (over.length() > 0) {
+        over.append(",");
+      }
+      over.append(bucket.toString());
+    }
+    StreamExpression expression =
+        new StreamExpression(ROLLUP)
+            .withParameter(new StreamExpression(INPUT))
+            .withParameter(new StreamExpressionNamedParameter("over", over.toString()));
+    for (Metric partial : partials.values()) {
+      // these metrics are written by their own function names
+      expression.addParameter(partial.toExpression(null));
+    }
+    expression.addParameter(new StreamExpressionNamedParameter("partial", "true"));
+
+    return new RollupPushDown(expression.toString(), mergeMetrics);
+  }
+
+  /**
+   * Whether the stream is sorted by the bucket fields first, in any order. Buckets are then
+   * adjacent on every shard, and the merged shard streams stay sorted by the bucket fields.
+   */
+  private static boolean sortsByBuckets(StreamComparator sort, Bucket[] buckets) {
+    List<String> sortFields = new ArrayList<>();
+    if (sort instanceof FieldComparator fieldComparator) {
+      sortFields.add(fieldComparator.getLeftFieldName());
+    } else if (sort instanceof MultipleFieldComparator multipleComparator) {
+      for (StreamComparator comp : multipleComparator.getComps()) {
+        if (!(comp instanceof FieldComparator fieldComparator)) {
+          return false;
+        }
+        sortFields.add(fieldComparator.getLeftFieldName());
+      }
+    } else {
+      return false;
+    }
+    if (sortFields.size() < buckets.length) {
+      return false;
+    }
+    Set<String> bucketFields = new HashSet<>();
+    for (Bucket bucket : buckets) {
+      bucketFields.add(bucket.toString());
+    }
+    return bucketFields.size() == buckets.length
+        && bucketFields.equals(new HashSet<>(sortFields.subList(0, buckets.length)));
+  }
+
+  /** Merges the partial values of one metric, and reports them under its identifier. */
+  private static final class MergedMetric extends Metric {
+
+    private final Metric original;
+    private final Kind kind;
+    private final String partialColumn;
+    private final Metric merged;
+    private final Metric count;
+
+    MergedMetric(Metric original, Kind kind, String partialColumn) {
+      this.original = original;
+      this.kind = kind;
+      this.partialColumn = partialColumn;
+      this.outputLong = original.outputLong;
+      setFunctionName(original.getFunctionName());
+      setIdentifier(original.getIdentifier());
+      this.merged =
+          switch (kind) {
+            case MIN -> new MinMetric(partialColumn);
+            case MAX -> new MaxMetric(partialColumn);
+            default -> new SumMetric(partialColumn);
+          };
+      this.count = kind == Kind.AVG ? new SumMetric(COUNT_ALL) : null;
+    }
+
+    @Override
+    public void update(Tuple tuple) {
+      merged.update(tuple);
+      if (count != null) {
+        count.update(tuple);
+      }
+    }
+
+    @Override
+    public Number getValue() {
+      switch (kind) {
+        case COUNT:
+          return merged.getValue().longValue();
+        case AVG:
+          // same as MeanMetric: a long sum is rounded when outputLong is set
+          Number sum = merged.getValue();
+          double mean = sum.doubleValue() / count.getValue().longValue();
+          if (sum instanceof Long && outputLong) {
+            return Math.round(mean);
+          }
+          return mean;
+        default:
+          return merged.getValue();
+      }
+    }
+
+    @Override
+    public Metric newInstance() {
+      return new MergedMetric(original, kind, partialColumn);
+    }
+
+    @Override
+    public String[] getColumns() {
+      return count == null
+          ? new String[] {partialColumn}
+          : new String[] {partialColumn, COUNT_ALL};
+    }
+
+    @Override
+    public StreamExpressionParameter toExpression(StreamFactory factory) throws IOException {
+      return original.toExpression(factory);
+    }
+  }
+}
@@ -44,9 +44,18 @@ public class RollupStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
+  // a missing bucket value of a partial rollup, which is left out of the tuple rather than
+  // reported as NULL, so that merging the shard streams sorts it like a missing value
+  private static final Object MISSING = new Object();
+
   private PushBackStream tupleStream;
   private Bucket[] buckets;
   private Metric[] metrics;
+  // emit partial aggregates for a downstream merge, see RollupPushDown
+  private boolean partial;
+
+  // the metrics, or the ones merging the partials of a pushed down rollup
+  private transient Metric[] readMetrics;
 
   private HashKey currentKey = new HashKey("-");
   private Metric[] currentMetrics;
@@ -56,6 +65,11 @@ public class RollupStream extends TupleStream implements Expressible {
     init(tupleStream, buckets, metrics);
   }
 
+  RollupStream(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics, boolean partial) {
+    init(tupleStream, buckets, metrics);
+    this.partial = partial;
+  }
+
   public RollupStream(StreamExpression expression, StreamFactory factory) throws IOException {
     // grab all parameters out
     List<StreamExpression> streamExpressions =
@@ -64,10 +78,15 @@ public class RollupStream extends TupleStream implements Expressible {
     List<StreamExpression> metricExpressions =
         factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, Metric.class);
     StreamExpressionNamedParameter overExpression = factory.getNamedOperand(expression, "over");
+    StreamExpressionNamedParameter partialExpression =
+        factory.getNamedOperand(expression, "partial");
 
     // validate expression contains only what we want.
     if (expression.getParameters().size()
-        != streamExpressions.size() + metricExpressions.size() + 1) {
+        != streamExpressions.size()
+            + metricExpressions.size()
+            + 1
+            + (partialExpression == null ? 0 : 1)) {
       throw new IOException(
           String.format(Locale.ROOT, "Invalid expression %s - unknown operands found", expression));
     }
@@ -112,6 +131,11 @@ public class RollupStream extends TupleStream implements Expressible {
     }
 
     init(factory.constructStream(streamExpressions.get(0)), buckets, metrics);
+    if (partialExpression != null) {
+      this.partial =
+          Boolean.parseBoolean(
+              ((StreamExpressionValue) partialExpression.getParameter()).getValue());
+    }
   }
 
   private List<FieldEqualitor> flattenEqualitor(StreamEqualitor equalitor) {
@@ -166,6 +190,10 @@ public class RollupStream extends TupleStream implements Expressible {
       expression.addParameter(metric.toExpression(factory));
     }
 
+    if (partial) {
+      expression.addParameter(new StreamExpressionNamedParameter("partial", "true"));
+    }
+
     return expression;
   }
 
@@ -201,6 +229,13 @@ public class RollupStream extends TupleStream implements Expressible {
 
   @Override
   public void open() throws IOException {
+    CloudSolrStream cloudStream = RollupPushDown.getCloudStream(tupleStream.children().get(0));
+    RollupPushDown pushDown = null;
+    if (cloudStream != null) {
+      pushDown = partial ? null : RollupPushDown.plan(cloudStream, buckets, metrics);
+      cloudStream.setShardExpression(pushDown == null ? null : pushDown.getShardExpression());
+    }
+    readMetrics = pushDown == null ? metrics : pushDown.getMergeMetrics();
     tupleStream.open();
   }
 
@@ -229,9 +264,7 @@ public class RollupStream extends TupleStream implements Expressible {
             t.put(metric.getIdentifier(), metric.getValue());
           }
 
-          for (int i = 0; i < buckets.length; i++) {
-            t.put(buckets[i].toString(), currentKey.getParts()[i]);
-          }
+          putBuckets(t);
           tupleStream.pushBack(tuple);
           finished = true;
           return t;
@@ -242,7 +275,10 @@ public class RollupStream extends TupleStream implements Expressible {
 
       Object[] bucketValues = new Object[buckets.length];
       for (int i = 0; i < buckets.length; i++) {
-        bucketValues[i] = buckets[i].getBucketValue(tuple);
+        bucketValues[i] =
+            partial && tuple.get(buckets[i].toString()) == null
+                ? MISSING
+                : buckets[i].getBucketValue(tuple);
       }
 
       HashKey hashKey = new HashKey(bucketValues);
@@ -259,16 +295,14 @@ public class RollupStream extends TupleStream implements Expressible {
             t.put(metric.getIdentifier(), metric.getValue());
           }
 
-          for (int i = 0; i < buckets.length; i++) {
-            t.put(buckets[i].toString(), currentKey.getParts()[i]);
-          }
+          putBuckets(t);
         }
 
         currentKey = hashKey;
-        if (metrics != null) {
-          currentMetrics = new Metric[metrics.length];
-          for (int i = 0; i < metrics.length; i++) {
-            Metric bucketMetric = metrics[i].newInstance();
+        if (readMetrics != null) {
+          currentMetrics = new Metric[readMetrics.length];
+          for (int i = 0; i < readMetrics.length; i++) {
+            Metric bucketMetric = readMetrics[i].newInstance();
             bucketMetric.update(tuple);
             currentMetrics[i] = bucketMetric;
           }
@@ -281,6 +315,15 @@ public class RollupStream extends TupleStream implements Expressible {
     }
   }
 
+  private void putBuckets(Tuple t) {
+    Object[] parts = currentKey.getParts();
+    for (int i = 0; i < buckets.length; i++) {
+      if (parts[i] != MISSING) {
+        t.put(buckets[i].toString(), parts[i]);
+      }
+    }
+  }
+
   @Override
   public int getCost() {
     return 0;
@@ -114,6 +114,11 @@ public class SearchFacadeStream extends TupleStream implements Expressible {
     return innerStream.toExplanation(factory);
   }
 
+  /** The {@link CloudSolrStream} or {@link SearchStream} this stands for. */
+  TupleStream getInnerStream() {
+    return innerStream;
+  }
+
   @Override
   public void setStreamContext(StreamContext context) {
     this.innerStream.setStreamContext(context);
@@ -18,6 +18,7 @@ package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -28,6 +29,7 @@ import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.eval.EvaluatorException;
 import org.apache.solr.client.solrj.io.eval.StreamEvaluator;
+import org.apache.solr.client.solrj.io.eval.VectorizedEvaluator;
 import org.apache.solr.client.solrj.io.ops.StreamOperation;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
@@ -44,12 +46,17 @@ import org.apache.solr.common.util.GlobPatternUtil;
  * Selects fields from the incoming stream and applies optional field renaming. Does not reorder the
  * outgoing stream.
  *
+ * <p>When all the evaluators can be compiled by {@link VectorizedEvaluator}, and that is enabled,
+ * tuples are read and evaluated in batches of {@link #BATCH_SIZE}.
+ *
  * @since 6.0.0
  */
 public class SelectStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
+  static final int BATCH_SIZE = 1024;
+
   private TupleStream stream;
   private StreamContext streamContext;
   private Map<String, String> selectedFields;
@@ -57,6 +64,14 @@ public class SelectStream extends TupleStream implements Expressible {
   private Map<StreamEvaluator, String> selectedEvaluators;
   private List<StreamOperation> operations;
 
+  // the compiled selectedEvaluators, in the same order, or null to evaluate one tuple at a time
+  private transient VectorizedEvaluator[] vectorized;
+  private transient Tuple[] batchToReturn;
+  private transient Tuple[] batchForEvaluators;
+  private transient Object[] batchResults;
+  private transient int batchIndex;
+  private transient int batchCount;
+
   public SelectStream(TupleStream stream, List<String> selectedFields) throws IOException {
     this.stream = stream;
     this.selectedFields = new HashMap<>();
@@ -295,9 +310,29 @@ public class SelectStream extends TupleStream implements Expressible {
 
   @Override
   public void open() throws IOException {
+    vectorized = compileEvaluators();
+    batchIndex = batchCount = 0;
     stream.open();
   }
 
+  private VectorizedEvaluator[] compileEvaluators() {
+    if (selectedEvaluators.isEmpty() || !VectorizedEvaluator.isEnabled()) {
+      return null;
+    }
+    VectorizedEvaluator[] compiled = new VectorizedEvaluator[selectedEvaluators.size()];
+    int i = 0;
+    for (StreamEvaluator evaluator : selectedEvaluators.keySet()) {
+      compiled[i] = VectorizedEvaluator.compile(evaluator);
+      if (compiled[i++] == null) {
+        return null;
+      }
+    }
+    batchToReturn = new Tuple[BATCH_SIZE + 1];
+    batchForEvaluators = new Tuple[BATCH_SIZE];
+    batchResults = new Object[BATCH_SIZE];
+    return compiled;
+  }
+
   @Override
   public void close() throws IOException {
     stream.close();
@@ -305,6 +340,13 @@ public class SelectStream extends TupleStream implements Expressible {
 
   @Override
   public Tuple read() throws IOException {
+    if (vectorized != null) {
+      if (batchIndex == batchCount) {
+        readBatch();
+      }
+      return batchToReturn[batchIndex++];
+    }
+
     Tuple original = stream.read();
 
     if (original.EOF) {
@@ -323,6 +365,22 @@ public class SelectStream extends TupleStream implements Expressible {
 
     streamContext.getTupleContext().clear();
 
+    select(original, workingToReturn, workingForEvaluators);
+
+    // Apply all evaluators
+    for (Map.Entry<StreamEvaluator, String> selectedEvaluator : selectedEvaluators.entrySet()) {
+      Object o = selectedEvaluator.getKey().evaluate(workingForEvaluators);
+      if (o != null) {
+        workingForEvaluators.put(selectedEvaluator.getValue(), o);
+        workingToReturn.put(selectedEvaluator.getValue(), o);
+      }
+    }
+
+    return workingToReturn;
+  }
+
+  // copies the selected fields, and applies the operations
+  private void select(Tuple original, Tuple workingToReturn, Tuple workingForEvaluators) {
     for (String fieldName : original.getFields().keySet()) {
       workingForEvaluators.put(fieldName, original.get(fieldName));
       if (selectedFields.containsKey(fieldName)) {
@@ -342,17 +400,43 @@ public class SelectStream extends TupleStream implements Expressible {
       operation.operate(workingToReturn);
       operation.operate(workingForEvaluators);
     }
+  }
 
-    // Apply all evaluators
-    for (Map.Entry<StreamEvaluator, String> selectedEvaluator : selectedEvaluators.entrySet()) {
-      Object o = selectedEvaluator.getKey().evaluate(workingForEvaluators);
-      if (o != null) {
-        workingForEvaluators.put(selectedEvaluator.getValue(), o);
-        workingToReturn.put(selectedEvaluator.getValue(), o);
+  // Reads the next batch of tuples and evaluates each compiled evaluator over all of them, in
+  // order, so that an evaluator still sees the values of the evaluators before it.
+  private void readBatch() throws IOException {
+    int count = 0;
+    Tuple eof = null;
+    while (count < BATCH_SIZE) {
+      Tuple original = stream.read();
+      if (original.EOF) {
+        eof = original;
+        break;
       }
+      batchToReturn[count] = new Tuple();
+      batchForEvaluators[count] = new Tuple();
+      select(original, batchToReturn[count], batchForEvaluators[count]);
+      count++;
     }
 
-    return workingToReturn;
+    int i = 0;
+    for (String name : selectedEvaluators.values()) {
+      vectorized[i++].evaluate(batchForEvaluators, count, batchResults, streamContext);
+      for (int row = 0; row < count; row++) {
+        Object o = batchResults[row];
+        if (o != null) {
+          batchForEvaluators[row].put(name, o);
+          batchToReturn[row].put(name, o);
+        }
+      }
+    }
+    Arrays.fill(batchForEvaluators, 0, count, null);
+
+    if (eof != null) {
+      batchToReturn[count++] = eof;
+    }
+    batchIndex = 0;
+    batchCount = count;
   }
 
   /** Return the stream sort - ie, the order in which records are returned */
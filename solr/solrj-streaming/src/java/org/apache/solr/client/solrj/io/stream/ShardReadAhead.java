@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.util.IOUtils;
+
+/**
+ * Opens a shard stream and reads it ahead into a bounded buffer, in a task of its own. The merge in
+ * {@link CloudSolrStream} then takes the tuples from the buffer, so that all the shards keep
+ * streaming while the merge waits for a slow one, up to the depth of their buffers.
+ *
+ * <p>The stream is only read and closed by the task, and the buffer is only taken from by the
+ * merge. {@link #cancel()} interrupts the task, which then closes the stream and stops.
+ */
+final class ShardReadAhead implements Runnable {
+
+  // put in the buffer after the task failed, see error
+  private static final Tuple FAILED = new Tuple();
+  // how often the task checks for cancel() while the buffer is full
+  private static final long OFFER_TIMEOUT_MS = 100;
+
+  private final SolrStream stream;
+  private final BlockingQueue<Tuple> buffer;
+  private final ShardReadStats stats;
+
+  private volatile Throwable error;
+  private volatile boolean cancelled;
+  private Future<?> future;
+
+  ShardReadAhead(SolrStream stream, int depth, ShardReadStats stats) {
+    this.stream = stream;
+    this.buffer = new ArrayBlockingQueue<>(depth);
+    this.stats = stats;
+  }
+
+  SolrStream getStream() {
+    return stream;
+  }
+
+  ShardReadStats getStats() {
+    return stats;
+  }
+
+  void start(ExecutorService executor) {
+    future = executor.submit(this);
+  }
+
+  @Override
+  public void run() {
+    long start = System.nanoTime();
+    try {
+      stream.open();
+      Tuple tuple = stream.read();
+      stats.recordFirstTuple(System.nanoTime() - start);
+      while (offer(tuple) && !tuple.EOF) {
+        tuple = stream.read();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable t) {
+      // after cancel() the read is interrupted, that's not an error
+      if (!cancelled) {
+        error = t;
+        try {
+          offer(FAILED);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    } finally {
+      IOUtils.closeQuietly(stream);
+    }
+  }
+
+  // waits for room in the buffer, returns false if cancelled in the meantime
+  private boolean offer(Tuple tuple) throws InterruptedException {
+    while (!cancelled) {
+      if (buffer.offer(tuple, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Takes the next tuple of the stream, waiting for it if it wasn't read yet. */
+  Tuple take() throws IOException {
+    Tuple tuple = buffer.poll();
+    if (tuple == null) {
+      long start = System.nanoTime();
+      try {
+        tuple = buffer.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while reading from " + stream.getBaseUrl(), e);
+      }
+      stats.recordWait(System.nanoTime() - start);
+    }
+    if (tuple == FAILED) {
+      // leave it, so that a later call fails again
+      buffer.offer(FAILED);
+      if (error instanceof IOException e) {
+        throw e;
+      }
+      throw new IOException(error);
+    }
+    if (!tuple.EOF) {
+      stats.recordTuple();
+    }
+    return tuple;
+  }
+
+  /**
+   * Stops reading ahead. The task closes the stream when it stops, wait for the termination of the
+   * executor to know that it did.
+   */
+  void cancel() {
+    cancelled = true;
+    if (future != null) {
+      future.cancel(true);
+    }
+  }
+}
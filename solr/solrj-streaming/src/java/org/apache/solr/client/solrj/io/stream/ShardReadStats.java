@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.common.MapWriter;
+
+/**
+ * Latency of the shard streams that a {@link CloudSolrStream} reads ahead. Each shard stream has
+ * its own instance, see {@link CloudSolrStream#getShardStats()}, and everything is also added to
+ * the totals of the JVM, see {@link #total()}.
+ *
+ * <p>The time the merge waited for a shard is the time it was blocked on that shard's empty
+ * buffer: a shard that is slower than the others shows up as the one with the most waiting.
+ *
+ * @lucene.experimental
+ */
+public final class ShardReadStats implements MapWriter {
+
+  private static final ShardReadStats TOTAL = new ShardReadStats(null);
+
+  private final ShardReadStats parent;
+  private final LongAdder streams = new LongAdder();
+  private final LongAdder tuples = new LongAdder();
+  private final LongAdder firstTupleNanos = new LongAdder();
+  private final LongAdder waits = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  public ShardReadStats() {
+    this(TOTAL);
+  }
+
+  private ShardReadStats(ShardReadStats parent) {
+    this.parent = parent;
+  }
+
+  /** The totals of all the shard streams in this JVM. */
+  public static ShardReadStats total() {
+    return TOTAL;
+  }
+
+  /** Records a shard stream that returned its first tuple the given time after it was opened. */
+  void recordFirstTuple(long nanos) {
+    streams.increment();
+    firstTupleNanos.add(nanos);
+    if (parent != null) {
+      parent.recordFirstTuple(nanos);
+    }
+  }
+
+  void recordTuple() {
+    tuples.increment();
+    if (parent != null) {
+      parent.recordTuple();
+    }
+  }
+
+  /** Records that the merge was blocked for the given time, waiting for the shard stream. */
+  void recordWait(long nanos) {
+    waits.increment();
+    waitNanos.add(nanos);
+    maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    if (parent != null) {
+      parent.recordWait(nanos);
+    }
+  }
+
+  /** The number of shard streams that returned a first tuple. */
+  public long getStreams() {
+    return streams.sum();
+  }
+
+  public long getTuples() {
+    return tuples.sum();
+  }
+
+  /** The time from opening the shard streams to their first tuple, summed over the streams. */
+  public long getFirstTupleNanos() {
+    return firstTupleNanos.sum();
+  }
+
+  /** The number of times the merge found the buffer of the shard stream empty. */
+  public long getWaits() {
+    return waits.sum();
+  }
+
+  public long getWaitNanos() {
+    return waitNanos.sum();
+  }
+
+  public long getMaxWaitNanos() {
+    return maxWaitNanos.get();
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    ew.put("streams", getStreams());
+    ew.put("tuples", getTuples());
+    ew.put("firstTupleMs", TimeUnit.NANOSECONDS.toMillis(getFirstTupleNanos()));
+    ew.put("waits", getWaits());
+    ew.put("waitMs", TimeUnit.NANOSECONDS.toMillis(getWaitNanos()));
+    ew.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(getMaxWaitNanos()));
+  }
+}
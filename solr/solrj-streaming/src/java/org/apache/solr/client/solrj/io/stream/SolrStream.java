@@ -31,6 +31,7 @@ import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.InputStreamResponseParser;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleSchema;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
@@ -69,6 +70,7 @@ public class SolrStream extends TupleStream {
   private String core;
 
   private transient SolrClientCache clientCache;
+  private transient TupleSchema tupleSchema;
   private transient boolean doCloseCache;
 
   /**
@@ -98,12 +100,18 @@ public class SolrStream extends TupleStream {
     return baseUrl;
   }
 
+  /** The core to send the request to, or null if the base URL already points to one. */
+  String getCore() {
+    return core;
+  }
+
   @Override
   public void setStreamContext(StreamContext context) {
     this.distrib = !context.isLocal();
     this.numWorkers = context.numWorkers;
     this.workerID = context.workerID;
     this.clientCache = context.getSolrClientCache();
+    this.tupleSchema = context.getTupleSchema();
   }
 
   public void setCredentials(String user, String password) {
@@ -199,6 +207,10 @@ public class SolrStream extends TupleStream {
   @Override
   public Tuple read() throws IOException {
     try {
+      if (fieldMappings == null
+          && tupleStreamParser instanceof ColumnarTupleStreamParser columnarParser) {
+        return readTuple(columnarParser);
+      }
       Map<String, Object> fields = tupleStreamParser.next();
 
       if (fields == null) {
@@ -237,6 +249,25 @@ public class SolrStream extends TupleStream {
     }
   }
 
+  /** Reads a tuple keeping its numeric values unboxed, see {@link TupleSchema}. */
+  private Tuple readTuple(ColumnarTupleStreamParser parser) throws IOException {
+    Tuple tuple = parser.nextTuple();
+    if (tuple == null) {
+      return Tuple.EOF();
+    }
+    String msg = tuple.getException();
+    if (msg != null) {
+      throw new HandledException(msg);
+    }
+    if (trace) {
+      tuple.put("_CORE_", this.baseUrl);
+      if (slice != null) {
+        tuple.put("_SLICE_", slice);
+      }
+    }
+    return tuple;
+  }
+
   public void setDistrib(boolean distrib) {
     this.distrib = distrib;
   }
@@ -335,6 +366,9 @@ public class SolrStream extends TupleStream {
     this.closeableHttpResponse = httpResponse;
     if (CommonParams.JAVABIN.equals(wt)) {
       return new JavabinTupleStreamParser(stream, true);
+    } else if (ColumnarTupleWriter.WT.equals(wt)) {
+      return new ColumnarTupleStreamParser(
+          stream, tupleSchema != null ? tupleSchema : new TupleSchema());
     } else {
       InputStreamReader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
       return new JSONTupleStream(reader);
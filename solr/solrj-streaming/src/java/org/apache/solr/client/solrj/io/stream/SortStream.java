@@ -18,7 +18,6 @@ package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.Tuple;
@@ -36,6 +35,9 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 /**
  * The SortStream emits a stream of Tuples sorted by a Comparator.
  *
+ * <p>The tuples are sorted in memory until they go over the memory budget of {@link
+ * SpillSettings}, then with an external merge sort using temporary files.
+ *
  * @since 6.1.0
  */
 public class SortStream extends TupleStream implements Expressible {
@@ -44,7 +46,10 @@ public class SortStream extends TupleStream implements Expressible {
 
   private TupleStream stream;
   private StreamComparator comparator;
-  private Worker worker;
+  private transient SpillSettings spillSettings;
+  private transient SpillStats spillStats;
+  private transient TupleSorter sorter;
+  private transient Tuple eofTuple;
 
   public SortStream(TupleStream stream, StreamComparator comp) throws IOException {
     init(stream, comp);
@@ -90,39 +95,6 @@ public class SortStream extends TupleStream implements Expressible {
   private void init(TupleStream stream, StreamComparator comp) throws IOException {
     this.stream = stream;
     this.comparator = comp;
-
-    // standard java modified merge sort
-    worker =
-        new Worker() {
-
-          @SuppressWarnings("JdkObsolete")
-          private final LinkedList<Tuple> tuples = new LinkedList<>();
-
-          private Tuple eofTuple;
-
-          @Override
-          public void readStream(TupleStream stream) throws IOException {
-            Tuple tuple = stream.read();
-            while (!tuple.EOF) {
-              tuples.add(tuple);
-              tuple = stream.read();
-            }
-            eofTuple = tuple;
-          }
-
-          @Override
-          public void sort() {
-            tuples.sort(comparator);
-          }
-
-          @Override
-          public Tuple read() {
-            if (tuples.isEmpty()) {
-              return eofTuple;
-            }
-            return tuples.removeFirst();
-          }
-        };
   }
 
   @Override
@@ -174,6 +146,7 @@ public class SortStream extends TupleStream implements Expressible {
   @Override
   public void setStreamContext(StreamContext context) {
     this.stream.setStreamContext(context);
+    this.spillSettings = SpillSettings.get(context);
   }
 
   @Override
@@ -187,19 +160,40 @@ public class SortStream extends TupleStream implements Expressible {
   public void open() throws IOException {
     stream.open();
 
-    worker.readStream(stream);
-    worker.sort();
+    spillStats = new SpillStats();
+    sorter =
+        new TupleSorter(
+            comparator,
+            spillSettings != null ? spillSettings : SpillSettings.getDefault(),
+            spillStats);
+    Tuple tuple = stream.read();
+    while (!tuple.EOF) {
+      sorter.add(tuple);
+      tuple = stream.read();
+    }
+    eofTuple = tuple;
+    sorter.sort();
   }
 
   @Override
   public void close() throws IOException {
     stream.close();
+    if (sorter != null) {
+      sorter.close();
+      sorter = null;
+    }
   }
 
   @Override
   public Tuple read() throws IOException {
     // return next from sorted order
-    return worker.read();
+    Tuple tuple = sorter.next();
+    return tuple != null ? tuple : eofTuple;
+  }
+
+  /** What this stream spilled to disk since it was last opened, or null if it never was. */
+  public SpillStats getSpillStats() {
+    return spillStats;
   }
 
   /** Return the stream sort - ie, the order in which records are returned */
@@ -212,12 +206,4 @@ public class SortStream extends TupleStream implements Expressible {
   public int getCost() {
     return 0;
   }
-
-  private interface Worker {
-    public void readStream(TupleStream stream) throws IOException;
-
-    public void sort();
-
-    public Tuple read();
-  }
 }
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.nio.file.Path;
+
+/**
+ * How much memory the streams that buffer their input ({@link SortStream}, {@link HashJoinStream},
+ * {@link OuterHashJoinStream} and {@link HashRollupStream}) may use before spilling to temporary
+ * files, and where to put those files.
+ *
+ * <p>The defaults come from the {@value #MAX_MEMORY_PROP} (in MB, 0 or less to never spill) and
+ * {@value #DIR_PROP} system properties. They can be overridden for the streams sharing a {@link
+ * StreamContext} by putting a {@code SpillSettings} under {@link #CONTEXT_KEY}.
+ *
+ * <p>The memory used by buffered tuples is estimated from their fields and values, it is not exact.
+ * Each stream has its own budget, so an expression with several such streams may use a multiple of
+ * it.
+ *
+ * @lucene.experimental
+ */
+public final class SpillSettings {
+
+  public static final String CONTEXT_KEY = "spillSettings";
+  public static final String MAX_MEMORY_PROP = "solr.streaming.spill.maxMemoryMB";
+  public static final String DIR_PROP = "solr.streaming.spill.dir";
+  public static final long DEFAULT_MAX_MEMORY_MB = 128;
+
+  private static final SpillSettings DEFAULT =
+      new SpillSettings(
+          Long.getLong(MAX_MEMORY_PROP, DEFAULT_MAX_MEMORY_MB) * 1024 * 1024,
+          Path.of(System.getProperty(DIR_PROP, System.getProperty("java.io.tmpdir"))));
+
+  private final long maxMemoryBytes;
+  private final Path dir;
+
+  /**
+   * @param maxMemoryBytes the memory budget of each stream, 0 or less to never spill
+   * @param dir the directory of the temporary files, created if needed
+   */
+  public SpillSettings(long maxMemoryBytes, Path dir) {
+    this.maxMemoryBytes = maxMemoryBytes;
+    this.dir = dir;
+  }
+
+  /** The settings in the context, or the defaults if it has none. */
+  public static SpillSettings get(StreamContext context) {
+    Object settings = context == null ? null : context.get(CONTEXT_KEY);
+    return settings instanceof SpillSettings ? (SpillSettings) settings : DEFAULT;
+  }
+
+  public static SpillSettings getDefault() {
+    return DEFAULT;
+  }
+
+  public long getMaxMemoryBytes() {
+    return maxMemoryBytes;
+  }
+
+  public Path getDir() {
+    return dir;
+  }
+
+  public boolean isEnabled() {
+    return maxMemoryBytes > 0;
+  }
+
+  @Override
+  public String toString() {
+    return "SpillSettings{maxMemoryBytes=" + maxMemoryBytes + ", dir=" + dir + "}";
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.common.MapWriter;
+
+/**
+ * Counts what the streams described in {@link SpillSettings} wrote to temporary files. Each of
+ * those streams has its own instance, and everything is also added to the totals of the JVM, see
+ * {@link #total()}.
+ *
+ * @lucene.experimental
+ */
+public final class SpillStats implements MapWriter {
+
+  private static final SpillStats TOTAL = new SpillStats(null);
+
+  private final SpillStats parent;
+  private final LongAdder spills = new LongAdder();
+  private final LongAdder files = new LongAdder();
+  private final LongAdder tuples = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+
+  public SpillStats() {
+    this(TOTAL);
+  }
+
+  private SpillStats(SpillStats parent) {
+    this.parent = parent;
+  }
+
+  /** The totals of all the streams in this JVM. */
+  public static SpillStats total() {
+    return TOTAL;
+  }
+
+  /** Records that a stream went over its memory budget and started to spill. */
+  void recordSpill() {
+    spills.increment();
+    if (parent != null) {
+      parent.recordSpill();
+    }
+  }
+
+  /** Records a temporary file that was completely written. */
+  void recordFile(long numTuples, long numBytes) {
+    files.increment();
+    tuples.add(numTuples);
+    bytes.add(numBytes);
+    if (parent != null) {
+      parent.recordFile(numTuples, numBytes);
+    }
+  }
+
+  /** The number of times a stream went over its memory budget. */
+  public long getSpills() {
+    return spills.sum();
+  }
+
+  public long getFiles() {
+    return files.sum();
+  }
+
+  /** The number of tuples written, a tuple may be written more than once. */
+  public long getTuples() {
+    return tuples.sum();
+  }
+
+  public long getBytes() {
+    return bytes.sum();
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    ew.put("spills", getSpills());
+    ew.put("files", getFiles());
+    ew.put("tuples", getTuples());
+    ew.put("bytes", getBytes());
+  }
+}
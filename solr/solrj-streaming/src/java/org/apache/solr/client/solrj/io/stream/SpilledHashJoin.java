@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import static org.apache.solr.client.solrj.io.stream.TupleSpillFile.NUM_PARTITIONS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.client.solrj.io.Tuple;
+
+/**
+ * A {@link HashJoinStream} whose hashed stream went over the memory budget, joined as a grace hash
+ * join: the tuples of both streams are partitioned by hash into temporary files, and then the
+ * partitions are joined one at a time, so that only one partition of the hashed stream needs to fit
+ * in memory. The tuples of the full stream are numbered as they are read, so that the joined tuples
+ * of all the partitions can be merged back into the order of the full stream.
+ */
+final class SpilledHashJoin implements Closeable {
+
+  private final HashJoinStream join;
+  private final SpillSettings settings;
+  private final SpillStats stats;
+  private final TupleSpillFile[] hashed = new TupleSpillFile[NUM_PARTITIONS];
+  private final TupleSpillFile[] full = new TupleSpillFile[NUM_PARTITIONS];
+  private final List<TupleSpillFile> joined = new ArrayList<>();
+  private TupleSpillFile.Merger merger;
+  private Tuple eofTuple;
+
+  SpilledHashJoin(HashJoinStream join, SpillSettings settings, SpillStats stats)
+      throws IOException {
+    this.join = join;
+    this.settings = settings;
+    this.stats = stats;
+    stats.recordSpill();
+    for (int i = 0; i < NUM_PARTITIONS; i++) {
+      hashed[i] = new TupleSpillFile(settings, false, stats);
+    }
+  }
+
+  void addHashed(String hash, Tuple tuple) throws IOException {
+    hashed[TupleSpillFile.partition(hash.hashCode(), 0)].write(tuple);
+  }
+
+  /**
+   * Reads the whole full stream and joins it with the hashed tuples added so far.
+   *
+   * @param keepUnmatched whether to keep full tuples that have no match, as an outer join does
+   */
+  void join(TupleStream fullStream, boolean keepUnmatched) throws IOException {
+    for (int i = 0; i < NUM_PARTITIONS; i++) {
+      full[i] = new TupleSpillFile(settings, true, stats);
+    }
+    long seq = 0;
+    Tuple tuple = fullStream.read();
+    while (!tuple.EOF) {
+      String hash = join.computeHash(tuple, join.leftHashOn);
+      if (null != hash) {
+        full[TupleSpillFile.partition(hash.hashCode(), 0)].write(seq, tuple);
+      } else if (keepUnmatched) {
+        full[0].write(seq, tuple);
+      }
+      seq++;
+      tuple = fullStream.read();
+    }
+    eofTuple = tuple;
+
+    for (int i = 0; i < NUM_PARTITIONS; i++) {
+      if (full[i].size() > 0) {
+        joinPartition(hashed[i], full[i], keepUnmatched);
+      }
+      hashed[i].close();
+      full[i].close();
+    }
+    merger = new TupleSpillFile.Merger(joined, null);
+  }
+
+  private void joinPartition(
+      TupleSpillFile hashedPartition, TupleSpillFile fullPartition, boolean keepUnmatched)
+      throws IOException {
+    Map<String, List<Tuple>> hashedTuples = new HashMap<>();
+    TupleSpillFile.Reader reader = hashedPartition.read();
+    while (reader.next()) {
+      Tuple tuple = reader.tuple();
+      hashedTuples
+          .computeIfAbsent(join.computeHash(tuple, join.rightHashOn), k -> new ArrayList<>())
+          .add(tuple);
+    }
+
+    // the tuples of a partition are in the order of the full stream, and so are the joined tuples
+    TupleSpillFile out = new TupleSpillFile(settings, true, stats);
+    joined.add(out);
+    reader = fullPartition.read();
+    while (reader.next()) {
+      Tuple fullTuple = reader.tuple();
+      String fullHash = join.computeHash(fullTuple, join.leftHashOn);
+      List<Tuple> matches = null == fullHash ? null : hashedTuples.get(fullHash);
+      if (null == matches) {
+        if (keepUnmatched) {
+          out.write(reader.key(), fullTuple);
+        }
+        continue;
+      }
+      for (Tuple match : matches) {
+        Tuple returnTuple = fullTuple.clone();
+        returnTuple.merge(match);
+        out.write(reader.key(), returnTuple);
+      }
+    }
+  }
+
+  /** Returns the next joined tuple, in the order of the full stream, and then the EOF tuple. */
+  Tuple read() throws IOException {
+    Tuple tuple = merger.next();
+    return tuple != null ? tuple : eofTuple;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (int i = 0; i < NUM_PARTITIONS; i++) {
+      if (hashed[i] != null) {
+        hashed[i].close();
+      }
+      if (full[i] != null) {
+        full[i].close();
+      }
+    }
+    for (TupleSpillFile file : joined) {
+      file.close();
+    }
+  }
+}
@@ -21,6 +21,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import org.apache.solr.client.solrj.io.ModelCache;
 import org.apache.solr.client.solrj.io.SolrClientCache;
+import org.apache.solr.client.solrj.io.TupleSchema;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.routing.RequestReplicaListTransformerGenerator;
 import org.apache.solr.common.params.SolrParams;
@@ -46,6 +47,7 @@ public class StreamContext {
   private boolean local;
   private SolrParams requestParams;
   private RequestReplicaListTransformerGenerator requestReplicaListTransformerGenerator;
+  private TupleSchema tupleSchema;
 
   public ConcurrentMap<String, ConcurrentMap<String, Object>> getObjectCache() {
     return this.objectCache;
@@ -128,4 +130,15 @@ public class StreamContext {
   public RequestReplicaListTransformerGenerator getRequestReplicaListTransformerGenerator() {
     return requestReplicaListTransformerGenerator;
   }
+
+  /**
+   * The schema shared by the tuples that streams using this context read with unboxed values, so
+   * that tuples from different sources, e.g. shards, can be compared by slot.
+   */
+  public synchronized TupleSchema getTupleSchema() {
+    if (tupleSchema == null) {
+      tupleSchema = new TupleSchema();
+    }
+    return tupleSchema;
+  }
 }
@@ -21,12 +21,60 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.stream.Collectors;
 import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.SolrNamedThreadFactory;
 
+/**
+ * Creates the threads of the streaming subsystem: shard requests, shard read-ahead, and the threads
+ * of the {@code parallel}, {@code executor} and {@code daemon} streams and of the graph traversals.
+ *
+ * <p>With the {@value #VIRTUAL_THREADS_PROP} system property set to true, and on Java 21 or later,
+ * these are virtual threads. Streams mostly wait for other nodes, and a virtual thread blocked in
+ * I/O doesn't tie up a platform thread, so the number of concurrent streams and shards is no longer
+ * limited by platform threads. Pools keep their size: a pool of 4 threads still runs at most 4
+ * tasks at a time.
+ */
 public class StreamExecutorHelper {
 
+  public static final String VIRTUAL_THREADS_PROP = "solr.streaming.virtualThreads";
+
+  private static final boolean VIRTUAL_THREADS_SUPPORTED = newVirtualThreadFactory("probe") != null;
+
+  /** Whether new threads of the streaming subsystem are virtual threads. */
+  public static boolean isUsingVirtualThreads() {
+    return VIRTUAL_THREADS_SUPPORTED && Boolean.getBoolean(VIRTUAL_THREADS_PROP);
+  }
+
+  /**
+   * A thread factory for the streaming subsystem, naming threads with the given prefix. Use this
+   * with the MDC aware pools of {@link ExecutorUtil}.
+   */
+  public static ThreadFactory newThreadFactory(String threadsName) {
+    if (isUsingVirtualThreads()) {
+      ThreadFactory factory = newVirtualThreadFactory(threadsName + "-virtual-");
+      if (factory != null) {
+        return factory;
+      }
+    }
+    return new SolrNamedThreadFactory(threadsName);
+  }
+
+  // Thread.ofVirtual().name(prefix, 0).factory(), by reflection as SolrJ still runs on Java 17
+  private static ThreadFactory newVirtualThreadFactory(String prefix) {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder =
+          builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Java 17, or virtual threads are a preview feature that isn't enabled
+      return null;
+    }
+  }
+
   /**
    * Takes a list of Callables and executes them returning the results as a list. The method waits
    * for the return of every task even if one of them throws an exception. If any exception happens
@@ -35,14 +83,14 @@ public class StreamExecutorHelper {
    *
    * @param <T> the response type
    * @param tasks the list of callables to be executed
-   * @param threadsName name to be used by the SolrNamedThreadFactory
+   * @param threadsName name prefix of the threads, see {@link #newThreadFactory(String)}
    * @return results collection
    * @throws IOException in case any exceptions happened
    */
   public static <T> Collection<T> submitAllAndAwaitAggregatingExceptions(
       List<? extends Callable<T>> tasks, String threadsName) throws IOException {
     ExecutorService service =
-        ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory(threadsName));
+        ExecutorUtil.newMDCAwareCachedThreadPool(newThreadFactory(threadsName));
     try {
       return ExecutorUtil.submitAllAndAwaitAggregatingExceptions(service, tasks).stream()
           .collect(Collectors.toList());
@@ -75,6 +75,7 @@ public class TopicStream extends CloudSolrStream implements Expressible {
   private Map<String, Long> checkpoints = new HashMap<>();
   private String checkpointCollection;
   private long initialCheckpoint = -1;
+  private boolean changes;
 
   private transient SolrClientCache clientCache;
   private transient boolean doCloseCache;
@@ -182,7 +183,8 @@ public class TopicStream extends CloudSolrStream implements Expressible {
     for (StreamExpressionNamedParameter namedParam : namedParams) {
       if (!namedParam.getName().equals("zkHost")
           && !namedParam.getName().equals(ID)
-          && !namedParam.getName().equals("checkpointEvery")) {
+          && !namedParam.getName().equals("checkpointEvery")
+          && !namedParam.getName().equals("changes")) {
         params.set(namedParam.getName(), namedParam.getParameter().toString().trim());
       }
     }
@@ -215,6 +217,21 @@ public class TopicStream extends CloudSolrStream implements Expressible {
         initialCheckpoint,
         checkpointEvery,
         params);
+
+    StreamExpressionNamedParameter changesParam = factory.getNamedOperand(expression, "changes");
+    if (changesParam != null) {
+      setChanges(
+          Boolean.parseBoolean(((StreamExpressionValue) changesParam.getParameter()).getValue()));
+    }
+  }
+
+  /**
+   * When true, each shard is read through the changes feed of its real-time get handler, which
+   * serves the documents updated after the checkpoint from the update log when it can, instead of
+   * running a version range query on every run.
+   */
+  public void setChanges(boolean changes) {
+    this.changes = changes;
   }
 
   @Override
@@ -248,6 +265,9 @@ public class TopicStream extends CloudSolrStream implements Expressible {
     }
     expression.addParameter(
         new StreamExpressionNamedParameter("checkpointEvery", Long.toString(checkpointEvery)));
+    if (changes) {
+      expression.addParameter(new StreamExpressionNamedParameter("changes", "true"));
+    }
 
     return expression;
   }
@@ -545,15 +565,27 @@ public class TopicStream extends CloudSolrStream implements Expressible {
       Collection<Replica> replicas = slice.getReplicas();
       List<Replica> shuffler = new ArrayList<>();
       for (Replica replica : replicas) {
-        if (replica.getState() == Replica.State.ACTIVE && liveNodes.contains(replica.getNodeName()))
+        if (replica.getState() == Replica.State.ACTIVE
+            && liveNodes.contains(replica.getNodeName())
+            && (!changes || replica.getType() != Replica.Type.PULL)) {
           shuffler.add(replica);
+        }
+      }
+
+      if (changes) {
+        // the real-time get handler returns the changes after the checkpoint in version order
+        localParams.set("qt", "/get");
+        localParams.set("getChanges", Long.toString(checkpoint));
+        localParams.remove(SORT);
       }
 
       Replica rep = shuffler.get(random.nextInt(shuffler.size()));
       String url = rep.getCoreUrl();
       SolrStream solrStream = new SolrStream(url, localParams);
       solrStream.setSlice(slice.getName());
-      solrStream.setCheckpoint(checkpoint);
+      if (!changes) {
+        solrStream.setCheckpoint(checkpoint);
+      }
       solrStream.setTrace(true);
       if (streamContext != null) {
         solrStream.setStreamContext(streamContext);
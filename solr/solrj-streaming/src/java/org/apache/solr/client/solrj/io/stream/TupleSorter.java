@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+
+/**
+ * Sorts tuples in memory while they fit in the memory budget, and with an external merge sort
+ * otherwise: each time the buffered tuples go over the budget, they are sorted and written to a
+ * temporary file (a run), and the runs are merged at the end. The sort is stable.
+ */
+final class TupleSorter implements Closeable {
+
+  /** The maximum number of runs merged at once, more are merged in several passes. */
+  static final int MAX_MERGE_WIDTH = 64;
+
+  private final StreamComparator comparator;
+  private final SpillSettings settings;
+  private final SpillStats stats;
+  private final List<Tuple> tuples = new ArrayList<>();
+  private final List<TupleSpillFile> runs = new ArrayList<>();
+  private long bufferedBytes;
+  private int next;
+  private TupleSpillFile.Merger merger;
+
+  TupleSorter(StreamComparator comparator, SpillSettings settings, SpillStats stats) {
+    this.comparator = comparator;
+    this.settings = settings;
+    this.stats = stats;
+  }
+
+  void add(Tuple tuple) throws IOException {
+    tuples.add(tuple);
+    if (settings.isEnabled()) {
+      bufferedBytes += TupleSpillFile.estimateBytes(tuple);
+      if (bufferedBytes > settings.getMaxMemoryBytes()) {
+        if (runs.isEmpty()) {
+          stats.recordSpill();
+        }
+        writeRun();
+      }
+    }
+  }
+
+  /** Sorts the tuples added, to be called once they all are. */
+  void sort() throws IOException {
+    if (runs.isEmpty()) {
+      tuples.sort(comparator);
+      return;
+    }
+    if (!tuples.isEmpty()) {
+      writeRun();
+    }
+    while (runs.size() > MAX_MERGE_WIDTH) {
+      // merge the oldest runs first, so that equal tuples keep their order
+      List<TupleSpillFile> oldest = runs.subList(0, MAX_MERGE_WIDTH);
+      TupleSpillFile merged = new TupleSpillFile(settings, false, stats);
+      try (TupleSpillFile.Merger m = new TupleSpillFile.Merger(oldest, comparator)) {
+        for (Tuple tuple; (tuple = m.next()) != null; ) {
+          merged.write(tuple);
+        }
+      } catch (IOException | RuntimeException e) {
+        merged.close();
+        throw e;
+      }
+      oldest.clear();
+      runs.add(0, merged);
+    }
+    merger = new TupleSpillFile.Merger(runs, comparator);
+  }
+
+  /** Returns the next tuple in sorted order, or null if there are no more. */
+  Tuple next() throws IOException {
+    if (merger != null) {
+      return merger.next();
+    }
+    if (next == tuples.size()) {
+      return null;
+    }
+    // let the tuples already returned be collected
+    return tuples.set(next++, null);
+  }
+
+  private void writeRun() throws IOException {
+    tuples.sort(comparator);
+    TupleSpillFile run = new TupleSpillFile(settings, false, stats);
+    runs.add(run);
+    for (Tuple tuple : tuples) {
+      run.write(tuple);
+    }
+    tuples.clear();
+    bufferedBytes = 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    tuples.clear();
+    for (TupleSpillFile run : runs) {
+      run.close();
+    }
+    runs.clear();
+    merger = null;
+  }
+}
@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.util.DataInputInputStream;
+import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.FastOutputStream;
+import org.apache.solr.common.util.IOUtils;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.NamedList;
+
+/**
+ * A temporary file of tuples, written once and then read once, for the streams that spill to disk
+ * when they go over their memory budget (see {@link SpillSettings}). The file is deleted when it is
+ * closed.
+ *
+ * <p>Tuples are encoded with javabin, with a single codec per file so that each field name is
+ * written only once. Nested tuples are read back as tuples, and the other values as javabin returns
+ * them, so only values javabin reads back with the same type can be spilled: writing any other
+ * value, e.g. a {@link org.apache.solr.client.solrj.io.eval.Matrix}, fails. A keyed file also
+ * stores a long with each tuple, which {@link Merger} can use to restore an order.
+ */
+final class TupleSpillFile implements Closeable {
+
+  /** The number of partitions when hash partitioning tuples, a power of two. */
+  static final int NUM_PARTITIONS = 32;
+
+  // rough sizes of the objects of a tuple held in memory, see estimateBytes(...)
+  private static final long TUPLE_BYTES = 96;
+  private static final long ENTRY_BYTES = 48;
+  private static final long OBJECT_BYTES = 16;
+
+  private final Path path;
+  private final boolean keyed;
+  private final SpillStats stats;
+  private FastOutputStream out;
+  private SpillCodec codec;
+  private long count;
+  private Reader reader;
+
+  TupleSpillFile(SpillSettings settings, boolean keyed, SpillStats stats) throws IOException {
+    Files.createDirectories(settings.getDir());
+    this.path = Files.createTempFile(settings.getDir(), "solr-spill-", ".bin");
+    this.keyed = keyed;
+    this.stats = stats;
+    try {
+      this.out = FastOutputStream.wrap(Files.newOutputStream(path));
+      this.codec = new SpillCodec();
+      codec.init(out);
+    } catch (IOException | RuntimeException e) {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+  }
+
+  void write(Tuple tuple) throws IOException {
+    assert !keyed;
+    writeTuple(tuple);
+  }
+
+  void write(long key, Tuple tuple) throws IOException {
+    assert keyed;
+    JavaBinCodec.writeVLong(key, out);
+    writeTuple(tuple);
+  }
+
+  private void writeTuple(Tuple tuple) throws IOException {
+    codec.writeTuple(tuple);
+    count++;
+  }
+
+  /** The number of tuples written. */
+  long size() {
+    return count;
+  }
+
+  /** Finishes writing, and returns a reader of the tuples written. */
+  Reader read() throws IOException {
+    assert reader == null : "already read";
+    finish();
+    reader = new Reader(FastInputStream.wrap(Files.newInputStream(path)));
+    return reader;
+  }
+
+  private void finish() throws IOException {
+    if (out != null) {
+      out.close();
+      out = null;
+      codec = null;
+      stats.recordFile(count, Files.size(path));
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } finally {
+      IOUtils.closeQuietly(out);
+      IOUtils.closeQuietly(reader);
+      out = null;
+      reader = null;
+      Files.deleteIfExists(path);
+    }
+  }
+
+  /** Reads the tuples of a file, in the order they were written. */
+  final class Reader implements Closeable {
+    private final FastInputStream in;
+    private final SpillCodec codec = new SpillCodec();
+    private long remaining = count;
+    private int index;
+    private long key;
+    private Tuple tuple;
+
+    private Reader(FastInputStream in) {
+      this.in = in;
+    }
+
+    /** Moves to the next tuple, returns false if there are no more. */
+    boolean next() throws IOException {
+      if (remaining == 0) {
+        tuple = null;
+        return false;
+      }
+      remaining--;
+      if (keyed) {
+        key = JavaBinCodec.readVLong(in);
+      }
+      tuple = codec.readTuple(in);
+      return true;
+    }
+
+    Tuple tuple() {
+      return tuple;
+    }
+
+    long key() {
+      return key;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /**
+   * A javabin codec that writes nested tuples with a tag of their own, so that they are read back
+   * as tuples, and refuses the values that javabin would read back with another type.
+   */
+  private static final class SpillCodec extends JavaBinCodec {
+    // not used by javabin
+    private static final byte TUPLE = 31;
+
+    void writeTuple(Tuple tuple) throws IOException {
+      writeMap(tuple.getFields());
+      writeVal(tuple.getFieldNames());
+      writeVal(tuple.getFieldLabels());
+    }
+
+    @SuppressWarnings("unchecked")
+    Tuple readTuple(DataInputInputStream in) throws IOException {
+      Tuple tuple = new Tuple((Map<String, ?>) readVal(in));
+      List<String> fieldNames = (List<String>) readVal(in);
+      Map<String, String> fieldLabels = (Map<String, String>) readVal(in);
+      if (fieldNames != null) {
+        tuple.setFieldNames(fieldNames);
+        tuple.setFieldLabels(fieldLabels);
+      }
+      return tuple;
+    }
+
+    @Override
+    public boolean writeKnownType(Object val) throws IOException {
+      if (val instanceof Tuple tuple) {
+        writeTag(TUPLE);
+        writeTuple(tuple);
+        return true;
+      }
+      if (!isSpillable(val)) {
+        throw new IOException(
+            "Can't spill a value of "
+                + val.getClass().getName()
+                + " to disk, raise "
+                + SpillSettings.MAX_MEMORY_PROP
+                + " or set it to 0 to keep all tuples in memory");
+      }
+      return super.writeKnownType(val);
+    }
+
+    @Override
+    protected Object readObject(DataInputInputStream in) throws IOException {
+      return tagByte == TUPLE ? readTuple(in) : super.readObject(in);
+    }
+
+    /** Whether javabin reads a value back with the same type, apart from its nested values. */
+    private static boolean isSpillable(Object val) {
+      return val == null
+          || val instanceof CharSequence
+          || val instanceof Long
+          || val instanceof Double
+          || val instanceof Integer
+          || val instanceof Float
+          || val instanceof Short
+          || val instanceof Byte
+          || val instanceof Boolean
+          || val instanceof Date
+          || val instanceof byte[]
+          || val instanceof List
+          || val instanceof Map
+          || val instanceof NamedList
+          || val instanceof long[]
+          || val instanceof double[]
+          || val instanceof int[]
+          || val instanceof float[]
+          || val instanceof short[]
+          || val instanceof boolean[];
+    }
+  }
+
+  /**
+   * Merges files that are each in the same order into that order, either the order of a comparator
+   * or the order of the keys. Ties are broken by the order of the files, so a merge is stable. The
+   * files are closed, and so deleted, with the merger.
+   */
+  static final class Merger implements Closeable {
+    private final List<TupleSpillFile> files;
+    private final PriorityQueue<Reader> queue;
+    private Reader current;
+
+    /**
+     * @param order the order of the tuples in the files, or null to merge keyed files by key
+     */
+    Merger(List<TupleSpillFile> files, Comparator<Tuple> order) throws IOException {
+      this.files = new ArrayList<>(files);
+      Comparator<Reader> comparator =
+          order != null
+              ? (a, b) -> order.compare(a.tuple, b.tuple)
+              : (a, b) -> Long.compare(a.key, b.key);
+      this.queue =
+          new PriorityQueue<>(
+              Math.max(1, files.size()), comparator.thenComparingInt(reader -> reader.index));
+      for (int i = 0; i < files.size(); i++) {
+        Reader reader = files.get(i).read();
+        reader.index = i;
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+    }
+
+    /** Returns the next tuple, or null if there are no more. */
+    Tuple next() throws IOException {
+      if (current != null && current.next()) {
+        queue.add(current);
+      }
+      current = queue.poll();
+      return current == null ? null : current.tuple;
+    }
+
+    /** The key of the tuple last returned by {@link #next()}. */
+    long key() {
+      return current.key;
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (TupleSpillFile file : files) {
+        file.close();
+      }
+    }
+  }
+
+  /**
+   * Returns the partition of a hash, in [0, {@link #NUM_PARTITIONS}). Each level partitions
+   * differently, so that a partition can be partitioned again.
+   */
+  static int partition(int hash, int level) {
+    int h = hash * 0x9E3779B9 + level;
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    return h & (NUM_PARTITIONS - 1);
+  }
+
+  /** Estimates the memory used by a tuple. */
+  static long estimateBytes(Tuple tuple) {
+    SizeEstimator estimator = new SizeEstimator();
+    try {
+      tuple.writeMap(estimator);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // can't happen
+    }
+    return TUPLE_BYTES + estimator.bytes;
+  }
+
+  /** Estimates the memory used by a value of a tuple. */
+  static long estimateBytes(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof CharSequence s) {
+      return 40 + 2L * s.length();
+    } else if (value instanceof Collection<?> c) {
+      long bytes = 40;
+      for (Object o : c) {
+        bytes += 8 + estimateBytes(o);
+      }
+      return bytes;
+    } else if (value instanceof Map<?, ?> m) {
+      long bytes = 48;
+      for (Map.Entry<?, ?> e : m.entrySet()) {
+        bytes += ENTRY_BYTES + estimateBytes(e.getValue());
+      }
+      return bytes;
+    } else if (value instanceof double[] a) {
+      return OBJECT_BYTES + 8L * a.length;
+    } else if (value instanceof long[] a) {
+      return OBJECT_BYTES + 8L * a.length;
+    } else {
+      return OBJECT_BYTES;
+    }
+  }
+
+  private static final class SizeEstimator implements MapWriter.EntryWriter {
+    long bytes;
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, Object v) {
+      bytes += ENTRY_BYTES + estimateBytes(v);
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, long v) {
+      bytes += ENTRY_BYTES + OBJECT_BYTES;
+      return this;
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, double v) {
+      bytes += ENTRY_BYTES + OBJECT_BYTES;
+      return this;
+    }
+  }
+}
@@ -76,6 +76,20 @@ public class MaxMetric extends Metric {
 
   @Override
   public void update(Tuple tuple) {
+    int slot = slotOf(tuple, columnName);
+    if (tuple.hasDouble(slot)) {
+      double d = tuple.doubleAt(slot);
+      if (d > doubleMax) {
+        doubleMax = d;
+      }
+      return;
+    } else if (tuple.hasLong(slot)) {
+      long l = tuple.longAt(slot);
+      if (l > longMax) {
+        longMax = l;
+      }
+      return;
+    }
     Object o = tuple.get(columnName);
     if (o instanceof Double) {
       double d = (double) o;
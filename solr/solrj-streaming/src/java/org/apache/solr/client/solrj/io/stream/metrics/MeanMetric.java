@@ -77,6 +77,14 @@ public class MeanMetric extends Metric {
   @Override
   public void update(Tuple tuple) {
     ++count;
+    int slot = slotOf(tuple, columnName);
+    if (tuple.hasDouble(slot)) {
+      doubleSum += tuple.doubleAt(slot);
+      return;
+    } else if (tuple.hasLong(slot)) {
+      longSum += tuple.longAt(slot);
+      return;
+    }
     Object o = tuple.get(columnName);
     if (o instanceof Double d) {
       doubleSum += d;
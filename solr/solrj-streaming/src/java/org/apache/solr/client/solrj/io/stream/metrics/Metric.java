@@ -19,6 +19,7 @@ package org.apache.solr.client.solrj.io.stream.metrics;
 import java.io.IOException;
 import java.util.UUID;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleSchema;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
 import org.apache.solr.client.solrj.io.stream.expr.Expressible;
@@ -75,4 +76,13 @@ public abstract class Metric implements Expressible {
   public abstract Metric newInstance();
 
   public abstract String[] getColumns();
+
+  /**
+   * The slot of a column in the tuple's schema, to read unboxed values with {@link
+   * Tuple#hasLong(int)} and {@link Tuple#hasDouble(int)}, or -1 if the tuple has no schema.
+   */
+  protected static int slotOf(Tuple tuple, String column) {
+    TupleSchema schema = tuple.getSchema();
+    return schema == null ? -1 : schema.indexOf(column);
+  }
 }
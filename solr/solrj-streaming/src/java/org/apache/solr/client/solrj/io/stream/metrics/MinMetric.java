@@ -77,6 +77,20 @@ public class MinMetric extends Metric {
 
   @Override
   public void update(Tuple tuple) {
+    int slot = slotOf(tuple, columnName);
+    if (tuple.hasDouble(slot)) {
+      double d = tuple.doubleAt(slot);
+      if (d < doubleMin) {
+        doubleMin = d;
+      }
+      return;
+    } else if (tuple.hasLong(slot)) {
+      long l = tuple.longAt(slot);
+      if (l < longMin) {
+        longMin = l;
+      }
+      return;
+    }
     Object o = tuple.get(columnName);
     if (o instanceof Double) {
       double d = (double) o;
@@ -22,6 +22,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
+import org.apache.solr.client.solrj.io.comp.FieldComparator;
 import org.apache.solr.common.MapWriter.EntryWriter;
 import org.apache.solr.common.params.StreamParams;
 import org.junit.Test;
@@ -220,6 +222,86 @@ public class TupleTest extends SolrTestCase {
     }
   }
 
+  @Test
+  public void schemaSlotsTest() throws IOException {
+    final TupleSchema schema = new TupleSchema();
+    final Tuple tuple = new Tuple(schema);
+    tuple.putLong("a", 7L);
+    tuple.putDouble("b", 1.5);
+    tuple.put("c", "x");
+
+    final int a = schema.indexOf("a");
+    assertTrue(tuple.hasLong(a));
+    assertEquals(7L, tuple.longAt(a));
+    assertTrue(tuple.hasDouble(schema.indexOf("b")));
+    assertEquals(7L, tuple.get("a"));
+    assertEquals(1.5, tuple.getDouble("b"), 0.0);
+    assertEquals(Long.valueOf(7), tuple.getLong("a"));
+
+    // the copy does not share the slots
+    final Tuple copy = tuple.clone();
+    copy.putLong("a", 8L);
+    assertEquals(7L, tuple.longAt(a));
+    assertEquals(8L, copy.longAt(a));
+
+    // a boxed value replaces the unboxed one
+    copy.put("a", "eight");
+    assertFalse(copy.hasLong(a));
+    assertEquals("eight", copy.get("a"));
+    copy.remove("b");
+    assertNull(copy.get("b"));
+
+    final TupleEntryWriter writer = new TupleEntryWriter();
+    tuple.writeMap(writer);
+    assertEquals(Map.of("a", 7L, "b", 1.5, "c", "x"), writer.tuple.getFields());
+    assertEquals(Map.of("a", 7L, "b", 1.5, "c", "x"), tuple.getFields());
+
+    // without a schema, values are boxed into the fields map
+    final Tuple plain = new Tuple();
+    plain.putLong("a", 7L);
+    assertFalse(plain.hasLong(0));
+    assertEquals(7L, plain.get("a"));
+    expectThrows(IllegalStateException.class, () -> plain.putLong(0, 1L));
+
+    final Tuple merged = new Tuple();
+    merged.merge(tuple);
+    assertEquals(Map.of("a", 7L, "b", 1.5, "c", "x"), merged.getFields());
+  }
+
+  @Test
+  public void schemaComparatorTest() {
+    final TupleSchema schema = new TupleSchema();
+    final FieldComparator asc = new FieldComparator("v", ComparatorOrder.ASCENDING);
+    final FieldComparator desc = new FieldComparator("v", ComparatorOrder.DESCENDING);
+    final Tuple[] unboxed = new Tuple[3];
+    final Tuple[] boxed = new Tuple[3];
+    final double[] values = {2.5, -1, 10};
+    for (int i = 0; i < values.length; i++) {
+      unboxed[i] = new Tuple(schema);
+      unboxed[i].putDouble("v", values[i]);
+      boxed[i] = new Tuple(Map.of("v", values[i]));
+    }
+    for (int i = 0; i < values.length; i++) {
+      for (int j = 0; j < values.length; j++) {
+        assertEquals(
+            Integer.signum(asc.compare(boxed[i], boxed[j])),
+            Integer.signum(asc.compare(unboxed[i], unboxed[j])));
+        assertEquals(
+            Integer.signum(desc.compare(boxed[i], boxed[j])),
+            Integer.signum(desc.compare(unboxed[i], unboxed[j])));
+        // mixed tuples take the boxed path
+        assertEquals(
+            Integer.signum(asc.compare(boxed[i], boxed[j])),
+            Integer.signum(asc.compare(unboxed[i], boxed[j])));
+      }
+    }
+    // a missing value sorts as in the boxed comparison
+    final Tuple empty = new Tuple(schema);
+    assertEquals(
+        Integer.signum(asc.compare(new Tuple(), boxed[0])),
+        Integer.signum(asc.compare(empty, unboxed[0])));
+  }
+
   private static final class TupleEntryWriter implements EntryWriter {
     final Tuple tuple = new Tuple();
 
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
+import org.apache.solr.client.solrj.io.comp.FieldComparator;
+import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.SpillToDiskStreamTest.ListTupleStream;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParser;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MeanMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.MinMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.PercentileMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.junit.Test;
+
+public class RollupPushDownTest extends SolrTestCase {
+
+  private static final Bucket[] BUCKETS = {new Bucket("a"), new Bucket("b")};
+
+  private final StreamFactory factory =
+      new StreamFactory()
+          .withFunctionName("search", CloudSolrStream.class)
+          .withFunctionName("rollup", RollupStream.class)
+          .withFunctionName("sum", SumMetric.class)
+          .withFunctionName("count", CountMetric.class)
+          .withFunctionName("min", MinMetric.class)
+          .withFunctionName("max", MaxMetric.class)
+          .withFunctionName("avg", MeanMetric.class)
+          .withFunctionName("per", PercentileMetric.class);
+
+  @Test
+  public void planTest() throws IOException {
+    Metric[] metrics = {new SumMetric("x"), new MeanMetric("x"), new MaxMetric("y")};
+
+    // off unless enabled
+    assertNull(RollupPushDown.plan(search("/export", "a asc,b asc"), BUCKETS, metrics));
+    System.setProperty(RollupPushDown.ENABLED_PROP, "true");
+    try {
+      plan(metrics);
+    } finally {
+      System.clearProperty(RollupPushDown.ENABLED_PROP);
+    }
+  }
+
+  private void plan(Metric[] metrics) throws IOException {
+    RollupPushDown pushDown =
+        RollupPushDown.plan(search("/export", "b asc,a desc,id asc"), BUCKETS, metrics);
+    assertNotNull(pushDown);
+    assertEquals(
+        "rollup(input(),over=\"a,b\",sum(x),count(*),max(y),partial=true)",
+        pushDown.getShardExpression());
+    assertEquals(metrics.length, pushDown.getMergeMetrics().length);
+    for (int i = 0; i < metrics.length; i++) {
+      assertEquals(metrics[i].getIdentifier(), pushDown.getMergeMetrics()[i].getIdentifier());
+    }
+
+    // the partial rollup parses, and keeps its mode
+    String input = "search(c, q=*:*, fl=a, sort=\"a asc\")";
+    RollupStream partial =
+        (RollupStream)
+            factory.constructStream(pushDown.getShardExpression().replace("input()", input));
+    StreamExpressionNamedParameter partialParam =
+        factory.getNamedOperand(partial.toExpression(factory), "partial");
+    assertEquals("true", partialParam.getParameter().toString());
+
+    // search() stands for a CloudSolrStream only over /export
+    StreamFactory searchFactory =
+        new StreamFactory()
+            .withFunctionName("search", SearchFacadeStream.class)
+            .withDefaultZkHost("localhost:9983");
+    assertNotNull(
+        RollupPushDown.getCloudStream(
+            searchFactory.constructStream(
+                "search(c, q=*:*, fl=a, sort=\"a asc\", qt=\"/export\")")));
+    assertNull(
+        RollupPushDown.getCloudStream(
+            searchFactory.constructStream("search(c, q=*:*, fl=a, sort=\"a asc\")")));
+
+    // not from /export, not sorted by the buckets, or a metric that can't be merged
+    assertNull(RollupPushDown.plan(search("/select", "a asc,b asc"), BUCKETS, metrics));
+    assertNull(RollupPushDown.plan(search("/export", "a asc,id asc"), BUCKETS, metrics));
+    assertNull(
+        RollupPushDown.plan(
+            search("/export", "a asc,b asc"),
+            BUCKETS,
+            new Metric[] {new PercentileMetric("x", 50)}));
+  }
+
+  @Test
+  public void mergeTest() throws IOException {
+    StreamComparator comp =
+        new MultipleFieldComparator(
+            new FieldComparator("a", ComparatorOrder.ASCENDING),
+            new FieldComparator("b", ComparatorOrder.ASCENDING));
+    Metric[] metrics = {
+      new SumMetric("x"),
+      new SumMetric("y"),
+      new CountMetric(),
+      new CountMetric("y"),
+      new MinMetric("y"),
+      new MaxMetric("x"),
+      new MeanMetric("x"),
+      new MeanMetric("x", true),
+      new MeanMetric("y")
+    };
+
+    List<Tuple> all = new ArrayList<>();
+    List<List<Tuple>> shards = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    int numTuples = atLeast(500);
+    for (int i = 0; i < numTuples; i++) {
+      Tuple tuple = new Tuple();
+      // some tuples have no value for a, they are bucketed as NULL
+      if (random().nextInt(10) > 0) {
+        tuple.put("a", (long) random().nextInt(5));
+      }
+      tuple.put("b", "b" + random().nextInt(4));
+      tuple.put("x", (long) random().nextInt(100));
+      // halves keep the double sums exact, whatever the order of the additions
+      if (random().nextBoolean()) {
+        tuple.put("y", random().nextInt(100) / 2.0);
+      }
+      all.add(tuple);
+      shards.get(random().nextInt(shards.size())).add(tuple);
+    }
+
+    all.sort(comp);
+    List<Tuple> expected = read(new RollupStream(new ListTupleStream(all), BUCKETS, metrics));
+
+    RollupPushDown pushDown;
+    System.setProperty(RollupPushDown.ENABLED_PROP, "true");
+    try {
+      pushDown = RollupPushDown.plan(search("/export", "a asc,b asc"), BUCKETS, metrics);
+    } finally {
+      System.clearProperty(RollupPushDown.ENABLED_PROP);
+    }
+    assertNotNull(pushDown);
+    // what each shard would run over its /export results
+    List<Tuple> partials = new ArrayList<>();
+    for (List<Tuple> shard : shards) {
+      shard.sort(comp);
+      partials.addAll(
+          read(
+              new RollupStream(
+                  new ListTupleStream(shard), BUCKETS, shardMetrics(pushDown), true)));
+    }
+    // merged by sort, as CloudSolrStream does
+    partials.sort(comp);
+    List<Tuple> actual =
+        read(new RollupStream(new ListTupleStream(partials), BUCKETS, pushDown.getMergeMetrics()));
+
+    assertEquals(expected.size(), actual.size());
+    assertEquals("NULL", actual.get(0).get("a"));
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getFields(), actual.get(i).getFields());
+    }
+  }
+
+  private CloudSolrStream search(String qt, String sort) throws IOException {
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set("q", "*:*");
+    params.set("fl", "id,a,b,x,y");
+    params.set("sort", sort);
+    params.set("qt", qt);
+    return new CloudSolrStream("localhost:9983", "collection1", params);
+  }
+
+  private Metric[] shardMetrics(RollupPushDown pushDown) throws IOException {
+    StreamExpression expression = StreamExpressionParser.parse(pushDown.getShardExpression());
+    List<Metric> metrics = new ArrayList<>();
+    for (StreamExpression metric :
+        factory.getExpressionOperandsRepresentingTypes(
+            expression, Expressible.class, Metric.class)) {
+      metrics.add(factory.constructMetric(metric));
+    }
+    return metrics.toArray(new Metric[0]);
+  }
+
+  private static List<Tuple> read(TupleStream stream) throws IOException {
+    List<Tuple> tuples = new ArrayList<>();
+    stream.open();
+    try {
+      for (Tuple tuple = stream.read(); !tuple.EOF; tuple = stream.read()) {
+        tuples.add(tuple);
+      }
+    } finally {
+      stream.close();
+    }
+    return tuples;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardReadAheadTest extends SolrTestCase {
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    executor = ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory("test"));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    ExecutorUtil.shutdownNowAndAwaitTermination(executor);
+    super.tearDown();
+  }
+
+  @Test
+  public void readAheadTest() throws Exception {
+    int numTuples = atLeast(100);
+    FakeShardStream stream = new FakeShardStream(numTuples, -1);
+    ShardReadStats stats = new ShardReadStats();
+    ShardReadAhead readAhead = new ShardReadAhead(stream, random().nextInt(10) + 1, stats);
+    readAhead.start(executor);
+
+    for (int i = 0; i < numTuples; i++) {
+      Tuple tuple = readAhead.take();
+      assertFalse(tuple.EOF);
+      assertEquals((long) i, tuple.get("id"));
+    }
+    assertTrue(readAhead.take().EOF);
+    // the task closes the stream once it's read
+    assertTrue(stream.closed.await(10, TimeUnit.SECONDS));
+    assertEquals(1, stats.getStreams());
+    assertEquals(numTuples, stats.getTuples());
+    assertTrue(stats.getWaits() <= numTuples + 1);
+    assertTrue(ShardReadStats.total().getTuples() >= numTuples);
+  }
+
+  @Test
+  public void errorTest() throws IOException {
+    ShardReadAhead readAhead =
+        new ShardReadAhead(new FakeShardStream(10, 3), 5, new ShardReadStats());
+    readAhead.start(executor);
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals((long) i, readAhead.take().get("id"));
+    }
+    IOException e = expectThrows(IOException.class, readAhead::take);
+    assertEquals("failed at 3", e.getMessage());
+    // and again, it doesn't block
+    expectThrows(IOException.class, readAhead::take);
+  }
+
+  @Test
+  public void cancelTest() throws Exception {
+    // never returns EOF, the buffer fills up and the task blocks
+    FakeShardStream stream = new FakeShardStream(Integer.MAX_VALUE, -1);
+    ShardReadAhead readAhead = new ShardReadAhead(stream, 2, new ShardReadStats());
+    readAhead.start(executor);
+    assertEquals(0L, readAhead.take().get("id"));
+
+    readAhead.cancel();
+    assertTrue(stream.closed.await(10, TimeUnit.SECONDS));
+  }
+
+  private static class FakeShardStream extends SolrStream {
+    private final int numTuples;
+    private final int failAt;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private int next;
+
+    FakeShardStream(int numTuples, int failAt) {
+      super("http://shard", new ModifiableSolrParams());
+      this.numTuples = numTuples;
+      this.failAt = failAt;
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public Tuple read() throws IOException {
+      if (next == failAt) {
+        throw new IOException("failed at " + next);
+      }
+      if (next == numTuples) {
+        return Tuple.EOF();
+      }
+      return new Tuple("id", (long) next++);
+    }
+
+    @Override
+    public void close() {
+      closed.countDown();
+    }
+  }
+}
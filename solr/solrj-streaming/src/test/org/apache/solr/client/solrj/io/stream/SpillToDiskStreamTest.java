@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
+import org.apache.solr.client.solrj.io.comp.FieldComparator;
+import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.eval.Matrix;
+import org.apache.solr.client.solrj.io.stream.expr.Explanation;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExplanation;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpillToDiskStreamTest extends SolrTestCase {
+
+  private Path spillDir;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    spillDir = createTempDir("spill");
+  }
+
+  @Test
+  public void sortTest() throws IOException {
+    List<Tuple> tuples = new ArrayList<>();
+    int numTuples = atLeast(2000);
+    for (int i = 0; i < numTuples; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("id", (long) i);
+      tuple.put("v", (long) random().nextInt(50));
+      tuple.put("s", "value " + random().nextInt(1000));
+      tuples.add(tuple);
+    }
+    StreamComparator comp =
+        new MultipleFieldComparator(
+            new FieldComparator("v", ComparatorOrder.DESCENDING),
+            new FieldComparator("s", ComparatorOrder.ASCENDING));
+
+    // sorted in memory
+    List<Tuple> expected = read(new SortStream(new ListTupleStream(tuples), comp), null);
+    assertEquals(numTuples, expected.size());
+
+    // small enough to need more runs than can be merged at once
+    SortStream spilled = new SortStream(new ListTupleStream(tuples), comp);
+    List<Tuple> actual = read(spilled, new SpillSettings(2048, spillDir));
+    assertEquals(ids(expected), ids(actual));
+    assertEquals(expected.get(0).getFields(), actual.get(0).getFields());
+    assertEquals(1, spilled.getSpillStats().getSpills());
+    assertTrue(spilled.getSpillStats().getFiles() > TupleSorter.MAX_MERGE_WIDTH);
+    assertTrue(spilled.getSpillStats().getTuples() > numTuples);
+    assertTrue(spilled.getSpillStats().getBytes() > 0);
+    assertNoSpillFiles();
+  }
+
+  @Test
+  public void hashJoinTest() throws IOException {
+    List<Tuple> full = new ArrayList<>();
+    for (int i = 0, n = atLeast(500); i < n; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("id", (long) i);
+      if (random().nextInt(10) > 0) {
+        tuple.put("k", (long) random().nextInt(200));
+      }
+      full.add(tuple);
+    }
+    List<Tuple> hashed = new ArrayList<>();
+    for (int i = 0, n = atLeast(500); i < n; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("hk", (long) random().nextInt(300));
+      tuple.put("h", "hashed " + i);
+      hashed.add(tuple);
+    }
+    List<String> on = List.of("k=hk");
+
+    for (boolean outer : new boolean[] {false, true}) {
+      List<Tuple> expected = read(join(outer, full, hashed, on), null);
+      HashJoinStream spilled = join(outer, full, hashed, on);
+      List<Tuple> actual = read(spilled, new SpillSettings(4096, spillDir));
+      assertEquals(fields(expected), fields(actual));
+      assertEquals(1, spilled.getSpillStats().getSpills());
+      assertNoSpillFiles();
+    }
+  }
+
+  @Test
+  public void hashRollupTest() throws IOException {
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0, n = atLeast(3000); i < n; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("g", "group " + random().nextInt(1000));
+      tuple.put("v", (long) random().nextInt(100));
+      tuples.add(tuple);
+    }
+
+    Map<Object, Map<String, Object>> expected = groups(read(rollup(tuples), null));
+    HashRollupStream spilled = rollup(tuples);
+    // allows only a few groups in memory, so partitions are partitioned again
+    Map<Object, Map<String, Object>> actual =
+        groups(read(spilled, new SpillSettings(2048, spillDir)));
+    assertEquals(expected, actual);
+    assertTrue(spilled.getSpillStats().getSpills() > 1);
+    assertNoSpillFiles();
+  }
+
+  @Test
+  public void spillFileTest() throws IOException {
+    Tuple nested = new Tuple("n", 1L);
+    Tuple tuple = new Tuple();
+    tuple.put("tuple", nested);
+    tuple.put("tuples", List.of(nested, new Tuple("n", 2.5d)));
+    tuple.put("map", Map.of("m", nested));
+    tuple.put("doubles", new double[] {1, 2});
+    tuple.put("date", new Date(1000));
+    tuple.setFieldNames(List.of("tuple", "date"));
+    tuple.setFieldLabels(Map.of("tuple", "tuple", "date", "date"));
+
+    try (TupleSpillFile file =
+        new TupleSpillFile(new SpillSettings(1, spillDir), false, new SpillStats())) {
+      file.write(tuple);
+      TupleSpillFile.Reader reader = file.read();
+      assertTrue(reader.next());
+      Tuple read = reader.tuple();
+      assertEquals(1L, ((Tuple) read.get("tuple")).get("n"));
+      List<?> tuples = (List<?>) read.get("tuples");
+      assertEquals(2.5d, ((Tuple) tuples.get(1)).get("n"));
+      assertEquals(1L, ((Tuple) ((Map<?, ?>) read.get("map")).get("m")).get("n"));
+      assertArrayEquals(new double[] {1, 2}, (double[]) read.get("doubles"), 0d);
+      assertEquals(new Date(1000), read.get("date"));
+      assertEquals(List.of("tuple", "date"), read.getFieldNames());
+      assertEquals(tuple.getFieldLabels(), read.getFieldLabels());
+      assertFalse(reader.next());
+    }
+
+    // values that would be read back with another type are not spilled
+    try (TupleSpillFile file =
+        new TupleSpillFile(new SpillSettings(1, spillDir), false, new SpillStats())) {
+      Tuple matrix = new Tuple("m", new Tuple("matrix", new Matrix(new double[][] {{1}})));
+      IOException e = expectThrows(IOException.class, () -> file.write(matrix));
+      assertTrue(e.getMessage(), e.getMessage().contains(Matrix.class.getName()));
+    }
+    assertNoSpillFiles();
+  }
+
+  private static HashJoinStream join(
+      boolean outer, List<Tuple> full, List<Tuple> hashed, List<String> on) throws IOException {
+    return outer
+        ? new OuterHashJoinStream(new ListTupleStream(full), new ListTupleStream(hashed), on)
+        : new HashJoinStream(new ListTupleStream(full), new ListTupleStream(hashed), on);
+  }
+
+  private static HashRollupStream rollup(List<Tuple> tuples) {
+    return new HashRollupStream(
+        new ListTupleStream(tuples),
+        new Bucket[] {new Bucket("g")},
+        new Metric[] {new SumMetric("v"), new CountMetric()});
+  }
+
+  private static List<Tuple> read(TupleStream stream, SpillSettings settings) throws IOException {
+    StreamContext context = new StreamContext();
+    if (settings != null) {
+      context.put(SpillSettings.CONTEXT_KEY, settings);
+    } else {
+      context.put(SpillSettings.CONTEXT_KEY, new SpillSettings(0, Path.of("unused")));
+    }
+    stream.setStreamContext(context);
+    List<Tuple> tuples = new ArrayList<>();
+    try {
+      stream.open();
+      for (Tuple tuple = stream.read(); !tuple.EOF; tuple = stream.read()) {
+        tuples.add(tuple);
+      }
+    } finally {
+      stream.close();
+    }
+    return tuples;
+  }
+
+  private static List<Object> ids(List<Tuple> tuples) {
+    return tuples.stream().map(t -> t.get("id")).toList();
+  }
+
+  private static List<Map<String, Object>> fields(List<Tuple> tuples) {
+    return tuples.stream().map(t -> (Map<String, Object>) new HashMap<>(t.getFields())).toList();
+  }
+
+  private static Map<Object, Map<String, Object>> groups(List<Tuple> tuples) {
+    Map<Object, Map<String, Object>> groups = new HashMap<>();
+    for (Tuple tuple : tuples) {
+      assertNull(groups.put(tuple.get("g"), new HashMap<>(tuple.getFields())));
+    }
+    return groups;
+  }
+
+  private void assertNoSpillFiles() throws IOException {
+    try (Stream<Path> files = Files.list(spillDir)) {
+      // ignores the extra files of the test file system
+      assertEquals(
+          List.of(),
+          files.filter(f -> f.getFileName().toString().startsWith("solr-spill-")).toList());
+    }
+  }
+
+  static class ListTupleStream extends TupleStream {
+    private final List<Tuple> tuples;
+    private int next;
+
+    ListTupleStream(List<Tuple> tuples) {
+      this.tuples = tuples;
+    }
+
+    @Override
+    public void setStreamContext(StreamContext context) {}
+
+    @Override
+    public List<TupleStream> children() {
+      return List.of();
+    }
+
+    @Override
+    public void open() {
+      next = 0;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public Tuple read() {
+      return next < tuples.size() ? tuples.get(next++) : Tuple.EOF();
+    }
+
+    @Override
+    public StreamComparator getStreamSort() {
+      return null;
+    }
+
+    @Override
+    public Explanation toExplanation(StreamFactory factory) {
+      return new StreamExplanation(getStreamNodeId().toString());
+    }
+  }
+}
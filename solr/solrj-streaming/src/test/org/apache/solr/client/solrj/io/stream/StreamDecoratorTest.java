@@ -22,10 +22,12 @@ import static org.apache.solr.client.solrj.io.stream.StreamAssert.assertMaps;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import org.apache.lucene.tests.util.LuceneTestCase;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.client.solrj.SolrClient;
@@ -1063,6 +1065,91 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
     solrClientCache.close();
   }
 
+  @Test
+  public void testFetchStreamByRouteKey() throws Exception {
+    UpdateRequest update = new UpdateRequest();
+    for (int i = 0; i < 20; i++) {
+      update.add(id, "doc" + i, "a_s", "doc!" + (19 - i), "a_i", Integer.toString(i));
+      update.add(id, "doc!" + i, "subject", "subject " + i);
+    }
+    update.add(id, "doc" + 20, "a_s", "doc!missing", "a_i", "20");
+    update.commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamFactory factory =
+        new StreamFactory()
+            .withCollectionZkHost(COLLECTIONORALIAS, cluster.getZkServer().getZkAddress())
+            .withFunctionName("search", CloudSolrStream.class)
+            .withFunctionName("fetch", FetchStream.class);
+
+    // the right side is the uniqueKey, so when routed the keys of a batch go to their shards only
+    try (SolrClientCache solrClientCache = new SolrClientCache()) {
+      for (int threads : new int[] {1, 3}) {
+        TupleStream stream =
+            factory.constructStream(
+                "fetch("
+                    + COLLECTIONORALIAS
+                    + ", search("
+                    + COLLECTIONORALIAS
+                    + ", q=a_i:*, rows=50, fl=\"id,a_s,a_i\", sort=\"a_i asc\"), on=\"a_s=id\","
+                    + " fl=\"subject\", batchSize=\"4\", routed=\"true\", threads=\""
+                    + threads
+                    + "\")");
+        StreamContext context = new StreamContext();
+        context.setSolrClientCache(solrClientCache);
+        stream.setStreamContext(context);
+        List<Tuple> tuples = getTuples(stream);
+
+        assertEquals(21, tuples.size());
+        for (int i = 0; i < 20; i++) {
+          Tuple t = tuples.get(i);
+          assertEquals(i, t.getLong("a_i").intValue());
+          assertEquals("subject " + (19 - i), t.getString("subject"));
+        }
+        assertNull(tuples.get(20).get("subject"));
+      }
+
+      // threads and routed are only written out when they were given
+      String search =
+          "search(" + COLLECTIONORALIAS + ", q=a_i:*, fl=\"id,a_s,a_i\", sort=\"a_i asc\")";
+      FetchStream fetch =
+          (FetchStream)
+              factory.constructStream(
+                  "fetch(" + COLLECTIONORALIAS + ", " + search + ", on=\"a_s=id\", fl=subject)");
+      String expr = fetch.toExpression(factory).toString();
+      assertFalse(expr, expr.contains("threads"));
+      assertFalse(expr, expr.contains("routed"));
+
+      // not routed by default: a document may have been indexed with another _route_
+      StreamContext context = new StreamContext();
+      context.setSolrClientCache(solrClientCache);
+      fetch.setStreamContext(context);
+      List<String> keys = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        // not "doc!" + i, the composite id router sends those all to the same shard
+        keys.add("doc" + i);
+      }
+      List<TupleStream> fetchStreams = fetch.createFetchStreams(keys, context);
+      assertEquals(1, fetchStreams.size());
+      assertTrue(fetchStreams.get(0) instanceof CloudSolrStream);
+
+      // routed, one request per shard, each with the keys routed to it
+      fetch.setRouted(true);
+      expr = fetch.toExpression(factory).toString();
+      assertTrue(expr, expr.contains("routed=true"));
+      Set<String> cores = new HashSet<>();
+      int found = 0;
+      for (TupleStream shardStream : fetch.createFetchStreams(keys, context)) {
+        SolrStream solrStream = (SolrStream) shardStream;
+        assertTrue(cores.add(solrStream.getCore()));
+        List<Tuple> shardTuples = getTuples(solrStream);
+        assertTrue(shardTuples.size() > 0);
+        found += shardTuples.size();
+      }
+      assertEquals(2, cores.size());
+      assertEquals(20, found);
+    }
+  }
+
   @Test
   public void testParallelFetchStream() throws Exception {
 
@@ -1471,6 +1558,84 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testRollupPushDown() throws Exception {
+
+    new UpdateRequest()
+        .add(id, "0", "a_s", "hello0", "a_i", "0", "a_f", "1")
+        .add(id, "2", "a_s", "hello0", "a_i", "2", "a_f", "2")
+        .add(id, "3", "a_s", "hello3", "a_i", "3", "a_f", "3")
+        .add(id, "4", "a_s", "hello4", "a_i", "4", "a_f", "4")
+        .add(id, "1", "a_s", "hello0", "a_i", "1", "a_f", "5")
+        .add(id, "5", "a_s", "hello3", "a_i", "10", "a_f", "6")
+        .add(id, "6", "a_s", "hello4", "a_i", "11", "a_f", "7")
+        .add(id, "7", "a_s", "hello3", "a_i", "12", "a_f", "8")
+        .add(id, "8", "a_s", "hello3", "a_i", "13", "a_f", "9")
+        .add(id, "9", "a_s", "hello0", "a_i", "14", "a_f", "10")
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamFactory factory =
+        new StreamFactory()
+            .withCollectionZkHost(COLLECTIONORALIAS, cluster.getZkServer().getZkAddress())
+            .withFunctionName("search", CloudSolrStream.class)
+            .withFunctionName("rollup", RollupStream.class)
+            .withFunctionName("sum", SumMetric.class)
+            .withFunctionName("min", MinMetric.class)
+            .withFunctionName("max", MaxMetric.class)
+            .withFunctionName("avg", MeanMetric.class)
+            .withFunctionName("count", CountMetric.class);
+    String expr =
+        "rollup(search("
+            + COLLECTIONORALIAS
+            + ", q=*:*, fl=\"a_s,a_i,a_f\", sort=\"a_s asc\", qt=\"/export\"),"
+            + "over=\"a_s\", sum(a_i), sum(a_f), min(a_i), min(a_f), max(a_i), max(a_f),"
+            + "avg(a_i), avg(a_f), count(*))";
+    String[] metrics = {
+      "sum(a_i)", "sum(a_f)", "min(a_i)", "min(a_f)", "max(a_i)", "max(a_f)", "avg(a_i)",
+      "avg(a_f)", "count(*)"
+    };
+
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+    try {
+      TupleStream stream = factory.constructStream(expr);
+      stream.setStreamContext(streamContext);
+      List<Tuple> onWorker = getTuples(stream);
+      assertNull(shardExpression(stream));
+
+      System.setProperty(RollupPushDown.ENABLED_PROP, "true");
+      List<Tuple> onShards;
+      try {
+        stream = factory.constructStream(expr);
+        stream.setStreamContext(streamContext);
+        onShards = getTuples(stream);
+      } finally {
+        System.clearProperty(RollupPushDown.ENABLED_PROP);
+      }
+      // each shard rolled up its own docs through /export
+      assertNotNull(shardExpression(stream));
+
+      assertEquals(3, onShards.size());
+      assertEquals(onWorker.size(), onShards.size());
+      for (int i = 0; i < onWorker.size(); i++) {
+        assertEquals(onWorker.get(i).getString("a_s"), onShards.get(i).getString("a_s"));
+        for (String metric : metrics) {
+          assertEquals(
+              metric, onWorker.get(i).getDouble(metric), onShards.get(i).getDouble(metric), 0.0);
+        }
+      }
+    } finally {
+      solrClientCache.close();
+    }
+  }
+
+  private static String shardExpression(TupleStream rollup) {
+    // rollup() reads its search() through a PushBackStream
+    TupleStream search = rollup.children().get(0).children().get(0);
+    return ((CloudSolrStream) search).getShardExpression();
+  }
+
   @Test
   public void testHashRollupStream() throws Exception {
 
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.solr.SolrTestCase;
 import org.junit.Test;
@@ -65,4 +66,38 @@ public class StreamExecutorHelperTest extends SolrTestCase {
     List<String> expected = List.of("TestException0", "TestException2", "TestException4");
     assertEquals(expected, results);
   }
+
+  @Test
+  public void threadFactoryTest() throws Exception {
+    Thread thread = StreamExecutorHelper.newThreadFactory("test").newThread(() -> {});
+    assertFalse(isVirtual(thread));
+    assertTrue(thread.getName(), thread.getName().startsWith("test"));
+
+    System.setProperty(StreamExecutorHelper.VIRTUAL_THREADS_PROP, "true");
+    try {
+      // virtual threads need Java 21, SolrJ falls back to platform threads before that
+      boolean supported = Runtime.version().feature() >= 21;
+      assertEquals(supported, StreamExecutorHelper.isUsingVirtualThreads());
+      ThreadFactory factory = StreamExecutorHelper.newThreadFactory("test");
+      thread = factory.newThread(() -> {});
+      assertEquals(supported, isVirtual(thread));
+      assertTrue(thread.getName(), thread.getName().startsWith("test"));
+
+      List<Callable<Boolean>> tasks = List.of(() -> isVirtual(Thread.currentThread()));
+      assertEquals(
+          List.of(supported),
+          new ArrayList<>(StreamExecutorHelper.submitAllAndAwaitAggregatingExceptions(tasks, "t")));
+    } finally {
+      System.clearProperty(StreamExecutorHelper.VIRTUAL_THREADS_PROP);
+    }
+  }
+
+  // Thread.isVirtual() is Java 21
+  private static boolean isVirtual(Thread thread) throws Exception {
+    try {
+      return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
 }
@@ -27,6 +27,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -2708,6 +2709,67 @@ public class StreamExpressionTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testTopicStreamChanges() throws Exception {
+    Assume.assumeTrue(!useAlias);
+
+    new UpdateRequest()
+        .add(id, "0", "a_s", "hello", "a_i", "0")
+        .add(id, "1", "a_s", "hello", "a_i", "1")
+        .add(id, "2", "a_s", "world", "a_i", "2")
+        .add(id, "3", "a_s", "hello", "a_i", "3")
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamFactory factory =
+        new StreamFactory()
+            .withCollectionZkHost("collection1", cluster.getZkServer().getZkAddress())
+            .withFunctionName("topic", TopicStream.class);
+
+    String topic =
+        "topic(collection1, collection1, q=\"a_s:hello\", fl=\"id,a_i\", id=\"2000000\", "
+            + "initialCheckpoint=0, checkpointEvery=-1, changes=true)";
+
+    SolrClientCache cache = new SolrClientCache();
+    try {
+      StreamContext context = new StreamContext();
+      context.setSolrClientCache(cache);
+
+      // the first run starts before the update log, and reads the changes from the index
+      TupleStream stream = factory.constructStream(topic);
+      stream.setStreamContext(context);
+      List<Tuple> tuples = getTuples(stream);
+      assertEquals(3, tuples.size());
+      assertOrder(sorted(tuples), 0, 1, 3);
+      cluster.getSolrClient().commit("collection1");
+
+      // later runs only see what changed since, whether it was committed or not
+      new UpdateRequest()
+          .add(id, "4", "a_s", "hello", "a_i", "4")
+          .add(id, "1", "a_s", "hello", "a_i", "10")
+          .add(id, "5", "a_s", "world", "a_i", "5")
+          .process(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+      stream = factory.constructStream(topic);
+      stream.setStreamContext(context);
+      tuples = getTuples(stream);
+      assertEquals(2, tuples.size());
+      assertOrder(sorted(tuples), 1, 4);
+      cluster.getSolrClient().commit("collection1");
+
+      stream = factory.constructStream(topic);
+      stream.setStreamContext(context);
+      assertEquals(0, getTuples(stream).size());
+    } finally {
+      cache.close();
+    }
+  }
+
+  private static List<Tuple> sorted(List<Tuple> tuples) {
+    List<Tuple> sorted = new ArrayList<>(tuples);
+    sorted.sort(Comparator.comparing(t -> t.getLong(id)));
+    return sorted;
+  }
+
   @Test
   public void testParallelTopicStream() throws Exception {
 
@@ -154,6 +154,16 @@ public class StreamExpressionToExpressionTest extends SolrTestCase {
       assertTrue(expressionString.contains("fl=\"id,a_s,a_i,a_f\""));
       assertTrue(expressionString.contains("id=blah"));
       assertTrue(expressionString.contains("checkpointEvery=1000"));
+      assertFalse(expressionString.contains("changes"));
+    }
+
+    try (TopicStream stream =
+        new TopicStream(
+            StreamExpressionParser.parse(
+                "topic(collection2, collection1, q=*:*, fl=\"id\", id=\"blah\", changes=true)"),
+            factory)) {
+      expressionString = stream.toExpression(factory).toString();
+      assertTrue(expressionString.contains("changes=true"));
     }
   }
 
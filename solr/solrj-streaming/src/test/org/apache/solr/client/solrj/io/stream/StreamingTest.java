@@ -189,6 +189,40 @@ public class StreamingTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testReadAhead() throws Exception {
+    helloDocsUpdateRequest.commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+    // smaller than the shards, so that the read-ahead waits for the merge
+    streamContext.put(CloudSolrStream.READ_AHEAD_KEY, 2);
+    try {
+      SolrParams sParams = params("q", "*:*", "fl", "id,a_i", "sort", "a_i asc", "qt", "/export");
+      CloudSolrStream stream = new CloudSolrStream(zkHost, COLLECTIONORALIAS, sParams);
+      stream.setStreamContext(streamContext);
+      List<Tuple> tuples = getTuples(stream);
+      assertEquals(10, tuples.size());
+      assertOrder(tuples, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+      long read = 0;
+      for (ShardReadStats stats : stream.getShardStats().values()) {
+        assertEquals(1, stats.getStreams());
+        read += stats.getTuples();
+      }
+      assertEquals(10, read);
+
+      // closing before the end stops the read-ahead
+      stream = new CloudSolrStream(zkHost, COLLECTIONORALIAS, sParams);
+      stream.setStreamContext(streamContext);
+      stream.open();
+      assertEquals("0", stream.read().getString("id"));
+      stream.close();
+    } finally {
+      solrClientCache.close();
+    }
+  }
+
   @Test
   public void testSpacesInParams() throws Exception {
 
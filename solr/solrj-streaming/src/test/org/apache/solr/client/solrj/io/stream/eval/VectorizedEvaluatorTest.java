@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream.eval;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Lang;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.eval.StreamEvaluator;
+import org.apache.solr.client.solrj.io.eval.VectorizedEvaluator;
+import org.apache.solr.client.solrj.io.stream.StreamContext;
+import org.apache.solr.client.solrj.io.stream.TupleStream;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.junit.Test;
+
+public class VectorizedEvaluatorTest extends SolrTestCase {
+
+  private final StreamFactory factory = new StreamFactory();
+
+  public VectorizedEvaluatorTest() {
+    Lang.register(factory);
+  }
+
+  @Test
+  public void compileTest() throws IOException {
+    assertNotNull(compile("add(mult(a,b),c)"));
+    assertNotNull(compile("sqrt(abs(sub(a,2.5,b)))"));
+    assertNotNull(compile("pow(log(a),div(b,3))"));
+
+    assertNull(compile("add(a,if(eq(a,b),1,2))"));
+    assertNull(compile("mult(a,floor(b))"));
+    assertNull(compile("add(a,\"b\")"));
+  }
+
+  @Test
+  public void evaluateTest() throws IOException {
+    String[] expressions = {
+      "add(mult(a,b),c)",
+      "sub(a,b,c,1)",
+      "div(add(b,0.5),b)",
+      "sqrt(abs(sub(a,c)))",
+      "pow(log(abs(b)),2)",
+      "mult(a,a,3)",
+      "log(c)"
+    };
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      Map<String, Object> values = new HashMap<>();
+      values.put("a", randomValue());
+      values.put("b", random().nextBoolean() ? random().nextInt(100) + 1 : randomValue());
+      values.put("c", randomValue());
+      if (values.get("b") == null || ((Number) values.get("b")).doubleValue() == 0) {
+        // div throws on a null or zero denominator
+        values.put("b", 7L);
+      }
+      tuples.add(new Tuple(values));
+    }
+    // values that have to be evaluated one at a time
+    tuples.add(new Tuple(Map.of("a", "1.5", "b", 2L, "c", 3L)));
+    tuples.add(new Tuple(Map.of("a", 0L, "b", 2L, "c", 0L)));
+
+    for (String expression : expressions) {
+      StreamEvaluator evaluator = factory.constructEvaluator(expression);
+      VectorizedEvaluator vectorized = VectorizedEvaluator.compile(evaluator);
+      assertNotNull(expression, vectorized);
+
+      Tuple[] batch = tuples.toArray(new Tuple[0]);
+      Object[] results = new Object[batch.length];
+      for (int count : new int[] {batch.length, 3, batch.length}) {
+        vectorized.evaluate(batch, count, results, null);
+        for (int i = 0; i < count; i++) {
+          Object expected = evaluator.evaluate(batch[i]);
+          String message = expression + " on " + batch[i].getFields();
+          if (expected == null) {
+            assertNull(message, results[i]);
+          } else {
+            double value = ((Number) expected).doubleValue();
+            assertTrue(message, results[i] instanceof Double);
+            assertEquals(message, value, (Double) results[i], Math.max(1, Math.abs(value)) * 1e-9);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void fallbackErrorTest() throws IOException {
+    VectorizedEvaluator vectorized = VectorizedEvaluator.compile(compile("div(a,b)"));
+    Tuple[] batch = {new Tuple("a", 1L, "b", 2L), new Tuple("a", 1L, "b", 0L)};
+    IOException e =
+        expectThrows(
+            IOException.class,
+            () -> vectorized.evaluate(batch, batch.length, new Object[2], null));
+    assertTrue(e.getMessage(), e.getMessage().contains("0 denominator"));
+
+    Object[] results = new Object[1];
+    vectorized.evaluate(batch, 1, results, null);
+    assertEquals(0.5, (Double) results[0], 0.0);
+
+    // NaN isn't a decimal, add(...) fails to convert it
+    StreamEvaluator add = compile("add(a,b)");
+    Tuple[] nan = {new Tuple("a", Double.NaN, "b", 2L)};
+    expectThrows(NumberFormatException.class, () -> add.evaluate(nan[0]));
+    expectThrows(
+        NumberFormatException.class,
+        () -> VectorizedEvaluator.compile(add).evaluate(nan, 1, new Object[1], null));
+  }
+
+  @Test
+  public void selectTest() throws IOException {
+    StringBuilder list = new StringBuilder("list(");
+    for (int i = 0; i < 2500; i++) {
+      if (i > 0) {
+        list.append(',');
+      }
+      list.append("tuple(id=val(").append(i).append("),a=val(").append(i % 17 * 1.5).append(')');
+      if (i % 5 != 0) {
+        list.append(",b=val(").append(i % 3 + 1).append(')');
+      }
+      list.append(')');
+    }
+    list.append(')');
+    String expression =
+        "select("
+            + list
+            + ",id,add(mult(a,b),1) as x,sqrt(x) as y,if(gt(a,10),x,a) as z,a as a2)";
+
+    List<Map<String, Object>> expected = fields(read(expression));
+    System.setProperty(VectorizedEvaluator.ENABLED_PROP, "true");
+    try {
+      // if() isn't compiled, so this evaluates one tuple at a time
+      assertEquals(expected, fields(read(expression)));
+
+      String compiled = expression.replace(",if(gt(a,10),x,a) as z", "");
+      List<Tuple> vectorized = read(compiled);
+      System.clearProperty(VectorizedEvaluator.ENABLED_PROP);
+      List<Tuple> perTuple = read(compiled);
+      assertEquals(2500, vectorized.size());
+      assertEquals(perTuple.size(), vectorized.size());
+      for (int i = 0; i < perTuple.size(); i++) {
+        assertEquals(perTuple.get(i).getFields().keySet(), vectorized.get(i).getFields().keySet());
+        assertEquals(perTuple.get(i).get("a2"), vectorized.get(i).get("a2"));
+        Double y = perTuple.get(i).getDouble("y");
+        if (y == null) {
+          assertNull(vectorized.get(i).get("y"));
+        } else {
+          assertEquals(y, vectorized.get(i).getDouble("y"), 1e-9);
+        }
+      }
+    } finally {
+      System.clearProperty(VectorizedEvaluator.ENABLED_PROP);
+    }
+  }
+
+  private StreamEvaluator compile(String expression) throws IOException {
+    StreamEvaluator evaluator = factory.constructEvaluator(expression);
+    VectorizedEvaluator vectorized = VectorizedEvaluator.compile(evaluator);
+    return vectorized == null ? null : vectorized.getEvaluator();
+  }
+
+  private List<Tuple> read(String expression) throws IOException {
+    TupleStream stream = factory.constructStream(expression);
+    stream.setStreamContext(new StreamContext());
+    List<Tuple> tuples = new ArrayList<>();
+    try {
+      stream.open();
+      for (Tuple tuple = stream.read(); !tuple.EOF; tuple = stream.read()) {
+        tuples.add(tuple);
+      }
+    } finally {
+      stream.close();
+    }
+    return tuples;
+  }
+
+  private static List<Map<String, Object>> fields(List<Tuple> tuples) {
+    List<Map<String, Object>> fields = new ArrayList<>();
+    for (Tuple tuple : tuples) {
+      fields.add(tuple.getFields());
+    }
+    return fields;
+  }
+
+  private Object randomValue() {
+    switch (random().nextInt(4)) {
+      case 0:
+        return null;
+      case 1:
+        return (long) random().nextInt(1000) - 500;
+      default:
+        return (random().nextDouble() - 0.5) * 1000;
+    }
+  }
+}
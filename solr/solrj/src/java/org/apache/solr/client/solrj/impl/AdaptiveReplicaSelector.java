@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.impl;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.common.MapWriter;
+
+/**
+ * Chooses between replicas of the same data by their recent latency, so that a replica that is
+ * alive but slow (GC, merges, a noisy neighbour) gets less traffic long before it would fail and be
+ * marked as a zombie by {@link LBSolrClient}.
+ *
+ * <p>Each endpoint keeps an exponentially weighted moving average of its response times and a
+ * count of its requests in flight. To choose, two random candidates are compared on {@code
+ * average * (inFlight + 1)} and the better one is used ("power of two choices"), which spreads load
+ * almost as well as always picking the best endpoint without sending every client to the same one.
+ * The average of an endpoint that receives no traffic decays with a half life of {@link
+ * #DECAY_HALF_LIFE_MS}, so a replica that was slow is tried again once it had time to recover. A
+ * failed request counts as taking at least {@link #FAILURE_PENALTY_MS}, so that a replica failing
+ * fast doesn't look like the fastest one.
+ *
+ * <p>Endpoints are identified by their {@code toString()}, which is their URL for {@link
+ * LBSolrClient.Endpoint}.
+ */
+public class AdaptiveReplicaSelector implements MapWriter {
+
+  /** Weight of the latest response time in the moving average. */
+  public static final double ALPHA = 0.2;
+
+  /** Half life of the average of an endpoint that is not sent any request. */
+  public static final long DECAY_HALF_LIFE_MS = 10_000;
+
+  /** The least response time recorded for a failed request. */
+  public static final long FAILURE_PENALTY_MS = 1_000;
+  private static final long FAILURE_PENALTY_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(FAILURE_PENALTY_MS);
+
+  // stats for endpoints that have been idle for this long are dropped when there are too many
+  private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+  private static final int MAX_ENDPOINTS = 10_000;
+
+  private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+  private final LongAdder choices = new LongAdder();
+  private final LongAdder reordered = new LongAdder();
+
+  private static final class EndpointStats {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final LongAdder requests = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    // guarded by this, read without locking
+    volatile double avgNanos = -1;
+    volatile long lastNanos = System.nanoTime();
+
+    synchronized void record(long elapsedNanos) {
+      avgNanos = avgNanos < 0 ? elapsedNanos : avgNanos + ALPHA * (elapsedNanos - avgNanos);
+      lastNanos = System.nanoTime();
+    }
+
+    double score(long now) {
+      double avg = avgNanos;
+      if (avg <= 0) {
+        return 0; // never measured, try it
+      }
+      double idleMs = (now - lastNanos) / 1e6;
+      if (idleMs > 0) {
+        avg *= Math.pow(0.5, idleMs / DECAY_HALF_LIFE_MS);
+      }
+      return avg * (inFlight.get() + 1);
+    }
+  }
+
+  private EndpointStats stats(String endpoint) {
+    EndpointStats s = stats.get(endpoint);
+    if (s == null) {
+      if (stats.size() >= MAX_ENDPOINTS) {
+        long now = System.nanoTime();
+        stats.values().removeIf(e -> e.inFlight.get() == 0 && now - e.lastNanos > IDLE_NANOS);
+      }
+      s = stats.computeIfAbsent(endpoint, k -> new EndpointStats());
+    }
+    return s;
+  }
+
+  /**
+   * Moves the better of two randomly chosen endpoints to the front of the list, leaving the others
+   * in order as fallbacks.
+   */
+  public <T> void reorder(List<T> endpoints) {
+    int size = endpoints.size();
+    if (size < 2) {
+      return;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(size);
+    int second = random.nextInt(size - 1);
+    if (second >= first) {
+      second++;
+    }
+    T chosen = choose(endpoints.get(first), endpoints.get(second));
+    int index = chosen == endpoints.get(first) ? first : second;
+    if (index != 0) {
+      reordered.increment();
+      Collections.swap(endpoints, 0, index);
+    }
+  }
+
+  /** Returns the better of two endpoints, the first one on a tie. */
+  public <T> T choose(T first, T second) {
+    choices.increment();
+    long now = System.nanoTime();
+    return stats(second.toString()).score(now) < stats(first.toString()).score(now)
+        ? second
+        : first;
+  }
+
+  /**
+   * Records the start of a request to an endpoint.
+   *
+   * @return the start time, to pass to {@link #requestFinished}
+   */
+  public long requestStarted(Object endpoint) {
+    stats(endpoint.toString()).inFlight.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  /** Records the end of a request started by {@link #requestStarted}. */
+  public void requestFinished(Object endpoint, long startNanos, boolean success) {
+    EndpointStats s = stats(endpoint.toString());
+    s.inFlight.decrementAndGet();
+    s.requests.increment();
+    long elapsedNanos = Math.max(0, System.nanoTime() - startNanos);
+    if (!success) {
+      s.errors.increment();
+      elapsedNanos = Math.max(elapsedNanos, FAILURE_PENALTY_NANOS);
+    }
+    s.record(elapsedNanos);
+  }
+
+  /**
+   * Records the end of a request started by {@link #requestStarted} that was cancelled, and so
+   * says nothing about the endpoint's latency.
+   */
+  public void requestCancelled(Object endpoint) {
+    stats(endpoint.toString()).inFlight.decrementAndGet();
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    ew.put("choices", choices.sum());
+    ew.put("reordered", reordered.sum());
+    long now = System.nanoTime();
+    ew.put(
+        "endpoints",
+        (MapWriter)
+            endpointsWriter -> {
+              for (Map.Entry<String, EndpointStats> e : stats.entrySet()) {
+                EndpointStats s = e.getValue();
+                endpointsWriter.put(
+                    e.getKey(),
+                    (MapWriter)
+                        w -> {
+                          w.put("latencyMs", Math.max(0, s.avgNanos) / 1e6);
+                          w.put("score", s.score(now) / 1e6);
+                          w.put("inFlight", s.inFlight.get());
+                          w.put("requests", s.requests.sum());
+                          w.put("errors", s.errors.sum());
+                        });
+              }
+            });
+  }
+}
@@ -0,0 +1,564 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.DocRouter;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Indexes documents into a collection asynchronously, in batches sent straight to the leaders of
+ * the shards of the documents, using the {@link Http2SolrClient} of a {@link CloudHttp2SolrClient}.
+ *
+ * <p>The documents are routed with the {@link DocRouter} of the collection, and buffered by shard.
+ * Documents that the router has no shard for, i.e. documents with no <code>_route_</code> field in
+ * a collection with the implicit router and no <code>router.field</code>, are indexed into one of
+ * the active shards, chosen by the hash of their id.
+ * The buffer of a shard is sent once it holds the batch size of the shard or {@link
+ * Builder#withMaxBatchBytes(long) maxBatchBytes}, or once its oldest document waited {@link
+ * Builder#withMaxLatency(long, TimeUnit) maxLatency}. Each shard has at most one request in
+ * flight, so that the updates to a shard are applied in the order they were added, and {@link
+ * Builder#withMaxInFlightRequests(int) maxInFlightRequests} bounds the requests in flight to all
+ * shards; {@link #add(SolrInputDocument)} blocks while they are all busy.
+ *
+ * <p>The batch size of a shard starts at {@link Builder#withMaxBatchDocs(int) maxBatchDocs}. It
+ * shrinks when the requests take longer than {@link Builder#withTargetLatency(long, TimeUnit)
+ * targetLatency}, and is halved when the leader answers <code>503 Service Unavailable</code> or
+ * <code>429 Too Many Requests</code>, in which case the batch is sent again after a delay; it
+ * grows back while the requests are fast. Batches that still fail are passed to {@link
+ * #handleError}. The throughput of each shard is reported by {@link #writeMap}.
+ *
+ * <p>Documents are only sent to the leaders: {@link #flush()} waits until all the documents added
+ * before were indexed or failed, but does not commit.
+ */
+public class CloudBulkIndexer implements Closeable, MapWriter {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final int DEFAULT_MAX_BATCH_DOCS = 1000;
+  public static final long DEFAULT_MAX_BATCH_BYTES = 8L * 1024 * 1024;
+  public static final long DEFAULT_MAX_LATENCY_MS = 1000;
+  public static final long DEFAULT_TARGET_LATENCY_MS = 1000;
+  public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 16;
+  public static final int DEFAULT_MAX_RETRIES = 5;
+
+  private static final int MIN_BATCH_DOCS = 1;
+  private static final long RETRY_DELAY_MS = 100;
+
+  private final CloudHttp2SolrClient client;
+  private final String collection;
+  private final int maxBatchDocs;
+  private final long maxBatchBytes;
+  private final long maxLatencyNanos;
+  private final long targetLatencyNanos;
+  private final int maxInFlightRequests;
+  private final int maxRetries;
+
+  private final Semaphore inFlight;
+  private final Map<String, ShardQueue> shards = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler;
+  private volatile boolean closed;
+
+  protected CloudBulkIndexer(Builder builder) {
+    this.client = builder.client;
+    this.collection =
+        builder.client.getClusterStateProvider().resolveSimpleAlias(builder.collection);
+    this.maxBatchDocs = builder.maxBatchDocs;
+    this.maxBatchBytes = builder.maxBatchBytes;
+    this.maxLatencyNanos = builder.maxLatencyNanos;
+    this.targetLatencyNanos = builder.targetLatencyNanos;
+    this.maxInFlightRequests = builder.maxInFlightRequests;
+    this.maxRetries = builder.maxRetries;
+    this.inFlight = new Semaphore(maxInFlightRequests);
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(new SolrNamedThreadFactory("bulkIndexer"));
+    long period = Math.max(TimeUnit.MILLISECONDS.toNanos(1), maxLatencyNanos / 4);
+    scheduler.scheduleWithFixedDelay(this::sendStaleBatches, period, period, TimeUnit.NANOSECONDS);
+  }
+
+  /** A batch of documents taken from the buffer of a shard. */
+  private record Batch(ShardQueue shard, List<SolrInputDocument> docs, long bytes) {}
+
+  /** The buffer and the statistics of a shard. */
+  private class ShardQueue {
+    final String name;
+    // held while a batch of this shard is in flight, so that they are sent in order
+    final Semaphore sending = new Semaphore(1);
+    // guarded by this
+    private List<SolrInputDocument> docs = new ArrayList<>();
+    private long bytes;
+    private long oldestNanos;
+    private int batchDocs = maxBatchDocs;
+
+    final LongAdder docsSent = new LongAdder();
+    final LongAdder bytesSent = new LongAdder();
+    final LongAdder batches = new LongAdder();
+    final LongAdder retries = new LongAdder();
+    final LongAdder failedDocs = new LongAdder();
+    final LongAdder latencyNanos = new LongAdder();
+    volatile long firstSentNanos;
+
+    ShardQueue(String name) {
+      this.name = name;
+    }
+
+    /** Buffers a document, and returns whether the buffer is full. */
+    synchronized boolean add(SolrInputDocument doc, long docBytes) {
+      if (docs.isEmpty()) {
+        oldestNanos = System.nanoTime();
+      }
+      docs.add(doc);
+      bytes += docBytes;
+      return isFull();
+    }
+
+    synchronized boolean isFull() {
+      return docs.size() >= batchDocs || bytes >= maxBatchBytes;
+    }
+
+    synchronized boolean isStale(long now) {
+      return !docs.isEmpty() && now - oldestNanos >= maxLatencyNanos;
+    }
+
+    /** Takes the buffered documents, or returns null if there are none. */
+    synchronized Batch take() {
+      if (docs.isEmpty()) {
+        return null;
+      }
+      Batch batch = new Batch(this, docs, bytes);
+      docs = new ArrayList<>();
+      bytes = 0;
+      return batch;
+    }
+
+    synchronized int getBatchDocs() {
+      return batchDocs;
+    }
+
+    synchronized void onSent(Batch batch, long latency) {
+      if (firstSentNanos == 0) {
+        firstSentNanos = System.nanoTime() - latency;
+      }
+      docsSent.add(batch.docs.size());
+      bytesSent.add(batch.bytes);
+      batches.increment();
+      latencyNanos.add(latency);
+      // grow slowly while the requests are fast, shrink faster when they are slow
+      if (latency > targetLatencyNanos) {
+        batchDocs = Math.max(MIN_BATCH_DOCS, batchDocs * 3 / 4);
+      } else if (latency < targetLatencyNanos / 2 && batch.docs.size() >= batchDocs) {
+        batchDocs = Math.min(maxBatchDocs, batchDocs + Math.max(1, batchDocs / 8));
+      }
+    }
+
+    synchronized void onBackPressure() {
+      batchDocs = Math.max(MIN_BATCH_DOCS, batchDocs / 2);
+    }
+  }
+
+  /**
+   * Adds a document, to be sent with the next batch of its shard. This blocks while the previous
+   * batch of the shard is in flight and the buffer of the shard is full, or while {@link
+   * Builder#withMaxInFlightRequests(int) maxInFlightRequests} requests are in flight.
+   */
+  public void add(SolrInputDocument doc) throws IOException {
+    if (closed) {
+      throw new IllegalStateException("This indexer is closed");
+    }
+    ShardQueue shard = shards.computeIfAbsent(getShard(doc), ShardQueue::new);
+    if (shard.add(doc, estimateBytes(doc))) {
+      try {
+        sendBatch(shard);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while sending a batch to " + shard.name);
+      }
+    }
+  }
+
+  /** Adds documents. */
+  public void add(Collection<SolrInputDocument> docs) throws IOException {
+    for (SolrInputDocument doc : docs) {
+      add(doc);
+    }
+  }
+
+  /**
+   * Sends the buffered documents, and waits until all the requests in flight completed. Failed
+   * batches have been passed to {@link #handleError} when this returns.
+   */
+  public void flush() throws IOException {
+    try {
+      for (ShardQueue shard : shards.values()) {
+        sendBatch(shard);
+      }
+      inFlight.acquire(maxInFlightRequests);
+      inFlight.release(maxInFlightRequests);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while flushing");
+    }
+  }
+
+  /** Flushes the buffered documents, and stops the indexer. This does not close the client. */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      closed = true;
+      ExecutorUtil.shutdownAndAwaitTermination(scheduler);
+    }
+  }
+
+  /**
+   * Called with the documents of a batch that could not be indexed. The default implementation
+   * logs the error.
+   *
+   * @param shard the shard of the documents
+   */
+  public void handleError(String shard, List<SolrInputDocument> docs, Throwable ex) {
+    log.error("Failed to index {} documents into {} of {}", docs.size(), shard, collection, ex);
+  }
+
+  private String getShard(SolrInputDocument doc) {
+    DocCollection col = client.getDocCollection(collection, null);
+    if (col == null) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST, "Collection not found: " + collection);
+    }
+    DocRouter router = col.getRouter();
+    String routeField = router.getRouteField(col);
+    Object id = doc.getFieldValue(routeField == null ? CommonParams.ID : routeField);
+    if (id == null) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "Document has no " + (routeField == null ? CommonParams.ID : routeField));
+    }
+    Slice slice = router.getTargetSlice(id.toString(), doc, null, SolrParams.of(), col);
+    if (slice == null) {
+      // Solr indexes such documents into the shard of the core receiving them; choosing by id
+      // keeps the updates of a document on the same shard
+      Slice[] active = col.getActiveSlicesArr();
+      if (active.length == 0) {
+        throw new SolrException(
+            SolrException.ErrorCode.SERVICE_UNAVAILABLE, "No active shard of " + collection);
+      }
+      Arrays.sort(active, Comparator.comparing(Slice::getName));
+      slice = active[Math.floorMod(id.hashCode(), active.length)];
+    }
+    return slice.getName();
+  }
+
+  /** Sends the buffer of a shard, once its previous batch completed. */
+  private void sendBatch(ShardQueue shard) throws InterruptedException {
+    shard.sending.acquire();
+    try {
+      inFlight.acquire();
+    } catch (InterruptedException e) {
+      shard.sending.release();
+      throw e;
+    }
+    Batch batch = shard.take();
+    if (batch == null) {
+      release(shard);
+    } else {
+      send(batch, 0);
+    }
+  }
+
+  /** Sends the buffers whose oldest document waited too long, unless they would have to wait. */
+  private void sendStaleBatches() {
+    long now = System.nanoTime();
+    for (ShardQueue shard : shards.values()) {
+      if (!shard.isStale(now) || !shard.sending.tryAcquire()) {
+        continue;
+      }
+      if (!inFlight.tryAcquire()) {
+        shard.sending.release();
+        return;
+      }
+      Batch batch = shard.take();
+      if (batch == null) {
+        release(shard);
+      } else {
+        send(batch, 0);
+      }
+    }
+  }
+
+  private void release(ShardQueue shard) {
+    inFlight.release();
+    shard.sending.release();
+  }
+
+  private void send(Batch batch, int attempt) {
+    final long start = System.nanoTime();
+    CompletableFuture<NamedList<Object>> future;
+    try {
+      Replica leader = getLeader(batch.shard.name);
+      UpdateRequest req = new UpdateRequest();
+      req.add(batch.docs);
+      future =
+          client
+              .getHttpClient()
+              .requestWithBaseUrl(
+                  leader.getBaseUrl(), c -> c.requestAsync(req, leader.getCoreName()));
+    } catch (SolrServerException | IOException | RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    future.whenComplete(
+        (rsp, t) -> {
+          if (t == null) {
+            batch.shard.onSent(batch, System.nanoTime() - start);
+            release(batch.shard);
+          } else {
+            onFailure(batch, attempt, t instanceof CompletionException ? t.getCause() : t);
+          }
+        });
+  }
+
+  private Replica getLeader(String shard) throws SolrServerException {
+    DocCollection col = client.getDocCollection(collection, null);
+    Slice slice = col == null ? null : col.getSlice(shard);
+    Replica leader = slice == null ? null : slice.getLeader();
+    if (leader == null) {
+      throw new SolrServerException("No leader for " + shard + " of " + collection);
+    }
+    return leader;
+  }
+
+  private void onFailure(Batch batch, int attempt, Throwable ex) {
+    ShardQueue shard = batch.shard;
+    boolean backPressure =
+        ex instanceof SolrClient.RemoteSolrException rse
+            && (rse.code() == 503 || rse.code() == 429);
+    if (attempt < maxRetries && (backPressure || ex instanceof SolrServerException)) {
+      if (backPressure) {
+        shard.onBackPressure();
+      }
+      shard.retries.increment();
+      try {
+        scheduler.schedule(
+            () -> send(batch, attempt + 1), RETRY_DELAY_MS << attempt, TimeUnit.MILLISECONDS);
+        return;
+      } catch (RejectedExecutionException e) {
+        // closed while the batch was retried
+      }
+    }
+    shard.failedDocs.add(batch.docs.size());
+    try {
+      handleError(shard.name, batch.docs, ex);
+    } catch (RuntimeException e) {
+      log.error("Error handler failed", e);
+    } finally {
+      release(shard);
+    }
+  }
+
+  /** A rough estimate of the size of a document in a request. */
+  static long estimateBytes(SolrInputDocument doc) {
+    long bytes = 0;
+    for (SolrInputField field : doc) {
+      bytes += field.getName().length();
+      for (Object value : field) {
+        bytes += estimateBytes(value);
+      }
+    }
+    if (doc.hasChildDocuments()) {
+      for (SolrInputDocument child : doc.getChildDocuments()) {
+        bytes += estimateBytes(child);
+      }
+    }
+    return bytes;
+  }
+
+  private static long estimateBytes(Object value) {
+    if (value instanceof CharSequence s) {
+      return s.length();
+    } else if (value instanceof byte[] b) {
+      return b.length;
+    } else if (value instanceof ByteBuffer b) {
+      return b.remaining();
+    } else if (value instanceof SolrInputDocument d) {
+      return estimateBytes(d);
+    } else if (value instanceof Map<?, ?> m) {
+      // atomic updates
+      long bytes = 0;
+      for (Map.Entry<?, ?> e : m.entrySet()) {
+        bytes += String.valueOf(e.getKey()).length() + estimateBytes(e.getValue());
+      }
+      return bytes;
+    } else if (value instanceof Collection<?> c) {
+      long bytes = 0;
+      for (Object o : c) {
+        bytes += estimateBytes(o);
+      }
+      return bytes;
+    }
+    return 8;
+  }
+
+  /** Writes the statistics of each shard. */
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    long now = System.nanoTime();
+    for (ShardQueue shard : new TreeMap<>(shards).values()) {
+      long docs = shard.docsSent.sum();
+      long batches = shard.batches.sum();
+      long first = shard.firstSentNanos;
+      double seconds = first == 0 ? 0 : (now - first) / 1e9;
+      ew.put(
+          shard.name,
+          (MapWriter)
+              sw -> {
+                sw.put("docs", docs);
+                sw.put("bytes", shard.bytesSent.sum());
+                sw.put("batches", batches);
+                sw.put("retries", shard.retries.sum());
+                sw.put("failedDocs", shard.failedDocs.sum());
+                sw.put("batchDocs", shard.getBatchDocs());
+                sw.put(
+                    "meanLatencyMs",
+                    batches == 0 ? 0d : shard.latencyNanos.sum() / 1e6 / batches);
+                sw.put("docsPerSec", seconds == 0 ? 0d : docs / seconds);
+              });
+    }
+  }
+
+  /** Constructs {@link CloudBulkIndexer} instances. */
+  public static class Builder {
+    private final CloudHttp2SolrClient client;
+    private final String collection;
+    private int maxBatchDocs = DEFAULT_MAX_BATCH_DOCS;
+    private long maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+    private long maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_LATENCY_MS);
+    private long targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TARGET_LATENCY_MS);
+    private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+
+    /**
+     * @param client the client to find the leaders and send the requests with, which is not closed
+     *     by the indexer
+     * @param collection the collection, or alias of a single collection, to index into
+     */
+    public Builder(CloudHttp2SolrClient client, String collection) {
+      this.client = client;
+      this.collection = collection;
+    }
+
+    /** The maximum number of documents in a batch, which is also the initial batch size. */
+    public Builder withMaxBatchDocs(int maxBatchDocs) {
+      if (maxBatchDocs < MIN_BATCH_DOCS) {
+        throw new IllegalArgumentException("maxBatchDocs must be positive, got " + maxBatchDocs);
+      }
+      this.maxBatchDocs = maxBatchDocs;
+      return this;
+    }
+
+    /** The estimated size of the documents of a shard at which they are sent. */
+    public Builder withMaxBatchBytes(long maxBatchBytes) {
+      if (maxBatchBytes <= 0) {
+        throw new IllegalArgumentException("maxBatchBytes must be positive, got " + maxBatchBytes);
+      }
+      this.maxBatchBytes = maxBatchBytes;
+      return this;
+    }
+
+    /** How long a document may wait in the buffer of its shard before it is sent. */
+    public Builder withMaxLatency(long maxLatency, TimeUnit unit) {
+      if (maxLatency <= 0) {
+        throw new IllegalArgumentException("maxLatency must be positive, got " + maxLatency);
+      }
+      this.maxLatencyNanos = unit.toNanos(maxLatency);
+      return this;
+    }
+
+    /** The request time above which the batch size of a shard is reduced. */
+    public Builder withTargetLatency(long targetLatency, TimeUnit unit) {
+      if (targetLatency <= 0) {
+        throw new IllegalArgumentException("targetLatency must be positive, got " + targetLatency);
+      }
+      this.targetLatencyNanos = unit.toNanos(targetLatency);
+      return this;
+    }
+
+    /** The maximum number of requests in flight to all the shards. */
+    public Builder withMaxInFlightRequests(int maxInFlightRequests) {
+      if (maxInFlightRequests <= 0) {
+        throw new IllegalArgumentException(
+            "maxInFlightRequests must be positive, got " + maxInFlightRequests);
+      }
+      this.maxInFlightRequests = maxInFlightRequests;
+      return this;
+    }
+
+    /**
+     * How many times a batch is sent again after a communication error or a <code>503</code> or
+     * <code>429</code> response, with exponentially growing delays.
+     */
+    public Builder withMaxRetries(int maxRetries) {
+      if (maxRetries < 0) {
+        throw new IllegalArgumentException("maxRetries must not be negative, got " + maxRetries);
+      }
+      this.maxRetries = maxRetries;
+      return this;
+    }
+
+    public CloudBulkIndexer build() {
+      return new CloudBulkIndexer(this);
+    }
+  }
+}
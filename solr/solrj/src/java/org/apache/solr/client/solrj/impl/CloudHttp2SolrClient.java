@@ -24,10 +24,13 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import org.apache.solr.client.solrj.ResponseParser;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.SolrZkClientTimeout.SolrZkClientTimeoutAware;
 import org.apache.solr.client.solrj.request.RequestWriter;
 import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.NamedList;
 
 /**
  * SolrJ client class to communicate with SolrCloud using Http2SolrClient. Instances of this class
@@ -43,6 +46,7 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
   private final LBHttp2SolrClient<Http2SolrClient> lbClient;
   private final Http2SolrClient myClient;
   private final boolean clientIsInternal;
+  private final ResponseCache responseCache;
 
   /**
    * Create a new client object that connects to Zookeeper and is always aware of the SolrCloud
@@ -74,6 +78,13 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
     this.locks = objectList(builder.parallelCacheRefreshesLocks);
 
     this.lbClient = new LBHttp2SolrClient.Builder<Http2SolrClient>(myClient).build();
+    this.responseCache =
+        builder.responseCacheMaxEntries > 0
+            ? new ResponseCache(
+                builder.responseCacheMaxEntries,
+                builder.responseCacheMaxAgeNanos,
+                TimeUnit.NANOSECONDS)
+            : null;
   }
 
   private Http2SolrClient createOrGetHttpClientFromBuilder(Builder builder) {
@@ -137,6 +148,19 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
     }
   }
 
+  @Override
+  public NamedList<Object> request(SolrRequest<?> request, String collection)
+      throws SolrServerException, IOException {
+    if (responseCache == null || !ResponseCache.isCacheable(request)) {
+      return super.request(request, collection);
+    }
+    String cacheCollection = request.getCollection() != null ? request.getCollection() : collection;
+    if (cacheCollection == null) {
+      cacheCollection = defaultCollection;
+    }
+    return responseCache.request(request, cacheCollection, r -> super.request(r, collection));
+  }
+
   @Override
   public void close() throws IOException {
     stateProvider.close();
@@ -161,6 +185,15 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
     return myClient;
   }
 
+  /**
+   * Returns the cache of the responses to queries, with its hit ratio, or null if it is disabled.
+   *
+   * @see Builder#withResponseCache(int, long, TimeUnit)
+   */
+  public ResponseCache getResponseCache() {
+    return responseCache;
+  }
+
   @Override
   protected boolean wasCommError(Throwable rootCause) {
     return false;
@@ -188,6 +221,8 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
     private int zkConnectTimeout = SolrZkClientTimeout.DEFAULT_ZK_CONNECT_TIMEOUT;
     private int zkClientTimeout = SolrZkClientTimeout.DEFAULT_ZK_CLIENT_TIMEOUT;
     private boolean canUseZkACLs = true;
+    private int responseCacheMaxEntries;
+    private long responseCacheMaxAgeNanos;
 
     /**
      * Provide a series of Solr URLs to be used when configuring {@link CloudHttp2SolrClient}
@@ -375,6 +410,31 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
       return this;
     }
 
+    /**
+     * Caches the responses to up to <code>maxEntries</code> queries, and revalidates them with
+     * conditional requests, which the servers answer without running the query if the index did not
+     * change. This needs <code>&lt;httpCaching never304="false"&gt;</code> in the <code>
+     * solrconfig.xml</code> of the collections. See {@link ResponseCache} for the queries that are
+     * cached.
+     *
+     * @param maxEntries the maximum number of cached responses
+     * @param maxAge the time after which a response is requested again in full even if the index of
+     *     the replica answering the query did not change, as the other shards of the collection may
+     *     have. This bounds how stale a response can be, and must be positive
+     * @param unit the unit of <code>maxAge</code>
+     */
+    public Builder withResponseCache(int maxEntries, long maxAge, TimeUnit unit) {
+      if (maxEntries <= 0) {
+        throw new IllegalArgumentException("maxEntries must be positive, got " + maxEntries);
+      }
+      if (maxAge <= 0) {
+        throw new IllegalArgumentException("maxAge must be positive, got " + maxAge);
+      }
+      this.responseCacheMaxEntries = maxEntries;
+      this.responseCacheMaxAgeNanos = unit.toNanos(maxAge);
+      return this;
+    }
+
     /** Sets the default collection for request. */
     public Builder withDefaultCollection(String defaultCollection) {
       this.defaultCollection = defaultCollection;
@@ -408,6 +408,7 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
       }
 
       Update update = new Update(req, effectiveCollection);
+      final long offerNanos = System.nanoTime();
       boolean success = queue.offer(update);
 
       for (; ; ) {
@@ -447,6 +448,7 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
           stallDetection.stallCheck();
         }
       }
+      onQueued(req, System.nanoTime() - offerNanos);
     } catch (InterruptedException e) {
       log.error("interrupted", e);
       throw new IOException(e.getLocalizedMessage());
@@ -568,6 +570,16 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
     log.error("error", ex);
   }
 
+  /**
+   * Intended to be used as an extension point for measuring back-pressure: called once an update
+   * is in the queue, with the time it waited for room there.
+   *
+   * @param waitNanos the time the calling thread blocked because the queue was full
+   */
+  public void onQueued(UpdateRequest request, long waitNanos) {
+    // no-op by design, override to add functionality
+  }
+
   /**
    * Intended to be used as an extension point for doing post-processing after a request completes.
    *
@@ -37,6 +37,7 @@ import java.util.concurrent.Phaser;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import org.apache.solr.client.api.util.SolrVersion;
 import org.apache.solr.client.solrj.ResponseParser;
@@ -57,14 +58,18 @@ import org.apache.solr.common.util.ContentStream;
 import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.ObjectReleaseTracker;
+import org.apache.solr.common.util.ResponseCompression;
 import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.eclipse.jetty.client.AuthenticationStore;
+import org.eclipse.jetty.client.Connection;
+import org.eclipse.jetty.client.Destination;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.HttpClientTransport;
 import org.eclipse.jetty.client.HttpProxy;
 import org.eclipse.jetty.client.InputStreamRequestContent;
 import org.eclipse.jetty.client.InputStreamResponseListener;
 import org.eclipse.jetty.client.MultiPartRequestContent;
+import org.eclipse.jetty.client.MultiplexConnectionPool;
 import org.eclipse.jetty.client.Origin.Address;
 import org.eclipse.jetty.client.Origin.Protocol;
 import org.eclipse.jetty.client.OutputStreamRequestContent;
@@ -81,12 +86,14 @@ import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.MimeTypes;
 import org.eclipse.jetty.http.MultiPart;
 import org.eclipse.jetty.http2.client.HTTP2Client;
 import org.eclipse.jetty.http2.client.transport.HttpClientTransportOverHTTP2;
 import org.eclipse.jetty.io.ClientConnector;
 import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.ConcurrentPool;
 import org.eclipse.jetty.util.ssl.KeyStoreScanner;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.slf4j.Logger;
@@ -125,6 +132,8 @@ public class Http2SolrClient extends HttpSolrClientBase {
 
   private KeyStoreScanner scanner;
 
+  private final boolean responseCompression;
+
   protected Http2SolrClient(String serverBaseUrl, Builder builder) {
     super(serverBaseUrl, builder);
 
@@ -146,6 +155,7 @@ public class Http2SolrClient extends HttpSolrClientBase {
     updateDefaultMimeTypeForParser();
 
     this.httpClient.setFollowRedirects(Boolean.TRUE.equals(builder.followRedirects));
+    this.responseCompression = Boolean.TRUE.equals(builder.responseCompression);
 
     assert ObjectReleaseTracker.track(this);
   }
@@ -241,6 +251,15 @@ public class Http2SolrClient extends HttpSolrClientBase {
 
       HTTP2Client http2client = new HTTP2Client(clientConnector);
       transport = new HttpClientTransportOverHTTP2(http2client);
+      if (builder.maxConcurrentStreams != null && builder.maxConcurrentStreams > 0) {
+        int maxStreams = builder.maxConcurrentStreams;
+        transport.setConnectionPoolFactory(
+            destination ->
+                new CappedMultiplexConnectionPool(
+                    destination,
+                    destination.getHttpClient().getMaxConnectionsPerDestination(),
+                    maxStreams));
+      }
       httpClient = new HttpClient(transport);
       httpClient.setMaxConnectionsPerDestination(4);
     }
@@ -275,6 +294,27 @@ public class Http2SolrClient extends HttpSolrClientBase {
     return httpClient;
   }
 
+  /**
+   * A pool of HTTP/2 connections that sends at most <code>maxStreams</code> concurrent requests on
+   * each connection, even if the server allows more. The requests above that wait in the queue of
+   * the destination.
+   */
+  private static class CappedMultiplexConnectionPool extends MultiplexConnectionPool {
+    CappedMultiplexConnectionPool(Destination destination, int maxConnections, int maxStreams) {
+      super(
+          destination,
+          () ->
+              new ConcurrentPool<>(
+                  ConcurrentPool.StrategyType.FIRST, maxConnections, capped(maxStreams)),
+          maxStreams);
+    }
+
+    private static ToIntFunction<Connection> capped(int maxStreams) {
+      ToIntFunction<Connection> serverMax = newMaxMultiplexer(maxStreams);
+      return connection -> Math.min(maxStreams, serverMax.applyAsInt(connection));
+    }
+  }
+
   private void setupProxy(Builder builder, HttpClient httpClient) {
     if (builder.proxyHost == null) {
       return;
@@ -588,6 +628,22 @@ public class Http2SolrClient extends HttpSolrClientBase {
       throws SolrServerException {
     ResponseParser parser =
         solrRequest.getResponseParser() == null ? this.parser : solrRequest.getResponseParser();
+    if (ResponseCompression.ENCODING.equals(
+        response.getHeaders().get(HttpHeader.CONTENT_ENCODING))) {
+      is = ResponseCompression.inflate(is);
+    }
+    if (solrRequest instanceof ResponseCache.ConditionalRequest conditional) {
+      boolean notModified = response.getStatus() == HttpStatus.NOT_MODIFIED_304;
+      conditional.onResponse(response.getHeaders().get(HttpHeader.ETAG), notModified);
+      if (notModified) {
+        try {
+          is.close();
+        } catch (IOException e) {
+          // quietly
+        }
+        return new NamedList<>();
+      }
+    }
     String contentType = response.getHeaders().get(HttpHeader.CONTENT_TYPE);
     String mimeType = null;
     String encoding = null;
@@ -621,6 +677,16 @@ public class Http2SolrClient extends HttpSolrClientBase {
 
   private void decorateRequest(Request req, SolrRequest<?> solrRequest, boolean isAsync) {
     req.headers(headers -> headers.remove(HttpHeader.ACCEPT_ENCODING));
+    if (responseCompression) {
+      String dictionaries = ResponseCompression.getDictionariesHeader();
+      req.headers(
+          headers -> {
+            headers.put(HttpHeader.ACCEPT_ENCODING, ResponseCompression.ENCODING);
+            if (dictionaries != null) {
+              headers.put(ResponseCompression.DICTIONARIES_HEADER, dictionaries);
+            }
+          });
+    }
 
     if (requestTimeoutMillis > 0) {
       req.timeout(requestTimeoutMillis, TimeUnit.MILLISECONDS);
@@ -904,6 +970,10 @@ public class Http2SolrClient extends HttpSolrClientBase {
 
     private List<HttpListenerFactory> listenerFactory;
 
+    protected Boolean responseCompression;
+
+    protected Integer maxConcurrentStreams;
+
     public Builder() {
       super();
     }
@@ -933,6 +1003,28 @@ public class Http2SolrClient extends HttpSolrClientBase {
       return this;
     }
 
+    /**
+     * Asks the servers to compress their responses with the {@link ResponseCompression#ENCODING}
+     * encoding, which is worth its CPU cost when the network between the client and the servers is
+     * slow or billed, such as for the requests Solr nodes send to each other across availability
+     * zones. Off by default.
+     */
+    public Http2SolrClient.Builder withResponseCompression(boolean responseCompression) {
+      this.responseCompression = responseCompression;
+      return this;
+    }
+
+    /**
+     * Set the maximum number of concurrent requests on each HTTP/2 connection, below the limit the
+     * server announces. Requests above it wait for a stream to be available, so that a client
+     * dedicated to one kind of traffic, such as replication, can not take all the streams the
+     * server allows. Not set by default.
+     */
+    public Http2SolrClient.Builder withMaxConcurrentStreams(int maxConcurrentStreams) {
+      this.maxConcurrentStreams = maxConcurrentStreams;
+      return this;
+    }
+
     public HttpSolrClientBuilderBase<Http2SolrClient.Builder, Http2SolrClient> withSSLConfig(
         SSLConfig sslConfig) {
       this.sslConfig = sslConfig;
@@ -1112,6 +1204,9 @@ public class Http2SolrClient extends HttpSolrClientBase {
       if (this.executor == null) {
         this.executor = http2SolrClient.executor;
       }
+      if (this.responseCompression == null) {
+        this.responseCompression = http2SolrClient.responseCompression;
+      }
       return this;
     }
 
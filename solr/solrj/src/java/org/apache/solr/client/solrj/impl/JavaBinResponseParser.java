@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.util.Collection;
 import java.util.Set;
 import org.apache.solr.client.solrj.ResponseParser;
+import org.apache.solr.common.util.ByteArrayPool;
 import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.common.util.NamedList;
 
@@ -46,11 +47,15 @@ public class JavaBinResponseParser extends ResponseParser {
   @Override
   @SuppressWarnings({"unchecked"})
   public NamedList<Object> processResponse(InputStream body, String encoding) throws IOException {
-    return (NamedList<Object>) createCodec().unmarshal(body);
+    try (JavaBinCodec codec = createCodec()) {
+      return (NamedList<Object>) codec.unmarshal(body);
+    }
   }
 
   protected JavaBinCodec createCodec() {
-    return new JavaBinCodec(null, stringCache);
+    return new JavaBinCodec(null, stringCache)
+        .setBufferPool(ByteArrayPool.SHARED)
+        .setExternStringCache(JavaBinCodec.SHARED_EXTERN_STRING_CACHE);
   }
 
   @Override
@@ -102,6 +102,9 @@ public class LBHttp2SolrClient<C extends HttpSolrClientBase> extends LBSolrClien
     this.solrClient = (C) builder.solrClient;
     this.aliveCheckIntervalMillis = builder.aliveCheckIntervalMillis;
     this.defaultCollection = builder.defaultCollection;
+    if (builder.adaptiveReplicaSelection) {
+      this.replicaSelector = new AdaptiveReplicaSelector();
+    }
   }
 
   @Override
@@ -128,12 +131,14 @@ public class LBHttp2SolrClient<C extends HttpSolrClientBase> extends LBSolrClien
    * Req object includes a List of Endpoints. This method always begins with the first Endpoint in
    * the list and if unsuccessful tries each in turn until the request is successful. Consequently,
    * this method does not actually Load Balance. It is up to the caller to shuffle the List of
-   * Endpoints if Load Balancing is desired.
+   * Endpoints if Load Balancing is desired, unless {@link
+   * Builder#withAdaptiveReplicaSelection(boolean)} is enabled.
    *
    * @param req the wrapped request to perform
    * @return a {@link CompletableFuture} that tracks the progress of the async request.
    */
   public CompletableFuture<Rsp> requestAsync(Req req) {
+    selectReplica(req);
     CompletableFuture<Rsp> apiFuture = new CompletableFuture<>();
     Rsp rsp = new Rsp();
     boolean isAdmin =
@@ -210,11 +215,20 @@ public class LBHttp2SolrClient<C extends HttpSolrClientBase> extends LBSolrClien
     String baseUrl = endpoint.toString();
     rsp.server = baseUrl;
     final var client = (Http2SolrClient) getClient(endpoint);
+    final AdaptiveReplicaSelector selector = replicaSelector;
+    final long start = selector == null ? 0 : selector.requestStarted(endpoint);
     try {
       CompletableFuture<NamedList<Object>> future =
           client.requestWithBaseUrl(baseUrl, (c) -> c.requestAsync(req.getRequest()));
       future.whenComplete(
           (result, throwable) -> {
+            if (selector != null) {
+              if (future.isCancelled()) {
+                selector.requestCancelled(endpoint);
+              } else {
+                selector.requestFinished(endpoint, start, throwable == null);
+              }
+            }
             if (!future.isCompletedExceptionally()) {
               onSuccessfulRequest(result, endpoint, rsp, isZombie, listener);
             } else if (!future.isCancelled()) {
@@ -296,6 +310,7 @@ public class LBHttp2SolrClient<C extends HttpSolrClientBase> extends LBSolrClien
     private long aliveCheckIntervalMillis =
         TimeUnit.MILLISECONDS.convert(60, TimeUnit.SECONDS); // 1 minute between checks
     protected String defaultCollection;
+    private boolean adaptiveReplicaSelection;
 
     public Builder(C solrClient, Endpoint... endpoints) {
       this.solrClient = solrClient;
@@ -323,6 +338,17 @@ public class LBHttp2SolrClient<C extends HttpSolrClientBase> extends LBSolrClien
       return this;
     }
 
+    /**
+     * Routes requests by latency: each request goes to the better of two replicas picked at random,
+     * based on their recent response times and requests in flight. See {@link
+     * AdaptiveReplicaSelector}. Requests with an explicit {@code shards.preference} keep the order
+     * they were given.
+     */
+    public Builder<C> withAdaptiveReplicaSelection(boolean adaptiveReplicaSelection) {
+      this.adaptiveReplicaSelection = adaptiveReplicaSelection;
+      return this;
+    }
+
     public LBHttp2SolrClient<C> build() {
       return new LBHttp2SolrClient<C>(this);
     }
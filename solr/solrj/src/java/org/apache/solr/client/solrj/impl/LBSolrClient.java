@@ -37,6 +37,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -52,6 +53,7 @@ import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.ObjectReleaseTracker;
@@ -91,6 +93,9 @@ public abstract class LBSolrClient extends SolrClient {
       TimeUnit.MILLISECONDS.convert(60, TimeUnit.SECONDS); // 1 minute between checks
   private final AtomicInteger counter = new AtomicInteger(-1);
 
+  // null unless requests are routed by latency, see AdaptiveReplicaSelector
+  protected volatile AdaptiveReplicaSelector replicaSelector;
+
   private static final SolrQuery solrQuery = new SolrQuery("*:*");
   protected volatile ResponseParser parser;
   protected volatile RequestWriter requestWriter;
@@ -341,6 +346,7 @@ public abstract class LBSolrClient extends SolrClient {
     protected List<Endpoint> endpoints;
     protected int numDeadServersToTry;
     private final Integer numServersToTry;
+    private boolean preferredOrder;
 
     public Req(SolrRequest<?> request, Collection<Endpoint> endpoints) {
       this(request, endpoints, null);
@@ -361,6 +367,23 @@ public abstract class LBSolrClient extends SolrClient {
       return endpoints;
     }
 
+    /**
+     * @return whether the endpoints are in an order of preference that latency aware routing must
+     *     keep
+     */
+    public boolean isPreferredOrder() {
+      return preferredOrder;
+    }
+
+    /**
+     * @param preferredOrder whether the endpoints are in an order of preference, e.g. from
+     *     shards.preference, that latency aware routing must keep. A {@link
+     *     ShardParams#SHARDS_PREFERENCE} parameter of the request is always kept.
+     */
+    public void setPreferredOrder(boolean preferredOrder) {
+      this.preferredOrder = preferredOrder;
+    }
+
     /**
      * @return the number of dead servers to try if there are no live servers left
      */
@@ -452,6 +475,7 @@ public abstract class LBSolrClient extends SolrClient {
    * @throws IOException If there is a low-level I/O error.
    */
   public Rsp request(Req req) throws SolrServerException, IOException {
+    selectReplica(req);
     Rsp rsp = new Rsp();
     Exception ex = null;
     boolean isAdmin =
@@ -494,7 +518,50 @@ public abstract class LBSolrClient extends SolrClient {
   private NamedList<Object> doRequest(Endpoint endpoint, SolrRequest<?> solrRequest)
       throws SolrServerException, IOException {
     final var solrClient = getClient(endpoint);
-    return doRequest(solrClient, endpoint.getBaseUrl(), endpoint.getCore(), solrRequest);
+    return doTrackedRequest(
+        endpoint, solrClient, endpoint.getBaseUrl(), endpoint.getCore(), solrRequest);
+  }
+
+  /**
+   * When latency aware routing is enabled, moves the replica chosen by the {@link
+   * AdaptiveReplicaSelector} to the front of the request's endpoints. An ordering by {@link
+   * ShardParams#SHARDS_PREFERENCE}, or by any preference the request was marked with by {@link
+   * Req#setPreferredOrder}, is kept as is.
+   */
+  protected void selectReplica(Req req) {
+    final AdaptiveReplicaSelector selector = replicaSelector;
+    if (selector != null
+        && !req.isPreferredOrder()
+        && req.getRequest().getParams().get(ShardParams.SHARDS_PREFERENCE) == null) {
+      selector.reorder(req.endpoints);
+    }
+  }
+
+  /** Returns the replica selector used for latency aware routing, or null if it is disabled. */
+  public AdaptiveReplicaSelector getReplicaSelector() {
+    return replicaSelector;
+  }
+
+  private NamedList<Object> doTrackedRequest(
+      Endpoint endpoint,
+      SolrClient solrClient,
+      String baseUrl,
+      String collection,
+      SolrRequest<?> solrRequest)
+      throws SolrServerException, IOException {
+    final AdaptiveReplicaSelector selector = replicaSelector;
+    if (selector == null) {
+      return doRequest(solrClient, baseUrl, collection, solrRequest);
+    }
+    boolean success = false;
+    long start = selector.requestStarted(endpoint);
+    try {
+      NamedList<Object> rsp = doRequest(solrClient, baseUrl, collection, solrRequest);
+      success = true;
+      return rsp;
+    } finally {
+      selector.requestFinished(endpoint, start, success);
+    }
   }
 
   // TODO SOLR-17541 should remove the need for the special-casing below; remove as a part of that
@@ -723,7 +790,8 @@ public abstract class LBSolrClient extends SolrClient {
         // Choose the endpoint's core/collection over any specified by the user
         final var effectiveCollection =
             endpoint.getCore() == null ? collection : endpoint.getCore();
-        return doRequest(getClient(endpoint), endpoint.getBaseUrl(), effectiveCollection, request);
+        return doTrackedRequest(
+            endpoint, getClient(endpoint), endpoint.getBaseUrl(), effectiveCollection, request);
       } catch (SolrException e) {
         // Server is alive but the request was malformed or invalid
         throw e;
@@ -811,7 +879,8 @@ public abstract class LBSolrClient extends SolrClient {
 
   /**
    * Pick a server from list to execute request. By default, servers are picked in round-robin
-   * manner, custom classes can override this method for more advance logic
+   * manner, or by latency when an {@link AdaptiveReplicaSelector} is set. Custom classes can
+   * override this method for more advance logic
    *
    * @param aliveServerList list of currently alive servers
    * @param request the request will be sent to the picked server
@@ -819,6 +888,16 @@ public abstract class LBSolrClient extends SolrClient {
    */
   protected EndpointWrapper pickServer(EndpointWrapper[] aliveServerList, SolrRequest<?> request) {
     int count = counter.incrementAndGet() & Integer.MAX_VALUE;
+    final AdaptiveReplicaSelector selector = replicaSelector;
+    if (selector != null && aliveServerList.length > 1) {
+      // the round-robin pick and a random other one
+      int other = ThreadLocalRandom.current().nextInt(aliveServerList.length - 1);
+      int first = count % aliveServerList.length;
+      if (other >= first) {
+        other++;
+      }
+      return selector.choose(aliveServerList[first], aliveServerList[other]);
+    }
     return aliveServerList[count % aliveServerList.length];
   }
 
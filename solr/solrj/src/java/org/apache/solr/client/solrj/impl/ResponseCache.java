@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.impl;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+
+/**
+ * A size bounded cache of the responses to the queries of a {@link CloudHttp2SolrClient}, enabled
+ * with {@link CloudHttp2SolrClient.Builder#withResponseCache(int, long, TimeUnit)}.
+ *
+ * <p>A query whose response is cached is sent again with an <code>If-None-Match</code> header
+ * holding the <code>ETag</code> of that response, which Solr derives from the index version of the
+ * core answering the query. If the index did not change, Solr answers <code>304 Not Modified</code>
+ * without running the query, and the cached response is returned. This needs the <code>
+ * &lt;httpCaching never304="false"&gt;</code> option in the <code>solrconfig.xml</code> of the
+ * collection; otherwise Solr sends no <code>ETag</code>, and nothing is cached.
+ *
+ * <p>The <code>ETag</code> only reflects the index of the core that answered, not the other shards
+ * of a distributed query: the maximum age of the entries bounds how long such a response may be
+ * served after another shard changed. Queries answered by a replica of another index version are
+ * answered in full.
+ *
+ * <p>Only GET {@link QueryRequest}s with no specific response parser or streaming callback are
+ * cached, keyed by their collection, path, parameters, headers and user. The cached responses are
+ * shared by the requests they answer, and must not be modified.
+ */
+public class ResponseCache implements MapWriter {
+
+  private final int maxEntries;
+  private final long maxAgeNanos;
+  // in access order, guarded by itself
+  private final LinkedHashMap<String, CachedResponse> entries;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private record CachedResponse(String etag, NamedList<Object> response, long createdNanos) {}
+
+  /**
+   * @param maxEntries the maximum number of cached responses
+   * @param maxAge the time after which a cached response is not revalidated anymore, must be
+   *     positive
+   */
+  public ResponseCache(int maxEntries, long maxAge, TimeUnit unit) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive, got " + maxEntries);
+    }
+    if (maxAge <= 0) {
+      throw new IllegalArgumentException("maxAge must be positive, got " + maxAge);
+    }
+    this.maxEntries = maxEntries;
+    this.maxAgeNanos = unit.toNanos(maxAge);
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            if (size() > ResponseCache.this.maxEntries) {
+              evictions.increment();
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /** Sends the request built by {@link #request}. */
+  @FunctionalInterface
+  interface Sender {
+    NamedList<Object> send(SolrRequest<?> request) throws SolrServerException, IOException;
+  }
+
+  /** Whether the response to a request can be cached. */
+  static boolean isCacheable(SolrRequest<?> request) {
+    return request instanceof QueryRequest
+        && request.getMethod() == SolrRequest.METHOD.GET
+        && request.getResponseParser() == null
+        && request.getStreamingResponseCallback() == null;
+  }
+
+  /**
+   * Sends a cacheable request, conditionally if a response to it is cached, and returns either the
+   * new response, which is cached if it has an <code>ETag</code>, or the cached one if the server
+   * answered that it did not change.
+   */
+  NamedList<Object> request(SolrRequest<?> request, String collection, Sender sender)
+      throws SolrServerException, IOException {
+    // a copy, as CloudSolrClient writes the state versions of the collections into the params
+    ModifiableSolrParams params = new ModifiableSolrParams(request.getParams());
+    params.remove(CloudSolrClient.STATE_VERSION);
+    String key = cacheKey(request, params, collection);
+    CachedResponse cached;
+    synchronized (entries) {
+      cached = entries.get(key);
+      if (cached != null && System.nanoTime() - cached.createdNanos > maxAgeNanos) {
+        entries.remove(key);
+        cached = null;
+      }
+    }
+    ConditionalRequest conditional =
+        new ConditionalRequest(request, params, cached == null ? null : cached.etag);
+    NamedList<Object> rsp = sender.send(conditional);
+    if (conditional.notModified) {
+      if (cached == null) {
+        throw new SolrServerException("Unexpected 304 response to an unconditional request");
+      }
+      hits.increment();
+      return cached.response;
+    }
+    misses.increment();
+    synchronized (entries) {
+      if (conditional.etag == null) {
+        entries.remove(key);
+      } else {
+        entries.put(key, new CachedResponse(conditional.etag, rsp, System.nanoTime()));
+      }
+    }
+    return rsp;
+  }
+
+  private static String cacheKey(
+      SolrRequest<?> request, ModifiableSolrParams params, String collection) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(collection).append(' ').append(request.getPath()).append('?');
+    sb.append(params.toQueryString());
+    if (request.getBasicAuthUser() != null) {
+      sb.append(" user=").append(request.getBasicAuthUser());
+    }
+    if (request.getHeaders() != null) {
+      sb.append(" headers=").append(new TreeMap<>(request.getHeaders()));
+    }
+    return sb.toString();
+  }
+
+  /** The number of queries answered from the cache, after the server answered they were valid. */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /** The number of queries answered in full by the server. */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /** The ratio of the queries answered from the cache, from 0 to 1. */
+  public double getHitRatio() {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return total == 0 ? 0d : (double) h / total;
+  }
+
+  /** The number of cached responses. */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /** Removes all cached responses. */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    ew.put("maxEntries", maxEntries);
+    ew.put("size", size());
+    ew.put("hits", getHits());
+    ew.put("misses", getMisses());
+    ew.put("hitRatio", getHitRatio());
+    ew.put("evictions", evictions.sum());
+  }
+
+  /**
+   * A copy of a query with its own params, sent with the <code>ETag</code> of its cached response if any. {@link
+   * Http2SolrClient} records the <code>ETag</code> of the response to it, and whether the response
+   * was a <code>304 Not Modified</code>, in which case it returns an empty response.
+   */
+  static class ConditionalRequest extends QueryRequest {
+    volatile String etag;
+    volatile boolean notModified;
+
+    ConditionalRequest(SolrRequest<?> request, ModifiableSolrParams params, String etag) {
+      super(params, request.getMethod());
+      setPath(request.getPath());
+      setRequestType(request.getRequestType());
+      setQueryParams(request.getQueryParams());
+      setPreferredNodes(request.getPreferredNodes());
+      setUserPrincipal(request.getUserPrincipal());
+      if (request.getBasicAuthUser() != null) {
+        setBasicAuthCredentials(request.getBasicAuthUser(), request.getBasicAuthPassword());
+      }
+      addHeaders(request.getHeaders());
+      if (etag != null) {
+        addHeader("If-None-Match", etag);
+      }
+    }
+
+    void onResponse(String etag, boolean notModified) {
+      this.etag = etag;
+      this.notModified = notModified;
+    }
+  }
+}
@@ -31,6 +31,7 @@ import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.SolrInputField;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.util.ByteArrayPool;
 import org.apache.solr.common.util.CollectionUtil;
 import org.apache.solr.common.util.DataInputInputStream;
 import org.apache.solr.common.util.JavaBinCodec;
@@ -45,6 +46,29 @@ import org.apache.solr.common.util.NamedList;
  */
 public class JavaBinUpdateRequestCodec {
 
+  private ByteArrayPool bufferPool;
+  private JavaBinCodec.StringCache externStringCache;
+
+  /**
+   * The pool to take the buffers used by {@link #unmarshal} from.
+   *
+   * @see JavaBinCodec#setBufferPool(ByteArrayPool)
+   */
+  public JavaBinUpdateRequestCodec setBufferPool(ByteArrayPool pool) {
+    this.bufferPool = pool;
+    return this;
+  }
+
+  /**
+   * The cache to read field names through in {@link #unmarshal}.
+   *
+   * @see JavaBinCodec#setExternStringCache(JavaBinCodec.StringCache)
+   */
+  public JavaBinUpdateRequestCodec setExternStringCache(JavaBinCodec.StringCache cache) {
+    this.externStringCache = cache;
+    return this;
+  }
+
   /**
    * Converts an UpdateRequest to a NamedList which can be serialized to the given OutputStream in
    * the javabin format
@@ -106,6 +130,7 @@ public class JavaBinUpdateRequestCodec {
 
     // reads documents, sending to handler.  Other data is in NamedList
     try (var codec = new StreamingCodec(handler)) {
+      codec.setBufferPool(bufferPool).setExternStringCache(externStringCache);
       namedList = codec.unmarshal(is);
     }
 
@@ -63,6 +63,18 @@ public interface ShardParams {
   /** query purpose for shard requests */
   String SHARDS_PURPOSE = "shards.purpose";
 
+  /**
+   * Send a second request to another replica of a shard that is slow to answer, and use whichever
+   * answers first (true/false)
+   */
+  String SHARDS_HEDGE = "shards.hedge";
+
+  /** Maximum fraction of the shard requests of a request that may be hedged, at least one */
+  String SHARDS_HEDGE_BUDGET = "shards.hedge.budget";
+
+  /** Fixed delay in ms before a shard request is hedged, instead of the shard's recent p95 */
+  String SHARDS_HEDGE_DELAY = "shards.hedge.delay";
+
   /** Shards sorting rules */
   String SHARDS_PREFERENCE = "shards.preference";
 
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of byte arrays in power of two size classes, so that short-lived buffers such as
+ * the ones of {@link FastInputStream} and {@link FastOutputStream} can be reused across requests
+ * instead of being allocated for each of them. It is safe for use by multiple threads.
+ *
+ * <p>Arrays larger than the largest size class are not pooled. An array must not be used anymore
+ * once it is {@link #release released}.
+ *
+ * @see JavaBinCodec#setBufferPool(ByteArrayPool)
+ */
+public class ByteArrayPool {
+
+  /** The pool shared by the javabin codecs of this JVM. */
+  public static final ByteArrayPool SHARED = new ByteArrayPool(8192, 65536, 1024 * 1024);
+
+  private final int minSize;
+  private final int maxSize;
+  private final ArrayBlockingQueue<byte[]>[] classes;
+
+  /**
+   * @param minSize the size of the smallest arrays, a power of two
+   * @param maxSize the size of the largest arrays that are pooled, a power of two
+   * @param bytesPerClass how many bytes of arrays of each size are kept at most
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public ByteArrayPool(int minSize, int maxSize, int bytesPerClass) {
+    if (Integer.bitCount(minSize) != 1 || Integer.bitCount(maxSize) != 1 || minSize > maxSize) {
+      throw new IllegalArgumentException(
+          "minSize and maxSize must be powers of two, got " + minSize + " and " + maxSize);
+    }
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    int numClasses = Integer.numberOfTrailingZeros(maxSize / minSize) + 1;
+    classes = new ArrayBlockingQueue[numClasses];
+    for (int i = 0; i < numClasses; i++) {
+      classes[i] = new ArrayBlockingQueue<>(Math.max(1, bytesPerClass / (minSize << i)));
+    }
+  }
+
+  /** Returns an array of at least <code>size</code> bytes, whose content is undefined. */
+  public byte[] acquire(int size) {
+    if (size > maxSize) {
+      return new byte[size];
+    }
+    int sizeClass = sizeClass(size);
+    byte[] buf = classes[sizeClass].poll();
+    return buf != null ? buf : new byte[minSize << sizeClass];
+  }
+
+  /** Returns an array obtained from {@link #acquire(int)} to the pool. */
+  public void release(byte[] buf) {
+    int length = buf.length;
+    if (length >= minSize && length <= maxSize && Integer.bitCount(length) == 1) {
+      classes[sizeClass(length)].offer(buf);
+    }
+  }
+
+  private int sizeClass(int size) {
+    return size <= minSize
+        ? 0
+        : Integer.numberOfTrailingZeros(Integer.highestOneBit(size - 1) << 1)
+            - Integer.numberOfTrailingZeros(minSize);
+  }
+
+  /** The number of arrays currently pooled, for tests. */
+  int size() {
+    int size = 0;
+    for (ArrayBlockingQueue<byte[]> c : classes) {
+      size += c.size();
+    }
+    return size;
+  }
+}
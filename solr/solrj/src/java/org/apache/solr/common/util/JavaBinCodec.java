@@ -119,6 +119,11 @@ public class JavaBinCodec implements PushWriter {
   private final ObjectResolver resolver;
   protected FastOutputStream daos;
   private StringCache stringCache;
+  private StringCache externStringCache;
+  private ByteArrayPool bufferPool;
+  // the buffers of the streams this codec created, returned to the bufferPool on close()
+  private byte[] outputBuffer;
+  private byte[] inputBuffer;
   private WritableDocFields writableDocFields;
   private boolean alreadyMarshalled;
   private boolean alreadyUnmarshalled;
@@ -158,6 +163,30 @@ public class JavaBinCodec implements PushWriter {
     this.stringCache = stringCache;
   }
 
+  /**
+   * Takes the buffers of the streams this codec reads from and writes to, and of its strings, from
+   * <code>pool</code>. They are returned to it by {@link #close()}, after which the codec must not
+   * be used anymore.
+   *
+   * @see ByteArrayPool#SHARED
+   */
+  public JavaBinCodec setBufferPool(ByteArrayPool pool) {
+    this.bufferPool = pool;
+    return this;
+  }
+
+  /**
+   * Reads extern strings, i.e. the names of fields and map keys, and the string values of {@link
+   * EnumFieldValue}s through <code>cache</code>, so that they are decoded once rather than for
+   * each response. Unlike the cache given to the constructor it does not apply to other strings.
+   *
+   * @see #SHARED_EXTERN_STRING_CACHE
+   */
+  public JavaBinCodec setExternStringCache(StringCache cache) {
+    this.externStringCache = cache;
+    return this;
+  }
+
   public ObjectResolver getResolver() {
     return resolver;
   }
@@ -174,7 +203,12 @@ public class JavaBinCodec implements PushWriter {
 
   protected void initWrite(OutputStream os) throws IOException {
     assert !alreadyMarshalled;
-    init(FastOutputStream.wrap(os));
+    if (bufferPool != null && !(os instanceof FastOutputStream)) {
+      outputBuffer = bufferPool.acquire(8192);
+      init(new FastOutputStream(os, outputBuffer, 0));
+    } else {
+      init(FastOutputStream.wrap(os));
+    }
     daos.writeByte(VERSION);
   }
 
@@ -197,7 +231,13 @@ public class JavaBinCodec implements PushWriter {
 
   protected FastInputStream initRead(InputStream is) throws IOException {
     assert !alreadyUnmarshalled;
-    FastInputStream dis = FastInputStream.wrap(is);
+    FastInputStream dis;
+    if (bufferPool != null && !(is instanceof FastInputStream)) {
+      inputBuffer = bufferPool.acquire(8192);
+      dis = new FastInputStream(is, inputBuffer, 0, 0);
+    } else {
+      dis = FastInputStream.wrap(is);
+    }
     return _init(dis);
   }
 
@@ -989,7 +1029,12 @@ public class JavaBinCodec implements PushWriter {
    */
   public EnumFieldValue readEnumFieldValue(DataInputInputStream dis) throws IOException {
     Integer intValue = (Integer) readVal(dis);
-    String stringValue = (String) convertCharSeq(readVal(dis));
+    tagByte = dis.readByte();
+    Object value =
+        externStringCache != null && (tagByte >>> 5) == (STR >>> 5)
+            ? readStr(dis, externStringCache, false)
+            : readObject(dis);
+    String stringValue = (String) convertCharSeq(value);
     return new EnumFieldValue(intValue, stringValue);
   }
 
@@ -1053,7 +1098,7 @@ public class JavaBinCodec implements PushWriter {
     int maxSize = end * ByteUtils.MAX_UTF8_BYTES_PER_CHAR;
 
     if (maxSize <= MAX_UTF8_SIZE_FOR_ARRAY_GROW_STRATEGY) {
-      if (bytes == null || bytes.length < maxSize) bytes = new byte[maxSize];
+      byte[] bytes = scratchBytes(maxSize);
       int sz = ByteUtils.UTF16toUTF8(s, 0, end, bytes, 0);
       writeTag(STR, sz);
       daos.write(bytes, 0, sz);
@@ -1061,13 +1106,26 @@ public class JavaBinCodec implements PushWriter {
       // double pass logic for large strings, see SOLR-7971
       int sz = ByteUtils.calcUTF16toUTF8Length(s, 0, end);
       writeTag(STR, sz);
-      if (bytes == null || bytes.length < 8192) bytes = new byte[8192];
+      byte[] bytes = scratchBytes(8192);
       ByteUtils.writeUTF16toUTF8(s, 0, end, daos, bytes);
     }
   }
 
   byte[] bytes;
   CharArr arr = new CharArr();
+
+  private byte[] scratchBytes(int size) {
+    if (bytes == null || bytes.length < size) {
+      if (bufferPool == null) {
+        bytes = new byte[size];
+      } else {
+        if (bytes != null) bufferPool.release(bytes);
+        bytes = bufferPool.acquire(size);
+      }
+    }
+    return bytes;
+  }
+
   private StringBytes bytesRef = new StringBytes(bytes, 0, 0);
 
   public CharSequence readStr(DataInputInputStream dis) throws IOException {
@@ -1086,7 +1144,7 @@ public class JavaBinCodec implements PushWriter {
 
   private CharSequence _readStr(DataInputInputStream dis, StringCache stringCache, int sz)
       throws IOException {
-    if (bytes == null || bytes.length < sz) bytes = new byte[sz];
+    byte[] bytes = scratchBytes(sz);
     dis.readFully(bytes, 0, sz);
     if (stringCache != null) {
       return stringCache.get(bytesRef.reset(bytes, 0, sz));
@@ -1230,8 +1288,7 @@ public class JavaBinCodec implements PushWriter {
       return false;
 
     } else if (val instanceof Date) {
-      daos.writeByte(DATE);
-      daos.writeLong(((Date) val).getTime());
+      writeDate(((Date) val).getTime());
       return true;
     } else if (val instanceof Boolean) {
       writeBoolean((Boolean) val);
@@ -1255,16 +1312,22 @@ public class JavaBinCodec implements PushWriter {
     return false;
   }
 
-  protected void writeBoolean(boolean val) throws IOException {
+  public void writeBoolean(boolean val) throws IOException {
     if (val) daos.writeByte(BOOL_TRUE);
     else daos.writeByte(BOOL_FALSE);
   }
 
-  protected void writeDouble(double val) throws IOException {
+  public void writeDouble(double val) throws IOException {
     daos.writeByte(DOUBLE);
     daos.writeDouble(val);
   }
 
+  /** Writes a date given in milliseconds since the epoch, as a {@link Date} would be written. */
+  public void writeDate(long time) throws IOException {
+    daos.writeByte(DATE);
+    daos.writeLong(time);
+  }
+
   public void writeMap(Map<?, ?> val) throws IOException {
     writeTag(MAP, val.size());
     if (val instanceof MapWriter) {
@@ -1361,7 +1424,8 @@ public class JavaBinCodec implements PushWriter {
       return stringsList.get(idx - 1);
     } else { // idx == 0 means it has a string value
       tagByte = fis.readByte();
-      CharSequence s = readStr(fis, stringCache, false);
+      CharSequence s =
+          readStr(fis, externStringCache != null ? externStringCache : stringCache, false);
       if (s != null) s = s.toString();
       if (stringsList == null) stringsList = new ArrayList<>();
       stringsList.add(s);
@@ -1430,10 +1494,96 @@ public class JavaBinCodec implements PushWriter {
     }
   }
 
+  /**
+   * A cache for {@link #setExternStringCache} that is shared by the javabin codecs of this JVM. It
+   * keeps the 16384 most recently used strings of at most 256 UTF-8 bytes, so that names no longer
+   * seen, e.g. facet terms or the keys of other collections, make room for the current ones.
+   */
+  public static final StringCache SHARED_EXTERN_STRING_CACHE =
+      new StringCache(new LRUStringBytesCache(16384, 256));
+
+  /** An LRU cache split by hash into segments that are locked separately. */
+  static final class LRUStringBytesCache implements Cache<StringBytes, String> {
+    private static final int SEGMENT_BITS = 4;
+
+    private final List<Map<StringBytes, String>> segments;
+    private final int maxLength;
+
+    LRUStringBytesCache(int maxSize, int maxLength) {
+      this.maxLength = maxLength;
+      int segmentSize = Math.max(1, maxSize >> SEGMENT_BITS);
+      segments = new ArrayList<>(1 << SEGMENT_BITS);
+      for (int i = 0; i < 1 << SEGMENT_BITS; i++) {
+        segments.add(
+            new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<StringBytes, String> eldest) {
+                return size() > segmentSize;
+              }
+            });
+      }
+    }
+
+    private Map<StringBytes, String> segment(StringBytes key) {
+      // the high bits, the maps use the low ones
+      return segments.get(key.hashCode() >>> (Integer.SIZE - SEGMENT_BITS));
+    }
+
+    @Override
+    public String put(StringBytes key, String val) {
+      if (key.length > maxLength) {
+        return null;
+      }
+      Map<StringBytes, String> segment = segment(key);
+      synchronized (segment) {
+        return segment.put(key, val);
+      }
+    }
+
+    @Override
+    public String get(StringBytes key) {
+      Map<StringBytes, String> segment = segment(key);
+      synchronized (segment) {
+        return segment.get(key);
+      }
+    }
+
+    @Override
+    public String remove(StringBytes key) {
+      Map<StringBytes, String> segment = segment(key);
+      synchronized (segment) {
+        return segment.remove(key);
+      }
+    }
+
+    @Override
+    public void clear() {
+      for (Map<StringBytes, String> segment : segments) {
+        synchronized (segment) {
+          segment.clear();
+        }
+      }
+    }
+  }
+
   @Override
   public void close() throws IOException {
     if (daos != null) {
       daos.flushBuffer();
     }
+    if (bufferPool != null) {
+      if (outputBuffer != null) {
+        bufferPool.release(outputBuffer);
+        outputBuffer = null;
+      }
+      if (inputBuffer != null) {
+        bufferPool.release(inputBuffer);
+        inputBuffer = null;
+      }
+      if (bytes != null) {
+        bufferPool.release(bytes);
+        bytes = null;
+      }
+    }
   }
 }
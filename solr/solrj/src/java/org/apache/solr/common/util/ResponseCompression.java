@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.Adler32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * The <code>solr-deflate</code> content encoding of the responses Solr nodes send to each other: a
+ * zlib stream compressed at {@link java.util.zip.Deflater#BEST_SPEED}, optionally with a preset
+ * dictionary of the field names and values that are common in the responses of a collection.
+ *
+ * <p>A client asks for it with an <code>Accept-Encoding: solr-deflate</code> header, and lists the
+ * dictionaries it can inflate with in the {@link #DICTIONARIES_HEADER} header. A dictionary is
+ * identified by its Adler-32 checksum, which is also the one zlib writes in the header of a stream
+ * compressed with it. The dictionaries of this JVM are the ones {@link #registerDictionary
+ * registered} by the cores it loaded.
+ */
+public class ResponseCompression {
+
+  /** The value of the <code>Content-Encoding</code> header of a compressed response. */
+  public static final String ENCODING = "solr-deflate";
+
+  /** The request header listing the ids of the dictionaries the client has, comma separated. */
+  public static final String DICTIONARIES_HEADER = "Solr-Deflate-Dictionaries";
+
+  /** zlib only uses the last 32K of a dictionary. */
+  public static final int MAX_DICTIONARY_LENGTH = 32 * 1024;
+
+  private static final Map<Integer, byte[]> DICTIONARIES = new ConcurrentHashMap<>();
+  private static volatile String dictionariesHeader;
+
+  private ResponseCompression() {}
+
+  /**
+   * Makes a dictionary available to the clients of this JVM, and returns its id.
+   *
+   * @return the Adler-32 checksum of the last {@link #MAX_DICTIONARY_LENGTH} bytes of the
+   *     dictionary, the part zlib uses
+   */
+  public static int registerDictionary(byte[] dictionary) {
+    byte[] dict = trimDictionary(dictionary);
+    int id = dictionaryId(dict);
+    if (DICTIONARIES.putIfAbsent(id, dict) == null) {
+      dictionariesHeader =
+          DICTIONARIES.keySet().stream()
+              .map(Integer::toUnsignedString)
+              .sorted()
+              .collect(Collectors.joining(","));
+    }
+    return id;
+  }
+
+  /** Returns the last {@link #MAX_DICTIONARY_LENGTH} bytes of a dictionary. */
+  public static byte[] trimDictionary(byte[] dictionary) {
+    return dictionary.length <= MAX_DICTIONARY_LENGTH
+        ? dictionary
+        : Arrays.copyOfRange(
+            dictionary, dictionary.length - MAX_DICTIONARY_LENGTH, dictionary.length);
+  }
+
+  /** The id of a dictionary of at most {@link #MAX_DICTIONARY_LENGTH} bytes. */
+  public static int dictionaryId(byte[] dictionary) {
+    Adler32 adler = new Adler32();
+    adler.update(dictionary);
+    return (int) adler.getValue();
+  }
+
+  /** Returns the registered dictionary with this id, or null. */
+  public static byte[] getDictionary(int id) {
+    return DICTIONARIES.get(id);
+  }
+
+  /** The value of the {@link #DICTIONARIES_HEADER} header, or null if no dictionary is known. */
+  public static String getDictionariesHeader() {
+    return dictionariesHeader;
+  }
+
+  /** Whether a {@link #DICTIONARIES_HEADER} header value lists this dictionary. */
+  public static boolean hasDictionary(String header, int id) {
+    if (header == null) {
+      return false;
+    }
+    String value = Integer.toUnsignedString(id);
+    for (String s : StrUtils.splitSmart(header, ',')) {
+      if (value.equals(s.trim())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Whether an <code>Accept-Encoding</code> header value accepts {@link #ENCODING}. */
+  public static boolean isAccepted(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String s : StrUtils.splitSmart(acceptEncoding, ',')) {
+      int semicolon = s.indexOf(';');
+      if (ENCODING.equals((semicolon < 0 ? s : s.substring(0, semicolon)).trim())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns a stream of the content of a {@link #ENCODING} encoded stream. */
+  public static InputStream inflate(InputStream in) {
+    return new DictionaryInflaterInputStream(in);
+  }
+
+  private static class DictionaryInflaterInputStream extends InflaterInputStream {
+    private boolean closed;
+
+    DictionaryInflaterInputStream(InputStream in) {
+      super(in, new Inflater(), 8192);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      // InflaterInputStream returns -1 when the inflater needs a dictionary
+      if (n == -1 && inf.needsDictionary()) {
+        byte[] dictionary = getDictionary(inf.getAdler());
+        if (dictionary == null) {
+          throw new ZipException(
+              "Unknown " + ENCODING + " dictionary " + Integer.toUnsignedString(inf.getAdler()));
+        }
+        inf.setDictionary(dictionary);
+        n = super.read(b, off, len);
+      }
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        try {
+          super.close();
+        } finally {
+          inf.end();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class AdaptiveReplicaSelectorTest extends SolrTestCase {
+
+  private static void recordLatency(AdaptiveReplicaSelector selector, String endpoint, long ms) {
+    long start = selector.requestStarted(endpoint);
+    selector.requestFinished(endpoint, start - TimeUnit.MILLISECONDS.toNanos(ms), true);
+  }
+
+  @Test
+  public void testAvoidsSlowEndpoint() {
+    AdaptiveReplicaSelector selector = new AdaptiveReplicaSelector();
+    // nothing measured yet, keep the given order
+    assertEquals("a", selector.choose("a", "b"));
+
+    recordLatency(selector, "a", 500);
+    recordLatency(selector, "b", 5);
+    assertEquals("b", selector.choose("a", "b"));
+    assertEquals("b", selector.choose("b", "a"));
+
+    // an endpoint that was never measured is tried
+    assertEquals("c", selector.choose("b", "c"));
+
+    for (int i = 0; i < 20; i++) {
+      List<String> endpoints = new ArrayList<>(List.of("a", "b"));
+      selector.reorder(endpoints);
+      assertEquals(List.of("b", "a"), endpoints);
+    }
+  }
+
+  @Test
+  public void testInFlightRequests() {
+    AdaptiveReplicaSelector selector = new AdaptiveReplicaSelector();
+    recordLatency(selector, "a", 10);
+    recordLatency(selector, "b", 15);
+    assertEquals("a", selector.choose("a", "b"));
+
+    // a backlog on the faster endpoint makes the other one the better choice
+    long start = selector.requestStarted("a");
+    selector.requestStarted("a");
+    assertEquals("b", selector.choose("a", "b"));
+
+    selector.requestFinished("a", start, true);
+    selector.requestCancelled("a");
+    assertEquals("a", selector.choose("a", "b"));
+  }
+
+  @Test
+  public void testFailuresArePenalized() {
+    AdaptiveReplicaSelector selector = new AdaptiveReplicaSelector();
+    recordLatency(selector, "a", 50);
+    recordLatency(selector, "b", 50);
+    // b fails fast, e.g. connection refused, which must not make it look faster than a
+    for (int i = 0; i < 5; i++) {
+      long start = selector.requestStarted("b");
+      selector.requestFinished("b", start, false);
+    }
+    assertEquals("a", selector.choose("a", "b"));
+    assertEquals("a", selector.choose("b", "a"));
+  }
+
+  @Test
+  public void testMetrics() {
+    AdaptiveReplicaSelector selector = new AdaptiveReplicaSelector();
+    recordLatency(selector, "a", 20);
+    long start = selector.requestStarted("a");
+    selector.requestFinished("a", start, false);
+    selector.choose("a", "b");
+
+    Map<String, Object> stats = selector.toMap(new LinkedHashMap<>());
+    assertEquals(1L, stats.get("choices"));
+    @SuppressWarnings("unchecked")
+    Map<String, Map<String, Object>> endpoints =
+        (Map<String, Map<String, Object>>) stats.get("endpoints");
+    Map<String, Object> a = endpoints.get("a");
+    assertEquals(2L, a.get("requests"));
+    assertEquals(1L, a.get("errors"));
+    assertEquals(0, a.get("inFlight"));
+    assertTrue(((Number) a.get("latencyMs")).doubleValue() > 0);
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.TimeSource;
+import org.apache.solr.util.TimeOut;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CloudBulkIndexerTest extends SolrCloudTestCase {
+
+  private static final String COLLECTION = "bulkIndexer";
+
+  private static CloudHttp2SolrClient client;
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    configureCluster(2)
+        .addConfig(
+            "conf",
+            getFile("solrj")
+                .resolve("solr")
+                .resolve("configsets")
+                .resolve("ml")
+                .resolve("conf"))
+        .configure();
+    CollectionAdminRequest.createCollection(COLLECTION, "conf", 2, 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(COLLECTION, 2, 2);
+    client =
+        new CloudHttp2SolrClient.Builder(
+                Collections.singletonList(cluster.getZkServer().getZkAddress()), Optional.empty())
+            .build();
+  }
+
+  @AfterClass
+  public static void closeClient() throws Exception {
+    if (client != null) {
+      client.close();
+      client = null;
+    }
+  }
+
+  @Before
+  public void clearCollection() throws Exception {
+    new UpdateRequest().deleteByQuery("*:*").commit(cluster.getSolrClient(), COLLECTION);
+  }
+
+  private static long numFound() throws Exception {
+    return cluster
+        .getSolrClient()
+        .query(COLLECTION, new SolrQuery("*:*"))
+        .getResults()
+        .getNumFound();
+  }
+
+  private static long statsSum(CloudBulkIndexer indexer, String key) {
+    long sum = 0;
+    for (Object shard : indexer.toMap(new HashMap<>()).values()) {
+      sum += ((Number) ((Map<?, ?>) shard).get(key)).longValue();
+    }
+    return sum;
+  }
+
+  @Test
+  public void testBatchesByShard() throws Exception {
+    try (CloudBulkIndexer indexer =
+        new CloudBulkIndexer.Builder(client, COLLECTION).withMaxBatchDocs(20).build()) {
+      for (int i = 0; i < 250; i++) {
+        indexer.add(new SolrInputDocument("id", Integer.toString(i), "a_s", "hello" + i));
+      }
+      indexer.flush();
+
+      Map<String, Object> stats = indexer.toMap(new HashMap<>());
+      assertEquals(2, stats.size());
+      assertEquals(250, statsSum(indexer, "docs"));
+      assertEquals(0, statsSum(indexer, "failedDocs"));
+      // each shard got full batches, and then the rest with the flush
+      assertTrue(statsSum(indexer, "batches") >= 250 / 20);
+    }
+    cluster.getSolrClient().commit(COLLECTION);
+    assertEquals(250, numFound());
+  }
+
+  @Test
+  public void testMaxLatency() throws Exception {
+    try (CloudBulkIndexer indexer =
+        new CloudBulkIndexer.Builder(client, COLLECTION)
+            .withMaxLatency(50, TimeUnit.MILLISECONDS)
+            .build()) {
+      for (int i = 0; i < 3; i++) {
+        indexer.add(new SolrInputDocument("id", Integer.toString(i)));
+      }
+      // sent without a flush, although the batches are not full
+      TimeOut timeOut = new TimeOut(10, TimeUnit.SECONDS, TimeSource.NANO_TIME);
+      timeOut.waitFor("documents not sent", () -> statsSum(indexer, "docs") == 3);
+    }
+    cluster.getSolrClient().commit(COLLECTION);
+    assertEquals(3, numFound());
+  }
+
+  @Test
+  public void testFailedBatch() throws Exception {
+    List<Throwable> errors = new CopyOnWriteArrayList<>();
+    List<SolrInputDocument> failed = new CopyOnWriteArrayList<>();
+    try (CloudBulkIndexer indexer =
+        new CloudBulkIndexer(new CloudBulkIndexer.Builder(client, COLLECTION)) {
+          @Override
+          public void handleError(String shard, List<SolrInputDocument> docs, Throwable ex) {
+            errors.add(ex);
+            failed.addAll(docs);
+          }
+        }) {
+      indexer.add(new SolrInputDocument("id", "1", "a_i", "not a number"));
+      indexer.flush();
+      assertEquals(1, errors.size());
+      assertEquals(400, ((SolrException) errors.get(0)).code());
+      assertEquals("1", failed.get(0).getFieldValue("id"));
+      assertEquals(1, statsSum(indexer, "failedDocs"));
+      assertEquals(0, statsSum(indexer, "retries"));
+    }
+  }
+
+  @Test
+  public void testImplicitRouter() throws Exception {
+    String implicit = "bulkIndexerImplicit";
+    CollectionAdminRequest.createCollectionWithImplicitRouter(implicit, "conf", "a,b", 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(implicit, 2, 2);
+    try (CloudBulkIndexer indexer = new CloudBulkIndexer.Builder(client, implicit).build()) {
+      // no _route_, so indexed into any shard, as Solr would
+      for (int i = 0; i < 20; i++) {
+        indexer.add(new SolrInputDocument("id", Integer.toString(i)));
+      }
+      indexer.flush();
+      // updates of a document go to the same shard
+      indexer.add(new SolrInputDocument("id", "0"));
+      indexer.flush();
+      assertEquals(2, indexer.toMap(new HashMap<>()).size());
+      assertEquals(0, statsSum(indexer, "failedDocs"));
+    } finally {
+      cluster.getSolrClient().commit(implicit);
+    }
+    SolrQuery all = new SolrQuery("*:*");
+    assertEquals(20, cluster.getSolrClient().query(implicit, all).getResults().getNumFound());
+    CollectionAdminRequest.deleteCollection(implicit).process(cluster.getSolrClient());
+  }
+
+  @Test
+  public void testBuilderValidation() {
+    CloudBulkIndexer.Builder builder = new CloudBulkIndexer.Builder(client, COLLECTION);
+    expectThrows(IllegalArgumentException.class, () -> builder.withMaxBatchDocs(0));
+    expectThrows(IllegalArgumentException.class, () -> builder.withMaxBatchBytes(0));
+    expectThrows(
+        IllegalArgumentException.class, () -> builder.withMaxLatency(-1, TimeUnit.SECONDS));
+    expectThrows(
+        IllegalArgumentException.class, () -> builder.withTargetLatency(0, TimeUnit.SECONDS));
+    expectThrows(IllegalArgumentException.class, () -> builder.withMaxInFlightRequests(0));
+    expectThrows(IllegalArgumentException.class, () -> builder.withMaxRetries(-1));
+    builder.withMaxRetries(0);
+  }
+
+  @Test
+  public void testEstimateBytes() {
+    SolrInputDocument doc = new SolrInputDocument("id", "12345");
+    doc.addField("b", new byte[10]);
+    doc.addChildDocument(new SolrInputDocument("id", "678"));
+    assertEquals(2 + 5 + 1 + 10 + 2 + 3, CloudBulkIndexer.estimateBytes(doc));
+  }
+}
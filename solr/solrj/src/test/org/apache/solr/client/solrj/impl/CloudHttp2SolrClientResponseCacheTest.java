@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CloudHttp2SolrClientResponseCacheTest extends SolrCloudTestCase {
+
+  private static final String COLLECTION = "responseCache";
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    configureCluster(1)
+        .addConfig(
+            "conf",
+            getFile("solrj")
+                .resolve("solr")
+                .resolve("configsets")
+                .resolve("response-cache")
+                .resolve("conf"))
+        .configure();
+    CollectionAdminRequest.createCollection(COLLECTION, "conf", 1, 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(COLLECTION, 1, 1);
+  }
+
+  private static CloudHttp2SolrClient newClient(int maxEntries) {
+    return newClient(maxEntries, 1, TimeUnit.HOURS);
+  }
+
+  private static CloudHttp2SolrClient newClient(int maxEntries, long maxAge, TimeUnit unit) {
+    return new CloudHttp2SolrClient.Builder(
+            Collections.singletonList(cluster.getZkServer().getZkAddress()), Optional.empty())
+        .withDefaultCollection(COLLECTION)
+        .withResponseCache(maxEntries, maxAge, unit)
+        .build();
+  }
+
+  @Test
+  public void testMaxAge() throws Exception {
+    expectThrows(IllegalArgumentException.class, () -> newClient(10, 0, TimeUnit.SECONDS));
+
+    try (CloudHttp2SolrClient client = newClient(10, 1, TimeUnit.MILLISECONDS)) {
+      ResponseCache cache = client.getResponseCache();
+      client.query(new SolrQuery("*:*"));
+      Thread.sleep(10);
+      // too old to be revalidated, even though the index did not change
+      client.query(new SolrQuery("*:*"));
+      assertEquals(0, cache.getHits());
+      assertEquals(2, cache.getMisses());
+    }
+  }
+
+  @Test
+  public void testRevalidation() throws Exception {
+    try (CloudHttp2SolrClient client = newClient(10)) {
+      client.add(new SolrInputDocument("id", "1"));
+      client.commit();
+      ResponseCache cache = client.getResponseCache();
+
+      QueryResponse first = client.query(new SolrQuery("*:*"));
+      assertEquals(1, first.getResults().getNumFound());
+      assertEquals(0, cache.getHits());
+      assertEquals(1, cache.getMisses());
+      assertEquals(1, cache.size());
+
+      QueryResponse second = client.query(new SolrQuery("*:*"));
+      assertSame(first.getResponse(), second.getResponse());
+      assertEquals(1, cache.getHits());
+      assertEquals(0.5, cache.getHitRatio(), 0.0);
+
+      // another query is cached on its own
+      client.query(new SolrQuery("id:1"));
+      assertEquals(2, cache.getMisses());
+      assertEquals(2, cache.size());
+
+      // a new searcher changes the ETag
+      client.add(new SolrInputDocument("id", "2"));
+      client.commit();
+      QueryResponse third = client.query(new SolrQuery("*:*"));
+      assertEquals(2, third.getResults().getNumFound());
+      assertEquals(1, cache.getHits());
+      assertEquals(3, cache.getMisses());
+
+      Map<String, Object> stats = cache.toMap(new HashMap<>());
+      assertEquals(1L, stats.get("hits"));
+      assertEquals(3L, stats.get("misses"));
+      assertEquals(2, stats.get("size"));
+    }
+  }
+
+  @Test
+  public void testReusedQuery() throws Exception {
+    try (CloudHttp2SolrClient client = newClient(10)) {
+      ResponseCache cache = client.getResponseCache();
+
+      // the state version the client adds to the params of a query must not change its key
+      SolrQuery query = new SolrQuery("*:*");
+      client.query(query);
+      client.query(query);
+      client.query(query);
+      assertNull(query.get(CloudSolrClient.STATE_VERSION));
+      assertEquals(2, cache.getHits());
+      assertEquals(1, cache.getMisses());
+      assertEquals(1, cache.size());
+    }
+  }
+
+  @Test
+  public void testUncachedRequests() throws Exception {
+    try (CloudHttp2SolrClient client = newClient(1)) {
+      ResponseCache cache = client.getResponseCache();
+
+      client.query(new SolrQuery("*:*"), SolrRequest.METHOD.POST);
+      QueryRequest withParser = new QueryRequest(new SolrQuery("*:*"));
+      withParser.setResponseParser(new JavaBinResponseParser());
+      withParser.process(client);
+      assertEquals(0, cache.getMisses());
+      assertEquals(0, cache.size());
+
+      // the least recently used response is evicted
+      client.query(new SolrQuery("id:1"));
+      client.query(new SolrQuery("id:2"));
+      client.query(new SolrQuery("id:1"));
+      assertEquals(0, cache.getHits());
+      assertEquals(3, cache.getMisses());
+      assertEquals(1, cache.size());
+      assertEquals(2L, cache.toMap(new HashMap<>()).get("evictions"));
+    }
+  }
+}
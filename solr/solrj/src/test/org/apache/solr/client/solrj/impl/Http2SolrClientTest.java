@@ -342,6 +342,20 @@ public class Http2SolrClientTest extends HttpSolrClientTestBase {
     }
   }
 
+  @Test
+  public void testAsyncQueryWithMaxConcurrentStreams() throws Exception {
+    DebugServlet.clear();
+    final var url = getBaseUrl() + DEBUG_SERVLET_PATH;
+    ResponseParser rp = new XMLResponseParser();
+    // the requests queue for the single stream allowed
+    final var builder =
+        new Http2SolrClient.Builder(url)
+            .withDefaultCollection(DEFAULT_CORE)
+            .withResponseParser(rp)
+            .withMaxConcurrentStreams(1);
+    super.testQueryAsync(builder);
+  }
+
   @Test
   public void testFollowRedirect() throws Exception {
     final String clientUrl = getBaseUrl() + REDIRECT_SERVLET_PATH;
@@ -286,6 +286,49 @@ public class LBHttp2SolrClientTest extends SolrTestCase {
     }
   }
 
+  @Test
+  public void testAsyncAdaptiveReplicaSelection() throws Exception {
+    LBSolrClient.Endpoint ep1 = new LBSolrClient.Endpoint("http://endpoint.one");
+    LBSolrClient.Endpoint ep2 = new LBSolrClient.Endpoint("http://endpoint.two");
+    List<LBSolrClient.Endpoint> endpointList = List.of(ep1, ep2);
+
+    Http2SolrClient.Builder b =
+        new Http2SolrClient.Builder("http://base.url").withConnectionTimeout(10, TimeUnit.SECONDS);
+    try (MockHttpSolrClient client = new MockHttpSolrClient("http://base.url", b);
+        LBHttp2SolrClient<MockHttpSolrClient> testClient =
+            new LBHttp2SolrClient.Builder<>(client, ep1, ep2)
+                .withAdaptiveReplicaSelection(true)
+                .build()) {
+      AdaptiveReplicaSelector selector = testClient.getReplicaSelector();
+      assertNotNull(selector);
+
+      // endpoint one has been slow lately
+      long start = selector.requestStarted(ep1);
+      selector.requestFinished(ep1, start - TimeUnit.SECONDS.toNanos(1), true);
+
+      int limit = 10;
+      for (int i = 0; i < limit; i++) {
+        QueryRequest queryRequest = new QueryRequest(new MapSolrParams(Map.of("q", "" + i)));
+        LBSolrClient.Req req = new LBSolrClient.Req(queryRequest, endpointList);
+        assertEquals(ep2.toString(), testClient.requestAsync(req).get().getServer());
+      }
+      assertEquals(Collections.nCopies(limit, ep2.toString()), client.lastBasePaths);
+
+      // an explicit preference is followed
+      QueryRequest queryRequest =
+          new QueryRequest(
+              new MapSolrParams(Map.of("q", "pref", "shards.preference", "replica.type:NRT")));
+      LBSolrClient.Req req = new LBSolrClient.Req(queryRequest, endpointList);
+      assertEquals(ep1.toString(), testClient.requestAsync(req).get().getServer());
+
+      // and so is a preference the request was marked with, e.g. defaultShardPreferences
+      queryRequest = new QueryRequest(new MapSolrParams(Map.of("q", "default")));
+      req = new LBSolrClient.Req(queryRequest, endpointList);
+      req.setPreferredOrder(true);
+      assertEquals(ep1.toString(), testClient.requestAsync(req).get().getServer());
+    }
+  }
+
   public static class MockHttpSolrClient extends Http2SolrClient {
 
     public List<SolrRequest<?>> lastSolrRequests = new ArrayList<>();
@@ -68,6 +68,12 @@ public class ShardParamsTest extends SolrTestCase {
     assertEquals(ShardParams.SHARDS_PURPOSE, "shards.purpose");
   }
 
+  public void testShardsHedge() {
+    assertEquals(ShardParams.SHARDS_HEDGE, "shards.hedge");
+    assertEquals(ShardParams.SHARDS_HEDGE_BUDGET, "shards.hedge.budget");
+    assertEquals(ShardParams.SHARDS_HEDGE_DELAY, "shards.hedge.delay");
+  }
+
   public void testRoute() {
     assertEquals(ShardParams._ROUTE_, "_route_");
   }
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.util;
+
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class TestByteArrayPool extends SolrTestCase {
+
+  @Test
+  public void testSizeClasses() {
+    ByteArrayPool pool = new ByteArrayPool(1024, 8192, 4096);
+    assertEquals(1024, pool.acquire(0).length);
+    assertEquals(1024, pool.acquire(1024).length);
+    assertEquals(2048, pool.acquire(1025).length);
+    assertEquals(8192, pool.acquire(5000).length);
+    assertEquals("not pooled", 8193, pool.acquire(8193).length);
+  }
+
+  @Test
+  public void testReuse() {
+    ByteArrayPool pool = new ByteArrayPool(1024, 8192, 4096);
+    byte[] buf = pool.acquire(2000);
+    pool.release(buf);
+    assertEquals(1, pool.size());
+    assertSame(buf, pool.acquire(1500));
+    assertNotSame(buf, pool.acquire(1500));
+
+    // arrays of other sizes are ignored
+    pool.release(new byte[1000]);
+    pool.release(new byte[3000]);
+    pool.release(new byte[16384]);
+    assertEquals(0, pool.size());
+  }
+
+  @Test
+  public void testBounded() {
+    ByteArrayPool pool = new ByteArrayPool(1024, 8192, 4096);
+    for (int i = 0; i < 10; i++) {
+      pool.release(new byte[1024]);
+      pool.release(new byte[8192]);
+    }
+    // 4 arrays of 1024 bytes, and one of 8192 bytes
+    assertEquals(5, pool.size());
+    expectThrows(IllegalArgumentException.class, () -> new ByteArrayPool(1000, 8192, 4096));
+  }
+}
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -480,6 +481,77 @@ public class TestJavaBinCodec extends SolrTestCaseJ4 {
     assertSame(l1.get(1), l2.get(1));
   }
 
+  @Test
+  public void testExternStringCacheAndBufferPool() throws Exception {
+    ByteArrayPool pool = new ByteArrayPool(8192, 65536, 65536);
+    JavaBinCodec.StringCache externCache =
+        new JavaBinCodec.StringCache(new MapBackedCache<>(new HashMap<>()));
+    SolrDocument doc = new SolrDocument();
+    doc.addField("id", "1");
+    doc.addField("str", "a value");
+    doc.addField("enum", new EnumFieldValue(1, "Low"));
+    doc.addField("long", TestUtil.randomUnicodeString(random(), 20000));
+    List<Object> types = generateAllDataTypes();
+    types.add(doc);
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try (JavaBinCodec codec = new JavaBinCodec().setBufferPool(pool)) {
+      codec.marshal(types, os);
+    }
+    int pooled = pool.size();
+    assertTrue("the buffers should be returned to the pool", pooled > 0);
+    byte[] bytes = os.toByteArray();
+
+    List<SolrDocument> docs = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      try (JavaBinCodec codec =
+          new JavaBinCodec().setBufferPool(pool).setExternStringCache(externCache)) {
+        List<?> read = (List<?>) codec.unmarshal(new ByteArrayInputStream(bytes));
+        compareObjects(read.subList(0, types.size() - 1), types.subList(0, types.size() - 1));
+        docs.add((SolrDocument) read.get(types.size() - 1));
+      }
+    }
+    assertEquals(doc.toString(), docs.get(0).toString());
+    SolrDocument d1 = docs.get(0), d2 = docs.get(1);
+    List<String> names1 = new ArrayList<>(d1.getFieldNames());
+    List<String> names2 = new ArrayList<>(d2.getFieldNames());
+    for (int i = 0; i < names1.size(); i++) {
+      assertSame("field names come from the cache", names1.get(i), names2.get(i));
+    }
+    assertSame(d1.getFieldValue("enum").toString(), d2.getFieldValue("enum").toString());
+    assertNotSame("other strings do not", d1.getFieldValue("str"), d2.getFieldValue("str"));
+    assertTrue("the codecs should reuse the pooled buffers", pool.size() <= pooled + 1);
+  }
+
+  @Test
+  public void testLRUStringBytesCache() {
+    // one entry for each of the 16 segments
+    JavaBinCodec.LRUStringBytesCache lru = new JavaBinCodec.LRUStringBytesCache(16, 8);
+    JavaBinCodec.StringCache cache = new JavaBinCodec.StringCache(lru);
+    List<String> decoded = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      decoded.add(cache.get(stringBytes("key" + i)));
+    }
+    // new names keep being cached, evicting the older ones
+    int cached = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (lru.get(stringBytes("key" + i)) != null) {
+        cached++;
+      }
+    }
+    assertTrue("cached: " + cached, cached > 0 && cached <= 16);
+    assertSame(decoded.get(999), cache.get(stringBytes("key999")));
+
+    // longer strings are never cached
+    assertNotSame(cache.get(stringBytes("a longer key")), cache.get(stringBytes("a longer key")));
+    assertNull(lru.get(stringBytes("a longer key")));
+  }
+
+  private static StringBytes stringBytes(String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    return new StringBytes(bytes, 0, bytes.length);
+  }
+
   public void genBinaryFiles() throws IOException {
 
     Object data = generateAllDataTypes();
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipException;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class TestResponseCompression extends SolrTestCase {
+
+  private static byte[] deflate(byte[] data, byte[] dictionary) throws IOException {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    if (dictionary != null) {
+      deflater.setDictionary(dictionary);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DeflaterOutputStream deflating = new DeflaterOutputStream(out, deflater)) {
+      deflating.write(data);
+    } finally {
+      deflater.end();
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] inflate(byte[] compressed) throws IOException {
+    try (InputStream in = ResponseCompression.inflate(new ByteArrayInputStream(compressed))) {
+      return in.readAllBytes();
+    }
+  }
+
+  private static byte[] randomResponse(String prefix) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = atLeast(10); i > 0; i--) {
+      sb.append(prefix).append("{\"id\":\"").append(random().nextInt()).append("\"}");
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testInflate() throws IOException {
+    byte[] data = randomResponse("response_without_dictionary");
+    assertArrayEquals(data, inflate(deflate(data, null)));
+    assertArrayEquals(new byte[0], inflate(deflate(new byte[0], null)));
+  }
+
+  @Test
+  public void testInflateWithDictionary() throws IOException {
+    String prefix = "registered_" + random().nextLong();
+    byte[] dictionary = (prefix + "{\"id\":\"").getBytes(StandardCharsets.UTF_8);
+    byte[] data = randomResponse(prefix);
+    byte[] compressed = deflate(data, dictionary);
+    assertTrue(compressed.length < deflate(data, null).length);
+
+    int id = ResponseCompression.registerDictionary(dictionary);
+    assertEquals(id, ResponseCompression.dictionaryId(dictionary));
+    assertArrayEquals(dictionary, ResponseCompression.getDictionary(id));
+    assertTrue(ResponseCompression.hasDictionary(ResponseCompression.getDictionariesHeader(), id));
+    assertArrayEquals(data, inflate(compressed));
+
+    byte[] unknown = ("unknown_" + random().nextLong()).getBytes(StandardCharsets.UTF_8);
+    expectThrows(ZipException.class, () -> inflate(deflate(data, unknown)));
+  }
+
+  @Test
+  public void testTrimDictionary() {
+    byte[] dictionary = new byte[ResponseCompression.MAX_DICTIONARY_LENGTH + 10];
+    random().nextBytes(dictionary);
+    byte[] trimmed = ResponseCompression.trimDictionary(dictionary);
+    assertEquals(ResponseCompression.MAX_DICTIONARY_LENGTH, trimmed.length);
+    assertEquals(dictionary[dictionary.length - 1], trimmed[trimmed.length - 1]);
+    assertEquals(dictionary[10], trimmed[0]);
+  }
+
+  @Test
+  public void testHeaders() {
+    assertTrue(ResponseCompression.isAccepted("solr-deflate"));
+    assertTrue(ResponseCompression.isAccepted("gzip, solr-deflate;q=0.5"));
+    assertFalse(ResponseCompression.isAccepted("gzip, deflate"));
+    assertFalse(ResponseCompression.isAccepted(null));
+    assertTrue(ResponseCompression.hasDictionary("12, 4294967295", -1));
+    assertFalse(ResponseCompression.hasDictionary("12,4294967295", 1));
+    assertFalse(ResponseCompression.hasDictionary(null, 12));
+  }
+}
@@ -52,6 +52,11 @@ public class SolrIgnoredThreadsFilter implements ThreadFilter {
       return true;
     }
 
+    // JVM wide JFR threads, started by VirtualThreadPinningStats
+    if (threadName.startsWith("JFR ")) {
+      return true;
+    }
+
     if (threadName.startsWith("Image Fetcher")) {
       return true;
     }